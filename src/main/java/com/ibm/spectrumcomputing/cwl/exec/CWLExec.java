@@ -61,13 +61,27 @@ public final class CWLExec {
      *            A CWL process instance
      */
     public void submit(CWLInstance instance) {
+        submit(instance, false);
+    }
+
+    /**
+     * Submits a CWL process instance to {@link CWLInstanceScheduler} to run the
+     * instance, if the instance is detached, this method returns after all of
+     * the steps of the instance were submitted
+     * 
+     * @param instance
+     *            A CWL process instance
+     * @param detach
+     *            Returns after all of the steps were submitted
+     */
+    public void submit(CWLInstance instance, boolean detach) {
         if (!running) {
             throw new IllegalAccessError("The cwlexec is not started");
         }
         if (instance == null) {
             throw new IllegalArgumentException("Failed to initialize cwl process instance.");
         }
-        CWLInstanceSchedulerTask task = new CWLInstanceSchedulerTask(instance);
+        CWLInstanceSchedulerTask task = new CWLInstanceSchedulerTask(instance, detach);
         CWLInstanceScheduler.getScheduler().scheduler(task);
         task.waitFuture();
     }
@@ -94,7 +108,10 @@ public final class CWLExec {
             if (!dbOnly) {
                 CWLInstanceScheduler.getScheduler().stop();
             }
-            dbMgr.getSessionFactory().close();
+            // the session factory was closed if the database was compacted
+            if (!dbMgr.getSessionFactory().isClosed()) {
+                dbMgr.getSessionFactory().close();
+            }
             running = false;
             logger.debug("cwlexec has been stopped");
         }
@@ -40,7 +40,9 @@ import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandUtil;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessRecord;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessSummary;
 import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
 import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
 
@@ -57,6 +59,11 @@ import ch.qos.logback.core.ConsoleAppender;
 public class CWLExecLauncher {
 
     private static final String COMMAND_NO_INPUT_MSG = "cwl.command.no.input";
+    private static final String LIMIT = "limit";
+    private static final String SKIP = "skip";
+    private static final String PURGE = "purge";
+    private static final String DETACH = "detach";
+    private static final String ATTACH = "attach";
 
     private static final Path DEFAULT_WORKDIR = Paths.get(System.getProperty("user.home"), "cwl-workdir");
     private static final Path DEFAULT_OUTDIR = Paths.get(System.getProperty("user.dir"));
@@ -94,6 +101,10 @@ public class CWLExecLauncher {
                 CommandLine commandLine = this.parseCommands(this.options, this.args);
                 if (commandLine.hasOption("r")) {
                     this.rerunCommand(commandLine);
+                } else if (commandLine.hasOption(ATTACH)) {
+                    this.attachCommand(commandLine);
+                } else if (commandLine.hasOption(PURGE)) {
+                    this.purgeWorkflows(commandLine);
                 } else if (commandLine.hasOption("l")) {
                     this.listWorkflows(commandLine);
                 } else if (commandLine.hasOption("h")) {
@@ -136,6 +147,10 @@ public class CWLExecLauncher {
         Option link = new Option("L", "link", false, ResourceLoader.getMessage("cwl.command.linkinput.option"));
         optionIndex.put(link, Integer.valueOf(++index));
         cmdOptions.addOption(link);
+        Option keepIntermediates = new Option("k", "keep-intermediates", false,
+                ResourceLoader.getMessage("cwl.command.keep.intermediates.option"));
+        optionIndex.put(keepIntermediates, Integer.valueOf(++index));
+        cmdOptions.addOption(keepIntermediates);
         Option preserveEntireEnv = new Option("p", "preserve-entire-environment",
                 false,
                 ResourceLoader.getMessage("cwl.command.preserve.all.env.option"));
@@ -150,6 +165,14 @@ public class CWLExecLauncher {
                 .desc(ResourceLoader.getMessage("cwl.command.rerun.option")).build();
         optionIndex.put(rerun, Integer.valueOf(++index));
         cmdOptions.addOption(rerun);
+        Option detach = Option.builder().longOpt(DETACH).hasArg(false)
+                .desc(ResourceLoader.getMessage("cwl.command.detach.option")).build();
+        optionIndex.put(detach, Integer.valueOf(++index));
+        cmdOptions.addOption(detach);
+        Option attach = Option.builder().longOpt(ATTACH).hasArg().argName("workflowId")
+                .desc(ResourceLoader.getMessage("cwl.command.attach.option")).build();
+        optionIndex.put(attach, Integer.valueOf(++index));
+        cmdOptions.addOption(attach);
         Option quiet = new Option("q", "quiet", false, ResourceLoader.getMessage("cwl.command.quiet.option"));
         optionIndex.put(quiet, Integer.valueOf(++index));
         cmdOptions.addOption(quiet);
@@ -160,6 +183,18 @@ public class CWLExecLauncher {
                 .desc(ResourceLoader.getMessage("cwl.command.list.option")).build();
         optionIndex.put(list, Integer.valueOf(++index));
         cmdOptions.addOption(list);
+        Option limit = Option.builder("n").longOpt(LIMIT).hasArg().argName("count")
+                .desc(ResourceLoader.getMessage("cwl.command.limit.option")).build();
+        optionIndex.put(limit, Integer.valueOf(++index));
+        cmdOptions.addOption(limit);
+        Option skip = Option.builder("s").longOpt(SKIP).hasArg().argName("count")
+                .desc(ResourceLoader.getMessage("cwl.command.skip.option")).build();
+        optionIndex.put(skip, Integer.valueOf(++index));
+        cmdOptions.addOption(skip);
+        Option purge = Option.builder().longOpt(PURGE).hasArg().argName("days")
+                .desc(ResourceLoader.getMessage("cwl.command.purge.option")).build();
+        optionIndex.put(purge, Integer.valueOf(++index));
+        cmdOptions.addOption(purge);
         Option version = new Option("v", "version", false, ResourceLoader.getMessage("cwl.command.version.option"));
         optionIndex.put(version, Integer.valueOf(++index));
         cmdOptions.addOption(version);
@@ -205,6 +240,9 @@ public class CWLExecLauncher {
         if (commandLine.hasOption("L")) {
             System.setProperty(IOUtil.USING_SYMBOL_LINK, "True");
         }
+        if (commandLine.hasOption("k")) {
+            System.setProperty(IOUtil.KEEP_INTERMEDIATES, "True");
+        }
         if (commandLine.hasOption("p")) {
             System.setProperty(CommandUtil.PRESERVE_ENTIRE_ENV, "True");
         }
@@ -308,7 +346,8 @@ public class CWLExecLauncher {
                 System.exit(1);
             }
         } else{
-            List<CWLMainProcessRecord> wfRecords = engineService.findFinishedCWLProcesses();
+            List<CWLMainProcessSummary> wfRecords = engineService.findFinishedCWLProcesses(
+                    parseCount(commandLine, SKIP), parseCount(commandLine, LIMIT));
             if (wfRecords != null && !wfRecords.isEmpty()) {
                 outputForX(wfRecords);
                 System.exit(0);
@@ -320,8 +359,35 @@ public class CWLExecLauncher {
         CWLExec.cwlexec().stop(true);
     }
 
+    private void purgeWorkflows(CommandLine commandLine) {
+        int days = parseCount(commandLine, PURGE);
+        CWLExec.cwlexec().start();
+        CWLExecService engineService = CWLServiceFactory.getService(CWLExecService.class);
+        int purged = engineService.purgeFinishedCWLProcesses(days);
+        CWLExecUtil.printStdoutMsg(ResourceLoader.getMessage("cwl.workflow.purged", String.valueOf(purged)));
+        CWLExec.cwlexec().stop(true);
+        System.exit(0);
+    }
+
+    private int parseCount(CommandLine commandLine, String longOpt) {
+        String value = commandLine.getOptionValue(longOpt);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            int count = Integer.parseInt(value);
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+        throw new IllegalArgumentException(ResourceLoader.getMessage("cwl.command.arg.invalid.count", longOpt, value));
+    }
+
     private void runCommand(CommandLine commandLine) {
         List<String> argList = commandLine.getArgList();
+        boolean detach = commandLine.hasOption(DETACH);
         int exitCode = 255;
         if (argList != null) {
             try {
@@ -329,11 +395,13 @@ public class CWLExecLauncher {
                 CWLExecService engineService = CWLServiceFactory.getService(CWLExecService.class);
                 if (argList.size() == 1) {
                     bindShutdownHook();
-                    exitCode = engineService.submit(owner, argList.get(0), null, this.execConfPath).getExitCode();
+                    exitCode = toExitCode(
+                            engineService.submit(owner, argList.get(0), null, this.execConfPath, detach), detach);
                 } else if (argList.size() == 2) {
                     bindShutdownHook();
-                    exitCode = engineService.submit(owner, argList.get(0), argList.get(1), this.execConfPath)
-                            .getExitCode();
+                    exitCode = toExitCode(
+                            engineService.submit(owner, argList.get(0), argList.get(1), this.execConfPath, detach),
+                            detach);
                 } else {
                     CWLExecUtil.printStderrMsg(ResourceLoader.getMessage(COMMAND_NO_INPUT_MSG));
                     this.printHelp();
@@ -383,13 +451,40 @@ public class CWLExecLauncher {
         System.exit(exitCode);
     }
 
+    private void attachCommand(CommandLine commandLine) {
+        int exitCode = 255;
+        String workflowId = commandLine.getOptionValue(ATTACH);
+        try {
+            CWLExec.cwlexec().start();
+            CWLExecService engineService = CWLServiceFactory.getService(CWLExecService.class);
+            bindShutdownHook();
+            exitCode = engineService.attach(workflowId).getExitCode();
+        } catch (CWLException e) {
+            CWLExecUtil.printStderrMsg(e.getMessage());
+            exitCode = e.getExceptionCode();
+        }
+        System.exit(exitCode);
+    }
+
+    /*
+     * A detached workflow keeps running in LSF, the command exits with 0 unless
+     * the workflow was finished before it was detached
+     */
+    private int toExitCode(CWLInstance instance, boolean detach) {
+        if (detach && !instance.isFinished()) {
+            CWLExecUtil.printStdoutMsg(ResourceLoader.getMessage("cwl.exec.workflow.detached", instance.getId()));
+            return 0;
+        }
+        return instance.getExitCode();
+    }
+
     private void printHelp() {
         HelpFormatter formatter = new HelpFormatter();
         formatter.setOptionComparator((o1, o2) -> optionIndex.get(o1) - optionIndex.get(o2));
         formatter.printHelp(200, ResourceLoader.getMessage("cwl.command.usage"), null, options, null);
     }
 
-    private void outputForX(List<CWLMainProcessRecord> wfRecords) {
+    private void outputForX(List<CWLMainProcessSummary> wfRecords) {
         SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         String format = "%-40s %-20s %-20s %-20s %-20s %-10s %-20s %n";
         Object[] columns = {
@@ -405,7 +500,7 @@ public class CWLExecLauncher {
         CWLExecUtil.formatPrint(format, columns);
         // print all of the work flow records
         if (wfRecords != null) {
-            for (CWLMainProcessRecord wfRecord : wfRecords) {
+            for (CWLMainProcessSummary wfRecord : wfRecords) {
                 Long submitTime = wfRecord.getSubmitTime();
                 Long startTime = wfRecord.getStartTime();
                 Long endTime = wfRecord.getEndTime();
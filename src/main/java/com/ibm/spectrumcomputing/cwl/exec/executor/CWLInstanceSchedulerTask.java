@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ibm.spectrumcomputing.cwl.exec.executor.lsf.LSFWorkflowRunner;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
@@ -40,6 +41,8 @@ public final class CWLInstanceSchedulerTask implements Runnable {
 
     private ScheduledFuture<?> future;
     private final CWLInstance instance;
+    private final boolean detach;
+    private LSFWorkflowRunner runner;
 
     /**
      * Construct a CWL process instance scheduler task
@@ -48,7 +51,21 @@ public final class CWLInstanceSchedulerTask implements Runnable {
      *            A CWL process instance
      */
     public CWLInstanceSchedulerTask(CWLInstance instance) {
+        this(instance, false);
+    }
+
+    /**
+     * Construct a CWL process instance scheduler task, if the instance is
+     * detached, this task is finished after all of the steps were submitted
+     * 
+     * @param instance
+     *            A CWL process instance
+     * @param detach
+     *            Finish this task after all of the steps were submitted
+     */
+    public CWLInstanceSchedulerTask(CWLInstance instance, boolean detach) {
         this.instance = instance;
+        this.detach = detach;
     }
 
     /**
@@ -73,11 +90,14 @@ public final class CWLInstanceSchedulerTask implements Runnable {
 
     private void schedule() throws CWLException {
         if (instance.getState() == CWLInstanceState.WAITING) {
-            LSFWorkflowRunner runner = LSFWorkflowRunner.runner(instance);
+            runner = LSFWorkflowRunner.runner(instance, detach);
             runner.start();
         }
         if (instance.isFinished()) {
             cancelTask();
+        } else if (detach && runner != null && runner.detach() && future != null) {
+            // the submitted jobs keep running, the runner is not stopped
+            future.cancel(false);
         }
     }
 
@@ -117,6 +137,10 @@ public final class CWLInstanceSchedulerTask implements Runnable {
                         instance.getExitCode());
             } catch (InterruptedException | ExecutionException e) {
                 logger.error("Fail to schedule the workflow {}", instance.getId());
+            } finally {
+                // the spans are kept if the flow ended before its profile
+                // was written
+                RunProfiler.clear(instance);
             }
         }
     }
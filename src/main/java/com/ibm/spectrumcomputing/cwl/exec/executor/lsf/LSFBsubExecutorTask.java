@@ -15,6 +15,8 @@
  */
 package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -25,12 +27,17 @@ import com.ibm.spectrumcomputing.cwl.exec.service.CWLInstanceService;
 import com.ibm.spectrumcomputing.cwl.exec.service.CWLRuntimeService;
 import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.cache.CallCacheUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ChainFuser;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutionResult;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutor;
+import com.ibm.spectrumcomputing.cwl.exec.util.outputs.OutputsCapturer;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.ProfilePhase;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
-import com.ibm.spectrumcomputing.cwl.model.process.tool.ExpressionTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
 import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
 
 /*
@@ -79,8 +86,15 @@ final class LSFBsubExecutorTask implements Runnable {
                 LSFReadyScatteJobExecutor.getExecutor().submit(new LSFReadyScatterJobExecutorTask(step, instance));
                 return;
             } else {
-            	if(instance.getProcess() instanceof ExpressionTool) {
-            		bsub = runtimeService.buildRuntimeCommand(instance);
+            	if (step.isExpressionStep()) {
+            	    step.runExpression();
+            	    return;
+            	} else if (step.getFusedNext() == null && CallCacheUtil.restore(instance)) {
+            	    finishCachedStep(instance);
+            	    return;
+            	} else if (step.isLocalStep()) {
+            	    step.runLocal();
+            	    return;
             	} else {
                     bsub = instance.getCommands();
                     logger.info(ResourceLoader.getMessage("cwl.exec.job.start",
@@ -88,13 +102,22 @@ final class LSFBsubExecutorTask implements Runnable {
                             CWLExecUtil.asPrettyCommandStr(bsub)));
             	}
             }
+        } else if (step.isExpressionStep() || step.isLocalStep() || step.getFusedPrevious() != null) {
+            // the step runs in process after the dependent steps are done
+            logger.debug("The step ({}) waits for its dependent steps", instance.getName());
+            return;
         } else {
             bsub = runtimeService.buildRuntimeCommand(instance);
             logger.info(ResourceLoader.getMessage("cwl.exec.job.prestart",
                     instance.getName(),
                     CWLExecUtil.asPrettyCommandStr(bsub)));
         }
+        if (step.getFusedNext() != null) {
+            bsub = fuseChain(instance, bsub);
+        }
+        long submitStart = System.currentTimeMillis();
         CommandExecutionResult bsubResult = CommandExecutor.run(bsub);
+        RunProfiler.record(instance, ProfilePhase.SUBMIT, submitStart);
         instance.setExecutionResult(bsubResult);
         if (bsubResult.getExitCode() == 0) {
             logger.info(ResourceLoader.getMessage("cwl.exec.job.submitted", instance.getName(),
@@ -118,4 +141,40 @@ final class LSFBsubExecutorTask implements Runnable {
                     255);
         }
     }
+
+    /*
+     * The head step of a fused chain submits the chain script instead of its
+     * command, if the head step is ready, its command is filled out to its
+     * step script and released
+     */
+    private List<String> fuseChain(CWLCommandInstance instance, List<String> bsub) throws CWLException {
+        Path chainScript = ChainFuser.createChainScript(step.findFusedChain());
+        List<String> fused = new ArrayList<>(bsub);
+        String command = fused.remove(fused.size() - 1);
+        if (instance.isReadyToRun()) {
+            if (CallCacheUtil.restore(instance)) {
+                // the outputs were restored from call cache, the step does nothing
+                command = "exit 0";
+            }
+            IOUtil.createCommandScript(ChainFuser.toStepScript(instance), command);
+            ChainFuser.releaseStep(instance);
+        }
+        fused.add(chainScript.toString());
+        return fused;
+    }
+
+    /*
+     * The outputs of the step were restored from the call cache, the step is
+     * done without bsub, a start event will be send, the waiting step will
+     * not wait it
+     */
+    private void finishCachedStep(CWLCommandInstance instance) throws CWLException {
+        OutputsCapturer.captureCommandOutputs(instance);
+        long now = new Date().getTime();
+        instance.setStartTime(now);
+        instance.setEndTime(now);
+        instance.setState(CWLInstanceState.DONE);
+        persistenceService.updateCWLProcessInstance(instance);
+        step.getMain().broadcast(new LSFJobEvent(LSFJobEventType.START, instance.getId(), instance.getName()));
+    }
 }
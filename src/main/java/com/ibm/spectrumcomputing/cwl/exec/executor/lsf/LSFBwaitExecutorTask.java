@@ -19,8 +19,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,12 +35,19 @@ import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecConfUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLStepBindingResolver;
+import com.ibm.spectrumcomputing.cwl.exec.util.cache.CallCacheUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ChainFuser;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutionResult;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutor;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.LSFCommandUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ResourceTuner;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ScatterPacker;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.CommandStdIOEvaluator;
+import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.ExpressionBatch;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.InputsEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.outputs.OutputsCapturer;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.ProfilePhase;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
 import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
 import com.ibm.spectrumcomputing.cwl.model.conf.PostFailureScript;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
@@ -47,6 +56,7 @@ import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLJobUsageRecord;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.WorkflowStepInput;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
@@ -70,6 +80,9 @@ final class LSFBwaitExecutorTask implements Runnable {
 
     private static final String CMD_FAILED_MSG = "cwl.exec.command.failed";
     private static final String JOB_START_WAIT_MSG = "cwl.exec.job.start.wait";
+    private static final int MAX_PIPELINE_WAIT_JOBS = 100;
+    private static final long FUSED_POLL_INTERVAL = 2000L;
+    private static final int FUSED_STATE_POLLS = 15;
 
     private static final Logger logger = LoggerFactory.getLogger(LSFBwaitExecutorTask.class);
 
@@ -79,6 +92,8 @@ final class LSFBwaitExecutorTask implements Runnable {
     private final LSFWorkflowStepRunner step;
 
     private List<CWLCommandInstance> dependencies = null;
+    private CWLCommandInstance pipelineUpstream = null;
+    private List<CWLScatterHolder> pipelinedHolders = null;
 
     /*
      * The terminated is a flag to mark the step is terminated step or not
@@ -88,10 +103,22 @@ final class LSFBwaitExecutorTask implements Runnable {
         this.step = step;
         if (!this.terminated) {
             this.dependencies = findAllDependencyInstances(step);
+            this.pipelineUpstream = step.getPipelineUpstream();
         }
         logger.debug("A bwait task ({}) (terminated={})", step.getInstance().getName(), terminated);
     }
 
+    /*
+     * The given dependencies of the step were started, e.g. the dependencies
+     * of an attached step were done
+     */
+    protected LSFBwaitExecutorTask(LSFWorkflowStepRunner step, List<CWLCommandInstance> dependencies) {
+        this.terminated = false;
+        this.step = step;
+        this.dependencies = dependencies;
+        logger.debug("A bwait task ({}) with {} dependencies", step.getInstance().getName(), dependencies.size());
+    }
+
     @Override
     public void run() {
         CWLCommandInstance instance = step.getInstance();
@@ -116,11 +143,26 @@ final class LSFBwaitExecutorTask implements Runnable {
 
     private int waitSteps() throws CWLException {
         CWLCommandInstance instance = step.getInstance();
+        long waitStart = System.currentTimeMillis();
+        if (isPipelined()) {
+            runPipelinedScatter(instance);
+        }
+        if (step.getFusedPrevious() != null && !this.terminated) {
+            return waitFusedStep(instance);
+        }
         List<String> bwait = buildStepBwaitCommamd(instance, this.dependencies);
+        if (bwait == null) {
+            // the steps were done, e.g. the steps outputs were restored from call cache
+            makeStepSuccessful(instance, this.dependencies);
+            return 0;
+        }
         if(!(step.getInstance().getProcess() instanceof ExpressionTool)) {
             logger.info(ResourceLoader.getMessage(JOB_START_WAIT_MSG, CWLExecUtil.asPrettyCommandStr(bwait)));
         }
         CommandExecutionResult bwaitResult = CommandExecutor.run(bwait);
+        if (this.dependencies != null) {
+            RunProfiler.record(instance, ProfilePhase.WAIT, waitStart);
+        }
         if (bwaitResult.getExitCode() != 0) {
             String bwaitFailedTipMsg = ResourceLoader.getMessage("cwl.exec.job.bwait.failed",
                     bwaitResult.getExitCode(), bwaitResult.getErrMsg());
@@ -150,15 +192,90 @@ final class LSFBwaitExecutorTask implements Runnable {
             // job env, but LSF bmod cannot support modify the job env, so we
             // need kill the placeholder job
             // firstly, then re-bsub the job with the env
-            if (dockcerAppEnabled(instance)) {
+            if (step.isExpressionStep()) {
+                step.runExpression();
+            } else if (step.isLocalStep()) {
+                step.runLocal();
+            } else if (step.getFusedPrevious() != null) {
+                fillOutPlaceholderStep(instance);
+                releaseFusedStep(instance);
+            } else if (dockcerAppEnabled(instance)) {
                 resubmitDockerStep(instance);
             } else {
                 fillOutActualCommand(instance);
+                if (step.getFusedNext() != null) {
+                    ChainFuser.releaseStep(instance);
+                }
                 resume(instance);
             }
         }
     }
 
+    /*
+     * The previous step of a fused step runs in the same chain job, waits for
+     * the exit code of the previous step instead of the job
+     */
+    private int waitFusedStep(CWLCommandInstance instance) throws CWLException {
+        CWLCommandInstance previous = step.getFusedPrevious().getInstance();
+        if (previous.getState() != CWLInstanceState.DONE) {
+            long waitStart = System.currentTimeMillis();
+            logger.info(ResourceLoader.getMessage("cwl.exec.job.fused.wait", instance.getName(), previous.getName(),
+                    String.valueOf(previous.getHPCJobId())));
+            int exitCode = waitFusedExitCode(previous);
+            RunProfiler.record(instance, ProfilePhase.WAIT, waitStart);
+            if (exitCode != 0) {
+                previous.setState(CWLInstanceState.EXITED);
+                previous.setEndTime(new Date().getTime());
+                previous.setExitCode(exitCode);
+                persistenceService.updateCWLProcessInstance(previous);
+                return exitCode;
+            }
+        }
+        makeStepSuccessful(instance, this.dependencies);
+        return 0;
+    }
+
+    private int waitFusedExitCode(CWLCommandInstance previous) {
+        int polls = 0;
+        while (true) {
+            Integer exitCode = ChainFuser.findExitCode(previous);
+            if (exitCode != null) {
+                return exitCode;
+            }
+            polls = polls + 1;
+            if (polls % FUSED_STATE_POLLS == 0) {
+                // the chain job may be killed before the step is run
+                CWLInstanceState state = LSFCommandUtil.findLSFJobState(previous.getHPCJobId());
+                if (state == CWLInstanceState.DONE || state == CWLInstanceState.EXITED) {
+                    exitCode = ChainFuser.findExitCode(previous);
+                    return exitCode != null ? exitCode : 255;
+                }
+            }
+            try {
+                Thread.sleep(FUSED_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 255;
+            }
+        }
+    }
+
+    /*
+     * The fused step was filled out, the chain job runs it after the previous
+     * step, the fused step shares the job ID of the chain
+     */
+    private void releaseFusedStep(CWLCommandInstance instance) throws CWLException {
+        long chainJobId = step.getFusedPrevious().getInstance().getHPCJobId();
+        ChainFuser.releaseStep(instance);
+        logger.info(ResourceLoader.getMessage("cwl.exec.job.fused.released", instance.getName(),
+                String.valueOf(chainJobId)));
+        instance.setHPCJobId(chainJobId);
+        instance.setState(CWLInstanceState.RUNNING);
+        instance.setStartTime(new Date().getTime());
+        persistenceService.updateCWLProcessInstance(instance);
+        step.getMain().broadcast(new LSFJobEvent(LSFJobEventType.START, instance.getId(), instance.getName()));
+    }
+
     private CWLCommandInstance tryToRecover(CWLCommandInstance mainInstance,
             List<CWLCommandInstance> dependencies) {
         CWLCommandInstance failedInstance = null;
@@ -177,13 +294,21 @@ final class LSFBwaitExecutorTask implements Runnable {
     }
 
     private List<String> buildSingleBwaitCommand(CWLCommandInstance instance) {
+        if (instance.getState() == CWLInstanceState.DONE) {
+            return null;
+        }
         return Arrays.asList(BWAIT, "-w", String.format("done(%d)", instance.getHPCJobId()));
     }
 
     private List<String> buildBwaitCommand(List<CWLCommandInstance> instances) {
         List<String> waitJobs = new ArrayList<>();
         for (CWLCommandInstance instance : instances) {
-            waitJobs.add(String.format("done(%d)", instance.getHPCJobId()));
+            if (instance.getState() != CWLInstanceState.DONE) {
+                waitJobs.add(String.format("done(%d)", instance.getHPCJobId()));
+            }
+        }
+        if (waitJobs.isEmpty()) {
+            return null;
         }
         return Arrays.asList(BWAIT, "-w", String.join(" && ", waitJobs));
     }
@@ -206,6 +331,9 @@ final class LSFBwaitExecutorTask implements Runnable {
 
     private CWLCommandInstance recoverFailedInstance(CWLCommandInstance instance) {
         CWLCommandInstance failedInstance = null;
+        if (instance.getState() == CWLInstanceState.DONE) {
+            return failedInstance;
+        }
         int exitCode = findLSFJobExitCode(instance.getHPCJobId());
         if (!inSuccessCodes(exitCode, instance)) {
             PostFailureScript pfs = getPostScriptConf(instance);
@@ -250,7 +378,9 @@ final class LSFBwaitExecutorTask implements Runnable {
             logger.debug("Prepare bsub command for LSF docker app\n{}",
                     CWLExecUtil.asPrettyCommandStr(commands));
         }
+        long submitStart = System.currentTimeMillis();
         CommandExecutionResult bsubResult = CommandExecutor.run(commands);
+        RunProfiler.record(instance, ProfilePhase.SUBMIT, submitStart);
         instance.setExecutionResult(bsubResult);
         if (bsubResult.getExitCode() == 0) {
             LSFCommandUtil.killJobs(placeholderJobs);
@@ -281,9 +411,13 @@ final class LSFBwaitExecutorTask implements Runnable {
             // are done, we bsub a
             // placeholder job (just exit the scatter exit code) to represent
             // the scatter step
-            instance.setScatterHolders(new ArrayList<>());
-            buildScatterCommands(instance);
-            createScatterResultGatherStep(instance);
+            if (this.pipelinedHolders != null) {
+                completePipelinedScatter(instance);
+            } else {
+                instance.setScatterHolders(new ArrayList<>());
+                buildScatterCommands(instance);
+                createScatterResultGatherStep(instance);
+            }
         } else {
             fillOutPlaceholderStep(instance);
         }
@@ -295,7 +429,9 @@ final class LSFBwaitExecutorTask implements Runnable {
                 step.getInstance().getName(),
                 String.valueOf(step.getInstance().getHPCJobId()),
                 CWLExecUtil.asPrettyCommandStr(bresume)));
+        long submitStart = System.currentTimeMillis();
         CommandExecutionResult resumeResult = CommandExecutor.run(bresume);
+        RunProfiler.record(instance, ProfilePhase.SUBMIT, submitStart);
         if (resumeResult.getExitCode() == 0) {
             instance.setState(CWLInstanceState.RUNNING);
             instance.setStartTime(new Date().getTime());
@@ -374,6 +510,13 @@ final class LSFBwaitExecutorTask implements Runnable {
     }
 
     private void captureStepOutputs(CWLCommandInstance instance) throws CWLException {
+        if (instance.getState() == CWLInstanceState.DONE) {
+            // the outputs were captured
+            step.getMain().broadcast(new LSFJobEvent(LSFJobEventType.DONE, instance.getId(), instance.getName()));
+            return;
+        }
+        long captureStart = System.currentTimeMillis();
+        RunProfiler.recordLSFJob(instance, captureStart);
         if (this.terminated) {
             Path cwlOutputJsonFile = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR), "cwl.output.json");
             if (!cwlOutputJsonFile.toFile().exists()) {
@@ -391,41 +534,81 @@ final class LSFBwaitExecutorTask implements Runnable {
 	                IOUtil.readLSFOutputFile(Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
 	                        String.format("%d_out", instance.getHPCJobId())))));
         }
+        RunProfiler.record(instance, ProfilePhase.CAPTURE, captureStart);
         instance.setState(CWLInstanceState.DONE);
         instance.setEndTime(new Date().getTime());
         persistenceService.updateCWLProcessInstance(instance);
+        CallCacheUtil.store(instance);
+        recordJobUsage(instance);
         step.getMain().broadcast(new LSFJobEvent(LSFJobEventType.DONE, instance.getId(), instance.getName()));
     }
 
+    /*
+     * If the auto-tune is enabled, records the actual resource usage of a
+     * finished step job, the usage of scatter jobs are not recorded
+     */
+    private void recordJobUsage(CWLCommandInstance instance) {
+        if (ResourceTuner.findAutoTuneConf(instance) == null || instance.getScatter() != null ||
+                instance.getProcess() instanceof ExpressionTool || instance.getHPCJobId() <= 0 ||
+                instance.getFusedHead() != null) {
+            return;
+        }
+        try {
+            CWLJobUsageRecord usage = LSFCommandUtil.findLSFJobUsage(instance.getHPCJobId());
+            if (usage != null && usage.getMaxMem() != null) {
+                usage.setToolKey(ResourceTuner.toToolKey(instance));
+                usage.setSizeBucket(ResourceTuner.toSizeBucket(instance));
+                usage.setEndTime(new Date().getTime());
+                persistenceService.addJobUsageRecord(usage);
+            }
+        } catch (Exception e) {
+            logger.warn(ResourceLoader.getMessage("cwl.exec.job.usage.record.failed", instance.getName(),
+                    e.getMessage()));
+        }
+    }
+
     private void createScatterResultGatherStep(CWLCommandInstance instance) throws CWLException {
         // Scatter a single job to scatter jobs and submit them
         CWLExecUtil.printScatterTip(instance);
-        int scatterIndex = 1;
-        for (CWLScatterHolder scatterHolder : instance.getScatterHolders()) {
+        // The packed scatter steps are run by the job of their chunk
+        List<CWLScatterHolder> jobHolders = ScatterPacker.findJobHolders(instance.getScatterHolders());
+        for (CWLScatterHolder scatterHolder : jobHolders) {
             List<String> scatterCommands = scatterHolder.getCommand();
             String history = ResourceLoader.getMessage("cwl.exec.scatter.job.start", instance.getName(),
-                    scatterIndex, CWLExecUtil.asPrettyCommandStr(scatterCommands));
+                    scatterHolder.getScatterIndex(), CWLExecUtil.asPrettyCommandStr(scatterCommands));
             logger.info(history);
-            scatterIndex = scatterIndex + 1;
         }
-        List<CommandExecutionResult> resultList = CommandExecutor.runScatter(instance.getScatterHolders());
-        List<String> waitJobs = new ArrayList<>();
-        scatterIndex = 1;
-        for (CommandExecutionResult result : resultList) {
+        long submitStart = System.currentTimeMillis();
+        List<CommandExecutionResult> resultList = CommandExecutor.runScatter(jobHolders);
+        RunProfiler.record(instance, ProfilePhase.SUBMIT, submitStart);
+        List<Long> scatterJobIds = new ArrayList<>();
+        for (int i = 0; i < resultList.size(); i++) {
+            CommandExecutionResult result = resultList.get(i);
             if (result.getExitCode() == 0) {
                 logger.info(ResourceLoader.getMessage("cwl.exec.scatter.job.submitted", instance.getName(),
-                        scatterIndex, result.getOutMsg()));
+                        jobHolders.get(i).getScatterIndex(), result.getOutMsg()));
                 String jobId = CWLExecUtil.matchJobId("Job <(\\d+)>.*", result.getOutMsg());
-                waitJobs.add(String.format("done(%s)", jobId));
+                scatterJobIds.add(Long.valueOf(jobId));
             } else {
                 throw new CWLException(
                         ResourceLoader.getMessage(CMD_FAILED_MSG, result.getCommands(), result.getErrMsg()),
                         255);
             }
-            scatterIndex = scatterIndex + 1;
         }
+        gatherScatterJobs(instance, jobHolders, scatterJobIds);
+    }
+
+    private void gatherScatterJobs(CWLCommandInstance instance,
+            List<CWLScatterHolder> jobHolders,
+            List<Long> scatterJobIds) throws CWLException {
+        ScatterPacker.assignJobIds(instance.getScatterHolders(), scatterJobIds);
+        step.getMain().broadcast(new LSFJobEvent(LSFJobEventType.SCATTERED, instance.getId(), instance.getName()));
         // Start to wait scatter jobs and gather the wait result
         int waitCode = 0;
+        List<String> waitJobs = new ArrayList<>();
+        for (Long jobId : scatterJobIds) {
+            waitJobs.add(String.format("done(%d)", jobId));
+        }
         List<CommandExecutionResult> waitResults = CommandExecutor
                 .runScatter(LSFCommandUtil.pageWaitCommands(waitJobs));
         for (CommandExecutionResult result : waitResults) {
@@ -434,6 +617,20 @@ final class LSFBwaitExecutorTask implements Runnable {
                 break;
             }
         }
+        long notified = System.currentTimeMillis();
+        for (int i = 0; i < scatterJobIds.size(); i++) {
+            RunProfiler.recordLSFScatterJob(instance, jobHolders.get(i).getScatterIndex(),
+                    scatterJobIds.get(i), notified);
+        }
+        if (waitCode == 0) {
+            ScatterPacker.recordChunkUsage(instance, jobHolders, scatterJobIds);
+        } else {
+            // a packed scatter step reports its own exit code
+            Integer elementExitCode = ScatterPacker.findFailedElementExitCode(instance);
+            if (elementExitCode != null) {
+                waitCode = elementExitCode;
+            }
+        }
         // Fill out the wait result
         List<String> commands = LSFCommandUtil.buildScatterWaitJobCommmand(instance, waitCode);
         instance.setCommands(commands);
@@ -443,31 +640,189 @@ final class LSFBwaitExecutorTask implements Runnable {
         IOUtil.createCommandScript(placeholder, commands.get(commands.size() - 1));
     }
 
+    /*
+     * The scatter elements of this step are pipelined if the upstream scatter
+     * jobs were submitted
+     */
+    private boolean isPipelined() {
+        if (this.pipelineUpstream == null || this.pipelineUpstream.isEmptyScatter() ||
+                this.pipelineUpstream.getState() == CWLInstanceState.DONE ||
+                this.pipelineUpstream.getScatterHolders().isEmpty()) {
+            return false;
+        }
+        for (CWLScatterHolder scatterHolder : this.pipelineUpstream.getScatterHolders()) {
+            if (scatterHolder.getHPCJobId() <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Waits the upstream scatter jobs, once an upstream scatter job is done,
+     * captures the outputs of its scatter elements and submits the
+     * corresponding scatter elements of this step. If an upstream scatter job
+     * exited, stops submitting, the failure is handled when the upstream step
+     * is waited
+     */
+    private void runPipelinedScatter(CWLCommandInstance instance) throws CWLException {
+        logger.info(ResourceLoader.getMessage("cwl.exec.scatter.job.pipelined", instance.getName(),
+                this.pipelineUpstream.getName()));
+        WorkflowStep instStep = instance.getStep();
+        for (WorkflowStepInput stepInput : instStep.getIn()) {
+            if (!instance.getScatter().contains(stepInput.getId())) {
+                CWLStepBindingResolver.resolveStepInput(instance, instStep, stepInput);
+            }
+        }
+        instance.setReadyToRun(true);
+        this.pipelinedHolders = new ArrayList<>();
+        Map<Long, List<Integer>> pendingJobs = new LinkedHashMap<>();
+        for (CWLScatterHolder scatterHolder : this.pipelineUpstream.getScatterHolders()) {
+            pendingJobs.computeIfAbsent(scatterHolder.getHPCJobId(), k -> new ArrayList<>())
+                    .add(scatterHolder.getScatterIndex());
+        }
+        while (!pendingJobs.isEmpty()) {
+            List<Long> waitedJobs = new ArrayList<>();
+            List<String> endedJobs = new ArrayList<>();
+            for (Long jobId : pendingJobs.keySet()) {
+                waitedJobs.add(jobId);
+                endedJobs.add(String.format("ended(%d)", jobId));
+                if (endedJobs.size() == MAX_PIPELINE_WAIT_JOBS) {
+                    break;
+                }
+            }
+            List<String> bwait = Arrays.asList(BWAIT, "-w", String.join(" || ", endedJobs));
+            logger.debug("Wait the upstream scatter jobs of step ({}) by {}", instance.getName(), bwait);
+            CommandExecutor.run(bwait);
+            List<Integer> doneElements = takeDoneElements(pendingJobs, waitedJobs,
+                    LSFCommandUtil.findLSFJobStates(waitedJobs));
+            if (doneElements == null) {
+                logger.debug("An upstream scatter job of step ({}) exited", instance.getName());
+                return;
+            }
+            if (doneElements.isEmpty()) {
+                // the rest scatter elements are submitted after the upstream step is done
+                return;
+            }
+            for (Integer scatterIndex : doneElements) {
+                submitPipelinedScatterJob(instance, scatterIndex);
+            }
+        }
+    }
+
+    /*
+     * Takes the waited upstream scatter jobs that are done out of the pending
+     * jobs and returns their scatter element indexes, if a waited upstream job
+     * exited, returns null
+     */
+    static List<Integer> takeDoneElements(Map<Long, List<Integer>> pendingJobs,
+            List<Long> waitedJobs,
+            Map<Long, CWLInstanceState> states) {
+        List<Integer> doneElements = new ArrayList<>();
+        for (Long jobId : waitedJobs) {
+            CWLInstanceState state = states.get(jobId);
+            if (state == CWLInstanceState.EXITED) {
+                return null;
+            } else if (state == CWLInstanceState.DONE) {
+                doneElements.addAll(pendingJobs.remove(jobId));
+            }
+        }
+        return doneElements;
+    }
+
+    private void submitPipelinedScatterJob(CWLCommandInstance instance, int scatterIndex) throws CWLException {
+        Map<String, Object> scatterValues = new HashMap<>();
+        for (WorkflowStepInput stepInput : instance.getStep().getIn()) {
+            if (instance.getScatter().contains(stepInput.getId())) {
+                String source = stepInput.getSource().get(0);
+                String outputId = source.substring(source.lastIndexOf('/') + 1);
+                scatterValues.put(stepInput.getId(),
+                        OutputsCapturer.captureScatterOutput(this.pipelineUpstream, outputId, scatterIndex));
+            }
+        }
+        CWLScatterHolder scatterHolder = runtimeService.buildRuntimeScatterCommand(instance, scatterValues,
+                scatterIndex);
+        logger.info(ResourceLoader.getMessage("cwl.exec.scatter.job.start", instance.getName(), scatterIndex,
+                CWLExecUtil.asPrettyCommandStr(scatterHolder.getCommand())));
+        long submitStart = System.currentTimeMillis();
+        CommandExecutionResult result = CommandExecutor.run(scatterHolder.getCommand());
+        RunProfiler.record(instance, ProfilePhase.SUBMIT, submitStart);
+        if (result.getExitCode() != 0) {
+            throw new CWLException(
+                    ResourceLoader.getMessage(CMD_FAILED_MSG, result.getCommands(), result.getErrMsg()),
+                    255);
+        }
+        logger.info(ResourceLoader.getMessage("cwl.exec.scatter.job.submitted", instance.getName(),
+                scatterIndex, result.getOutMsg()));
+        String jobId = CWLExecUtil.matchJobId("Job <(\\d+)>.*", result.getOutMsg());
+        scatterHolder.setHPCJobId(Long.valueOf(jobId));
+        this.pipelinedHolders.add(scatterHolder);
+    }
+
+    /*
+     * After the upstream step is done, submits the scatter elements that were
+     * not pipelined, then waits all scatter elements and gathers them
+     */
+    private void completePipelinedScatter(CWLCommandInstance instance) throws CWLException {
+        WorkflowStep instStep = instance.getStep();
+        for (WorkflowStepInput stepInput : instStep.getIn()) {
+            if (instance.getScatter().contains(stepInput.getId())) {
+                CWLStepBindingResolver.resolveStepInput(instance, instStep, stepInput);
+            }
+        }
+        List<Integer> submitted = new ArrayList<>();
+        for (CWLScatterHolder scatterHolder : this.pipelinedHolders) {
+            submitted.add(scatterHolder.getScatterIndex());
+        }
+        for (CWLScatterHolder scatterHolder : this.pipelineUpstream.getScatterHolders()) {
+            if (!submitted.contains(scatterHolder.getScatterIndex())) {
+                submitPipelinedScatterJob(instance, scatterHolder.getScatterIndex());
+            }
+        }
+        this.pipelinedHolders.sort(Comparator.comparingInt(CWLScatterHolder::getScatterIndex));
+        instance.setScatterHolders(this.pipelinedHolders);
+        List<Long> scatterJobIds = new ArrayList<>();
+        for (CWLScatterHolder scatterHolder : this.pipelinedHolders) {
+            scatterJobIds.add(scatterHolder.getHPCJobId());
+        }
+        gatherScatterJobs(instance, this.pipelinedHolders, scatterJobIds);
+    }
+
     private List<String> fillOutPlaceholderStep(CWLCommandInstance instance) throws CWLException {
         WorkflowStep instStep = instance.getStep();
         List<WorkflowStepInput> in = instStep.getIn();
+        long resolveStart = System.currentTimeMillis();
         for (WorkflowStepInput stepInput : in) {
             CWLStepBindingResolver.resolveStepInput(instance, instStep, stepInput);
         }
+        long evaluateStart = System.currentTimeMillis();
+        RunProfiler.record(instance, ProfilePhase.RESOLVE, resolveStart, evaluateStart);
         CommandLineTool commandLineTool = (CommandLineTool) instStep.getRun();
         InlineJavascriptRequirement jsReq = CWLExecUtil.findRequirement(instance, InlineJavascriptRequirement.class);
         Map<String, String> runtime = instance.getRuntime();
         List<CommandInputParameter> inputs = commandLineTool.getInputs();
-        InputsEvaluator.eval(jsReq, runtime, inputs);
-        // print the value of inputs
-        for (CommandInputParameter parameter : inputs) {
-            Object value = parameter.getValue();
-            if (value == null) {
-                value = parameter.getDefaultValue();
-            }
-            if (value != null && value instanceof CWLFile) {
-                value = ((CWLFile) value).getPath();
+        // evaluate the expressions of the step on one script engine
+        ExpressionBatch.open();
+        try {
+            InputsEvaluator.eval(jsReq, runtime, inputs);
+            // print the value of inputs
+            for (CommandInputParameter parameter : inputs) {
+                Object value = parameter.getValue();
+                if (value == null) {
+                    value = parameter.getDefaultValue();
+                }
+                if (value != null && value instanceof CWLFile) {
+                    value = ((CWLFile) value).getPath();
+                }
+                logger.debug("Resolve input ({}) of step ({}) to <{}>", parameter.getId(), instance.getName(), value);
             }
-            logger.debug("Resolve input ({}) of step ({}) to <{}>", parameter.getId(), instance.getName(), value);
+            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdin());
+            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStderr());
+            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdout());
+        } finally {
+            ExpressionBatch.close();
         }
-        CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdin());
-        CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStderr());
-        CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdout());
+        RunProfiler.record(instance, ProfilePhase.EVALUATE, evaluateStart);
         instance.setReadyToRun(true);
         List<String> commands = runtimeService.buildRuntimeCommand(instance);
         Path placeholder = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
@@ -476,7 +831,12 @@ final class LSFBwaitExecutorTask implements Runnable {
             logger.info(ResourceLoader.getMessage("cwl.exec.job.fill.command", commands.get(commands.size() - 1),
                     placeholder));
         }
-        IOUtil.createCommandScript(placeholder, commands.get(commands.size() - 1));
+        String command = commands.get(commands.size() - 1);
+        if (!dockcerAppEnabled(instance) && CallCacheUtil.restore(instance)) {
+            // the outputs were restored from call cache, the job does nothing
+            command = "exit 0";
+        }
+        IOUtil.createCommandScript(placeholder, command);
         instance.setCommands(commands);
         return commands;
     }
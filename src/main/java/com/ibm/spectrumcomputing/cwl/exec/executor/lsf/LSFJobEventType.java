@@ -16,8 +16,9 @@
 package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
 
 /*
- * The type of LSF job event
+ * The type of LSF job event, the SCATTERED event means the scatter jobs of a
+ * scatter step were submitted
  */
 enum LSFJobEventType {
-    START, EXIT, DONE
+    START, EXIT, DONE, SCATTERED
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * The local step executor, the local steps run on the submission host, a
+ * bounded number of them can run at the same time
+ */
+final class LSFLocalExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(LSFLocalExecutor.class);
+
+    private static final long STOP_TIMEOUT = 10;
+
+    private static LSFLocalExecutor executor;
+    private final ThreadPoolExecutor service;
+
+    private LSFLocalExecutor(int slots) {
+        service = new ThreadPoolExecutor(slots, slots, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+    }
+
+    /*
+     * Returns a singleton local executor, if the executor was created with
+     * other slots, it is resized to the given slots
+     */
+    protected static synchronized LSFLocalExecutor getExecutor(int slots) {
+        if (executor == null) {
+            executor = new LSFLocalExecutor(slots);
+        } else {
+            executor.resize(slots);
+        }
+        return executor;
+    }
+
+    /*
+     * Stops the local executor if it was created, the running local steps are
+     * interrupted, then their processes are destroyed. After stopping, a new
+     * executor will be created by the next caller
+     */
+    protected static synchronized void stopExecutor() {
+        if (executor != null) {
+            executor.service.shutdownNow();
+            try {
+                if (!executor.service.awaitTermination(STOP_TIMEOUT, TimeUnit.SECONDS)) {
+                    logger.warn("The local steps were not stopped in {} seconds", STOP_TIMEOUT);
+                }
+            } catch (InterruptedException e) {
+                // a local step stops the flow by itself
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    /*
+     * Submits a local step task
+     */
+    protected Future<?> submit(Runnable task) {
+        return service.submit(task);
+    }
+
+    /*
+     * The number of local steps can run at the same time
+     */
+    protected int getSlots() {
+        return service.getMaximumPoolSize();
+    }
+
+    private void resize(int slots) {
+        // the core size never exceeds the maximum size
+        if (slots > service.getMaximumPoolSize()) {
+            service.setMaximumPoolSize(slots);
+            service.setCorePoolSize(slots);
+        } else if (slots < service.getCorePoolSize()) {
+            service.setCorePoolSize(slots);
+            service.setMaximumPoolSize(slots);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLInstanceService;
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.cache.CallCacheUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutionResult;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutor;
+import com.ibm.spectrumcomputing.cwl.exec.util.outputs.OutputsCapturer;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.ProfilePhase;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvVarRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvironmentDef;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/*
+ * A local step task, this task runs a ready step as a local process on the
+ * submission host, after the process is done, the step outputs are captured
+ * and a start event will be send, the waiting step will not wait it
+ */
+final class LSFLocalExecutorTask implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LSFLocalExecutorTask.class);
+
+    /*
+     * Runs the step command as a child of a shell, the shell kills the child
+     * process tree when it is terminated, a parent is killed before its
+     * children, so it cannot run its next command
+     */
+    private static final String KILL_TREE_WRAPPER = "kill_tree() { "
+            + "cs=$(pgrep -P \"$1\"); kill -TERM \"$1\" 2>/dev/null; for c in $cs; do kill_tree \"$c\"; done; }; "
+            + "trap 'kill_tree $child; exit 143' TERM; \"$@\" & child=$!; wait $child";
+
+    private final CWLInstanceService persistenceService = CWLServiceFactory.getService(CWLInstanceService.class);
+    private final LSFWorkflowStepRunner step;
+
+    protected LSFLocalExecutorTask(LSFWorkflowStepRunner step) {
+        this.step = step;
+    }
+
+    @Override
+    public void run() {
+        CWLCommandInstance instance = step.getInstance();
+        try {
+            int exitCode = runStep(instance);
+            // the flow was stopped, the step process was destroyed
+            if (exitCode != 0 && !Thread.currentThread().isInterrupted()) {
+                LSFJobEvent event = new LSFJobEvent(LSFJobEventType.EXIT, instance.getId(), instance.getName());
+                event.setExitCode(exitCode);
+                step.getMain().broadcast(event);
+            }
+        } catch (Exception e) {
+            logger.error(
+                    ResourceLoader.getMessage("cwl.exec.job.start.failed", instance.getName(), e.getMessage()));
+            if (logger.isDebugEnabled()) {
+                logger.error("The exception stacks:", e);
+            }
+            LSFJobEvent event = new LSFJobEvent(LSFJobEventType.EXIT, instance.getId(), instance.getName());
+            event.setExitCode(255);
+            step.getMain().broadcast(event);
+        }
+    }
+
+    private int runStep(CWLCommandInstance instance) throws CWLException {
+        instance.setStartTime(new Date().getTime());
+        if (!CallCacheUtil.restore(instance)) {
+            List<String> commands = instance.getCommands();
+            logger.info(ResourceLoader.getMessage("cwl.exec.job.local.start", instance.getName(),
+                    CWLExecUtil.asPrettyCommandStr(commands)));
+            instance.setState(CWLInstanceState.RUNNING);
+            persistenceService.updateCWLProcessInstance(instance);
+            long runStart = System.currentTimeMillis();
+            CommandExecutionResult result = runCommand(instance);
+            RunProfiler.record(instance, ProfilePhase.RUN, runStart);
+            int exitCode = result.isExecuted() ? result.getExitCode() : 255;
+            if (exitCode != 0 && !inSuccessCodes(exitCode, instance)) {
+                logger.error(ResourceLoader.getMessage("cwl.exec.job.local.exited", instance.getName(),
+                        exitCode, result.getErrMsg()));
+                instance.setExitCode(exitCode);
+                instance.setState(CWLInstanceState.EXITED);
+                instance.setEndTime(new Date().getTime());
+                persistenceService.updateCWLProcessInstance(instance);
+                return exitCode;
+            }
+            logger.info(ResourceLoader.getMessage("cwl.exec.job.local.done", instance.getName(),
+                    result.getOutMsg()));
+        }
+        long captureStart = System.currentTimeMillis();
+        OutputsCapturer.captureCommandOutputs(instance);
+        RunProfiler.record(instance, ProfilePhase.CAPTURE, captureStart);
+        instance.setState(CWLInstanceState.DONE);
+        instance.setEndTime(new Date().getTime());
+        persistenceService.updateCWLProcessInstance(instance);
+        CallCacheUtil.store(instance);
+        step.getMain().broadcast(new LSFJobEvent(LSFJobEventType.START, instance.getId(), instance.getName()));
+        return 0;
+    }
+
+    /*
+     * Runs the local command of a step in its working directory, if the
+     * running thread is interrupted, the processes of the command are killed
+     */
+    protected static CommandExecutionResult runCommand(CWLCommandInstance instance) {
+        List<String> commands = new ArrayList<>(Arrays.asList("/bin/sh", "-c", KILL_TREE_WRAPPER, "sh"));
+        commands.addAll(instance.getCommands());
+        return CommandExecutor.run(commands, buildEnv(instance),
+                Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR)));
+    }
+
+    /*
+     * Like the LSF job, the TMPDIR and the EnvVarRequirement are set to the
+     * process environment
+     */
+    private static Map<String, String> buildEnv(CWLCommandInstance instance) {
+        Map<String, String> env = new HashMap<>();
+        env.put("TMPDIR", CWLExecUtil.findMainInstance(instance).getRuntime().get(CommonUtil.RUNTIME_TMP_DIR));
+        EnvVarRequirement envVarRequirement = CWLExecUtil.findRequirement(instance, EnvVarRequirement.class);
+        if (envVarRequirement != null) {
+            for (EnvironmentDef envDef : envVarRequirement.getEnvDef()) {
+                env.put(envDef.getEnvName(), String.valueOf(envDef.getEnvValue().getValue()));
+            }
+        }
+        return env;
+    }
+
+    private boolean inSuccessCodes(int exitCode, CWLCommandInstance instance) {
+        CommandLineTool tool = (CommandLineTool) instance.getProcess();
+        if (tool.getSuccessCodes() != null) {
+            for (int code : tool.getSuccessCodes()) {
+                if (code == exitCode) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
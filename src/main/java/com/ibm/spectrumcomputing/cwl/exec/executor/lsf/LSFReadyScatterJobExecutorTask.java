@@ -21,6 +21,7 @@ import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutionResult;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutor;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.LSFCommandUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ScatterPacker;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
@@ -102,22 +103,24 @@ class LSFReadyScatterJobExecutorTask implements Runnable {
         } else {
             // scatter the step and submit scattered jobs
             CWLExecUtil.printScatterTip(instance);
-            int scatterIndex = 1;
-            for (CWLScatterHolder scatterHolder : instance.getScatterHolders()) {
+            // The packed scatter steps are run by the job of their chunk
+            List<CWLScatterHolder> jobHolders = ScatterPacker.findJobHolders(instance.getScatterHolders());
+            for (CWLScatterHolder scatterHolder : jobHolders) {
                 String history = ResourceLoader.getMessage("cwl.exec.scatter.job.start", instance.getName(),
-                        scatterIndex, CWLExecUtil.asPrettyCommandStr(scatterHolder.getCommand()));
+                        scatterHolder.getScatterIndex(), CWLExecUtil.asPrettyCommandStr(scatterHolder.getCommand()));
                 logger.info(history);
-                scatterIndex = scatterIndex + 1;
             }
-            List<CommandExecutionResult> resultList = CommandExecutor.runScatter(instance.getScatterHolders());
+            List<CommandExecutionResult> resultList = CommandExecutor.runScatter(jobHolders);
             List<String> waitJobs = new ArrayList<>();
-            scatterIndex = 1;
-            for (CommandExecutionResult result : resultList) {
+            List<Long> scatterJobIds = new ArrayList<>();
+            for (int i = 0; i < resultList.size(); i++) {
+                CommandExecutionResult result = resultList.get(i);
                 if (result.getExitCode() == 0) {
                     logger.info(ResourceLoader.getMessage("cwl.exec.scatter.job.submitted", instance.getName(),
-                            scatterIndex, result.getOutMsg()));
+                            jobHolders.get(i).getScatterIndex(), result.getOutMsg()));
                     String jobId = CWLExecUtil.matchJobId("Job <(\\d+)>.*", result.getOutMsg());
                     waitJobs.add(String.format("done(%s)", jobId));
+                    scatterJobIds.add(Long.valueOf(jobId));
                 } else {
                     throw new CWLException(
                             ResourceLoader.getMessage("cwl.exec.command.failed",
@@ -125,8 +128,9 @@ class LSFReadyScatterJobExecutorTask implements Runnable {
                                     result.getErrMsg()),
                             255);
                 }
-                scatterIndex = scatterIndex + 1;
             }
+            ScatterPacker.assignJobIds(instance.getScatterHolders(), scatterJobIds);
+            step.getMain().broadcast(new LSFJobEvent(LSFJobEventType.SCATTERED, instance.getId(), instance.getName()));
             // start to wait scattered jobs, after waited, gather the wait
             // result and build a gather job
             int waitCode = 0;
@@ -143,6 +147,15 @@ class LSFReadyScatterJobExecutorTask implements Runnable {
                     break;
                 }
             }
+            if (waitCode == 0) {
+                ScatterPacker.recordChunkUsage(instance, jobHolders, scatterJobIds);
+            } else {
+                // a packed scatter step reports its own exit code
+                Integer elementExitCode = ScatterPacker.findFailedElementExitCode(instance);
+                if (elementExitCode != null) {
+                    waitCode = elementExitCode;
+                }
+            }
             bsub = LSFCommandUtil.buildScatterWaitJobCommmand(instance, waitCode);
         }
         return bsub;
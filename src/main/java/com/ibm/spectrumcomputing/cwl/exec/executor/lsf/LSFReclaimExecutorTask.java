@@ -0,0 +1,208 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLInstanceService;
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFileBase;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.input.InputRecordField;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/*
+ * A reclaim task, this task removes the intermediate outputs of the done steps,
+ * once all consumers of a done step are done and the outputs of the step are
+ * not referred by the workflow outputs
+ */
+final class LSFReclaimExecutorTask implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LSFReclaimExecutorTask.class);
+
+    private final CWLInstanceService persistenceService = CWLServiceFactory.getService(CWLInstanceService.class);
+    private final LSFWorkflowRunner main;
+
+    protected LSFReclaimExecutorTask(LSFWorkflowRunner main) {
+        this.main = main;
+    }
+
+    @Override
+    public void run() {
+        List<CWLCommandInstance> reclaimables = new ArrayList<>();
+        Set<Path> retainedPaths = new HashSet<>();
+        // the step states are changed by the runner events, find the
+        // reclaimable steps under the runner lock, the removal of the outputs
+        // does not block the events
+        synchronized (main) {
+            main.clearReclaimPending();
+            if (main.getInstance().isFinished()) {
+                return;
+            }
+            Map<String, CWLCommandInstance> instances = new HashMap<>();
+            for (LSFWorkflowStepRunner step : main.getSteps()) {
+                instances.put(step.getInstance().getName(), step.getInstance());
+            }
+            for (CWLCommandInstance instance : instances.values()) {
+                if (instance.getState() != CWLInstanceState.DONE || instance.getReclaimedBytes() != -1L) {
+                    continue;
+                }
+                if (isReclaimable(instance, instances)) {
+                    reclaimables.add(instance);
+                } else {
+                    // a path may be passed through to the outputs of other steps
+                    retainedPaths.addAll(toPaths(findOutputFiles(instance)));
+                }
+            }
+            for (CWLCommandInstance instance : reclaimables) {
+                // claim the step, so it is reclaimed only once
+                instance.setReclaimedBytes(0L);
+            }
+        }
+        for (CWLCommandInstance instance : reclaimables) {
+            reclaim(instance, retainedPaths);
+        }
+    }
+
+    private boolean isReclaimable(CWLCommandInstance instance, Map<String, CWLCommandInstance> instances) {
+        if (main.getWorkflowOutputSteps().contains(instance.getName())) {
+            return false;
+        }
+        Set<String> consumers = main.getStepConsumers().get(instance.getName());
+        if (consumers != null) {
+            for (String consumer : consumers) {
+                CWLCommandInstance consumerInstance = instances.get(consumer);
+                if (consumerInstance == null || consumerInstance.getState() != CWLInstanceState.DONE) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void reclaim(CWLCommandInstance instance, Set<Path> retainedPaths) {
+        Path workDir = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR));
+        List<CWLFileBase> outputFiles = findOutputFiles(instance);
+        for (CWLFileBase file : outputFiles) {
+            if (file instanceof CWLFile) {
+                // read the deferred size before the file is removed
+                ((CWLFile) file).getSize();
+            }
+        }
+        long reclaimedBytes = 0L;
+        for (Path path : toPaths(outputFiles)) {
+            if (!path.startsWith(workDir) || path.equals(workDir) || isRetained(path, retainedPaths)) {
+                continue;
+            }
+            try {
+                reclaimedBytes += delete(path);
+            } catch (IOException e) {
+                logger.warn(ResourceLoader.getMessage("cwl.exec.job.reclaim.failed", instance.getName(), path,
+                        e.getMessage()));
+            }
+        }
+        instance.setReclaimedBytes(reclaimedBytes);
+        persistenceService.updateCWLProcessInstance(instance);
+        logger.info(ResourceLoader.getMessage("cwl.exec.job.reclaim", instance.getName(),
+                String.valueOf(reclaimedBytes)));
+    }
+
+    private boolean isRetained(Path path, Set<Path> retainedPaths) {
+        for (Path retainedPath : retainedPaths) {
+            if (retainedPath.startsWith(path) || path.startsWith(retainedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long delete(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return 0L;
+        }
+        long size = 0L;
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> walker = Files.walk(path)) {
+            walker.sorted(Comparator.reverseOrder()).forEach(paths::add);
+        }
+        for (Path p : paths) {
+            if (Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS)) {
+                size += Files.size(p);
+            }
+            Files.deleteIfExists(p);
+        }
+        return size;
+    }
+
+    private List<CWLFileBase> findOutputFiles(CWLCommandInstance instance) {
+        List<CWLFileBase> files = new ArrayList<>();
+        for (CWLParameter output : instance.getProcess().getOutputs()) {
+            addOutputFiles(output.getValue(), files);
+        }
+        return files;
+    }
+
+    private void addOutputFiles(Object value, List<CWLFileBase> files) {
+        if (value instanceof CWLFileBase) {
+            CWLFileBase file = (CWLFileBase) value;
+            files.add(file);
+            if (file instanceof CWLFile && ((CWLFile) file).getSecondaryFiles() != null) {
+                for (CWLFileBase secondaryFile : ((CWLFile) file).getSecondaryFiles()) {
+                    addOutputFiles(secondaryFile, files);
+                }
+            }
+        } else if (value instanceof InputRecordField) {
+            addOutputFiles(((InputRecordField) value).getValue(), files);
+        } else if (value instanceof List<?>) {
+            for (Object element : (List<?>) value) {
+                addOutputFiles(element, files);
+            }
+        } else if (value instanceof Map<?, ?>) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                addOutputFiles(element, files);
+            }
+        }
+    }
+
+    private Set<Path> toPaths(List<CWLFileBase> files) {
+        Set<Path> paths = new HashSet<>();
+        for (CWLFileBase file : files) {
+            if (file.getPath() != null) {
+                paths.add(Paths.get(file.getPath()).normalize());
+            }
+        }
+        return paths;
+    }
+}
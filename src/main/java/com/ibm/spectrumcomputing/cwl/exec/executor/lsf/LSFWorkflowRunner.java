@@ -21,8 +21,10 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,10 +33,15 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.ibm.spectrumcomputing.cwl.exec.service.CWLInstanceService;
 import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLInstanceDependencyResolver;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLStepBindingResolver;
+import com.ibm.spectrumcomputing.cwl.exec.util.CriticalPathResolver;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ChainFuser;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.LSFCommandUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.outputs.CWLOutputJsonParser;
 import com.ibm.spectrumcomputing.cwl.exec.util.outputs.OutputsCapturer;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
+import com.ibm.spectrumcomputing.cwl.model.conf.CriticalPathConf;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLExpressionInstance;
@@ -44,12 +51,13 @@ import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.output.WorkflowOutputParameter;
 import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
 import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
 
 /**
  * Run a CWL process (Workflow or CommandLineTool) instance with LSF
  */
-public final class LSFWorkflowRunner {
+public class LSFWorkflowRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(LSFWorkflowRunner.class);
 
@@ -59,12 +67,23 @@ public final class LSFWorkflowRunner {
     private final List<LSFWorkflowStepRunner> steps = new ArrayList<>();
     private final CWLInstance instance;
     private final int stepsCount;
+    private final Map<String, Set<String>> stepConsumers = new HashMap<>();
+    private final Set<String> workflowOutputSteps = new HashSet<>();
+    private final boolean detachable;
+    private boolean reclaimable;
+    private boolean reclaimPending;
+    private volatile boolean detached = false;
 
     /**
      * Stops this runner
      */
     public static void stop() {
-        if (workflowRunner != null) {
+        if (workflowRunner != null && workflowRunner.detached) {
+            // the detached jobs keep running in LSF
+            LSFBsubExecutor.getExecutor().stop();
+            LSFBwaitExecutor.getExecutor().stop();
+            LSFReclaimExecutor.getExecutor().stop();
+        } else if (workflowRunner != null) {
             //For CTRL-C operation, the instance may be not finished
             if (!workflowRunner.instance.isFinished()) {
                 workflowRunner.instance.setState(CWLInstanceState.EXITED);
@@ -76,6 +95,8 @@ public final class LSFWorkflowRunner {
             LSFReadyScatteJobExecutor.getExecutor().stop();
             LSFBsubExecutor.getExecutor().stop();
             LSFBwaitExecutor.getExecutor().stop();
+            LSFReclaimExecutor.getExecutor().stop();
+            LSFLocalExecutor.stopExecutor();
         }
     }
 
@@ -89,16 +110,39 @@ public final class LSFWorkflowRunner {
      *             Failed to run the given CWL process instance
      */
     public static synchronized LSFWorkflowRunner runner(CWLInstance instance) throws CWLException {
+        return runner(instance, false);
+    }
+
+    /**
+     * Get a singleton runner
+     * 
+     * @param instance
+     *            A CWL process (Workflow or CommandLineTool) instance will be ran with LSF
+     * @param detach
+     *            The runner will be detached after all of the steps were submitted
+     * @return A singleton runner
+     * @throws CWLException
+     *             Failed to run the given CWL process instance
+     */
+    public static synchronized LSFWorkflowRunner runner(CWLInstance instance, boolean detach) throws CWLException {
         if (workflowRunner == null) {
-            workflowRunner = new LSFWorkflowRunner(instance);
+            workflowRunner = new LSFWorkflowRunner(instance, detach);
         }
         return workflowRunner;
     }
 
-    private LSFWorkflowRunner(CWLInstance instance) throws CWLException {
+    private LSFWorkflowRunner(CWLInstance instance, boolean detach) throws CWLException {
         this.instance = instance;
+        // the steps of a detached (or attached) flow must not depend on this
+        // engine until they are submitted to LSF
+        this.detachable = detach || hasSubmittedJobs(instance);
         this.addSteps(this.instance);
         this.stepsCount = steps.size();
+        if (this.resolveStepConsumers()) {
+            this.reclaimable = !"True".equalsIgnoreCase(System.getProperty(IOUtil.KEEP_INTERMEDIATES));
+            this.prioritizeSteps();
+            this.fuseChains();
+        }
     }
 
     /**
@@ -107,21 +151,69 @@ public final class LSFWorkflowRunner {
     public void start() {
         instance.setState(CWLInstanceState.RUNNING);
         instance.setStartTime(new Date().getTime());
+        List<LSFWorkflowStepRunner> attachedSteps = new ArrayList<>();
         for (LSFWorkflowStepRunner step : steps) {
             // When rerun a workflow, the step state may be DONE
             if (step.getInstance().getState() == CWLInstanceState.DONE) {
                 logger.info(ResourceLoader.getMessage("cwl.exec.job.has.done", step.getInstance().getName()));
+            } else if (step.getInstance().getHPCJobId() > 0) {
+                // When attach a workflow, the step job may be submitted
+                attachStep(step, attachedSteps);
             } else {
                 logger.debug("submit step {}", step.getInstance().getName());
                 LSFBsubExecutor.getExecutor().submit(new LSFBsubExecutorTask(step));
             }
         }
+        for (LSFWorkflowStepRunner step : attachedSteps) {
+            CWLCommandInstance stepInstance = step.getInstance();
+            broadcast(new LSFJobEvent(LSFJobEventType.START, stepInstance.getId(), stepInstance.getName()));
+        }
+    }
+
+    /**
+     * Detaches this runner after all of the steps were submitted to LSF, the
+     * submitted jobs will not be killed when this runner is stopped
+     * 
+     * @return If the runner was detached return true, otherwise, return false
+     */
+    public synchronized boolean detach() {
+        if (!detached) {
+            for (LSFWorkflowStepRunner step : steps) {
+                CWLCommandInstance stepInstance = step.getInstance();
+                boolean submitted = stepInstance.getState() == CWLInstanceState.DONE ||
+                        stepInstance.getHPCJobId() > 0 ||
+                        (step.isExpressionStep() && !stepInstance.isReadyToRun());
+                if (!submitted) {
+                    return false;
+                }
+            }
+            persistenceService.updateCWLProcessInstance(instance);
+            detached = true;
+            logger.debug("The workflow ({}) was detached", instance.getId());
+        }
+        return true;
     }
 
     protected CWLInstance getInstance() {
         return instance;
     }
 
+    protected boolean isDetachable() {
+        return detachable;
+    }
+
+    protected List<LSFWorkflowStepRunner> getSteps() {
+        return steps;
+    }
+
+    protected Map<String, Set<String>> getStepConsumers() {
+        return stepConsumers;
+    }
+
+    protected Set<String> getWorkflowOutputSteps() {
+        return workflowOutputSteps;
+    }
+
     protected void broadcast(LSFJobEvent event) {
         LSFJobEventType type = event.getType();
         logger.debug("broadcast event {}, {}", event.getType(), event.getInstanceName());
@@ -131,10 +223,14 @@ public final class LSFWorkflowRunner {
             break;
         case DONE:
             finishWorkflow();
+            reclaimIntermediateOutputs();
             break;
         case EXIT:
             exitWorkflow(event);
             break;
+        case SCATTERED:
+            scatterStep(event);
+            break;
         default:
             break;
         }
@@ -153,6 +249,15 @@ public final class LSFWorkflowRunner {
         }
     }
 
+    private void scatterStep(LSFJobEvent event) {
+        for (LSFWorkflowStepRunner step : steps) {
+            CWLInstanceState state = step.getInstance().getState();
+            if (state != CWLInstanceState.DONE && state != CWLInstanceState.EXITED) {
+                step.listen(event);
+            }
+        }
+    }
+
     private synchronized void finishWorkflow() {
         int doneStepsCount = 0;
         for (LSFWorkflowStepRunner step : steps) {
@@ -196,6 +301,21 @@ public final class LSFWorkflowRunner {
         }
     }
 
+    /*
+     * Submits a reclaim task if no reclaim task is pending, the done events
+     * that arrive before the pending task runs are covered by it
+     */
+    private synchronized void reclaimIntermediateOutputs() {
+        if (reclaimable && !reclaimPending && !instance.isFinished()) {
+            reclaimPending = true;
+            LSFReclaimExecutor.getExecutor().submit(new LSFReclaimExecutorTask(this));
+        }
+    }
+
+    protected synchronized void clearReclaimPending() {
+        reclaimPending = false;
+    }
+
     private void exitWorkflow(LSFJobEvent event) {
         if (instance instanceof CWLCommandInstance) {
             updateLSFTerminatedJob((CWLCommandInstance) instance, CWLInstanceState.EXITED, event.getExitCode());
@@ -225,6 +345,7 @@ public final class LSFWorkflowRunner {
         instance.setEndTime(new Date().getTime());
         instance.setState(state);
         persistenceService.updateCWLProcessInstance(instance);
+        RunProfiler.write(instance);
         instance.setFinished(true);
     }
 
@@ -258,6 +379,7 @@ public final class LSFWorkflowRunner {
         instance.setEndTime(new Date().getTime());
         instance.setState(state);
         persistenceService.updateCWLProcessInstance(instance);
+        RunProfiler.write(instance);
         instance.setFinished(true);
     }
 
@@ -280,6 +402,141 @@ public final class LSFWorkflowRunner {
         }
     }
 
+    /*
+     * Resolves the consumers of each step and the steps that the workflow
+     * outputs depend on, the intermediate outputs of a step can be reclaimed
+     * after all its consumers are done
+     */
+    private boolean resolveStepConsumers() {
+        if (!(instance instanceof CWLWorkflowInstance)) {
+            return false;
+        }
+        try {
+            for (LSFWorkflowStepRunner step : steps) {
+                CWLCommandInstance stepInstance = step.getInstance();
+                if (stepInstance.getStep() == null || stepInstance.getStep().getDependencies() == null) {
+                    continue;
+                }
+                for (String stepName : CWLInstanceDependencyResolver.resolveDependentSteps(stepInstance)) {
+                    stepConsumers.computeIfAbsent(stepName, k -> new HashSet<>()).add(stepInstance.getName());
+                }
+            }
+            workflowOutputSteps.addAll(
+                    CWLInstanceDependencyResolver.resolveWorkflowOutputDependentSteps((CWLWorkflowInstance) instance));
+            return true;
+        } catch (CWLException e) {
+            logger.debug("The intermediate outputs will be kept, {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /*
+     * If the critical path is configured, sorts the steps in descending order
+     * of their longest downstream path, so the steps on the critical path are
+     * submitted first, and maps the path weight to the LSF user priority
+     */
+    private void prioritizeSteps() {
+        CriticalPathConf criticalPathConf = instance.getFlowExecConf() == null ? null
+                : instance.getFlowExecConf().getCriticalPath();
+        if (criticalPathConf == null) {
+            return;
+        }
+        List<String> stepNames = new ArrayList<>();
+        for (LSFWorkflowStepRunner step : steps) {
+            stepNames.add(step.getInstance().getName());
+        }
+        Map<String, Long> weights = CriticalPathResolver.resolveStepWeights(stepNames, stepConsumers,
+                persistenceService.findHistoricalStepRuntimes(instance));
+        List<String> criticalPath = CriticalPathResolver.findCriticalPath(weights, stepConsumers);
+        long maxWeight = criticalPath.isEmpty() ? 0L : weights.get(criticalPath.get(0));
+        steps.sort((s1, s2) -> Long.compare(weights.get(s2.getInstance().getName()),
+                weights.get(s1.getInstance().getName())));
+        for (LSFWorkflowStepRunner step : steps) {
+            CWLCommandInstance stepInstance = step.getInstance();
+            stepInstance.setUserPriority(CriticalPathResolver.toUserPriority(weights.get(stepInstance.getName()),
+                    maxWeight, criticalPathConf.getMaxPriority()));
+        }
+        RunProfiler.recordCriticalPath(instance, weights, criticalPath);
+        logger.debug("The critical path ({}): {}", maxWeight, criticalPath);
+    }
+
+    /*
+     * If the chain fusion is enabled, fuses the linear chains of steps, a step
+     * is fused to its only dependent step if it is the only consumer of that
+     * step and they are compatible, so the chain runs in one LSF job
+     */
+    private void fuseChains() {
+        if (instance.getFlowExecConf() == null || !instance.getFlowExecConf().isFuseChains() || detachable) {
+            return;
+        }
+        Map<String, LSFWorkflowStepRunner> stepRunners = new HashMap<>();
+        for (LSFWorkflowStepRunner step : steps) {
+            stepRunners.put(step.getInstance().getName(), step);
+        }
+        try {
+            for (LSFWorkflowStepRunner step : steps) {
+                CWLCommandInstance stepInstance = step.getInstance();
+                if (stepInstance.getState() == CWLInstanceState.DONE || stepInstance.getStep() == null ||
+                        stepInstance.getStep().getDependencies() == null) {
+                    continue;
+                }
+                Set<String> dependencies = CWLInstanceDependencyResolver.resolveDependentSteps(stepInstance);
+                if (dependencies.size() != 1) {
+                    continue;
+                }
+                String dependency = dependencies.iterator().next();
+                LSFWorkflowStepRunner previous = stepRunners.get(dependency);
+                if (previous != null && previous.getInstance().getState() != CWLInstanceState.DONE &&
+                        stepConsumers.get(dependency).size() == 1 &&
+                        previous.isFusible() && step.isFusible() && previous.canFuse(step)) {
+                    previous.fuse(step);
+                }
+            }
+        } catch (CWLException e) {
+            logger.debug("The steps will not be fused, {}", e.getMessage());
+            return;
+        }
+        for (LSFWorkflowStepRunner step : steps) {
+            if (step.getFusedPrevious() == null && step.getFusedNext() != null) {
+                List<String> chain = new ArrayList<>();
+                for (CWLCommandInstance member : step.findFusedChain()) {
+                    member.setFusedHead(step.getInstance().getName());
+                    chain.add(member.getName());
+                }
+                logger.info(ResourceLoader.getMessage("cwl.exec.job.fused", chain));
+            }
+        }
+    }
+
+    /*
+     * A held job waits for its dependencies, if the dependencies were done,
+     * the job is filled out and resumed, a running job sends a start event
+     */
+    private void attachStep(LSFWorkflowStepRunner step, List<LSFWorkflowStepRunner> attachedSteps) {
+        CWLCommandInstance stepInstance = step.getInstance();
+        logger.info(ResourceLoader.getMessage("cwl.exec.job.attached", stepInstance.getName(),
+                String.valueOf(stepInstance.getHPCJobId())));
+        if (stepInstance.getState() == CWLInstanceState.RUNNING) {
+            attachedSteps.add(step);
+        } else if (stepInstance.isReadyToRun()) {
+            LSFBwaitExecutor.getExecutor().submit(new LSFBwaitExecutorTask(step, new ArrayList<>()));
+        }
+    }
+
+    private boolean hasSubmittedJobs(CWLInstance instance) {
+        if (instance instanceof CWLCommandInstance) {
+            return ((CWLCommandInstance) instance).getHPCJobId() > 0;
+        }
+        if (instance instanceof CWLWorkflowInstance) {
+            for (CWLInstance stepInstance : ((CWLWorkflowInstance) instance).getInstances()) {
+                if (hasSubmittedJobs(stepInstance)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private void bwaitTerminalStep(String terminalStepId) {
         for (LSFWorkflowStepRunner step : steps) {
             if (step.getInstance().getId().equals(terminalStepId)) {
@@ -298,6 +555,9 @@ public final class LSFWorkflowRunner {
                         String.valueOf(stepInstance.getHPCJobId())));
                 stepInstance.setState(CWLInstanceState.KILLED);
                 jobIds.add(Long.valueOf(stepInstance.getHPCJobId()));
+            } else if (stepInstance.getState() == CWLInstanceState.WAITING && step.getFusedPrevious() != null) {
+                // the fused step was not released, stop its chain job
+                ChainFuser.abortStep(stepInstance);
             }
         }
         LSFCommandUtil.killJobs(jobIds);
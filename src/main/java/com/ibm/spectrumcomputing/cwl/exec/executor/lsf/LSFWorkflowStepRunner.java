@@ -16,32 +16,53 @@
 package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLInstanceService;
 import com.ibm.spectrumcomputing.cwl.exec.service.CWLRuntimeService;
 import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecConfUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLInstanceDependencyResolver;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLStepBindingResolver;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ResourceTuner;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.CommandStdIOEvaluator;
+import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.ExpressionBatch;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.InputsEvaluator;
+import com.ibm.spectrumcomputing.cwl.exec.util.outputs.OutputsCapturer;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.ProfilePhase;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLTypeSymbol;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.WorkflowStepInput;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.method.ScatterMethod;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvVarRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvironmentDef;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.InlineJavascriptRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.ResourceRequirement;
 import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.ExpressionTool;
 import com.ibm.spectrumcomputing.cwl.model.process.workflow.WorkflowStep;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
 
 /*
  * Run a CWL Workflow step instance
@@ -49,13 +70,20 @@ import com.ibm.spectrumcomputing.cwl.model.process.workflow.WorkflowStep;
 final class LSFWorkflowStepRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(LSFWorkflowStepRunner.class);
+    private static final int MAX_RUNTIME_SAMPLES = 200;
 
     private final LSFWorkflowRunner main;
     private final CWLCommandInstance instance;
     private final List<String> expectDependencies = new ArrayList<>();
 
     private AtomicInteger actualDependencies = new AtomicInteger(0);
+    private CWLCommandInstance pipelineUpstream;
+    private AtomicBoolean pipelineStarted = new AtomicBoolean(false);
+    private Boolean local;
+    private LSFWorkflowStepRunner fusedPrevious;
+    private LSFWorkflowStepRunner fusedNext;
 
+    private final CWLInstanceService persistenceService = CWLServiceFactory.getService(CWLInstanceService.class);
     private final CWLRuntimeService runtimeService = CWLServiceFactory.getService(CWLRuntimeService.class);
 
     protected LSFWorkflowStepRunner(LSFWorkflowRunner main, CWLCommandInstance instance) throws CWLException {
@@ -63,6 +91,7 @@ final class LSFWorkflowStepRunner {
         this.instance = instance;
         if (this.instance.getState() != CWLInstanceState.DONE) {
             resovleExpectDependencies();
+            this.pipelineUpstream = resolvePipelineUpstream();
         }
     }
 
@@ -78,10 +107,163 @@ final class LSFWorkflowStepRunner {
         return expectDependencies;
     }
 
+    protected CWLCommandInstance getPipelineUpstream() {
+        return pipelineUpstream;
+    }
+
+    protected LSFWorkflowStepRunner getFusedPrevious() {
+        return fusedPrevious;
+    }
+
+    protected LSFWorkflowStepRunner getFusedNext() {
+        return fusedNext;
+    }
+
     /*
-     * Listen a job start event, then start to wait this job
+     * Fuses the next step to this step, the next step runs in the job of this
+     * step after this step is done
+     */
+    protected void fuse(LSFWorkflowStepRunner next) {
+        this.fusedNext = next;
+        next.fusedPrevious = this;
+    }
+
+    /*
+     * Returns the step instances of the fused chain that starts from this step
+     */
+    protected List<CWLCommandInstance> findFusedChain() {
+        List<CWLCommandInstance> chain = new ArrayList<>();
+        for (LSFWorkflowStepRunner member = this; member != null; member = member.fusedNext) {
+            chain.add(member.getInstance());
+        }
+        return chain;
+    }
+
+    /*
+     * A step can be fused into a chain if it is a top level CommandLineTool
+     * step that is not scattered and runs by LSF, its failure is not recovered
+     * by a post failure script and it has no success codes
+     */
+    protected boolean isFusible() {
+        return instance.getStep() != null && instance.getScatter() == null &&
+                instance.getParent() == main.getInstance() &&
+                instance.getProcess() instanceof CommandLineTool &&
+                !(instance.getProcess() instanceof ExpressionTool) &&
+                (((CommandLineTool) instance.getProcess()).getSuccessCodes() == null ||
+                        ((CommandLineTool) instance.getProcess()).getSuccessCodes().length == 0) &&
+                !dockerAppEnabled(instance) && !isLocalStep() &&
+                CWLExecConfUtil.getPostFailureScript(main.getInstance().getFlowExecConf(),
+                        instance.getName()) == null;
+    }
+
+    /*
+     * The next step can run in the job of this step if they have the same LSF
+     * options, ResourceRequirement, DockerRequirement and EnvVarRequirement
+     * (the job environment and image are prepared by the head of the chain)
+     */
+    protected boolean canFuse(LSFWorkflowStepRunner next) {
+        FlowExecConf flowExecConf = main.getInstance().getFlowExecConf();
+        String name = instance.getName();
+        String nextName = next.getInstance().getName();
+        return Objects.equals(CWLExecConfUtil.getQueue(flowExecConf, name),
+                CWLExecConfUtil.getQueue(flowExecConf, nextName)) &&
+                Objects.equals(CWLExecConfUtil.getProject(flowExecConf, name),
+                        CWLExecConfUtil.getProject(flowExecConf, nextName)) &&
+                Objects.equals(CWLExecConfUtil.getApp(flowExecConf, name),
+                        CWLExecConfUtil.getApp(flowExecConf, nextName)) &&
+                Objects.equals(CWLExecConfUtil.getResource(flowExecConf, name),
+                        CWLExecConfUtil.getResource(flowExecConf, nextName)) &&
+                Objects.equals(CWLExecConfUtil.getProcessors(flowExecConf, name),
+                        CWLExecConfUtil.getProcessors(flowExecConf, nextName)) &&
+                Objects.equals(CWLExecConfUtil.getScratch(flowExecConf, name),
+                        CWLExecConfUtil.getScratch(flowExecConf, nextName)) &&
+                CWLExecConfUtil.isRerunnable(flowExecConf, name) == CWLExecConfUtil.isRerunnable(flowExecConf,
+                        nextName) &&
+                sameRequirements(instance, next.getInstance());
+    }
+
+    /*
+     * Two steps have the same ResourceRequirement, DockerRequirement and
+     * EnvVarRequirement, or both of them have not the requirement
+     */
+    protected static boolean sameRequirements(CWLCommandInstance instance, CWLCommandInstance next) {
+        return sameResourceRequirement(CWLExecUtil.findRequirement(instance, ResourceRequirement.class),
+                CWLExecUtil.findRequirement(next, ResourceRequirement.class)) &&
+                sameDockerRequirement(CWLExecUtil.findRequirement(instance, DockerRequirement.class),
+                        CWLExecUtil.findRequirement(next, DockerRequirement.class)) &&
+                sameEnvVarRequirement(CWLExecUtil.findRequirement(instance, EnvVarRequirement.class),
+                        CWLExecUtil.findRequirement(next, EnvVarRequirement.class));
+    }
+
+    /*
+     * An ExpressionTool step (not scattered) is evaluated in process, it does
+     * not need a LSF job
+     */
+    protected boolean isExpressionStep() {
+        return instance.getProcess() instanceof ExpressionTool && instance.getScatter() == null;
+    }
+
+    /*
+     * Evaluates the expression of this step in process after its inputs were
+     * resolved and evaluated, no command is built for it. Then the step is
+     * done and a start event will be send, the waiting step will not wait it
+     */
+    protected void runExpression() throws CWLException {
+        long evaluateStart = System.currentTimeMillis();
+        instance.setStartTime(new Date().getTime());
+        if (!instance.isReadyToRun()) {
+            resolveStepInputs(instance);
+        }
+        OutputsCapturer.captureCommandOutputs(instance);
+        RunProfiler.record(instance, ProfilePhase.EVALUATE, evaluateStart);
+        logger.info(ResourceLoader.getMessage("cwl.exec.expression.done", instance.getName()));
+        instance.setEndTime(new Date().getTime());
+        instance.setState(CWLInstanceState.DONE);
+        persistenceService.updateCWLProcessInstance(instance);
+        main.broadcast(new LSFJobEvent(LSFJobEventType.START, instance.getId(), instance.getName()));
+    }
+
+    /*
+     * A step runs as a local process on the submission host if it is
+     * configured to, or its previous jobs are shorter than the local max
+     * runtime. Scatter steps and the steps that have a DockerRequirement
+     * always run by LSF
+     */
+    protected synchronized boolean isLocalStep() {
+        if (local == null) {
+            local = resolveLocal();
+        }
+        return local.booleanValue();
+    }
+
+    /*
+     * Builds the local command of this step after its inputs were resolved,
+     * then runs it when a local slot is free
+     */
+    protected void runLocal() throws CWLException {
+        if (!instance.isReadyToRun()) {
+            resolveStepInputs(instance);
+        }
+        instance.setCommands(runtimeService.buildLocalCommand(instance));
+        FlowExecConf flowExecConf = main.getInstance().getFlowExecConf();
+        LSFLocalExecutor.getExecutor(CWLExecConfUtil.getLocalSlots(flowExecConf))
+                .submit(new LSFLocalExecutorTask(this));
+    }
+
+    /*
+     * Listen a job start event, then start to wait this job. If the scatter
+     * elements of this step are pipelined with its upstream scatter step,
+     * start to wait the upstream scatter jobs once they were submitted
      */
     protected boolean listen(LSFJobEvent event) {
+        if (pipelineUpstream != null && pipelineUpstream.getId().equals(event.getInstanceId())) {
+            // the upstream step may start without scattering, e.g. empty scatter
+            if ((event.getType() == LSFJobEventType.SCATTERED || event.getType() == LSFJobEventType.START) &&
+                    pipelineStarted.compareAndSet(false, true)) {
+                LSFBwaitExecutor.getExecutor().submit(new LSFBwaitExecutorTask(this, false));
+            }
+            return event.getType() == LSFJobEventType.START || event.getType() == LSFJobEventType.SCATTERED;
+        }
         if (event.getType() == LSFJobEventType.START && expectDependencies.contains(event.getInstanceId())) {
             if (expectDependencies.size() == actualDependencies.incrementAndGet()) {
                 LSFBwaitExecutor.getExecutor()
@@ -108,12 +290,149 @@ final class LSFWorkflowStepRunner {
                 if (expectDependencies.isEmpty()) {
                     //when rerun a flow, the dependent step may be done
                     logger.debug("step ({}) dependents are all done, ready to run", instance.getName());
-                    prepareStepCommand(instance);
+                    if (isExpressionStep()) {
+                        resolveStepInputs(instance);
+                    } else {
+                        prepareStepCommand(instance);
+                    }
                 }
             }
         }
     }
 
+    /*
+     * The scatter elements of this step can be pipelined with its upstream
+     * step if the pipeline scatter is enabled, this step only waits for the
+     * upstream step, both steps are dotproduct (or single input) scatter
+     * steps, and each scatter input of this step comes from an output of the
+     * upstream step while no other input does
+     */
+    private CWLCommandInstance resolvePipelineUpstream() {
+        CWLInstance mainInstance = main.getInstance();
+        if (!(mainInstance instanceof CWLWorkflowInstance) || main.isDetachable() || expectDependencies.size() != 1 ||
+                !isPipelineScatterStep(instance) || instance.getStep() == null ||
+                !CWLExecConfUtil.isPipelineScatter(mainInstance.getFlowExecConf(), instance.getName())) {
+            return null;
+        }
+        CWLCommandInstance upstream = null;
+        for (CWLInstance stepInstance : ((CWLWorkflowInstance) mainInstance).getInstances()) {
+            if (stepInstance instanceof CWLCommandInstance && stepInstance.getId().equals(expectDependencies.get(0))) {
+                upstream = (CWLCommandInstance) stepInstance;
+            }
+        }
+        if (upstream == null || !isPipelineScatterStep(upstream)) {
+            return null;
+        }
+        String upstreamPrefix = upstream.getName() + "/";
+        for (WorkflowStepInput stepInput : instance.getStep().getIn()) {
+            if (stepInput.getValueFrom() != null) {
+                return null;
+            }
+            List<String> sources = stepInput.getSource() != null ? stepInput.getSource() : new ArrayList<>();
+            if (instance.getScatter().contains(stepInput.getId())) {
+                if (sources.size() != 1 || !sources.get(0).startsWith(upstreamPrefix) ||
+                        !hasSingleTypeOutput(upstream, sources.get(0).substring(upstreamPrefix.length()))) {
+                    return null;
+                }
+            } else {
+                for (String source : sources) {
+                    if (source.startsWith(upstreamPrefix)) {
+                        return null;
+                    }
+                }
+            }
+        }
+        logger.debug("The scatter of step ({}) is pipelined with step ({})", instance.getName(), upstream.getName());
+        return upstream;
+    }
+
+    private static boolean sameResourceRequirement(ResourceRequirement resReq, ResourceRequirement nextResReq) {
+        if (resReq == null || nextResReq == null) {
+            return resReq == nextResReq;
+        }
+        return Objects.equals(resReq.getCoresMin(), nextResReq.getCoresMin()) &&
+                Objects.equals(resReq.getCoresMax(), nextResReq.getCoresMax()) &&
+                Objects.equals(resReq.getRamMin(), nextResReq.getRamMin()) &&
+                Objects.equals(resReq.getRamMax(), nextResReq.getRamMax());
+    }
+
+    private static boolean sameDockerRequirement(DockerRequirement dockerReq, DockerRequirement nextDockerReq) {
+        if (dockerReq == null || nextDockerReq == null) {
+            return dockerReq == nextDockerReq;
+        }
+        return Objects.equals(dockerReq.getDockerPull(), nextDockerReq.getDockerPull()) &&
+                Objects.equals(dockerReq.getDockerLoad(), nextDockerReq.getDockerLoad()) &&
+                Objects.equals(dockerReq.getDockerFile(), nextDockerReq.getDockerFile()) &&
+                Objects.equals(dockerReq.getDockerImport(), nextDockerReq.getDockerImport()) &&
+                Objects.equals(dockerReq.getDockerImageId(), nextDockerReq.getDockerImageId()) &&
+                Objects.equals(dockerReq.getDockerOutputDirectory(), nextDockerReq.getDockerOutputDirectory());
+    }
+
+    private static boolean sameEnvVarRequirement(EnvVarRequirement envVarReq, EnvVarRequirement nextEnvVarReq) {
+        if (envVarReq == null || nextEnvVarReq == null) {
+            return envVarReq == nextEnvVarReq;
+        }
+        List<EnvironmentDef> envDefs = envVarReq.getEnvDef();
+        List<EnvironmentDef> nextEnvDefs = nextEnvVarReq.getEnvDef();
+        if (envDefs.size() != nextEnvDefs.size()) {
+            return false;
+        }
+        for (int i = 0; i < envDefs.size(); i++) {
+            EnvironmentDef envDef = envDefs.get(i);
+            EnvironmentDef nextEnvDef = nextEnvDefs.get(i);
+            if (!Objects.equals(envDef.getEnvName(), nextEnvDef.getEnvName()) ||
+                    !Objects.equals(envDef.getEnvValue().getValue(), nextEnvDef.getEnvValue().getValue()) ||
+                    !Objects.equals(envDef.getEnvValue().getExpression(),
+                            nextEnvDef.getEnvValue().getExpression())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean resolveLocal() {
+        if (main.isDetachable() || instance.getScatter() != null || !(instance.getProcess() instanceof CommandLineTool) ||
+                instance.getProcess() instanceof ExpressionTool ||
+                CWLExecUtil.findRequirement(instance, DockerRequirement.class) != null) {
+            return false;
+        }
+        FlowExecConf flowExecConf = main.getInstance().getFlowExecConf();
+        if (CWLExecConfUtil.isLocal(flowExecConf, instance.getName())) {
+            return true;
+        }
+        Integer localMaxRuntime = CWLExecConfUtil.getLocalMaxRuntime(flowExecConf, instance.getName());
+        if (localMaxRuntime == null) {
+            return false;
+        }
+        List<Long> runTimes = persistenceService.findJobRunTimes(ResourceTuner.toToolKey(instance),
+                MAX_RUNTIME_SAMPLES);
+        boolean shortRunning = ResourceTuner.isShortRunning(runTimes, localMaxRuntime);
+        logger.debug("The step ({}) is short running ({}) by {} previous jobs", instance.getName(), shortRunning,
+                runTimes.size());
+        return shortRunning;
+    }
+
+    private boolean isPipelineScatterStep(CWLCommandInstance stepInstance) {
+        return stepInstance.getScatter() != null &&
+                (stepInstance.getScatterMethod() == null || stepInstance.getScatterMethod() == ScatterMethod.DOTPRODUCT) &&
+                stepInstance.getParent() == main.getInstance() &&
+                stepInstance.getProcess() instanceof CommandLineTool &&
+                !(stepInstance.getProcess() instanceof ExpressionTool) &&
+                !dockerAppEnabled(stepInstance);
+    }
+
+    private boolean hasSingleTypeOutput(CWLCommandInstance stepInstance, String outputId) {
+        CWLParameter output = CommonUtil.findParameter(outputId, stepInstance.getProcess().getOutputs());
+        return output != null && output.getType().getType() != null &&
+                output.getType().getType().getSymbol() != CWLTypeSymbol.RECORD;
+    }
+
+    private boolean dockerAppEnabled(CWLCommandInstance stepInstance) {
+        String app = CWLExecConfUtil.getApp(main.getInstance().getFlowExecConf(), stepInstance.getName());
+        return app != null && app.length() > 0 &&
+                CWLExecUtil.findRequirement(stepInstance, DockerRequirement.class) != null;
+    }
+
     private boolean isDependency(String instanceName) throws CWLException {
         boolean isDependency = false;
         CWLInstance mainInstance = main.getInstance();
@@ -152,6 +471,12 @@ final class LSFWorkflowStepRunner {
     }
 
     private void prepareStepCommand(CWLCommandInstance instance) throws CWLException {
+        resolveStepInputs(instance);
+        List<String> commands = runtimeService.buildRuntimeCommand(instance);
+        instance.setCommands(commands);
+    }
+
+    private void resolveStepInputs(CWLCommandInstance instance) throws CWLException {
         WorkflowStep instStep = instance.getStep();
         List<WorkflowStepInput> in = instStep.getIn();
         for (WorkflowStepInput stepInput : in) {
@@ -161,23 +486,27 @@ final class LSFWorkflowStepRunner {
         InlineJavascriptRequirement jsReq = CWLExecUtil.findRequirement(instance, InlineJavascriptRequirement.class);
         Map<String, String> runtime = instance.getRuntime();
         List<CommandInputParameter> inputs = commandLineTool.getInputs();
-        InputsEvaluator.eval(jsReq, runtime, inputs);
-        // print the value of inputs
-        for (CommandInputParameter parameter : inputs) {
-            Object value = parameter.getValue();
-            if (value == null) {
-                value = parameter.getDefaultValue();
-            }
-            if (value != null && value instanceof CWLFile) {
-                value = ((CWLFile) value).getPath();
+        // evaluate the expressions of the step on one script engine
+        ExpressionBatch.open();
+        try {
+            InputsEvaluator.eval(jsReq, runtime, inputs);
+            // print the value of inputs
+            for (CommandInputParameter parameter : inputs) {
+                Object value = parameter.getValue();
+                if (value == null) {
+                    value = parameter.getDefaultValue();
+                }
+                if (value != null && value instanceof CWLFile) {
+                    value = ((CWLFile) value).getPath();
+                }
+                logger.debug("Resolve input ({}) of step ({}) to <{}>", parameter.getId(), instance.getName(), value);
             }
-            logger.debug("Resolve input ({}) of step ({}) to <{}>", parameter.getId(), instance.getName(), value);
+            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdin());
+            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStderr());
+            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdout());
+        } finally {
+            ExpressionBatch.close();
         }
-        CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdin());
-        CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStderr());
-        CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdout());
         instance.setReadyToRun(true);
-        List<String> commands = runtimeService.buildRuntimeCommand(instance);
-        instance.setCommands(commands);
     }
 }
@@ -16,9 +16,11 @@
 package com.ibm.spectrumcomputing.cwl.exec.service;
 
 import java.util.List;
+import java.util.Map;
 
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
 
 /*
  * Depends on specific runtime environment to build CWL process instance execution
@@ -48,4 +50,23 @@ interface CWLCommandService {
      *             Failed to build scatter command
      */
     public void buildScatterCommand(CWLCommandInstance instance) throws CWLException;
+
+    /**
+     * Depends on specific runtime environment to build the execution command
+     * for a single scatter step of a CWL scatter step, the scatter inputs are
+     * given by their values
+     *
+     * @param instance
+     *            A CWL scatter step instance
+     * @param scatterValues
+     *            The values of the scatter inputs, keyed by the input ID
+     * @param scatterIndex
+     *            The index of the scatter step, the index is from 1
+     * @return The scatter holder of the scatter step
+     * @throws CWLException
+     *             Failed to build scatter command
+     */
+    public CWLScatterHolder buildScatterCommand(CWLCommandInstance instance,
+            Map<String, Object> scatterValues,
+            int scatterIndex) throws CWLException;
 }
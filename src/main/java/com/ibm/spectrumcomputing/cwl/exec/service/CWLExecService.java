@@ -18,6 +18,7 @@ package com.ibm.spectrumcomputing.cwl.exec.service;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -38,6 +39,7 @@ import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLStepProcessRecord;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessRecord;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessSummary;
 import com.ibm.spectrumcomputing.cwl.model.process.CWLProcess;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.WorkflowStepInput;
@@ -55,6 +57,7 @@ import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
  *  <li>Executes a CWL process</li>
  *  <li>Queries the executed CWL process records</li>
  *  <li>Reruns an exited CWL process</li>
+ *  <li>Attaches to a detached CWL process</li>
  * </ul>
  */
 public final class CWLExecService {
@@ -91,6 +94,36 @@ public final class CWLExecService {
             String descPath,
             String inputSettingsPath,
             String execConfPath) throws CWLException {
+        return submit(owner, descPath, inputSettingsPath, execConfPath, false);
+    }
+
+    /**
+     * Submits a CWL process (Workflow or CommandLineTool) to execute, if the
+     * process is detached, this method returns after all of the steps were
+     * submitted to LSF, the process can be continued by
+     * {@link #attach(String)}
+     * 
+     * @param owner
+     *            The owner of CWL process description file
+     * @param descPath
+     *            The CWL process description file path
+     * @param inputSettingsPath
+     *            The CWL process input settings file path, if the CWL process
+     *            has no input settings, it can be null
+     * @param execConfPath
+     *            The CWL process execution configuration file path, if the CWL
+     *            process has no execution configuration, it can be null
+     * @param detach
+     *            Returns after all of the steps were submitted
+     * @return An executed (or detached) CWL process instance
+     * @throws CWLException
+     *             Failed to execute the CWL process
+     */
+    public CWLInstance submit(String owner,
+            String descPath,
+            String inputSettingsPath,
+            String execConfPath,
+            boolean detach) throws CWLException {
         if (descPath == null) {
             throw new IllegalArgumentException("The argument descriptionFilePath is required.");
         }
@@ -112,7 +145,7 @@ public final class CWLExecService {
                 return instance;
             }
         }
-        engine.submit(instance);
+        engine.submit(instance, detach);
         return instance;
     }
 
@@ -126,6 +159,39 @@ public final class CWLExecService {
         return persistenceService.findFinishedCWLProcessRecords();
     }
 
+    /**
+     * Finds a page of finished (done or exited) CWL process (Workflow or
+     * CommandLineTool) summaries, the latest submitted is the first
+     * 
+     * @param offset
+     *            The number of the latest summaries to skip
+     * @param limit
+     *            The maximum number of summaries, if it is not positive, all
+     *            summaries after the offset are returned
+     * @return The list of finished CWL process summaries
+     */
+    public List<CWLMainProcessSummary> findFinishedCWLProcesses(int offset, int limit) {
+        return persistenceService.findCWLProcessSummaries(
+                Arrays.asList(CWLInstanceState.DONE, CWLInstanceState.EXITED), offset, limit);
+    }
+
+    /**
+     * Deletes the finished (done or exited) CWL process (Workflow or
+     * CommandLineTool) records that ended before the given days, then compacts
+     * the database, the database is closed after it is compacted
+     * 
+     * @param days
+     *            The records that ended in the latest days are kept
+     * @return The number of the deleted CWL process records
+     */
+    public int purgeFinishedCWLProcesses(int days) {
+        long endedBefore = new Date().getTime() - days * 24L * 3600L * 1000L;
+        int purged = persistenceService.purgeFinishedCWLProcessRecords(endedBefore);
+        logger.debug("Purged {} finished processes ended before {}", purged, endedBefore);
+        persistenceService.compactDatabase();
+        return purged;
+    }
+
     /**
      * Finds a CWL process (Workflow or CommandLineTool) record by ID
      * 
@@ -192,6 +258,41 @@ public final class CWLExecService {
         return instance;
     }
 
+    /**
+     * Attaches to a detached CWL process (Workflow or CommandLineTool), the
+     * steps are rebuilt from the process records and the LSF job states, the
+     * submitted jobs are neither killed nor resubmitted
+     * 
+     * @param processId
+     *            A ID of the detached CWL process (Workflow or CommandLineTool)
+     * @return An attached CWL process instance
+     * @throws CWLException
+     *             Failed to attach the CWL process instance
+     */
+    public CWLInstance attach(String processId) throws CWLException {
+        CWLMainProcessRecord workflowRecord = persistenceService.findCWLProcessRecord(processId);
+        if (workflowRecord == null) {
+            throw new CWLException(ResourceLoader.getMessage("cwl.exec.workflow.not.found", processId), 255);
+        }
+        if (workflowRecord.getState() != CWLInstanceState.RUNNING) {
+            throw new CWLException(
+                    ResourceLoader.getMessage("cwl.exec.workflow.not.running", processId, workflowRecord.getState()),
+                    255);
+        }
+        logger.info(ResourceLoader.getMessage("cwl.exec.workflow.attach.start", workflowRecord.getName(),
+                workflowRecord.getId()));
+        System.setProperty(IOUtil.WORK_TOP_DIR, Paths.get(workflowRecord.getWorkDir()).getParent().toString());
+        System.setProperty(IOUtil.OUTPUT_TOP_DIR, Paths.get(workflowRecord.getOutputsDir()).getParent().toString());
+        CWLProcess processObj = toCWLProcess(new File(workflowRecord.getDescPath()), workflowRecord.getMainId());
+        FlowExecConf flowExecConf = parseExecConf(workflowRecord.getExecConfPath());
+        processObj.setExecConfPath(workflowRecord.getExecConfPath());
+        loadInputSettings(processObj, workflowRecord.getInputsPath());
+        CWLInstance instance = persistenceService.attachInstance(workflowRecord, processObj, flowExecConf);
+        CWLExecUtil.printCWLInstanceInfo(instance);
+        engine.submit(instance);
+        return instance;
+    }
+
     private CWLProcess toCWLProcess(File descriptionFile, String mainId) throws CWLException {
         if (!descriptionFile.exists()) {
             throw new IllegalArgumentException(
@@ -19,6 +19,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,11 +32,16 @@ import org.slf4j.LoggerFactory;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLStepBindingResolver;
 import com.ibm.spectrumcomputing.cwl.exec.util.DatabaseManager;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ChainFuser;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.LSFCommandUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.CommandStdIOEvaluator;
+import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.ExpressionBatch;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.InputsEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.RequirementsEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.outputs.OutputsCapturer;
+import com.ibm.spectrumcomputing.cwl.exec.util.outputs.OutputsJsonConverter;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.ProfilePhase;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
 import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
@@ -43,7 +49,9 @@ import com.ibm.spectrumcomputing.cwl.model.instance.CWLExpressionInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLJobUsageRecord;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessRecord;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessSummary;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLStepProcessRecord;
 import com.ibm.spectrumcomputing.cwl.model.process.CWLProcess;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
@@ -82,6 +90,7 @@ public final class CWLInstanceService {
             Session session = dbManager.getSessionFactory().openSession();
             Transaction transaction = session.beginTransaction();
             String id = instance.getId();
+            long persistStart = System.currentTimeMillis();
             try {
                 if (instance.isMain()) {
                     CWLMainProcessRecord workflow = session.get(CWLMainProcessRecord.class, id);
@@ -98,6 +107,9 @@ public final class CWLInstanceService {
                 }
                 session.flush();
                 transaction.commit();
+                if (!instance.isMain()) {
+                    RunProfiler.record(instance, ProfilePhase.PERSIST, persistStart);
+                }
                 logger.debug("update instance {} ({}) with {}.",
                         instance.getId(), instance.getName(), instance.getState());
             } catch (Exception e) {
@@ -110,6 +122,113 @@ public final class CWLInstanceService {
         }
     }
 
+    /**
+     * Adds the actual resource usage record of a finished step job
+     * 
+     * @param usage
+     *            The resource usage record
+     */
+    public void addJobUsageRecord(CWLJobUsageRecord usage) {
+        if (usage != null) {
+            Session session = dbManager.getSessionFactory().openSession();
+            Transaction transaction = session.beginTransaction();
+            try {
+                session.save(usage);
+                transaction.commit();
+            } catch (Exception e) {
+                transaction.rollback();
+                // after rollback, re-throw the exception
+                throw e;
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Finds the maximum memory usage (MB) of the latest finished jobs of a given
+     * tool
+     * 
+     * @param toolKey
+     *            The key of the tool
+     * @param sizeBucket
+     *            The input size bucket of the jobs, if it is null, the jobs of
+     *            all buckets are found
+     * @param limit
+     *            The maximum number of the jobs
+     * @return The maximum memory usage of the jobs
+     */
+    public List<Long> findJobMaxMems(String toolKey, Integer sizeBucket, int limit) {
+        Session session = dbManager.getSessionFactory().openSession();
+        String hql = String.format("SELECT u.maxMem FROM %s u WHERE u.toolKey=:toolKey and u.maxMem is not null%s "
+                + "order by u.endTime desc", CWLJobUsageRecord.class.getName(),
+                sizeBucket != null ? " and u.sizeBucket=:sizeBucket" : "");
+        Query<Long> query = session.createQuery(hql, Long.class);
+        query.setParameter("toolKey", toolKey);
+        if (sizeBucket != null) {
+            query.setParameter("sizeBucket", sizeBucket);
+        }
+        query.setMaxResults(limit);
+        List<Long> maxMems = query.list();
+        session.close();
+        return maxMems;
+    }
+
+    /**
+     * Finds the recent runtimes (seconds) of the previous jobs of a given tool
+     * 
+     * @param toolKey
+     *            The key of a tool, the tool description file path and the
+     *            tool ID
+     * @param limit
+     *            The maximum number of the runtimes
+     * @return The runtimes, the latest first
+     */
+    public List<Long> findJobRunTimes(String toolKey, int limit) {
+        Session session = dbManager.getSessionFactory().openSession();
+        String hql = String.format("SELECT u.runTime FROM %s u WHERE u.toolKey=:toolKey and u.runTime is not null "
+                + "order by u.endTime desc", CWLJobUsageRecord.class.getName());
+        Query<Long> query = session.createQuery(hql, Long.class);
+        query.setParameter("toolKey", toolKey);
+        query.setMaxResults(limit);
+        List<Long> runTimes = query.list();
+        session.close();
+        return runTimes;
+    }
+
+    /**
+     * Finds the average runtimes (milliseconds) of the done steps of the
+     * previous runs of a given CWL main process, the runs are matched by the
+     * process description file
+     * 
+     * @param mainInstance
+     *            A CWL main process instance
+     * @return A map of step name to its average runtime, the map is empty if
+     *         there is no previous run
+     */
+    public Map<String, Long> findHistoricalStepRuntimes(CWLInstance mainInstance) {
+        Map<String, Long> runtimes = new HashMap<>();
+        if (mainInstance == null || mainInstance.getProcess().getDescPath() == null) {
+            return runtimes;
+        }
+        Session session = dbManager.getSessionFactory().openSession();
+        String hql = String.format("SELECT s.name, avg(s.endTime - s.startTime) FROM %s s, %s r "
+                + "WHERE s.parentId=r.id and r.descPath=:descPath and r.id<>:mainId and s.state=:state "
+                + "and s.startTime is not null and s.endTime is not null group by s.name",
+                CWLStepProcessRecord.class.getName(), CWLMainProcessRecord.class.getName());
+        Query<Object[]> query = session.createQuery(hql, Object[].class);
+        query.setParameter("descPath", mainInstance.getProcess().getDescPath());
+        query.setParameter("mainId", mainInstance.getId());
+        query.setParameter("state", CWLInstanceState.DONE);
+        for (Object[] row : query.list()) {
+            if (row[1] != null) {
+                runtimes.put((String) row[0], Math.max(0L, ((Number) row[1]).longValue()));
+            }
+        }
+        session.close();
+        return runtimes;
+    }
+
     /*
      * Finds all CWL main process instance (Workflow or CommmandLineTool) records
      */
@@ -134,6 +253,70 @@ public final class CWLInstanceService {
         return records;
     }
 
+    /*
+     * Finds a page of CWL main process (Workflow or CommmandLineTool) summaries
+     * in the given states, the latest submitted is the first, if the limit is
+     * not positive, all summaries after the offset are returned
+     */
+    protected List<CWLMainProcessSummary> findCWLProcessSummaries(List<CWLInstanceState> states,
+            int offset,
+            int limit) {
+        Session session = dbManager.getSessionFactory().openSession();
+        String hql = String.format(
+                "SELECT new %s(r.id, r.name, r.submitTime, r.startTime, r.endTime, r.state, r.exitCode) "
+                        + "FROM %s r WHERE r.state in (:states) order by r.submitTime desc",
+                CWLMainProcessSummary.class.getName(), CWLMainProcessRecord.class.getName());
+        Query<CWLMainProcessSummary> query = session.createQuery(hql, CWLMainProcessSummary.class);
+        query.setParameterList("states", states);
+        query.setFirstResult(offset);
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        List<CWLMainProcessSummary> summaries = query.list();
+        session.close();
+        return summaries;
+    }
+
+    /*
+     * Deletes the finished (exited and done) CWL main process records that
+     * ended before the given time and their step records, returns the number
+     * of deleted main process records
+     */
+    protected int purgeFinishedCWLProcessRecords(long endedBefore) {
+        Session session = dbManager.getSessionFactory().openSession();
+        Transaction transaction = session.beginTransaction();
+        String finished = String.format("FROM %s r WHERE r.state in (:states) and r.endTime < :endedBefore",
+                CWLMainProcessRecord.class.getName());
+        List<CWLInstanceState> states = Arrays.asList(CWLInstanceState.DONE, CWLInstanceState.EXITED);
+        int purged = 0;
+        try {
+            session.createQuery(String.format("DELETE FROM %s WHERE parentId in (SELECT r.id %s)",
+                    CWLStepProcessRecord.class.getName(), finished))
+                    .setParameterList("states", states)
+                    .setParameter("endedBefore", endedBefore)
+                    .executeUpdate();
+            purged = session.createQuery(String.format("DELETE %s", finished))
+                    .setParameterList("states", states)
+                    .setParameter("endedBefore", endedBefore)
+                    .executeUpdate();
+            transaction.commit();
+        } catch (Exception e) {
+            transaction.rollback();
+            // after rollback, re-throw the exception
+            throw e;
+        } finally {
+            session.close();
+        }
+        return purged;
+    }
+
+    /*
+     * Compacts the database, the database is closed after it is compacted
+     */
+    protected void compactDatabase() {
+        dbManager.compact();
+    }
+
     /*
      * Finds a CWL main process instance (Workflow or CommmandLineTool) instance record
      * by id
@@ -183,7 +366,7 @@ public final class CWLInstanceService {
             record.setRuntimeEnv(CWLExecUtil.getRuntimeEnv());
             record.setMainId(processObj.getMainId());
             session.save(record);
-            instance = buildMainInstance(record, processObj, flowExecConf, false);
+            instance = buildMainInstance(record, processObj, flowExecConf, false, false);
             record.setOutputsDir(Paths.get(
                     System.getProperty(IOUtil.OUTPUT_TOP_DIR), record.getName() + "-" + record.getId()).toString());
             record.setWorkDir(Paths.get(System.getProperty(IOUtil.WORK_TOP_DIR), record.getId()).toString());
@@ -204,7 +387,17 @@ public final class CWLInstanceService {
     protected CWLInstance recoverInstance(CWLMainProcessRecord record,
             CWLProcess processObj,
             FlowExecConf flowExecConf) throws CWLException {
-        return buildMainInstance(record, processObj, flowExecConf, true);
+        return buildMainInstance(record, processObj, flowExecConf, true, false);
+    }
+
+    /*
+     * Attaches a detached CWL main process (Workflow or CommmandLineTool)
+     * instance, the submitted jobs are kept
+     */
+    protected CWLInstance attachInstance(CWLMainProcessRecord record,
+            CWLProcess processObj,
+            FlowExecConf flowExecConf) throws CWLException {
+        return buildMainInstance(record, processObj, flowExecConf, true, true);
     }
 
     
@@ -235,6 +428,14 @@ public final class CWLInstanceService {
         step.setState(instance.getState());
         if (instance instanceof CWLCommandInstance) {
             step.setHpcJobId(((CWLCommandInstance) instance).getHPCJobId());
+            long reclaimedBytes = ((CWLCommandInstance) instance).getReclaimedBytes();
+            if (reclaimedBytes != -1L) {
+                step.setReclaimedBytes(reclaimedBytes);
+            }
+            step.setFusedHead(((CWLCommandInstance) instance).getFusedHead());
+            if (instance.getState() == CWLInstanceState.DONE && step.getOutputs() == null) {
+                step.setOutputs(OutputsJsonConverter.toJson(instance));
+            }
         }
         step.setStartTime(instance.getStartTime());
         step.setEndTime(instance.getEndTime());
@@ -244,7 +445,8 @@ public final class CWLInstanceService {
     private CWLInstance buildMainInstance(CWLMainProcessRecord record,
             CWLProcess processObj,
             FlowExecConf flowExecConf,
-            boolean recover) throws CWLException {
+            boolean recover,
+            boolean attach) throws CWLException {
         CWLInstance instance = null;
         String processId = record.getId();
         String owner = record.getOwner();
@@ -273,22 +475,33 @@ public final class CWLInstanceService {
             instance.setRuntimeEnv(record.getRuntimeEnv());
             instance.setRuntime(runtime);
             instance.setReadyToRun(true);
+            Map<Long, CWLInstanceState> jobStates = recover ? findActiveJobStates(processId, attach) : null;
             for (WorkflowStep step : workflow.getSteps()) {
-                workflowInstance.getInstances().addAll(createStepInstances(workflowInstance, step, recover));
+                workflowInstance.getInstances().addAll(createStepInstances(workflowInstance, step, jobStates, attach));
             }
         } else if (processObj instanceof CommandLineTool) {
             CommandLineTool commandLineTool = (CommandLineTool) processObj;
             List<CommandInputParameter> inputs = commandLineTool.getInputs();
-            InputsEvaluator.eval(jsReq, runtime, inputs);
-            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdin());
-            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStderr());
-            CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdout());
+            ExpressionBatch.open();
+            try {
+                InputsEvaluator.eval(jsReq, runtime, inputs);
+                CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdin());
+                CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStderr());
+                CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdout());
+            } finally {
+                ExpressionBatch.close();
+            }
             instance = new CWLCommandInstance(processId, owner, commandLineTool, flowExecConf);
             instance.setName(record.getName());
             instance.setRuntimeEnv(record.getRuntimeEnv());
             instance.setRuntime(runtime);
             instance.setReadyToRun(true);
             ((CWLCommandInstance) instance).setCommands(runtimeService.buildRuntimeCommand((CWLCommandInstance) instance));
+            if (attach && record.getHpcJobId() != null && record.getHpcJobId() > 0) {
+                // the job result will be handled by bwait
+                ((CWLCommandInstance) instance).setHPCJobId(record.getHpcJobId());
+                instance.setState(CWLInstanceState.RUNNING);
+            }
         }
         else {
             throw new UnsupportedOperationException(String.format("The process (%s) cannot be supported",
@@ -297,9 +510,39 @@ public final class CWLInstanceService {
         return instance;
     }
 
+    /*
+     * Finds the LSF states of the submitted and not finished steps by one bjobs
+     * command, if attach a flow, the states of the held jobs are also found
+     */
+    private Map<Long, CWLInstanceState> findActiveJobStates(String parentId, boolean attach) {
+        List<Long> jobIds = new ArrayList<>();
+        Session session = dbManager.getSessionFactory().openSession();
+        String hql = String.format("FROM %s WHERE parentId=:parentId and state not in (:states)",
+                CWLStepProcessRecord.class.getName());
+        Query<CWLStepProcessRecord> query = session.createQuery(hql, CWLStepProcessRecord.class);
+        query.setParameter("parentId", parentId);
+        query.setParameterList("states", attach ? Arrays.asList(CWLInstanceState.DONE, CWLInstanceState.EXITED)
+                : Arrays.asList(CWLInstanceState.WAITING, CWLInstanceState.DONE, CWLInstanceState.EXITED));
+        for (CWLStepProcessRecord record : query.list()) {
+            if (record.getHpcJobId() != null && record.getHpcJobId() > 0) {
+                jobIds.add(record.getHpcJobId());
+            }
+        }
+        session.close();
+        if (jobIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return LSFCommandUtil.findLSFJobStates(jobIds);
+    }
+
+    /*
+     * Creates the instances of a step, if the job states are given, the step
+     * instances are recovered
+     */
     private List<CWLInstance> createStepInstances(CWLWorkflowInstance parent,
             WorkflowStep step,
-            boolean recover) throws CWLException {
+            Map<Long, CWLInstanceState> jobStates,
+            boolean attach) throws CWLException {
         List<CWLInstance> stepInstances = new ArrayList<>();
         String name = parent.getParent() == null ? step.getId() : parent.getName() + "/" + step.getId();
         if (step.getRun() instanceof Workflow) {
@@ -312,16 +555,20 @@ public final class CWLInstanceService {
             subWorkflowInstance.setRuntime(runtime);
             CWLStepBindingResolver.resolveStepInputs(parent, step);
             for (WorkflowStep subWorkflowStep : subWorkflow.getSteps()) {
-                stepInstances.addAll(createStepInstances(subWorkflowInstance, subWorkflowStep, recover));
+                stepInstances.addAll(createStepInstances(subWorkflowInstance, subWorkflowStep, jobStates, attach));
             }
         } else {
+            long resolveStart = System.currentTimeMillis();
             boolean prepared = CWLStepBindingResolver.resolveStepInputs(parent, step);
             CWLInstance mainInstance = parent;
             while (mainInstance.getParent() != null) {
                 mainInstance = mainInstance.getParent();
             }
-            if (recover) {
-                recoverStepInstance(stepInstances, parent, name, step, prepared);
+            RunProfiler.record(mainInstance, name, ProfilePhase.RESOLVE, resolveStart, System.currentTimeMillis());
+            if (jobStates != null && attach) {
+                attachStepInstance(stepInstances, parent, name, step, prepared, jobStates);
+            } else if (jobStates != null) {
+                recoverStepInstance(stepInstances, parent, name, step, prepared, jobStates);
             } else {
                 addCWLStepInstance(stepInstances, parent, mainInstance, name, step, prepared);
             }
@@ -361,7 +608,8 @@ public final class CWLInstanceService {
             CWLWorkflowInstance parent,
             String name,
             WorkflowStep step,
-            boolean prepared) throws CWLException {
+            boolean prepared,
+            Map<Long, CWLInstanceState> jobStates) throws CWLException {
         CWLInstance mainInstance = parent;
         while(mainInstance.getParent() != null) {
             mainInstance = mainInstance.getParent();
@@ -371,12 +619,36 @@ public final class CWLInstanceService {
         stepInstances.add(stepInstance);
         if (stepInstance instanceof CWLCommandInstance) {
             if (record.getState() == CWLInstanceState.DONE) {
-                OutputsCapturer.captureCommandOutputs((CWLCommandInstance) stepInstance);
+                if (record.getReclaimedBytes() != null) {
+                    // the intermediate outputs were reclaimed, all consumers of
+                    // this step are done, so it is not necessary to capture them
+                    ((CWLCommandInstance) stepInstance).setReclaimedBytes(record.getReclaimedBytes());
+                } else if (OutputsJsonConverter.restore(stepInstance, record.getOutputs())) {
+                    logger.debug("Restored the outputs of done step ({})", record.getName());
+                } else {
+                    OutputsCapturer.captureCommandOutputs((CWLCommandInstance) stepInstance);
+                }
                 stepInstance.setState(CWLInstanceState.DONE);
             } else if (record.getState() == CWLInstanceState.EXITED) {
                 stepInstance.setState(CWLInstanceState.WAITING);
+            } else if (record.getFusedHead() != null &&
+                    Integer.valueOf(0).equals(ChainFuser.findExitCode((CWLCommandInstance) stepInstance))) {
+                // the step was done in a fused chain job, the job may be exited
+                // by a later step of the chain
+                try {
+                    OutputsCapturer.captureCommandOutputs((CWLCommandInstance) stepInstance);
+                    stepInstance.setState(CWLInstanceState.DONE);
+                    updateCWLProcessInstance(stepInstance);
+                } catch (CWLException e) {
+                    logger.debug("Failed to capture the output for done fused step ({})", record.getName());
+                    stepInstance.setState(CWLInstanceState.WAITING);
+                }
             } else if (record.getState() != CWLInstanceState.WAITING) {
-                CWLInstanceState state = LSFCommandUtil.findLSFJobState(record.getHpcJobId());
+                CWLInstanceState state = jobStates.get(record.getHpcJobId());
+                if (state == null) {
+                    // LSF has no record of the job, rerun the step
+                    state = CWLInstanceState.EXITED;
+                }
                 logger.debug("Query the step ({}) state from LSF (current={}, lsf={})",
                         record.getName(), record.getState(), state);
                 if (state == CWLInstanceState.DONE) {
@@ -403,6 +675,63 @@ public final class CWLInstanceService {
         logger.debug("recover step: {}, state={}, prepared={}", stepInstance.getName(), stepInstance.getState(), prepared);
     }
 
+    /*
+     * Attaches a step instance to its submitted job, a held job keeps waiting,
+     * other jobs are waited by bwait, only a lost job (LSF has no record of it)
+     * will be submitted again if its outputs cannot be captured
+     */
+    private void attachStepInstance(List<CWLInstance> stepInstances,
+            CWLWorkflowInstance parent,
+            String name,
+            WorkflowStep step,
+            boolean prepared,
+            Map<Long, CWLInstanceState> jobStates) throws CWLException {
+        CWLInstance mainInstance = parent;
+        while(mainInstance.getParent() != null) {
+            mainInstance = mainInstance.getParent();
+        }
+        CWLStepProcessRecord record = findStepByName(mainInstance.getId(), name);
+        if (record.getState() == CWLInstanceState.DONE || record.getHpcJobId() == null ||
+                record.getHpcJobId() <= 0) {
+            // the step was done or was not submitted, e.g. an expression step
+            recoverStepInstance(stepInstances, parent, name, step, prepared, jobStates);
+            return;
+        }
+        CWLInstance stepInstance = buildStepInstance(parent, record, step, prepared);
+        stepInstances.add(stepInstance);
+        if (stepInstance instanceof CWLCommandInstance) {
+            CWLCommandInstance commandInstance = (CWLCommandInstance) stepInstance;
+            long jobId = record.getHpcJobId();
+            CWLInstanceState state = jobStates.get(jobId);
+            logger.debug("Attach the step ({}) to its job <{}> (current={}, lsf={})", record.getName(), jobId,
+                    record.getState(), state);
+            if (state == null || state == CWLInstanceState.DONE) {
+                try {
+                    OutputsCapturer.captureCommandOutputs(commandInstance);
+                    stepInstance.setState(CWLInstanceState.DONE);
+                    updateCWLProcessInstance(stepInstance);
+                } catch (CWLException e) {
+                    if (state == null) {
+                        logger.warn(ResourceLoader.getMessage("cwl.exec.workflow.attach.job.lost", record.getName(),
+                                String.valueOf(jobId)));
+                        stepInstance.setState(CWLInstanceState.WAITING);
+                    } else {
+                        commandInstance.setHPCJobId(jobId);
+                        stepInstance.setState(CWLInstanceState.RUNNING);
+                    }
+                }
+            } else if (state == CWLInstanceState.SUSPENDED && record.getState() == CWLInstanceState.WAITING) {
+                // the placeholder job is held until the dependencies are done
+                commandInstance.setHPCJobId(jobId);
+            } else {
+                commandInstance.setHPCJobId(jobId);
+                stepInstance.setState(CWLInstanceState.RUNNING);
+            }
+        }
+        logger.debug("attach step: {}, state={}, prepared={}", stepInstance.getName(), stepInstance.getState(),
+                prepared);
+    }
+
     private CWLInstance buildStepInstance(CWLWorkflowInstance parent,
             CWLStepProcessRecord record,
             WorkflowStep step,
@@ -438,7 +767,8 @@ public final class CWLInstanceService {
                 if (((CWLCommandInstance) instance).getScatter() != null) {
                     ((CWLCommandInstance) instance).setScatterHolders(new ArrayList<>());
                     runtimeService.buildRuntimeScatterCommands((CWLCommandInstance) instance);
-                } else {
+                } else if (!(commandLineTool instanceof ExpressionTool)) {
+                    // an ExpressionTool step is evaluated in process without a command
                     ((CWLCommandInstance) instance).setCommands(
                             runtimeService.buildRuntimeCommand((CWLCommandInstance) instance));
                 }
@@ -28,8 +28,14 @@ import org.slf4j.LoggerFactory;
 
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecConfUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.cache.CallCacheUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.LSFCommandUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ResourceTuner;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.ScatterPacker;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.ProfilePhase;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
+import com.ibm.spectrumcomputing.cwl.model.conf.AutoTuneConf;
 import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
@@ -41,6 +47,7 @@ import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvironmentDef;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.ResourceRequirement;
 import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
 import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
 
 /*
  * A LSF runtime command implementation
@@ -48,18 +55,24 @@ import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
 final class CWLLSFCommandServiceImpl implements CWLCommandService {
 
     private static final Logger logger = LoggerFactory.getLogger(CWLLSFCommandServiceImpl.class);
+    private static final int MAX_USAGE_SAMPLES = 200;
 
     @Override
     public List<String> buildCommand(CWLCommandInstance instance) throws CWLException {
+        long buildStart = System.currentTimeMillis();
         List<String> baseCommands = null;
         if (instance.isReadyToRun()) {
             baseCommands = CommandUtil.buildCommand(instance);
+            CallCacheUtil.prepareCacheKey(instance, baseCommands);
         }
-        return buildCommand(instance, baseCommands, 0);
+        List<String> commands = buildCommand(instance, baseCommands, 0);
+        RunProfiler.record(instance, ProfilePhase.BUILD, buildStart);
+        return commands;
     }
 
     @Override
     public void buildScatterCommand(CWLCommandInstance instance) throws CWLException {
+        long buildStart = System.currentTimeMillis();
         CommandUtil.buildScatterCommand(instance);
         for (CWLScatterHolder scatterHolder : instance.getScatterHolders()) {
             List<String> srcCommand = scatterHolder.getCommand();
@@ -69,6 +82,59 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
             //update the command
             scatterHolder.setCommand(lsfCommand);
         }
+        packScatterCommands(instance);
+        RunProfiler.record(instance, ProfilePhase.BUILD, buildStart);
+    }
+
+    @Override
+    public CWLScatterHolder buildScatterCommand(CWLCommandInstance instance,
+            Map<String, Object> scatterValues,
+            int scatterIndex) throws CWLException {
+        long buildStart = System.currentTimeMillis();
+        CWLScatterHolder scatterHolder = CommandUtil.buildScatterCommand(instance, scatterValues, scatterIndex);
+        logger.debug("scatter - source command: {}", scatterHolder.getCommand());
+        List<String> lsfCommand = buildCommand(instance, scatterHolder.getCommand(), scatterIndex);
+        logger.debug("scatter - lsf command: {}", lsfCommand);
+        scatterHolder.setCommand(lsfCommand);
+        RunProfiler.record(instance, ProfilePhase.BUILD, buildStart);
+        return scatterHolder;
+    }
+
+    /*
+     * Packs the consecutive scatter steps to chunk jobs, a chunk job takes the
+     * LSF options of its first scatter step. The scatter steps that run in an
+     * LSF docker application are not packed
+     */
+    private void packScatterCommands(CWLCommandInstance instance) throws CWLException {
+        List<CWLScatterHolder> scatterHolders = instance.getScatterHolders();
+        int chunkSize = ScatterPacker.resolveChunkSize(instance);
+        if (chunkSize <= 1 || instance.isEmptyScatter()) {
+            return;
+        }
+        CWLInstance main = CWLExecUtil.findMainInstance(instance);
+        String app = CWLExecConfUtil.getApp(main.getFlowExecConf(), instance.getName());
+        if (app != null && app.length() > 0
+                && CWLExecUtil.findRequirement(instance, DockerRequirement.class) != null) {
+            logger.debug("The scatter steps of step ({}) run in the LSF application, skip packing",
+                    instance.getName());
+            return;
+        }
+        for (int i = 0; i < scatterHolders.size(); i += chunkSize) {
+            List<CWLScatterHolder> chunk = scatterHolders.subList(i, Math.min(i + chunkSize, scatterHolders.size()));
+            List<String> commands = new ArrayList<>();
+            for (CWLScatterHolder scatterHolder : chunk) {
+                commands.add(scatterHolder.getCommand().get(scatterHolder.getCommand().size() - 1));
+                scatterHolder.setChunkSize(0);
+            }
+            CWLScatterHolder first = chunk.get(0);
+            List<String> lsfCommand = new ArrayList<>(first.getCommand().subList(0, first.getCommand().size() - 1));
+            lsfCommand.add(ScatterPacker.packScatterCommands(instance, chunk, commands));
+            logger.debug("scatter - packed lsf command: {}", lsfCommand);
+            first.setCommand(lsfCommand);
+            first.setChunkSize(chunk.size());
+        }
+        logger.info(ResourceLoader.getMessage("cwl.exec.scatter.job.packed", instance.getName(),
+                scatterHolders.size(), ScatterPacker.findJobHolders(scatterHolders).size()));
     }
 
     private List<String> buildCommand(CWLCommandInstance instance, List<String> baseCommands, int scatterIndex)
@@ -111,7 +177,7 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
         if (!envVars.isEmpty()) {
             commands.addAll(Arrays.asList("-env", String.join(",", envVars)));
         }
-        String app = addLSFOptionsFromExecConf(instance, commands);
+        String app = addLSFOptionsFromExecConf(instance, commands, scatterIndex);
         if (dockerRequirement != null) {
             commands.addAll(LSFCommandUtil.prepareLSFDocker(app, dockerRequirement, instance, scatterIndex));
         }
@@ -124,6 +190,8 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
         } else {
             if (dockerRequirement != null && app != null) {
                 commands.add(baseCommands.get(baseCommands.size() - 1));
+            } else if (dockerRequirement == null) {
+                commands.add(LSFCommandUtil.wrapScratchCommand(instance, String.join(" ", baseCommands), scatterIndex));
             } else {
                 commands.add(String.join(" ", baseCommands));
             }
@@ -134,7 +202,7 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
     /*
      * If user configured the app option, return it, else return null
      */
-    private String addLSFOptionsFromExecConf(CWLCommandInstance instance, List<String> commands) {
+    private String addLSFOptionsFromExecConf(CWLCommandInstance instance, List<String> commands, int scatterIndex) {
         CWLInstance main = CWLExecUtil.findMainInstance(instance);
         FlowExecConf flowExecConf = main.getFlowExecConf();
         String queue = CWLExecConfUtil.getQueue(flowExecConf, instance.getName());
@@ -153,7 +221,13 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
             commands.addAll(Arrays.asList("-R", res));
         } else {
             ResourceRequirement resReq = CWLExecUtil.findRequirement(instance, ResourceRequirement.class);
-            if (resReq != null) {
+            List<String> tunedMemCommand = buildTunedMemCommand(instance, resReq, scatterIndex);
+            if (tunedMemCommand != null) {
+                commands.addAll(tunedMemCommand);
+                if (resReq != null) {
+                    commands.addAll(buildCoresCommand(resReq));
+                }
+            } else if (resReq != null) {
                 commands.addAll(buildResCommand(resReq));
             }
         }
@@ -161,6 +235,9 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
 	if (processors != null && processors.length() > 0) {
 	    commands.addAll(Arrays.asList("-n", processors));
 	}		
+        if (instance.getUserPriority() > 0) {
+            commands.addAll(Arrays.asList("-sp", String.valueOf(instance.getUserPriority())));
+        }
         String app = CWLExecConfUtil.getApp(flowExecConf, instance.getName());
         if (app != null && app.length() > 0) {
             commands.addAll(Arrays.asList("-app", app));
@@ -172,14 +249,20 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
         List<String> commands = new ArrayList<>();
         Long ramMax = resourceRequirement.getRamMax();
         Long ramMin = resourceRequirement.getRamMin();
-        Long coresMax = resourceRequirement.getCoresMax();
-        Long coresMin = resourceRequirement.getCoresMin();
         if (ramMin != null) {
             if (ramMin != ramMax) {
                 commands.addAll(Arrays.asList("-M", String.valueOf(ramMax)));
             }
             commands.addAll(Arrays.asList("-R", String.format("mem > %d", ramMin)));
         }
+        commands.addAll(buildCoresCommand(resourceRequirement));
+        return commands;
+    }
+
+    private List<String> buildCoresCommand(ResourceRequirement resourceRequirement) {
+        List<String> commands = new ArrayList<>();
+        Long coresMax = resourceRequirement.getCoresMax();
+        Long coresMin = resourceRequirement.getCoresMin();
         if (coresMin != null) {
             if (coresMin == coresMax) {
                 commands.addAll(Arrays.asList("-n", String.format("%d", coresMin)));
@@ -190,4 +273,34 @@ final class CWLLSFCommandServiceImpl implements CWLCommandService {
         return commands;
     }
 
+    /*
+     * If the auto-tune is enabled, sizes the memory options from the actual
+     * memory usage of the previous jobs of the same tool, the jobs with a
+     * similar input size are preferred, the input size is unknown for a held
+     * job or a scatter job. Returns null if the memory cannot be tuned
+     */
+    private List<String> buildTunedMemCommand(CWLCommandInstance instance,
+            ResourceRequirement resReq,
+            int scatterIndex) {
+        AutoTuneConf autoTuneConf = ResourceTuner.findAutoTuneConf(instance);
+        if (autoTuneConf == null) {
+            return null;
+        }
+        CWLInstanceService instanceService = CWLServiceFactory.getService(CWLInstanceService.class);
+        String toolKey = ResourceTuner.toToolKey(instance);
+        List<Long> maxMems = null;
+        if (instance.isReadyToRun() && scatterIndex == 0) {
+            maxMems = instanceService.findJobMaxMems(toolKey, ResourceTuner.toSizeBucket(instance), MAX_USAGE_SAMPLES);
+        }
+        if (maxMems == null || maxMems.size() < autoTuneConf.getMinSamples()) {
+            maxMems = instanceService.findJobMaxMems(toolKey, null, MAX_USAGE_SAMPLES);
+        }
+        List<String> tunedMemCommand = ResourceTuner.buildTunedMemCommand(maxMems, autoTuneConf, resReq);
+        if (tunedMemCommand != null) {
+            logger.debug("Tune the memory of step ({}) to {} from {} job(s)", instance.getName(), tunedMemCommand,
+                    maxMems.size());
+        }
+        return tunedMemCommand;
+    }
+
 }
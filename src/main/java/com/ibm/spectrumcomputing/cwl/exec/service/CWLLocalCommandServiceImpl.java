@@ -0,0 +1,97 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.service;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.exec.util.cache.CallCacheUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.ProfilePhase;
+import com.ibm.spectrumcomputing.cwl.exec.util.profile.RunProfiler;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
+
+/*
+ * A UNIX local runtime command implementation, the command runs by a shell on
+ * the submission host
+ */
+final class CWLLocalCommandServiceImpl implements CWLCommandService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CWLLocalCommandServiceImpl.class);
+
+    @Override
+    public List<String> buildCommand(CWLCommandInstance instance) throws CWLException {
+        long buildStart = System.currentTimeMillis();
+        List<String> baseCommands = CommandUtil.buildCommand(instance);
+        CallCacheUtil.prepareCacheKey(instance, baseCommands);
+        List<String> commands = buildCommand(baseCommands, null);
+        logger.debug("local command: {}", commands);
+        RunProfiler.record(instance, ProfilePhase.BUILD, buildStart);
+        return commands;
+    }
+
+    @Override
+    public void buildScatterCommand(CWLCommandInstance instance) throws CWLException {
+        long buildStart = System.currentTimeMillis();
+        CommandUtil.buildScatterCommand(instance);
+        for (CWLScatterHolder scatterHolder : instance.getScatterHolders()) {
+            scatterHolder.setCommand(buildCommand(scatterHolder.getCommand(),
+                    prepareScatterWorkDir(instance, scatterHolder.getScatterIndex())));
+        }
+        RunProfiler.record(instance, ProfilePhase.BUILD, buildStart);
+    }
+
+    @Override
+    public CWLScatterHolder buildScatterCommand(CWLCommandInstance instance,
+            Map<String, Object> scatterValues,
+            int scatterIndex) throws CWLException {
+        long buildStart = System.currentTimeMillis();
+        CWLScatterHolder scatterHolder = CommandUtil.buildScatterCommand(instance, scatterValues, scatterIndex);
+        scatterHolder.setCommand(buildCommand(scatterHolder.getCommand(),
+                prepareScatterWorkDir(instance, scatterIndex)));
+        RunProfiler.record(instance, ProfilePhase.BUILD, buildStart);
+        return scatterHolder;
+    }
+
+    private String prepareScatterWorkDir(CWLCommandInstance instance, int scatterIndex) throws CWLException {
+        String scatterWorkDir = instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR)
+                + File.separator
+                + String.format("scatter%d", scatterIndex);
+        IOUtil.mkdirs(instance.getOwner(), Paths.get(scatterWorkDir));
+        return scatterWorkDir;
+    }
+
+    /*
+     * The base commands were quoted for a shell, like LSF, run them by a shell
+     */
+    private List<String> buildCommand(List<String> baseCommands, String workDir) {
+        String command = String.join(" ", baseCommands);
+        if (workDir != null) {
+            command = String.format("cd \"%s\" && %s", workDir, command);
+        }
+        return Arrays.asList("/bin/sh", "-c", command);
+    }
+}
@@ -25,6 +25,7 @@ import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.model.RuntimeEnv;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessRecord;
 import com.ibm.spectrumcomputing.cwl.model.process.CWLProcess;
@@ -59,6 +60,22 @@ public class CWLRuntimeService {
         return processService.buildCommand(commandInstance);
     }
 
+    /**
+     * Builds a command for a CWL CommandLineTool instance that runs as a local
+     * process on the submission host, whatever the runtime environment of the
+     * instance is
+     * 
+     * @param commandInstance
+     *            A CWL CommandLineTool instance, its inputs were resolved
+     * @return A local execution command
+     * @throws CWLException
+     *             Failed to build the command
+     */
+    public List<String> buildLocalCommand(CWLCommandInstance commandInstance) throws CWLException {
+        CWLCommandService processService = CWLServiceFactory.getCommandService(RuntimeEnv.LOCAL);
+        return processService.buildCommand(commandInstance);
+    }
+
     /**
      * Builds the runtime environment dependent commands for a CWL scatter step
      * instance
@@ -74,6 +91,28 @@ public class CWLRuntimeService {
         processService.buildScatterCommand(commandInstance);
     }
 
+    /**
+     * Builds the runtime environment dependent command for a single scatter
+     * step of a CWL scatter step instance
+     * 
+     * @param commandInstance
+     *            A CWL scatter step instance
+     * @param scatterValues
+     *            The values of the scatter inputs, keyed by the input ID
+     * @param scatterIndex
+     *            The index of the scatter step, the index is from 1
+     * @return The scatter holder of the scatter step
+     * @throws CWLException
+     *             Failed to build the command
+     */
+    public CWLScatterHolder buildRuntimeScatterCommand(CWLCommandInstance commandInstance,
+            Map<String, Object> scatterValues,
+            int scatterIndex) throws CWLException {
+        RuntimeEnv runtimeEnv = commandInstance.getRuntimeEnv();
+        CWLCommandService processService = CWLServiceFactory.getCommandService(runtimeEnv);
+        return processService.buildScatterCommand(commandInstance, scatterValues, scatterIndex);
+    }
+
     /*
      * Builds runtime environment for a CWL main process
      */
@@ -34,8 +34,8 @@ public final class CWLServiceFactory {
 
     /**
      * Creates {@link CWLRuntimeService}, {@link CWLInstanceService},
-     * {@link CWLExecService} and {@link CWLLSFCommandServiceImpl} and hold them
-     * to a {@link Map}
+     * {@link CWLExecService}, {@link CWLLSFCommandServiceImpl} and
+     * {@link CWLLocalCommandServiceImpl} and hold them to a {@link Map}
      * 
      * @param databaseMgr
      *            The database manager, {@link CWLInstanceService} will use it
@@ -50,6 +50,7 @@ public final class CWLServiceFactory {
         services.put(CWLExecService.class.getName(), new CWLExecService(instacneService));
         // command services
         services.put(RuntimeEnv.LSF.toString(), new CWLLSFCommandServiceImpl());
+        services.put(RuntimeEnv.LOCAL.toString(), new CWLLocalCommandServiceImpl());
     }
 
     /**
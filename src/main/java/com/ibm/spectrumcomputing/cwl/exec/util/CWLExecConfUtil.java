@@ -221,4 +221,170 @@ public final class CWLExecConfUtil {
         return pfscript;
     }
 
+    /**
+     * Finds the node-local scratch directory configuration argument from a
+     * given FlowExecConf object by a CWL Workflow step name
+     * 
+     * @param flowExecConf
+     *            A FlowExecConf object
+     * @param stepName
+     *            The name of a CWL Workflow step
+     * @return If the configuration argument is not found, a null value will be
+     *         returned
+     */
+    public static String getScratch(FlowExecConf flowExecConf, String stepName) {
+        String scratch = null;
+        if (flowExecConf != null && stepName != null) {
+            scratch = flowExecConf.getScratch();
+            if (flowExecConf.getSteps() != null) {
+                StepExecConf stepExecConf = flowExecConf.getSteps().get(stepName);
+                if (stepExecConf != null) {
+                    String stepScratch = stepExecConf.getScratch();
+                    if (stepScratch != null) {
+                        scratch = stepScratch;
+                    }
+                }
+            }
+        }
+        return scratch;
+    }
+
+    /**
+     * Finds the scratch outdir configuration argument from a given
+     * FlowExecConf object by a CWL Workflow step name
+     * 
+     * @param flowExecConf
+     *            A FlowExecConf object
+     * @param stepName
+     *            The name of a CWL Workflow step
+     * @return If the configuration argument is not found, false will be
+     *         returned
+     */
+    public static boolean isScratchOutdir(FlowExecConf flowExecConf, String stepName) {
+        boolean scratchOutdir = false;
+        if (flowExecConf != null && stepName != null) {
+            scratchOutdir = flowExecConf.isScratchOutdir();
+            if (flowExecConf.getSteps() != null) {
+                StepExecConf stepExecConf = flowExecConf.getSteps().get(stepName);
+                if (stepExecConf != null && stepExecConf.getScratchOutdir() != null) {
+                    scratchOutdir = stepExecConf.getScratchOutdir().booleanValue();
+                }
+            }
+        }
+        return scratchOutdir;
+    }
+
+    /**
+     * Finds the scatter chunk size configuration argument from a given
+     * FlowExecConf object by a CWL Workflow step name
+     * 
+     * @param flowExecConf
+     *            A FlowExecConf object
+     * @param stepName
+     *            The name of a CWL Workflow step
+     * @return If the configuration argument is not found, 1 will be returned,
+     *         {@link FlowExecConf#ADAPTIVE_SCATTER_CHUNK_SIZE} means the size
+     *         is adapted from the previous runs
+     */
+    public static int getScatterChunkSize(FlowExecConf flowExecConf, String stepName) {
+        Integer scatterChunkSize = null;
+        if (flowExecConf != null && stepName != null) {
+            scatterChunkSize = flowExecConf.getScatterChunkSize();
+            if (flowExecConf.getSteps() != null) {
+                StepExecConf stepExecConf = flowExecConf.getSteps().get(stepName);
+                if (stepExecConf != null && stepExecConf.getScatterChunkSize() != null) {
+                    scatterChunkSize = stepExecConf.getScatterChunkSize();
+                }
+            }
+        }
+        return scatterChunkSize != null ? scatterChunkSize.intValue() : 1;
+    }
+
+    /**
+     * Finds the pipeline scatter configuration argument from a given
+     * FlowExecConf object by a CWL Workflow step name
+     * 
+     * @param flowExecConf
+     *            A FlowExecConf object
+     * @param stepName
+     *            The name of a CWL Workflow step
+     * @return If the configuration argument is not found, false will be
+     *         returned
+     */
+    public static boolean isPipelineScatter(FlowExecConf flowExecConf, String stepName) {
+        boolean pipelineScatter = false;
+        if (flowExecConf != null && stepName != null) {
+            pipelineScatter = flowExecConf.isPipelineScatter();
+            if (flowExecConf.getSteps() != null) {
+                StepExecConf stepExecConf = flowExecConf.getSteps().get(stepName);
+                if (stepExecConf != null && stepExecConf.getPipelineScatter() != null) {
+                    pipelineScatter = stepExecConf.getPipelineScatter().booleanValue();
+                }
+            }
+        }
+        return pipelineScatter;
+    }
+
+    /**
+     * Finds the local configuration argument from a given FlowExecConf by
+     * step name
+     * 
+     * @param flowExecConf
+     *            The FlowExecConf object
+     * @param stepName
+     *            The step name
+     * @return If the step runs as a local process, return true
+     */
+    public static boolean isLocal(FlowExecConf flowExecConf, String stepName) {
+        boolean local = false;
+        if (flowExecConf != null && stepName != null) {
+            local = flowExecConf.isLocal();
+            if (flowExecConf.getSteps() != null) {
+                StepExecConf stepExecConf = flowExecConf.getSteps().get(stepName);
+                if (stepExecConf != null && stepExecConf.getLocal() != null) {
+                    local = stepExecConf.getLocal().booleanValue();
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Finds the local max runtime configuration argument from a given
+     * FlowExecConf by step name
+     * 
+     * @param flowExecConf
+     *            The FlowExecConf object
+     * @param stepName
+     *            The step name
+     * @return The local max runtime in seconds, null if it is not configured
+     */
+    public static Integer getLocalMaxRuntime(FlowExecConf flowExecConf, String stepName) {
+        Integer localMaxRuntime = null;
+        if (flowExecConf != null && stepName != null) {
+            localMaxRuntime = flowExecConf.getLocalMaxRuntime();
+            if (flowExecConf.getSteps() != null) {
+                StepExecConf stepExecConf = flowExecConf.getSteps().get(stepName);
+                if (stepExecConf != null && stepExecConf.getLocalMaxRuntime() != null) {
+                    localMaxRuntime = stepExecConf.getLocalMaxRuntime();
+                }
+            }
+        }
+        return localMaxRuntime;
+    }
+
+    /**
+     * Finds the local slots configuration argument from a given FlowExecConf
+     * 
+     * @param flowExecConf
+     *            The FlowExecConf object
+     * @return The number of the local steps that can run at the same time, the
+     *         default is the number of the processors of the submission host
+     */
+    public static int getLocalSlots(FlowExecConf flowExecConf) {
+        if (flowExecConf != null && flowExecConf.getLocalSlots() != null) {
+            return flowExecConf.getLocalSlots().intValue();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
 }
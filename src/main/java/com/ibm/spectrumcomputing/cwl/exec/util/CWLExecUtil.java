@@ -15,6 +15,8 @@
  */
 package com.ibm.spectrumcomputing.cwl.exec.util;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -54,12 +56,14 @@ public final class CWLExecUtil {
         if (instance == null) {
             return null;
         }
-        CWLWorkflowInstance parent = instance.getParent();
-        if (parent == null) {
-            return instance;
-        } else {
-            return findMainInstance(parent);
+        CWLInstance main = instance.getMainInstance();
+        if (main == null) {
+            // the parent of an instance never changes
+            CWLWorkflowInstance parent = instance.getParent();
+            main = parent == null ? instance : findMainInstance(parent);
+            instance.setMainInstance(main);
         }
+        return main;
     }
 
     /**
@@ -77,10 +81,25 @@ public final class CWLExecUtil {
      *            A given class of a requirement
      * @return If the requirement are not found, return null
      */
+    @SuppressWarnings("unchecked")
     public static <T extends Requirement> T findRequirement(CWLInstance instance, Class<T> clazz) {
-        T req = findRequirement(instance, clazz, false);
-        if (req == null) {
-            req = findRequirement(instance, clazz, true);
+        Map<String, Requirement> requirements = instance.getEffectiveRequirements();
+        if (requirements == null) {
+            requirements = resolveRequirements(instance);
+            instance.setEffectiveRequirements(requirements);
+        }
+        T req = (T) requirements.get(clazz.getSimpleName());
+        if (logger.isDebugEnabled()) {
+            T found = findRequirement(instance, clazz, false);
+            if (found == null) {
+                found = findRequirement(instance, clazz, true);
+            }
+            if (found != req) {
+                logger.warn("The cached {} of {} is stale, resolve the requirements again",
+                        clazz.getSimpleName(), instance.getName());
+                instance.setEffectiveRequirements(null);
+                req = found;
+            }
         }
         return req;
     }
@@ -288,6 +307,40 @@ public final class CWLExecUtil {
         return result;
     }
 
+    /*
+     * Resolves the effective requirements of an instance once, a requirement
+     * overrides the hints, and in both of them the step overrides the
+     * process, the process overrides the parent
+     */
+    private static Map<String, Requirement> resolveRequirements(CWLInstance instance) {
+        Map<String, Requirement> requirements = new HashMap<>();
+        for (boolean fromHint : new boolean[] { false, true }) {
+            CWLInstance current = instance;
+            while (current != null) {
+                WorkflowStep step = current.getStep();
+                if (step != null) {
+                    putRequirements(requirements, fromHint ? step.getHints() : step.getRequirements());
+                }
+                CWLProcess process = current.getProcess();
+                if (process != null) {
+                    putRequirements(requirements, fromHint ? process.getHints() : process.getRequirements());
+                }
+                current = current.getParent();
+            }
+        }
+        return Collections.unmodifiableMap(requirements);
+    }
+
+    private static void putRequirements(Map<String, Requirement> requirements, List<Requirement> reqs) {
+        if (reqs != null) {
+            for (Requirement req : reqs) {
+                if (req.getClazz() != null) {
+                    requirements.putIfAbsent(req.getClazz(), req);
+                }
+            }
+        }
+    }
+
     private static <T extends Requirement> T findRequirement(CWLInstance instance,
             Class<T> clazz,
             boolean fromHint) {
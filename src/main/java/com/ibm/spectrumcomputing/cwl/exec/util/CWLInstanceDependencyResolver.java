@@ -87,6 +87,42 @@ public class CWLInstanceDependencyResolver {
         return dependentStepNames;
     }
 
+    /**
+     * Find all CWL Workflow steps on which the outputs of a given CWL Workflow
+     * instance depend
+     * 
+     * @param workflowInstance
+     *            A CWL Workflow instance
+     * @return A set of step names on which the Workflow outputs depend
+     * @throws CWLException
+     *             Failed to resolve the dependents
+     */
+    public static Set<String> resolveWorkflowOutputDependentSteps(CWLWorkflowInstance workflowInstance)
+            throws CWLException {
+        if (workflowInstance == null) {
+            throw new IllegalArgumentException("Argument (workflowInstance) is null");
+        }
+        Set<String> dependentStepNames = new HashSet<>();
+        Workflow workflow = (Workflow) workflowInstance.getProcess();
+        for (WorkflowOutputParameter outputParameter : workflow.getOutputs()) {
+            List<String> sources = outputParameter.getOutputSource();
+            if (sources == null) {
+                continue;
+            }
+            for (String source : sources) {
+                int index = source.lastIndexOf('/');
+                if (index != -1) {
+                    String stepName = workflowInstance.getParent() == null ? source.substring(0, index)
+                            : workflowInstance.getName() + "/" + source.substring(0, index);
+                    String outputId = source.substring(index + 1);
+                    dependentStepNames.addAll(resolveStepOutputDependentSteps(
+                            CWLStepBindingResolver.findStepInstance(workflowInstance, stepName), outputId));
+                }
+            }
+        }
+        return dependentStepNames;
+    }
+
     private static Set<String> resolveStepOutputDependentSteps(CWLInstance cwlInstance,
             String outputId) throws CWLException {
         if (cwlInstance == null) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the critical path of a workflow, the weight of a step is the
+ * runtime of its longest downstream path (the step itself is included), the
+ * runtime of each step is taken from the previous runs of the workflow
+ */
+public class CriticalPathResolver {
+
+    private CriticalPathResolver() {
+    }
+
+    /**
+     * Resolves the weight of each step, if a step has no historical runtime,
+     * the average historical runtime of the other steps is used, and if no step
+     * has a historical runtime, each step weighs 1, i.e. the weight is the
+     * number of the steps on the longest downstream path
+     * 
+     * @param stepNames
+     *            The names of the workflow steps
+     * @param stepConsumers
+     *            The map of step name to the names of the steps that consume
+     *            its outputs
+     * @param runtimes
+     *            The map of step name to its historical runtime
+     *            (milliseconds)
+     * @return The map of step name to its weight
+     */
+    public static Map<String, Long> resolveStepWeights(List<String> stepNames,
+            Map<String, Set<String>> stepConsumers,
+            Map<String, Long> runtimes) {
+        Map<String, Long> stepRuntimes = resolveStepRuntimes(stepNames, runtimes);
+        Map<String, Long> weights = new HashMap<>();
+        for (String stepName : stepNames) {
+            resolveStepWeight(stepName, stepConsumers, stepRuntimes, weights, new HashSet<>());
+        }
+        return weights;
+    }
+
+    /**
+     * Finds the critical path, it starts from the heaviest step and follows the
+     * heaviest consumer of each step
+     * 
+     * @param weights
+     *            The map of step name to its weight
+     * @param stepConsumers
+     *            The map of step name to the names of the steps that consume
+     *            its outputs
+     * @return The step names on the critical path
+     */
+    public static List<String> findCriticalPath(Map<String, Long> weights, Map<String, Set<String>> stepConsumers) {
+        List<String> path = new ArrayList<>();
+        String current = findHeaviestStep(weights, weights.keySet());
+        while (current != null && !path.contains(current)) {
+            path.add(current);
+            Set<String> consumers = stepConsumers.get(current);
+            current = consumers == null ? null : findHeaviestStep(weights, consumers);
+        }
+        return path;
+    }
+
+    /**
+     * Maps the weight of a step to a LSF user priority (bsub -sp) between 1 and
+     * the maximum priority
+     * 
+     * @param weight
+     *            The weight of a step
+     * @param maxWeight
+     *            The weight of the critical path
+     * @param maxPriority
+     *            The maximum LSF user priority
+     * @return The LSF user priority of the step, 0 if the maximum priority is
+     *         not positive
+     */
+    public static int toUserPriority(long weight, long maxWeight, int maxPriority) {
+        if (maxPriority <= 0) {
+            return 0;
+        }
+        if (maxWeight <= 0) {
+            return maxPriority;
+        }
+        long priority = 1L + Math.round((double) weight / maxWeight * (maxPriority - 1));
+        return (int) Math.min(maxPriority, Math.max(1L, priority));
+    }
+
+    private static Map<String, Long> resolveStepRuntimes(List<String> stepNames, Map<String, Long> runtimes) {
+        long total = 0L;
+        int count = 0;
+        for (String stepName : stepNames) {
+            Long runtime = runtimes.get(stepName);
+            if (runtime != null) {
+                total = total + runtime;
+                count = count + 1;
+            }
+        }
+        long defaultRuntime = count == 0 ? 1L : Math.max(1L, total / count);
+        Map<String, Long> stepRuntimes = new HashMap<>();
+        for (String stepName : stepNames) {
+            Long runtime = runtimes.get(stepName);
+            stepRuntimes.put(stepName, runtime != null ? runtime : defaultRuntime);
+        }
+        return stepRuntimes;
+    }
+
+    private static long resolveStepWeight(String stepName,
+            Map<String, Set<String>> stepConsumers,
+            Map<String, Long> stepRuntimes,
+            Map<String, Long> weights,
+            Set<String> visiting) {
+        Long weight = weights.get(stepName);
+        if (weight != null) {
+            return weight;
+        }
+        Long runtime = stepRuntimes.get(stepName);
+        if (runtime == null || !visiting.add(stepName)) {
+            // not a step of the workflow or a cycle
+            return 0L;
+        }
+        long downstream = 0L;
+        Set<String> consumers = stepConsumers.get(stepName);
+        if (consumers != null) {
+            for (String consumer : consumers) {
+                downstream = Math.max(downstream,
+                        resolveStepWeight(consumer, stepConsumers, stepRuntimes, weights, visiting));
+            }
+        }
+        visiting.remove(stepName);
+        weight = runtime + downstream;
+        weights.put(stepName, weight);
+        return weight;
+    }
+
+    private static String findHeaviestStep(Map<String, Long> weights, Set<String> stepNames) {
+        String heaviest = null;
+        long maxWeight = -1L;
+        for (String stepName : stepNames) {
+            Long weight = weights.get(stepName);
+            if (weight != null && (weight > maxWeight || (weight == maxWeight && stepName.compareTo(heaviest) < 0))) {
+                heaviest = stepName;
+                maxWeight = weight;
+            }
+        }
+        return heaviest;
+    }
+}
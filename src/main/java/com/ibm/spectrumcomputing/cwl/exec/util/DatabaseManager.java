@@ -17,6 +17,10 @@ package com.ibm.spectrumcomputing.cwl.exec.util;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Properties;
 
 import org.hibernate.SessionFactory;
@@ -25,7 +29,10 @@ import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.model.naming.ImplicitNamingStrategyJpaCompliantImpl;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLJobUsageRecord;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLStepProcessRecord;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessRecord;
 
@@ -34,13 +41,17 @@ import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessRecord;
  */
 public class DatabaseManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
+
+    private final Properties dbConfig;
     private final SessionFactory sessionFactory;
 
     /**
      * Constructs this object and create a Hibernate session factory
      */
     public DatabaseManager() {
-        Metadata metadata = init(databaseConfig());
+        dbConfig = databaseConfig();
+        Metadata metadata = init(dbConfig);
         sessionFactory = metadata.getSessionFactoryBuilder().build();
     }
 
@@ -52,6 +63,7 @@ public class DatabaseManager {
      *            A given database configuration
      */
     public DatabaseManager(Properties dbConfig) {
+        this.dbConfig = dbConfig;
         Metadata metadata = init(dbConfig);
         sessionFactory = metadata.getSessionFactoryBuilder().build();
     }
@@ -63,6 +75,25 @@ public class DatabaseManager {
         return sessionFactory;
     }
 
+    /**
+     * Compacts the database file, the session factory is closed before the
+     * database is compacted, and the database is closed after it is compacted
+     */
+    public void compact() {
+        // the pooled connections cannot be closed once the database was shut
+        // down
+        sessionFactory.close();
+        try (Connection connection = DriverManager.getConnection(
+                dbConfig.getProperty("hibernate.connection.url"),
+                dbConfig.getProperty("hibernate.connection.username"),
+                dbConfig.getProperty("hibernate.connection.password"));
+                Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN COMPACT");
+        } catch (SQLException e) {
+            logger.warn("Failed to compact the database ({})", e.getMessage());
+        }
+    }
+
     private Metadata init(Properties dbConfig) {
         StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
                 .applySettings(dbConfig)
@@ -70,6 +101,7 @@ public class DatabaseManager {
         return new MetadataSources(registry)
                 .addAnnotatedClass(CWLMainProcessRecord.class)
                 .addAnnotatedClass(CWLStepProcessRecord.class)
+                .addAnnotatedClass(CWLJobUsageRecord.class)
                 .getMetadataBuilder()
                 .applyImplicitNamingStrategy(ImplicitNamingStrategyJpaCompliantImpl.INSTANCE)
                 .build();
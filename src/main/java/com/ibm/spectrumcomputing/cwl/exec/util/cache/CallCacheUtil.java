@@ -0,0 +1,374 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.model.conf.CallCacheConf;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFileBase;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.input.InputRecordField;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvVarRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.ExpressionTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/**
+ * Utility methods for the step call cache, a call cache entry is keyed by the
+ * step command, the checksums of the step inputs, the docker image, the
+ * EnvVarRequirement and the step tool definition, it keeps the output files of
+ * the step
+ */
+public final class CallCacheUtil {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallCacheUtil.class);
+
+    private static final String ENTRY_FILES = "files";
+    private static final String ENTRY_MANIFEST = "manifest";
+    private static final String TMP_ENTRY_PREFIX = ".tmp.";
+
+    // the cache keys of the steps that were built, the step instance id is the key
+    private static final Map<String, String> cacheKeys = new ConcurrentHashMap<>();
+
+    private CallCacheUtil() {
+    }
+
+    /**
+     * Computes the call cache key for a given step instance by its command, the
+     * key is kept until the step is restored or stored
+     * 
+     * @param instance
+     *            A CWL step instance
+     * @param baseCommands
+     *            The command of the step
+     */
+    public static void prepareCacheKey(CWLCommandInstance instance, List<String> baseCommands) {
+        if (findCallCacheConf(instance) == null || baseCommands == null || instance.getScatter() != null ||
+                instance.getProcess() instanceof ExpressionTool) {
+            return;
+        }
+        Map<String, String> runtime = instance.getRuntime();
+        CWLInstance main = CWLExecUtil.findMainInstance(instance);
+        StringBuilder keySource = new StringBuilder();
+        // the command should not contain the workflow dependent paths
+        String command = String.join(" ", baseCommands)
+                .replace(runtime.get(CommonUtil.RUNTIME_TMP_DIR), "$(runtime.tmpdir)")
+                .replace(runtime.get(CommonUtil.RUNTIME_OUTPUT_DIR), "$(runtime.outdir)")
+                .replace(main.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR), "$(workflow.workdir)");
+        keySource.append("command=").append(command).append('\n');
+        for (CWLParameter input : instance.getProcess().getInputs()) {
+            Object value = input.getValue();
+            if (value == null) {
+                value = input.getDefaultValue();
+            }
+            List<Path> paths = new ArrayList<>();
+            addFilePaths(value, paths);
+            for (Path path : paths) {
+                keySource.append("input=").append(input.getId()).append(':').append(checksum(path)).append('\n');
+            }
+        }
+        DockerRequirement dockerReq = CWLExecUtil.findRequirement(instance, DockerRequirement.class);
+        if (dockerReq != null) {
+            keySource.append("docker=").append(CommonUtil.asJsonStr(dockerReq)).append('\n');
+        }
+        EnvVarRequirement envVarReq = CWLExecUtil.findRequirement(instance, EnvVarRequirement.class);
+        if (envVarReq != null) {
+            keySource.append("env=").append(CommonUtil.asJsonStr(envVarReq.getEnvDef())).append('\n');
+        }
+        String descPath = instance.getProcess().getDescPath();
+        keySource.append("tool=").append(instance.getProcess().getId()).append(':')
+                .append(descPath != null ? IOUtil.md5(descPath) : null).append('\n');
+        String key = digest(keySource.toString());
+        logger.debug("The call cache key of step ({}) is {}", instance.getName(), key);
+        cacheKeys.put(instance.getId(), key);
+    }
+
+    /**
+     * Restores the output files of a given step instance from the call cache,
+     * the files are copied to the step working directory, so the step cannot
+     * change the cached files
+     * 
+     * @param instance
+     *            A CWL step instance
+     * @return If the step was hit in the call cache and its outputs were
+     *         restored, return true
+     */
+    public static boolean restore(CWLCommandInstance instance) {
+        CallCacheConf conf = findCallCacheConf(instance);
+        String key = cacheKeys.get(instance.getId());
+        if (conf == null || key == null) {
+            return false;
+        }
+        Path entry = Paths.get(conf.getDir(), key);
+        Path manifest = entry.resolve(ENTRY_MANIFEST);
+        if (!manifest.toFile().exists()) {
+            return false;
+        }
+        Path workDir = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR));
+        try {
+            for (String relative : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (!relative.isEmpty()) {
+                    copy(entry.resolve(ENTRY_FILES).resolve(relative), workDir.resolve(relative));
+                }
+            }
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            logger.warn(ResourceLoader.getMessage("cwl.exec.job.cache.restore.failed", instance.getName(),
+                    e.getMessage()));
+            return false;
+        }
+        cacheKeys.remove(instance.getId());
+        logger.info(ResourceLoader.getMessage("cwl.exec.job.cache.hit", instance.getName(), key));
+        return true;
+    }
+
+    /**
+     * Stores the output files of a given done step instance to the call cache,
+     * then evicts the least recently used entries if the call cache is full.
+     * The entry is filled in a temporary directory and then renamed to its
+     * key, so a partial entry is never visible
+     * 
+     * @param instance
+     *            A done CWL step instance
+     */
+    public static void store(CWLCommandInstance instance) {
+        CallCacheConf conf = findCallCacheConf(instance);
+        String key = cacheKeys.remove(instance.getId());
+        if (conf == null || key == null) {
+            return;
+        }
+        Path entry = Paths.get(conf.getDir(), key);
+        if (entry.toFile().exists()) {
+            return;
+        }
+        Path workDir = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR));
+        List<Path> outputPaths = new ArrayList<>();
+        for (CWLParameter output : instance.getProcess().getOutputs()) {
+            addFilePaths(output.getValue(), outputPaths);
+        }
+        outputPaths.add(workDir.resolve("cwl.output.json"));
+        TreeSet<String> manifest = new TreeSet<>();
+        Path tmpEntry = Paths.get(conf.getDir(), TMP_ENTRY_PREFIX + key + "." + UUID.randomUUID());
+        try {
+            for (Path outputPath : outputPaths) {
+                Path path = outputPath.normalize();
+                if (!path.startsWith(workDir) || path.equals(workDir) || !path.toFile().exists()) {
+                    continue;
+                }
+                String relative = workDir.relativize(path).toString();
+                copy(path, tmpEntry.resolve(ENTRY_FILES).resolve(relative));
+                manifest.add(relative);
+            }
+            Files.createDirectories(tmpEntry);
+            Files.write(tmpEntry.resolve(ENTRY_MANIFEST), manifest, StandardCharsets.UTF_8);
+            Files.move(tmpEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Stored the outputs of step ({}) to call cache {}", instance.getName(), entry);
+        } catch (IOException e) {
+            // the entry may be stored by another step with the same key
+            if (!entry.toFile().exists()) {
+                logger.warn(ResourceLoader.getMessage("cwl.exec.job.cache.store.failed", instance.getName(),
+                        e.getMessage()));
+            }
+            deleteQuietly(tmpEntry);
+            return;
+        }
+        evict(conf);
+    }
+
+    private static CallCacheConf findCallCacheConf(CWLInstance instance) {
+        CWLInstance main = CWLExecUtil.findMainInstance(instance);
+        if (main == null || main.getFlowExecConf() == null) {
+            return null;
+        }
+        return main.getFlowExecConf().getCallCache();
+    }
+
+    private static synchronized void evict(CallCacheConf conf) {
+        if (conf.getMaxEntries() <= 0 && conf.getMaxSize() <= 0) {
+            return;
+        }
+        File[] entries = Paths.get(conf.getDir()).toFile()
+                .listFiles(f -> f.isDirectory() && !f.getName().startsWith(TMP_ENTRY_PREFIX));
+        if (entries == null) {
+            return;
+        }
+        List<File> lru = Stream.of(entries)
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .collect(Collectors.toList());
+        long maxSize = conf.getMaxSize() * 1024 * 1024;
+        long size = 0L;
+        if (maxSize > 0) {
+            for (File entry : lru) {
+                size += sizeOf(entry.toPath());
+            }
+        }
+        while (!lru.isEmpty() &&
+                ((conf.getMaxEntries() > 0 && lru.size() > conf.getMaxEntries()) || (maxSize > 0 && size > maxSize))) {
+            File entry = lru.remove(0);
+            long entrySize = maxSize > 0 ? sizeOf(entry.toPath()) : 0L;
+            try {
+                delete(entry.toPath());
+                size -= entrySize;
+                logger.debug("Evicted call cache entry {}", entry);
+            } catch (IOException e) {
+                logger.warn("Failed to evict call cache entry {} ({})", entry, e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Returns the call cache key of a given step instance, if the key was not
+     * prepared, return null
+     */
+    static String findCacheKey(CWLCommandInstance instance) {
+        return cacheKeys.get(instance.getId());
+    }
+
+    private static void copy(Path src, Path target) throws IOException {
+        if (Files.isDirectory(src, LinkOption.NOFOLLOW_LINKS)) {
+            List<Path> paths;
+            try (Stream<Path> walker = Files.walk(src)) {
+                paths = walker.collect(Collectors.toList());
+            }
+            for (Path path : paths) {
+                Path targetPath = target.resolve(src.relativize(path).toString());
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.createDirectories(targetPath);
+                } else {
+                    copyFile(path, targetPath);
+                }
+            }
+        } else {
+            copyFile(src, target);
+        }
+    }
+
+    private static void copyFile(Path src, Path target) throws IOException {
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Files.copy(src.toRealPath(), target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void addFilePaths(Object value, List<Path> paths) {
+        if (value instanceof CWLFileBase) {
+            CWLFileBase file = (CWLFileBase) value;
+            if (file.getPath() != null) {
+                paths.add(Paths.get(file.getPath()));
+            }
+            if (file instanceof CWLFile && ((CWLFile) file).getSecondaryFiles() != null) {
+                for (CWLFileBase secondaryFile : ((CWLFile) file).getSecondaryFiles()) {
+                    addFilePaths(secondaryFile, paths);
+                }
+            }
+        } else if (value instanceof InputRecordField) {
+            addFilePaths(((InputRecordField) value).getValue(), paths);
+        } else if (value instanceof List<?>) {
+            for (Object element : (List<?>) value) {
+                addFilePaths(element, paths);
+            }
+        } else if (value instanceof Map<?, ?>) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                addFilePaths(element, paths);
+            }
+        }
+    }
+
+    private static String checksum(Path path) {
+        if (Files.isDirectory(path)) {
+            StringBuilder checksums = new StringBuilder();
+            try (Stream<Path> walker = Files.walk(path)) {
+                walker.filter(Files::isRegularFile).sorted().forEach(p -> checksums.append(path.relativize(p))
+                        .append('=').append(IOUtil.md5(p.toString())).append(';'));
+            } catch (IOException e) {
+                logger.debug("Failed to checksum {} ({})", path, e.getMessage());
+                return null;
+            }
+            return digest(checksums.toString());
+        }
+        return IOUtil.md5(path.toString());
+    }
+
+    private static String digest(String content) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : md.digest(content.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long sizeOf(Path path) {
+        try (Stream<Path> walker = Files.walk(path)) {
+            return walker.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (!path.toFile().exists()) {
+            return;
+        }
+        try {
+            delete(path);
+        } catch (IOException e) {
+            logger.debug("Failed to delete {} ({})", path, e.getMessage());
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walker = Files.walk(path)) {
+            paths = walker.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path p : paths) {
+            Files.deleteIfExists(p);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.command;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/**
+ * Utility methods for fusing a linear chain of steps into one LSF job. The job
+ * runs a chain script, the script runs the step scripts in sequence, each step
+ * script is run after it was filled out and released by cwlexec, and its exit
+ * code is written to a marker file, so cwlexec can capture the outputs of a
+ * step and release the next one while the job is running
+ */
+public class ChainFuser {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChainFuser.class);
+
+    // the time (seconds) that the chain script waits for a step to be released
+    private static final int RELEASE_TIMEOUT = 3600;
+
+    private static final String READY_MARKER = ".ready";
+    private static final String EXIT_MARKER = ".exit";
+    private static final String ABORT_MARKER = ".abort";
+
+    private ChainFuser() {
+    }
+
+    /**
+     * Returns the script path of a given step, it is the placeholder script of
+     * the step
+     * 
+     * @param instance
+     *            A CWL step instance
+     * @return The script path of the step
+     */
+    public static Path toStepScript(CWLCommandInstance instance) {
+        return Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
+                instance.getName().replace("/", "_"));
+    }
+
+    /**
+     * Creates the chain script for a chain of steps, the markers of a previous
+     * run of the steps are removed
+     * 
+     * @param chain
+     *            The CWL step instances of the chain, in the run order
+     * @return The path of the chain script
+     * @throws CWLException
+     *             Failed to create the chain script
+     */
+    public static Path createChainScript(List<CWLCommandInstance> chain) throws CWLException {
+        List<String> workDirs = new ArrayList<>();
+        List<String> stepScripts = new ArrayList<>();
+        for (CWLCommandInstance instance : chain) {
+            Path stepScript = toStepScript(instance);
+            for (String marker : new String[] { READY_MARKER, EXIT_MARKER, ABORT_MARKER }) {
+                File markerFile = toMarker(instance, marker);
+                if (markerFile.exists() && !markerFile.delete()) {
+                    logger.debug("Failed to delete the chain marker {}", markerFile);
+                }
+            }
+            workDirs.add(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR));
+            stepScripts.add(stepScript.toString());
+        }
+        CWLCommandInstance head = chain.get(0);
+        Path chainScript = Paths.get(head.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
+                head.getName().replace("/", "_") + ".chain");
+        IOUtil.createCommandScript(chainScript, toChainScript(workDirs, stepScripts));
+        logger.debug("Fuse the steps ({}) to the chain script ({})", stepScripts, chainScript);
+        return chainScript;
+    }
+
+    /**
+     * Releases a filled out step, the chain script runs it after the previous
+     * step of the chain is done
+     * 
+     * @param instance
+     *            A CWL step instance of a chain
+     * @throws CWLException
+     *             Failed to write the ready marker
+     */
+    public static void releaseStep(CWLCommandInstance instance) throws CWLException {
+        IOUtil.write(toMarker(instance, READY_MARKER), "");
+    }
+
+    /**
+     * Aborts a step that was not released, the chain script exits without
+     * waiting for it
+     * 
+     * @param instance
+     *            A CWL step instance of a chain
+     */
+    public static void abortStep(CWLCommandInstance instance) {
+        try {
+            IOUtil.write(toMarker(instance, ABORT_MARKER), "");
+        } catch (CWLException e) {
+            logger.warn(ResourceLoader.getMessage("cwl.exec.job.fused.abort.failed", instance.getName(),
+                    e.getMessage()));
+        }
+    }
+
+    /**
+     * Finds the exit code of a step that was run by a chain script
+     * 
+     * @param instance
+     *            A CWL step instance of a chain
+     * @return The exit code of the step, null if the step was not run
+     */
+    public static Integer findExitCode(CWLCommandInstance instance) {
+        File exitMarker = toMarker(instance, EXIT_MARKER);
+        if (!exitMarker.exists()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(IOUtil.read(exitMarker).trim());
+        } catch (CWLException | NumberFormatException e) {
+            logger.debug("Failed to read the exit code of step ({}): {}", instance.getName(), e.getMessage());
+        }
+        return null;
+    }
+
+    /*
+     * Each step script runs in its working directory after it was released,
+     * the chain script exits with the first nonzero exit code, or if a step was
+     * aborted or not released in time
+     */
+    protected static String toChainScript(List<String> workDirs, List<String> stepScripts) {
+        StringBuilder script = new StringBuilder();
+        script.append("#!/bin/bash\n");
+        script.append(String.format("CWLEXEC_RELEASE_TIMEOUT=%d%n", RELEASE_TIMEOUT));
+        script.append("cwlexec_run_step() {\n");
+        script.append("    CWLEXEC_WAITED=0\n");
+        script.append(String.format("    until [ -e \"$2%s\" ]; do%n", READY_MARKER));
+        script.append(String.format("        if [ -e \"$2%s\" ] || [ $CWLEXEC_WAITED -ge $CWLEXEC_RELEASE_TIMEOUT ]; then%n",
+                ABORT_MARKER));
+        script.append("            echo \"$2 was not released\" >&2\n");
+        script.append("            exit 1\n");
+        script.append("        fi\n");
+        script.append("        sleep 1\n");
+        script.append("        CWLEXEC_WAITED=$((CWLEXEC_WAITED + 1))\n");
+        script.append("    done\n");
+        script.append("    (cd \"$1\" && /bin/bash \"$2\")\n");
+        script.append("    CWLEXEC_EXIT_CODE=$?\n");
+        script.append(String.format("    echo $CWLEXEC_EXIT_CODE > \"$2%s.tmp\" && mv \"$2%s.tmp\" \"$2%s\"%n",
+                EXIT_MARKER, EXIT_MARKER, EXIT_MARKER));
+        script.append("    if [ $CWLEXEC_EXIT_CODE -ne 0 ]; then\n");
+        script.append("        exit $CWLEXEC_EXIT_CODE\n");
+        script.append("    fi\n");
+        script.append("}\n");
+        for (int i = 0; i < stepScripts.size(); i++) {
+            script.append(String.format("cwlexec_run_step \"%s\" \"%s\"%n", workDirs.get(i), stepScripts.get(i)));
+        }
+        return script.toString();
+    }
+
+    private static File toMarker(CWLCommandInstance instance, String marker) {
+        return new File(toStepScript(instance).toString() + marker);
+    }
+}
@@ -33,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.CommandLineBindingEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.CommandStdIOEvaluator;
+import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.ExpressionBatch;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.InputsEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.RequirementsEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.StepInValueFromEvaluator;
@@ -92,7 +93,12 @@ public final class CommandUtil {
     public static List<String> buildCommand(CWLCommandInstance instance) throws CWLException {
         CommandLineTool commandLineTool = (CommandLineTool) instance.getProcess();
         List<CommandInputParameter> inputs = commandLineTool.getInputs();
-        return buildCommand(instance, inputs, 0);
+        ExpressionBatch.open();
+        try {
+            return buildCommand(instance, inputs, 0, true);
+        } finally {
+            ExpressionBatch.close();
+        }
     }
 
     /**
@@ -110,37 +116,201 @@ public final class CommandUtil {
             instance.setEmptyScatter(true);
             scatterInputs.add(new ArrayList<>());
         }
-        CommandLineTool commandLineTool = (CommandLineTool) instance.getProcess();
-        List<CommandInputParameter> originalInputs = commandLineTool.getInputs();
-        for (int i = 0; i < scatterInputs.size(); i++) {
-            List<CommandInputParameter> totalInputs = new ArrayList<>();
-            for (CommandInputParameter in : originalInputs) {
-                boolean found = false;
-                for (String scatterId : instance.getScatter()) {
-                    if (in.getId().equals(scatterId)) {
-                        found = true;
-                        break;
-                    }
+        // the InitialWorkDirRequirement does not depend on the scatter inputs,
+        // it is evaluated only for the first scatter element
+        if (scatterInputs.size() > 1 && canBuildConcurrently(instance)) {
+            List<CWLScatterHolder> scatterHolders = new ArrayList<>();
+            for (int i = 0; i < scatterInputs.size(); i++) {
+                CWLScatterHolder scatterHolder = new CWLScatterHolder();
+                scatterHolder.setScatterIndex(i + 1);
+                scatterHolder.setInputs(toTotalInputs(instance, scatterInputs.get(i)));
+                scatterHolders.add(scatterHolder);
+            }
+            // the first element also stages the inputs that are shared by
+            // all of the elements
+            stageScatterHolder(instance, scatterHolders.get(0), true);
+            List<CWLScatterHolder> restHolders = scatterHolders.subList(1, scatterHolders.size());
+            if (canStageConcurrently(instance)) {
+                ScatterCommandBuilder.build(restHolders,
+                        scatterHolder -> stageScatterHolder(instance, scatterHolder, false));
+            } else {
+                for (CWLScatterHolder scatterHolder : restHolders) {
+                    stageScatterHolder(instance, scatterHolder, false);
                 }
-                if (!found) {
-                    totalInputs.add(in);
+            }
+            ScatterCommandBuilder.build(scatterHolders, scatterHolder -> {
+                ExpressionBatch.open();
+                try {
+                    scatterHolder.setCommand(
+                            assembleCommand(instance, scatterHolder.getInputs(), scatterHolder.getScatterIndex()));
+                } finally {
+                    ExpressionBatch.close();
                 }
+            });
+            instance.getScatterHolders().addAll(scatterHolders);
+        } else {
+            for (int i = 0; i < scatterInputs.size(); i++) {
+                instance.getScatterHolders().add(buildScatterHolder(instance, scatterInputs.get(i), i + 1, i == 0));
             }
-            totalInputs.addAll(scatterInputs.get(i));
-            CWLScatterHolder scatterHolder = new CWLScatterHolder();
-            InlineJavascriptRequirement jsReq = CWLExecUtil.findRequirement(instance, InlineJavascriptRequirement.class);
-            Map<String, String> runtime = instance.getRuntime();
-            InputsEvaluator.eval(jsReq, runtime, totalInputs);
-            // refer to issue #36 and #37
-            if (!needToPutOff(totalInputs)) {
-                CommandStdIOEvaluator.eval(jsReq, runtime, totalInputs, commandLineTool.getStdin());
-                CommandStdIOEvaluator.eval(jsReq, runtime, totalInputs, commandLineTool.getStderr());
-                CommandStdIOEvaluator.eval(jsReq, runtime, totalInputs, commandLineTool.getStdout());
-            }
-            scatterHolder.setScatterIndex(i + 1);
+        }
+    }
+
+    /**
+     * Builds a CWL UNIX local execution command for a single scatter step of a
+     * given CWL scatter process instance, the scatter inputs are given by
+     * their values instead of being scattered from the instance inputs
+     * 
+     * @param instance
+     *            A CWL scatter process instance
+     * @param scatterValues
+     *            The values of the scatter inputs of the scatter step, keyed
+     *            by the input ID
+     * @param scatterIndex
+     *            The index of the scatter step, the index is from 1
+     * @return The scatter holder of the scatter step
+     * @throws CWLException
+     *             Fail to build the command
+     */
+    public static CWLScatterHolder buildScatterCommand(CWLCommandInstance instance,
+            Map<String, Object> scatterValues,
+            int scatterIndex) throws CWLException {
+        CommandLineTool commandLineTool = (CommandLineTool) instance.getProcess();
+        List<CommandInputParameter> scatterInputs = new ArrayList<>();
+        for (CommandInputParameter in : commandLineTool.getInputs()) {
+            if (scatterValues.containsKey(in.getId())) {
+                CommandInputParameter parameter = new CommandInputParameter(in.getId());
+                parameter.setInputBinding(in.getInputBinding());
+                parameter.setType(in.getType());
+                parameter.setValue(scatterValues.get(in.getId()));
+                scatterInputs.add(parameter);
+            }
+        }
+        return buildScatterHolder(instance, scatterInputs, scatterIndex, true);
+    }
+
+    private static CWLScatterHolder buildScatterHolder(CWLCommandInstance instance,
+            List<CommandInputParameter> scatterInputs,
+            int scatterIndex,
+            boolean evalInitialWorkDir) throws CWLException {
+        List<CommandInputParameter> totalInputs = toTotalInputs(instance, scatterInputs);
+        CWLScatterHolder scatterHolder = new CWLScatterHolder();
+        // evaluate the expressions of the scatter element on one script engine
+        ExpressionBatch.open();
+        try {
+            evalScatterInputs(instance, totalInputs);
+            scatterHolder.setScatterIndex(scatterIndex);
             scatterHolder.setInputs(totalInputs);
-            scatterHolder.setCommand(buildCommand(instance, totalInputs, scatterHolder.getScatterIndex()));
-            instance.getScatterHolders().add(scatterHolder);
+            scatterHolder.setCommand(
+                    buildCommand(instance, totalInputs, scatterHolder.getScatterIndex(), evalInitialWorkDir));
+        } finally {
+            ExpressionBatch.close();
+        }
+        return scatterHolder;
+    }
+
+    /*
+     * Evaluates the inputs of a scatter element and stages its input files,
+     * the command of the element is assembled later. The inputs that are
+     * shared by all of the elements are evaluated and staged only with the
+     * first element, so the other elements only write to their own scatter
+     * inputs
+     */
+    private static void stageScatterHolder(CWLCommandInstance instance,
+            CWLScatterHolder scatterHolder,
+            boolean first) throws CWLException {
+        List<CommandInputParameter> totalInputs = scatterHolder.getInputs();
+        ExpressionBatch.open();
+        try {
+            if (first) {
+                evalScatterInputs(instance, totalInputs);
+                RequirementsEvaluator.evalInitialWorkDirReq(instance);
+                prepareInputsFiles(instance, totalInputs);
+            } else {
+                // the standard streams are constants when the elements are
+                // staged separately
+                List<CommandInputParameter> ownInputs = new ArrayList<>();
+                for (CommandInputParameter input : totalInputs) {
+                    if (isScatterInput(instance, input)) {
+                        ownInputs.add(input);
+                    }
+                }
+                InputsEvaluator.eval(CWLExecUtil.findRequirement(instance, InlineJavascriptRequirement.class),
+                        instance.getRuntime(),
+                        totalInputs,
+                        ownInputs);
+                prepareInputsFiles(instance, ownInputs);
+            }
+        } finally {
+            ExpressionBatch.close();
+        }
+    }
+
+    /*
+     * The scatter elements are staged concurrently only if no scatter value
+     * is shared by the elements, a cross product pairs a value of a scatter
+     * input with every value of the other scatter inputs
+     */
+    private static boolean canStageConcurrently(CWLCommandInstance instance) {
+        return instance.getScatter().size() == 1 || instance.getScatterMethod() == ScatterMethod.DOTPRODUCT;
+    }
+
+    /*
+     * The scatter elements are assembled concurrently only if assembling an
+     * element does not write to the objects that are shared by the elements:
+     * the standard streams are constants, no valueFrom is put off, no input
+     * has multiple types, and no InitialWorkDir entry is rewritten for docker
+     */
+    private static boolean canBuildConcurrently(CWLCommandInstance instance) {
+        CommandLineTool commandLineTool = (CommandLineTool) instance.getProcess();
+        for (CWLFieldValue std : Arrays.asList(commandLineTool.getStdin(),
+                commandLineTool.getStdout(),
+                commandLineTool.getStderr())) {
+            if (std != null && std.getExpression() != null) {
+                return false;
+            }
+        }
+        for (CommandInputParameter input : commandLineTool.getInputs()) {
+            if (input.getDelayedValueFromExpr() != null || input.getType().getType() == null) {
+                return false;
+            }
+        }
+        return CWLExecUtil.findRequirement(instance, DockerRequirement.class) == null
+                || CWLExecUtil.findRequirement(instance, InitialWorkDirRequirement.class) == null;
+    }
+
+    private static List<CommandInputParameter> toTotalInputs(CWLCommandInstance instance,
+            List<CommandInputParameter> scatterInputs) {
+        CommandLineTool commandLineTool = (CommandLineTool) instance.getProcess();
+        List<CommandInputParameter> totalInputs = new ArrayList<>();
+        for (CommandInputParameter in : commandLineTool.getInputs()) {
+            if (!isScatterInput(instance, in)) {
+                totalInputs.add(in);
+            }
+        }
+        totalInputs.addAll(scatterInputs);
+        return totalInputs;
+    }
+
+    private static boolean isScatterInput(CWLCommandInstance instance, CommandInputParameter input) {
+        for (String scatterId : instance.getScatter()) {
+            if (input.getId().equals(scatterId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void evalScatterInputs(CWLCommandInstance instance,
+            List<CommandInputParameter> totalInputs) throws CWLException {
+        CommandLineTool commandLineTool = (CommandLineTool) instance.getProcess();
+        InlineJavascriptRequirement jsReq = CWLExecUtil.findRequirement(instance, InlineJavascriptRequirement.class);
+        Map<String, String> runtime = instance.getRuntime();
+        InputsEvaluator.eval(jsReq, runtime, totalInputs);
+        // refer to issue #36 and #37
+        if (!needToPutOff(totalInputs)) {
+            CommandStdIOEvaluator.eval(jsReq, runtime, totalInputs, commandLineTool.getStdin());
+            CommandStdIOEvaluator.eval(jsReq, runtime, totalInputs, commandLineTool.getStderr());
+            CommandStdIOEvaluator.eval(jsReq, runtime, totalInputs, commandLineTool.getStdout());
         }
     }
 
@@ -186,6 +356,22 @@ public final class CommandUtil {
     }
 
     private static List<String> buildCommand(CWLCommandInstance instance,
+            List<CommandInputParameter> inputs,
+            int scatterIndex,
+            boolean evalInitialWorkDir) throws CWLException {
+        // Evaluates the InitialWorkDirRequirement and prepare input files
+        if (evalInitialWorkDir) {
+            RequirementsEvaluator.evalInitialWorkDirReq(instance);
+        }
+        // Prepare input files
+        prepareInputsFiles(instance, inputs);
+        return assembleCommand(instance, inputs, scatterIndex);
+    }
+
+    /*
+     * Assembles the command from the staged inputs
+     */
+    private static List<String> assembleCommand(CWLCommandInstance instance,
             List<CommandInputParameter> inputs,
             int scatterIndex) throws CWLException {
         List<String> commands = new ArrayList<>();
@@ -194,10 +380,6 @@ public final class CommandUtil {
         if (baseCommand != null && !baseCommand.isEmpty()) {
             commands.addAll(baseCommand);
         }
-        // Evaluates the InitialWorkDirRequirement and prepare input files
-        RequirementsEvaluator.evalInitialWorkDirReq(instance);
-        // Prepare input files
-        prepareInputsFiles(instance, inputs);
         // Sort the arguments and input parameters
         List<CommandArgWrapper> sorted = sortCommandArguments(commandLineTool.getArguments(), inputs);
         // Add all arguments to commands
@@ -627,21 +809,27 @@ public final class CommandUtil {
         InitialWorkDirRequirement initialWorkDirReq = CWLExecUtil.findRequirement(instance,
                 InitialWorkDirRequirement.class);
         List<String> args = new ArrayList<>();
-        for (CommandArgWrapper wrapper : sorted) {
-            CommandLineBinding arg = wrapper.getArgument();
-            if (arg != null) {
-                attachArgumentCommandBinding(args, shellCmdReq, jsReq, runtime, inputs, arg);
-            }
-            CommandInputParameter input = wrapper.getInputParameter();
-            if (input != null) {
-                attachInputArgument(args,
-                        initialWorkDirReq,
-                        shellCmdReq,
-                        jsReq,
-                        instance,
-                        inputs,
-                        input);
+        // the input files were staged, build the js context once for all bindings
+        CommandLineBindingEvaluator.holdContext();
+        try {
+            for (CommandArgWrapper wrapper : sorted) {
+                CommandLineBinding arg = wrapper.getArgument();
+                if (arg != null) {
+                    attachArgumentCommandBinding(args, shellCmdReq, jsReq, runtime, inputs, arg);
+                }
+                CommandInputParameter input = wrapper.getInputParameter();
+                if (input != null) {
+                    attachInputArgument(args,
+                            initialWorkDirReq,
+                            shellCmdReq,
+                            jsReq,
+                            instance,
+                            inputs,
+                            input);
+                }
             }
+        } finally {
+            CommandLineBindingEvaluator.releaseContext();
         }
         return args;
     }
@@ -792,7 +980,8 @@ public final class CommandUtil {
         Object inputValue = null;
         CommandLineBinding inputBinding = input.getInputBinding();
         CWLFieldValue valueFromExpr = inputBinding.getValueFrom();
-        if (valueFromExpr != null && valueFromExpr.getValue() != null) {
+        // an evaluated valueFrom is not kept in the binding, only a constant one is
+        if (valueFromExpr != null && valueFromExpr.getExpression() == null && valueFromExpr.getValue() != null) {
             inputValue = valueFromExpr.getValue();
         }
         if (inputValue == null) {
@@ -24,9 +24,15 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -61,6 +67,8 @@ final class DockerCommandBuilder {
     private static final Logger logger = LoggerFactory.getLogger(DockerCommandBuilder.class);
     private static final boolean ON_WINDOWS = (System.getProperty("os.name").toLowerCase().indexOf("windows") != -1);
     private static final String LINE_SEPARATOR = "line.separator";
+    // the user ID and group ID of the owners
+    private static final Map<String, int[]> userIds = new ConcurrentHashMap<>();
 
     private DockerCommandBuilder() {
     }
@@ -97,7 +105,8 @@ final class DockerCommandBuilder {
         // map working directory to docker /tmp
         String tmp = Paths.get(runtime.get(CommonUtil.RUNTIME_TMP_DIR)).toString();
         commands.add(String.format(volumeRW, tmp, "/tmp"));
-        Map<String, String> inputsMapping = mappingInputs(commandLineTool.getInputs(), dockerStageDir);
+        Map<String, String> inputVolumes = new LinkedHashMap<>();
+        Map<String, String> inputsMapping = mappingInputs(commandLineTool.getInputs(), dockerStageDir, inputVolumes);
         // mapping InitialWorkDirRequirement
         InitialWorkDirRequirement initialWorkDirReq = CWLExecUtil.findRequirement(instance,
                 InitialWorkDirRequirement.class);
@@ -105,17 +114,15 @@ final class DockerCommandBuilder {
             mapInitialWorkDirReq(dockerOutdir, tmpOutput, initialWorkDirReq, commands);
             rewriteEntryFile(runtime, initialWorkDirReq, inputsMapping, dockerOutdir);
         }
-        // mapping inputs
-        for (Entry<String, String> mapping : inputsMapping.entrySet()) {
-            commands.add(String.format(volumeRW, Paths.get(mapping.getKey()).getParent(),
-                    Paths.get(mapping.getValue()).getParent()));
-            commands.add(String.format(volumeRO, mapping.getKey(), mapping.getValue()));
+        // mapping inputs, one read-only volume covers all inputs under a
+        // directory
+        for (Entry<String, String> volume : inputVolumes.entrySet()) {
+            commands.add(String.format(volumeRO, volume.getKey(), volume.getValue()));
         }
         commands.add(String.format("--workdir=%s", dockerOutdir));
-        int userId = getUserId(owner);
-        int groupId = getGroupId(owner);
-        if (userId != -1 && groupId != -1) {
-            commands.add(String.format("--user=%d:%d", userId, groupId));
+        int[] ids = getUserIds(owner);
+        if (ids[0] != -1 && ids[1] != -1) {
+            commands.add(String.format("--user=%d:%d", ids[0], ids[1]));
         }
         // docker /tmp and outdir are mapped to working directory
         commands.add(String.format("--env=TMPDIR=%s", dockerOutdir));
@@ -184,27 +191,71 @@ final class DockerCommandBuilder {
         return imageId;
     }
 
-    private static Map<String, String> mappingInputs(List<CommandInputParameter> inputs, String dockerStageDir) {
-        Map<String, String> mapping = new HashMap<>();
+    /*
+     * Maps the input files to the docker stage directory, the parent
+     * directories of the input files are grouped to a minimal set of volumes,
+     * a directory under another volume directory is covered by that volume
+     */
+    protected static Map<String, String> mappingInputs(List<CommandInputParameter> inputs,
+            String dockerStageDir,
+            Map<String, String> volumes) {
+        Set<Path> srcFilePaths = new LinkedHashSet<>();
         for (CommandInputParameter input : inputs) {
-            mappingFiles(mapping, dockerStageDir, findInputFiles(input));
+            collectFiles(srcFilePaths, findInputFiles(input));
+        }
+        Set<Path> parents = new TreeSet<>();
+        for (Path srcFilePath : srcFilePaths) {
+            if (srcFilePath.getParent() != null && srcFilePath.getParent().getFileName() != null) {
+                parents.add(srcFilePath.getParent());
+            }
+        }
+        // the ancestors are sorted before their descendants
+        Map<Path, Path> volumeDirs = new LinkedHashMap<>();
+        Set<String> volumeNames = new HashSet<>();
+        for (Path parent : parents) {
+            if (findVolumeDir(volumeDirs, parent) == null) {
+                String name = parent.getFileName().toString();
+                String volumeName = name;
+                for (int i = 2; volumeNames.contains(volumeName); i++) {
+                    volumeName = String.format("%s_%d", name, i);
+                }
+                volumeNames.add(volumeName);
+                Path destDir = Paths.get(dockerStageDir).resolve(volumeName);
+                volumeDirs.put(parent, destDir);
+                volumes.put(parent.toString(), destDir.toString());
+            }
+        }
+        Map<String, String> mapping = new HashMap<>();
+        for (Path srcFilePath : srcFilePaths) {
+            Path volumeDir = findVolumeDir(volumeDirs, srcFilePath.getParent());
+            if (volumeDir != null) {
+                Path destFilePath = volumeDirs.get(volumeDir).resolve(volumeDir.relativize(srcFilePath));
+                logger.debug("Map docker volume \"{}\" to \"{}\"", srcFilePath, destFilePath);
+                mapping.put(srcFilePath.toString(), destFilePath.toString());
+            }
         }
         return mapping;
     }
 
-    private static void mappingFiles(Map<String, String> mapping, String dockerStageDir, List<CWLFileBase> files) {
+    private static Path findVolumeDir(Map<Path, Path> volumeDirs, Path dir) {
+        if (dir != null) {
+            for (Path volumeDir : volumeDirs.keySet()) {
+                if (dir.startsWith(volumeDir)) {
+                    return volumeDir;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void collectFiles(Set<Path> srcFilePaths, List<CWLFileBase> files) {
         if (files != null) {
             for (CWLFileBase file : files) {
-                Path srcFilePath = Paths.get(file.getPath());
-                Path destFilePath = Paths.get(dockerStageDir)
-                        .resolve(srcFilePath.getParent().getFileName())
-                        .resolve(srcFilePath.getFileName());
-                logger.debug("Map docker volume \"{}\" to \"{}\"", srcFilePath, destFilePath);
-                mapping.put(srcFilePath.toString(), destFilePath.toString());
+                srcFilePaths.add(Paths.get(file.getPath()));
                 if (file instanceof CWLFile) {
-                    mappingFiles(mapping, dockerStageDir, ((CWLFile) file).getSecondaryFiles());
+                    collectFiles(srcFilePaths, ((CWLFile) file).getSecondaryFiles());
                 } else if (file instanceof CWLDirectory) {
-                    mappingFiles(mapping, dockerStageDir, ((CWLDirectory) file).getListing());
+                    collectFiles(srcFilePaths, ((CWLDirectory) file).getListing());
                 }
             }
         }
@@ -264,26 +315,53 @@ final class DockerCommandBuilder {
         return files;
     }
 
-    private static int getUserId(String owner) {
-        int userId = -1;
-        if (!ON_WINDOWS) {
-            CommandExecutionResult result = CommandExecutor.run(Arrays.asList("id", "-u", owner));
-            if (result.isExecuted() && result.getExitCode() == 0) {
-                userId = Integer.valueOf(result.getOutMsg());
+    /*
+     * Returns the user ID and group ID of the owner, they are resolved once for
+     * an owner
+     */
+    protected static int[] getUserIds(String owner) {
+        return userIds.computeIfAbsent(owner, DockerCommandBuilder::resolveUserIds);
+    }
+
+    private static int[] resolveUserIds(String owner) {
+        int[] ids = new int[] { -1, -1 };
+        if (ON_WINDOWS) {
+            return ids;
+        }
+        if (owner.equals(System.getProperty("user.name"))) {
+            // the owner runs cwlexec, a new file is owned by its uid and
+            // primary gid
+            Path probe = null;
+            try {
+                probe = Files.createTempFile("cwlexec", ".id");
+                ids[0] = (Integer) Files.getAttribute(probe, "unix:uid");
+                ids[1] = (Integer) Files.getAttribute(probe, "unix:gid");
+                return ids;
+            } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+                logger.debug("Failed to find the user ids of {} from file attributes: {}", owner, e.getMessage());
+            } finally {
+                deleteProbe(probe);
             }
         }
-        return userId;
+        CommandExecutionResult result = CommandExecutor.run(Arrays.asList("id", "-u", owner));
+        if (result.isExecuted() && result.getExitCode() == 0) {
+            ids[0] = Integer.valueOf(result.getOutMsg());
+        }
+        result = CommandExecutor.run(Arrays.asList("id", "-g", owner));
+        if (result.isExecuted() && result.getExitCode() == 0) {
+            ids[1] = Integer.valueOf(result.getOutMsg());
+        }
+        return ids;
     }
 
-    private static int getGroupId(String owner) {
-        int groupId = -1;
-        if (!ON_WINDOWS) {
-            CommandExecutionResult result = CommandExecutor.run(Arrays.asList("id", "-g", owner));
-            if (result.isExecuted() && result.getExitCode() == 0) {
-                groupId = Integer.valueOf(result.getOutMsg());
+    private static void deleteProbe(Path probe) {
+        if (probe != null) {
+            try {
+                Files.deleteIfExists(probe);
+            } catch (IOException e) {
+                logger.debug("Failed to delete {}: {}", probe, e.getMessage());
             }
         }
-        return groupId;
     }
 
     private static void mapInitialWorkDirReq(String dockerOutdir,
@@ -0,0 +1,193 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.command;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/**
+ * Prepares the docker images of a workflow, the image of a DockerRequirement
+ * is built (loaded or imported) once per execution host, all of the jobs (and
+ * scatter jobs) that use the same image share one idempotent pre-exec script
+ */
+public class DockerImagePreparer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerImagePreparer.class);
+
+    private static final String IMAGES_DIR = "docker-images";
+    private static final int KEY_LENGTH = 16;
+
+    // the pre-exec commands of the prepared images, keyed by the preparation
+    // script path
+    private static final Map<String, List<String>> preparedImages = new HashMap<>();
+    // the images found on the submission host
+    private static final Map<String, Boolean> submissionHostImages = new HashMap<>();
+
+    private DockerImagePreparer() {
+    }
+
+    /**
+     * Prepares the docker image of a step, if the image exists on the
+     * submission host, the image is not prepared. Otherwise, the preparation
+     * script of the image is created when the image is first used in the
+     * workflow
+     * 
+     * @param dockerReq
+     *            The DockerRequirement of the step
+     * @param instance
+     *            The CWL step instance
+     * @return The bsub pre-exec options that prepare the image, if the image
+     *         needs not be prepared, an empty list
+     * @throws CWLException
+     *             Failed to create the preparation script
+     */
+    public static synchronized List<String> prepare(DockerRequirement dockerReq, CWLCommandInstance instance)
+            throws CWLException {
+        String imageId = DockerCommandBuilder.findImageId(dockerReq);
+        if (imageId != null) {
+            Boolean exists = submissionHostImages.get(imageId);
+            if (exists == null) {
+                exists = DockerCommandBuilder.hasDockerImage(dockerReq);
+                submissionHostImages.put(imageId, exists);
+            }
+            if (exists) {
+                return new ArrayList<>();
+            }
+        }
+        String key = toImageKey(dockerReq);
+        Path imagesDir = Paths.get(
+                CWLExecUtil.findMainInstance(instance).getRuntime().get(CommonUtil.RUNTIME_TMP_DIR), IMAGES_DIR);
+        Path script = imagesDir.resolve(key + ".sh");
+        List<String> preExec = preparedImages.get(script.toString());
+        if (preExec == null) {
+            String command = buildPrepareCommand(dockerReq, instance.getOwner(), imagesDir.resolve(key));
+            if (command == null) {
+                preExec = new ArrayList<>();
+            } else {
+                IOUtil.createCommandScript(script, toPrepareScript(key, imageId, command));
+                preExec = Arrays.asList("-E", "/bin/bash " + script.toString());
+                logger.info(ResourceLoader.getMessage("cwl.exec.docker.image.prepared",
+                        imageId != null ? imageId : key, script.toString()));
+            }
+            preparedImages.put(script.toString(), preExec);
+        }
+        return new ArrayList<>(preExec);
+    }
+
+    /*
+     * The preparation script skips the preparation if the image exists, the
+     * image is prepared under a host-local lock, a host-local marker records
+     * the image was prepared on this host
+     */
+    protected static String toPrepareScript(String key, String imageId, String command) {
+        StringBuilder script = new StringBuilder();
+        script.append("#!/bin/bash\n");
+        script.append(String.format("CWLEXEC_IMAGE=\"%s\"%n", imageId != null ? imageId : ""));
+        script.append("cwlexec_has_image() {\n");
+        script.append("    [ -n \"$CWLEXEC_IMAGE\" ] && docker image inspect \"$CWLEXEC_IMAGE\" > /dev/null 2>&1\n");
+        script.append("}\n");
+        script.append("cwlexec_has_image && exit 0\n");
+        script.append(String.format("CWLEXEC_PREPARED=\"/tmp/cwlexec-$(id -u)-%s\"%n", key));
+        script.append("exec 9> \"$CWLEXEC_PREPARED.lock\"\n");
+        script.append("flock 9 2> /dev/null\n");
+        script.append("if [ -e \"$CWLEXEC_PREPARED.done\" ] && { [ -z \"$CWLEXEC_IMAGE\" ] || cwlexec_has_image; }; then\n");
+        script.append("    exit 0\n");
+        script.append("fi\n");
+        script.append(command).append("\n");
+        script.append("CWLEXEC_EXIT_CODE=$?\n");
+        script.append("if [ $CWLEXEC_EXIT_CODE -eq 0 ]; then\n");
+        script.append("    touch \"$CWLEXEC_PREPARED.done\"\n");
+        script.append("fi\n");
+        script.append("exit $CWLEXEC_EXIT_CODE\n");
+        return script.toString();
+    }
+
+    /*
+     * The key of an image identifies the image and how it is prepared
+     */
+    protected static String toImageKey(DockerRequirement dockerReq) {
+        String content = String.join("\n",
+                String.valueOf(dockerReq.getDockerImageId()),
+                String.valueOf(dockerReq.getDockerPull()),
+                String.valueOf(dockerReq.getDockerFile()),
+                String.valueOf(dockerReq.getDockerLoad()),
+                String.valueOf(dockerReq.getDockerImport()));
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : md.digest(content.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.substring(0, KEY_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String buildPrepareCommand(DockerRequirement dockerReq, String owner, Path imageDir)
+            throws CWLException {
+        String imageId = dockerReq.getDockerImageId();
+        if (imageId == null) {
+            imageId = dockerReq.getDockerPull();
+            if (imageId != null) {
+                logger.debug("dockerImageId is not specified, use dockerPull <{}> instead", imageId);
+            }
+        }
+        String command = null;
+        if (dockerReq.getDockerFile() != null) {
+            IOUtil.mkdirs(owner, imageDir);
+            IOUtil.write(imageDir.resolve("Dockerfile").toFile(), dockerReq.getDockerFile());
+            String tag = imageId != null ? String.format("--tag=%s ", imageId) : "";
+            command = "docker build " + tag + imageDir.toString() + "/.";
+        } else if (dockerReq.getDockerLoad() != null) {
+            command = "docker load --input " + toLocalFile(dockerReq.getDockerLoad(), owner, imageDir);
+        } else if (dockerReq.getDockerImport() != null) {
+            String tag = imageId != null ? " " + imageId : "";
+            command = "docker import " + toLocalFile(dockerReq.getDockerImport(), owner, imageDir) + tag;
+        }
+        return command;
+    }
+
+    private static String toLocalFile(String fileURI, String owner, Path imageDir) throws CWLException {
+        if (fileURI.startsWith("http://") || fileURI.startsWith("https://") || fileURI.startsWith("ftp://")) {
+            logger.debug("Download the docker image from \"{}\" ...", fileURI);
+            IOUtil.mkdirs(owner, imageDir);
+            File localFile = IOUtil.yieldFile(fileURI, imageDir.toString(), null, false);
+            return localFile.getAbsolutePath();
+        }
+        return fileURI;
+    }
+}
@@ -16,10 +16,15 @@
 package com.ibm.spectrumcomputing.cwl.exec.util.command;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +37,12 @@ import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLJobUsageRecord;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.binding.CommandOutputBinding;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.binding.OutputBindingGlob;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.output.CommandOutputParameter;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
 import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
 import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
 import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
@@ -47,6 +57,9 @@ public class LSFCommandUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(LSFCommandUtil.class);
 
+    // the max number of job ids in one bjobs command
+    private static final int BJOBS_CHUNK_SIZE = 500;
+
     /**
      * Pages the wait commands to avoid the wait command is too long
      * 
@@ -102,6 +115,126 @@ public class LSFCommandUtil {
         return toCWLProcessState(bjobsResult.getOutMsg());
     }
 
+    /**
+     * Find the states of LSF jobs by bjobs commands, the job ids are queried
+     * in chunks to keep the command line short
+     * 
+     * @param jobIds
+     *            The id of jobs
+     * @return The job states, keyed by the job id, a job that cannot be found
+     *         (LSF has no record of it) is left out
+     */
+    public static Map<Long, CWLInstanceState> findLSFJobStates(List<Long> jobIds) {
+        Map<Long, CWLInstanceState> states = new HashMap<>();
+        if (jobIds == null || jobIds.isEmpty()) {
+            return states;
+        }
+        for (int from = 0; from < jobIds.size(); from += BJOBS_CHUNK_SIZE) {
+            List<String> ids = new ArrayList<>();
+            for (Long jobId : jobIds.subList(from, Math.min(from + BJOBS_CHUNK_SIZE, jobIds.size()))) {
+                ids.add(String.valueOf(jobId));
+            }
+            CommandExecutionResult bjobsResult = CommandExecutor.run(Arrays.asList("/bin/sh",
+                    "-c",
+                    String.format("bjobs -o 'jobid stat' %s | awk 'NR>1 {print $1, $2}'", String.join(" ", ids))));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Jobs <{}> states={}", ids, bjobsResult.getOutMsg());
+            }
+            if (bjobsResult.getOutMsg() != null) {
+                for (String line : bjobsResult.getOutMsg().split("\\n")) {
+                    String[] jobState = line.trim().split("\\s+");
+                    if (jobState.length == 2 && jobState[0].matches("\\d+")) {
+                        states.put(Long.valueOf(jobState[0]), toCWLProcessState(jobState[1]));
+                    }
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Find the actual resource usage (max_mem, run_time and cpu_used) of a
+     * finished LSF job
+     * 
+     * @param jobId
+     *            The id of the LSF job
+     * @return The job usage, the tool key and input size bucket are not set,
+     *         null if the job cannot be found
+     */
+    public static CWLJobUsageRecord findLSFJobUsage(long jobId) {
+        CommandExecutionResult bjobsResult = CommandExecutor.run(Arrays.asList("/bin/sh",
+                "-c",
+                String.format("bjobs -o 'max_mem run_time cpu_used delimiter=\",\"' -noheader %d", jobId)));
+        if (logger.isDebugEnabled()) {
+            logger.debug("Job <{}> usage={}", jobId, bjobsResult.getOutMsg());
+        }
+        if (bjobsResult.getExitCode() != 0) {
+            return null;
+        }
+        CWLJobUsageRecord usage = toJobUsage(bjobsResult.getOutMsg());
+        if (usage != null) {
+            usage.setHpcJobId(jobId);
+        }
+        return usage;
+    }
+
+    /*
+     * Parses a bjobs output line, e.g. "125 Mbytes,30 second(s),12.5 second(s)"
+     */
+    protected static CWLJobUsageRecord toJobUsage(String usageLine) {
+        if (usageLine == null) {
+            return null;
+        }
+        String[] fields = usageLine.trim().split(",");
+        if (fields.length != 3) {
+            return null;
+        }
+        CWLJobUsageRecord usage = new CWLJobUsageRecord();
+        usage.setMaxMem(toMBytes(fields[0].trim()));
+        Double runTime = toSeconds(fields[1].trim());
+        if (runTime != null) {
+            usage.setRunTime(runTime.longValue());
+        }
+        usage.setCpuUsed(toSeconds(fields[2].trim()));
+        return usage;
+    }
+
+    private static Long toMBytes(String mem) {
+        Matcher matcher = Pattern.compile("([\\d.]+)\\s*([KMGT])bytes").matcher(mem);
+        if (!matcher.matches()) {
+            return null;
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        switch (matcher.group(2)) {
+        case "K":
+            value = value / 1024;
+            break;
+        case "G":
+            value = value * 1024;
+            break;
+        case "T":
+            value = value * 1024 * 1024;
+            break;
+        default:
+            break;
+        }
+        return (long) Math.ceil(value);
+    }
+
+    private static Double toSeconds(String time) {
+        Matcher matcher = Pattern.compile("([\\d.]+)\\s*second\\(s\\)").matcher(time);
+        if (matcher.matches()) {
+            return Double.valueOf(matcher.group(1));
+        }
+        // hh:mm:ss[.ss]
+        matcher = Pattern.compile("(\\d+):(\\d+):([\\d.]+)").matcher(time);
+        if (matcher.matches()) {
+            return Integer.parseInt(matcher.group(1)) * 3600 + Integer.parseInt(matcher.group(2)) * 60
+                    + Double.parseDouble(matcher.group(3));
+        }
+        return null;
+    }
+
     /**
      * Kill LSF jobs by id
      * 
@@ -153,7 +286,7 @@ public class LSFCommandUtil {
         if ((app != null && app.length() > 0) && instance.isReadyToRun()) {
             commands = prepareLSFDockerByApp(dockerReq, instance, scatterIndex);
         } else {
-            commands = prepatedLSFDockerByRes(dockerReq, instance, scatterIndex);
+            commands = prepatedLSFDockerByRes(dockerReq, instance);
         }
         if (logger.isDebugEnabled()) {
             logger.debug("Prepare LSF docker run as\n{}", CWLExecUtil.asPrettyCommandStr(commands));
@@ -161,6 +294,88 @@ public class LSFCommandUtil {
         return commands;
     }
 
+    /**
+     * If a node-local scratch directory is configured for a given step, wraps
+     * the step command to a script that points TMPDIR to the scratch
+     * directory. If the scratch outdir is configured, the script also stages
+     * the working directory in the scratch directory, runs the command there
+     * and stages the glob-matched outputs back
+     * 
+     * @param instance
+     *            The CWL instance
+     * @param command
+     *            The step command
+     * @param scatterIndex
+     *            The scatter index of the step command, 0 means the step is
+     *            not a scatter step
+     * @return The path of wrapper script, if the scratch is not configured,
+     *         return the step command
+     * @throws CWLException
+     *             Failed to create the wrapper script
+     */
+    public static String wrapScratchCommand(CWLCommandInstance instance, String command, int scatterIndex)
+            throws CWLException {
+        CWLInstance main = CWLExecUtil.findMainInstance(instance);
+        FlowExecConf flowExecConf = main.getFlowExecConf();
+        String scratch = CWLExecConfUtil.getScratch(flowExecConf, instance.getName());
+        if (command == null || scratch == null || scratch.length() == 0) {
+            return command;
+        }
+        String workDir = instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR);
+        if (scatterIndex > 0) {
+            workDir = workDir + File.separator + String.format("scatter%d", scatterIndex);
+        }
+        StringBuilder script = new StringBuilder();
+        script.append("#!/bin/bash\n");
+        script.append(String.format("CWLEXEC_SCRATCH_TOP=\"%s\"%n", scratch));
+        script.append("if [ -z \"$CWLEXEC_SCRATCH_TOP\" ] || [ ! -d \"$CWLEXEC_SCRATCH_TOP\" ]; then\n");
+        script.append(String.format("    CWLEXEC_SCRATCH_TOP=\"%s\"%n",
+                main.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR)));
+        script.append("fi\n");
+        script.append("CWLEXEC_SCRATCH=$(mktemp -d \"$CWLEXEC_SCRATCH_TOP/cwlexec.XXXXXX\") || exit 1\n");
+        script.append("export TMPDIR=\"$CWLEXEC_SCRATCH\"\n");
+        if (CWLExecConfUtil.isScratchOutdir(flowExecConf, instance.getName())) {
+            script.append(String.format("CWLEXEC_WORKDIR=\"%s\"%n", workDir));
+            // stage in the working directory, the inputs were staged or linked
+            // to it
+            script.append("cp -R \"$CWLEXEC_WORKDIR/.\" \"$CWLEXEC_SCRATCH/\"\n");
+            script.append("cd \"$CWLEXEC_SCRATCH\"\n");
+            script.append(command).append("\n");
+            script.append("CWLEXEC_EXIT_CODE=$?\n");
+            script.append("CWLEXEC_STAGE_OUT=0\n");
+            List<String> patterns = findScratchOutputPatterns(instance);
+            if (patterns == null) {
+                script.append("cp -R \"$CWLEXEC_SCRATCH/.\" \"$CWLEXEC_WORKDIR/\" || CWLEXEC_STAGE_OUT=1\n");
+            } else {
+                patterns.add("cwl.output.json");
+                // a matched file keeps its directory relative to the working
+                // directory, e.g. out/*.txt
+                script.append(String.format("for f in %s; do%n", String.join(" ", patterns)));
+                script.append("    [ -e \"$f\" ] || continue\n");
+                script.append("    d=$(dirname \"$f\")\n");
+                script.append("    mkdir -p \"$CWLEXEC_WORKDIR/$d\" && cp -R \"$f\" \"$CWLEXEC_WORKDIR/$d/\""
+                        + " || CWLEXEC_STAGE_OUT=1\n");
+                script.append("done\n");
+            }
+            script.append("cd \"$CWLEXEC_WORKDIR\"\n");
+            // keep the scratch directory if the outputs were not staged out
+            script.append("if [ $CWLEXEC_STAGE_OUT -ne 0 ]; then\n");
+            script.append("    echo \"Failed to stage out the outputs from $CWLEXEC_SCRATCH\" >&2\n");
+            script.append("    [ $CWLEXEC_EXIT_CODE -eq 0 ] && CWLEXEC_EXIT_CODE=1\n");
+            script.append("    exit $CWLEXEC_EXIT_CODE\n");
+            script.append("fi\n");
+        } else {
+            script.append(command).append("\n");
+            script.append("CWLEXEC_EXIT_CODE=$?\n");
+        }
+        script.append("rm -rf \"$CWLEXEC_SCRATCH\"\n");
+        script.append("exit $CWLEXEC_EXIT_CODE\n");
+        Path wrapper = Paths.get(workDir, instance.getName().replace("/", "_") + ".scratch");
+        IOUtil.createCommandScript(wrapper, script.toString());
+        logger.debug("Wrap the command of step ({}) to scratch script ({})", instance.getName(), wrapper);
+        return wrapper.toString();
+    }
+
     /**
      * After scatter jobs were executed by LSF, builds a wait job for them
      * 
@@ -216,52 +431,46 @@ public class LSFCommandUtil {
     }
 
     private static List<String> prepatedLSFDockerByRes(DockerRequirement dockerReq,
-            CWLCommandInstance instance, int scatterIndex) throws CWLException {
-        List<String> commands = new ArrayList<>();
-        if (DockerCommandBuilder.hasDockerImage(dockerReq)) {
-            return commands;
-        }
-        String imageId = dockerReq.getDockerImageId();
-        if (imageId == null) {
-            imageId = dockerReq.getDockerPull();
-            if (imageId != null) {
-                logger.debug("dockerImageId is not specified, use dockerPull <{}> instead", imageId);
-            }
-        }
-        String dockerFileDir = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR)).toString();
-        if (scatterIndex > 0) {
-            // scatter job
-        	dockerFileDir = dockerFileDir + File.separator + String.format("scatter%d", scatterIndex);
+            CWLCommandInstance instance) throws CWLException {
+        // the image is prepared once per execution host for the workflow
+        return DockerImagePreparer.prepare(dockerReq, instance);
+    }
+
+    /*
+     * Finds the constant glob patterns of the step outputs, if any of the
+     * output glob is an expression or may be not matched in the working
+     * directory, return null
+     */
+    private static List<String> findScratchOutputPatterns(CWLCommandInstance instance) {
+        List<String> patterns = new ArrayList<>();
+        if (!(instance.getProcess() instanceof CommandLineTool)) {
+            return null;
         }
-        String tag = "";
-        if (dockerReq.getDockerFile() != null) {
-            IOUtil.write(new File(dockerFileDir + "/Dockerfile"), dockerReq.getDockerFile());
-            if (imageId != null) {
-                tag = String.format("--tag=%s ", imageId);
+        for (CommandOutputParameter output : ((CommandLineTool) instance.getProcess()).getOutputs()) {
+            CommandOutputBinding outputBinding = output.getOutputBinding();
+            if (outputBinding == null || outputBinding.getGlob() == null) {
+                continue;
             }
-            commands.addAll(Arrays.asList("-E", "docker build " + tag + dockerFileDir + "/."));
-        } else if (dockerReq.getDockerLoad() != null) {
-            String fileURI = dockerReq.getDockerLoad();
-            if (isRemote(fileURI)) {
-                fileURI = IOUtil.yieldFile(fileURI, dockerFileDir, null, false).getAbsolutePath();
+            OutputBindingGlob glob = outputBinding.getGlob();
+            List<String> globPatterns = new ArrayList<>();
+            if (glob.getPatterns() != null) {
+                globPatterns.addAll(glob.getPatterns());
             }
-            commands.addAll(Arrays.asList("-E", "docker load --input " + fileURI));
-        } else if (dockerReq.getDockerImport() != null) {
-            String fileURI = dockerReq.getDockerImport();
-            if (isRemote(fileURI)) {
-                logger.debug("Download the docker image from \"{}\" ...", fileURI);
-                fileURI = IOUtil.yieldFile(fileURI, dockerFileDir, null, false).getAbsolutePath();
+            if (glob.getGlobExpr() != null) {
+                if (glob.getGlobExpr().getExpression() != null || glob.getGlobExpr().getValue() == null) {
+                    return null;
+                }
+                globPatterns.add(glob.getGlobExpr().getValue());
             }
-            if (imageId != null) {
-                tag = " " + imageId;
+            for (String pattern : globPatterns) {
+                if (pattern.isEmpty() || pattern.startsWith("/") || pattern.contains("..")
+                        || pattern.matches(".*[\\s'\"$`;&|<>].*")) {
+                    return null;
+                }
+                patterns.add(pattern);
             }
-            commands.addAll(Arrays.asList("-E", "docker import " + fileURI + tag));
         }
-        return commands;
-    }
-
-    private static boolean isRemote(String fileURI) {
-        return fileURI.startsWith("http://") || fileURI.startsWith("https://") || fileURI.startsWith("ftp://");
+        return patterns;
     }
 
     private static CWLInstanceState toCWLProcessState(String lsfJobState) {
@@ -0,0 +1,182 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.command;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.model.conf.AutoTuneConf;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.input.InputRecordField;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.ResourceRequirement;
+
+/**
+ * Utility methods for tuning the LSF memory reservation of a step job from the
+ * actual memory usage of the previous jobs of the same tool
+ */
+public class ResourceTuner {
+
+    private static final long MB = 1024L * 1024L;
+
+    private ResourceTuner() {
+    }
+
+    /**
+     * Finds the auto-tune configuration of the main process of a given
+     * instance
+     * 
+     * @param instance
+     *            A CWL step instance
+     * @return The auto-tune configuration, null if the auto-tune is disabled
+     */
+    public static AutoTuneConf findAutoTuneConf(CWLCommandInstance instance) {
+        CWLInstance main = CWLExecUtil.findMainInstance(instance);
+        FlowExecConf flowExecConf = main.getFlowExecConf();
+        return flowExecConf != null ? flowExecConf.getAutoTune() : null;
+    }
+
+    /**
+     * Returns the key of the tool that a given instance runs, the key is the
+     * tool description file path and the tool ID
+     * 
+     * @param instance
+     *            A CWL step instance
+     * @return The tool key
+     */
+    public static String toToolKey(CWLCommandInstance instance) {
+        return String.format("%s#%s", instance.getProcess().getDescPath(), instance.getProcess().getId());
+    }
+
+    /**
+     * Returns the input size bucket of a given instance, the bucket is the
+     * binary order of magnitude of the total input file size in MB, e.g. 0 is
+     * less than 1MB, 1 is [1MB, 2MB), 2 is [2MB, 4MB)
+     * 
+     * @param instance
+     *            A CWL step instance, its inputs were resolved
+     * @return The input size bucket
+     */
+    public static int toSizeBucket(CWLCommandInstance instance) {
+        long bytes = 0L;
+        for (CWLParameter input : instance.getProcess().getInputs()) {
+            Object value = input.getValue();
+            if (value == null) {
+                value = input.getDefaultValue();
+            }
+            bytes = bytes + sumFileSize(value);
+        }
+        long mbytes = bytes / MB;
+        return mbytes == 0 ? 0 : 64 - Long.numberOfLeadingZeros(mbytes);
+    }
+
+    /**
+     * Builds the tuned LSF memory options, the reservation (rusage[mem=...]) is
+     * a percentile of the historical maximum memory usage and the limit (-M)
+     * is the highest historical maximum memory usage, a safety margin is added
+     * to both, and they do not exceed the ResourceRequirement
+     * 
+     * @param maxMems
+     *            The historical maximum memory usage (MB) of the tool
+     * @param autoTuneConf
+     *            The auto-tune configuration
+     * @param resReq
+     *            The ResourceRequirement of the step, can be null
+     * @return The LSF memory options, null if there are not enough historical
+     *         jobs
+     */
+    public static List<String> buildTunedMemCommand(List<Long> maxMems,
+            AutoTuneConf autoTuneConf,
+            ResourceRequirement resReq) {
+        if (maxMems == null || maxMems.isEmpty() || maxMems.size() < autoTuneConf.getMinSamples()) {
+            return null;
+        }
+        List<Long> sorted = new ArrayList<>(maxMems);
+        Collections.sort(sorted);
+        long reserve = withMargin(percentile(sorted, autoTuneConf.getPercentile()), autoTuneConf.getMargin());
+        long limit = withMargin(sorted.get(sorted.size() - 1), autoTuneConf.getMargin());
+        if (resReq != null && resReq.getRamMin() != null) {
+            reserve = Math.min(reserve, resReq.getRamMin());
+        }
+        if (resReq != null && resReq.getRamMax() != null) {
+            limit = Math.min(limit, resReq.getRamMax());
+        }
+        limit = Math.max(limit, reserve);
+        return Arrays.asList("-M", String.valueOf(limit), "-R", String.format("rusage[mem=%d]", reserve));
+    }
+
+    /**
+     * Returns whether a tool is short running, i.e. the median runtime of its
+     * previous jobs is under a given runtime
+     * 
+     * @param runTimes
+     *            The runtimes (seconds) of the previous jobs of a tool
+     * @param maxRuntime
+     *            The runtime (seconds) under which the tool is short running
+     * @return If there is no previous job, return false
+     */
+    public static boolean isShortRunning(List<Long> runTimes, int maxRuntime) {
+        if (runTimes == null || runTimes.isEmpty()) {
+            return false;
+        }
+        List<Long> sorted = new ArrayList<>(runTimes);
+        Collections.sort(sorted);
+        return percentile(sorted, 50) < maxRuntime;
+    }
+
+    /*
+     * The nearest-rank percentile of the sorted values
+     */
+    protected static long percentile(List<Long> sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size(), rank) - 1));
+    }
+
+    private static long withMargin(long mem, int margin) {
+        return Math.max(1L, (long) Math.ceil(mem * (100 + margin) / 100.0));
+    }
+
+    private static long sumFileSize(Object value) {
+        long bytes = 0L;
+        if (value instanceof CWLFile) {
+            CWLFile file = (CWLFile) value;
+            if (file.getSize() > 0) {
+                bytes = file.getSize();
+            } else if (file.getPath() != null) {
+                bytes = new File(file.getPath()).length();
+            }
+        } else if (value instanceof InputRecordField) {
+            bytes = sumFileSize(((InputRecordField) value).getValue());
+        } else if (value instanceof List<?>) {
+            for (Object element : (List<?>) value) {
+                bytes = bytes + sumFileSize(element);
+            }
+        } else if (value instanceof Map<?, ?>) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                bytes = bytes + sumFileSize(element);
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
+
+/*
+ * Stages the scatter elements and builds their commands on a bounded pool, the
+ * pool has one thread for each processor and is shared by all scatter steps
+ */
+final class ScatterCommandBuilder {
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /*
+     * Stages a scatter element or builds its command
+     */
+    @FunctionalInterface
+    interface ElementBuilder {
+        void build(CWLScatterHolder scatterHolder) throws CWLException;
+    }
+
+    private ScatterCommandBuilder() {
+    }
+
+    /*
+     * Runs the builder on the scatter elements concurrently and waits for all
+     * of them, if any element fails, the first failure in the element order is
+     * thrown
+     */
+    protected static void build(List<CWLScatterHolder> scatterHolders, ElementBuilder builder) throws CWLException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (CWLScatterHolder scatterHolder : scatterHolders) {
+            tasks.add(() -> {
+                builder.build(scatterHolder);
+                return null;
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CWLException(e.getMessage(), 255);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof CWLException) {
+                    throw (CWLException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new CWLException(cause.getMessage(), 255);
+            }
+        }
+    }
+}
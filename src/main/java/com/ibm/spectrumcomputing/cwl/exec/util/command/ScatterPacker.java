@@ -0,0 +1,297 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLInstanceService;
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecConfUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLJobUsageRecord;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/**
+ * Utility methods for packing consecutive scatter steps into one LSF job, each
+ * packed scatter step still runs in its own scatter working directory
+ */
+public class ScatterPacker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScatterPacker.class);
+
+    // the expected runtime (seconds) of a job that is packed by an adaptive
+    // scatter chunk size
+    private static final long ADAPTIVE_CHUNK_RUNTIME = 300L;
+    private static final int MAX_RUNTIME_SAMPLES = 200;
+
+    private ScatterPacker() {
+    }
+
+    /**
+     * Resolves the number of consecutive scatter steps that are packed into
+     * one job for a given scatter instance. If the chunk size is adaptive, it
+     * is the expected job runtime divided by the median runtime of the
+     * previous jobs of the same tool, if there is no previous job, the scatter
+     * steps are not packed
+     * 
+     * @param instance
+     *            A CWL scatter step instance, its scatter was built
+     * @return The scatter chunk size, 1 means the scatter steps are not packed
+     */
+    public static int resolveChunkSize(CWLCommandInstance instance) {
+        CWLInstance main = CWLExecUtil.findMainInstance(instance);
+        int chunkSize = CWLExecConfUtil.getScatterChunkSize(main.getFlowExecConf(), instance.getName());
+        if (chunkSize == FlowExecConf.ADAPTIVE_SCATTER_CHUNK_SIZE) {
+            CWLInstanceService instanceService = CWLServiceFactory.getService(CWLInstanceService.class);
+            chunkSize = toAdaptiveChunkSize(
+                    instanceService.findJobRunTimes(ResourceTuner.toToolKey(instance), MAX_RUNTIME_SAMPLES));
+            logger.debug("Adapt the scatter chunk size of step ({}) to {}", instance.getName(), chunkSize);
+        }
+        return Math.max(1, Math.min(chunkSize, instance.getScatterHolders().size()));
+    }
+
+    /**
+     * Finds the scatter holders that own a job command, i.e. the first
+     * scatter holder of each chunk
+     * 
+     * @param scatterHolders
+     *            The scatter holders of a CWL scatter step instance
+     * @return The scatter holders that own a job command
+     */
+    public static List<CWLScatterHolder> findJobHolders(List<CWLScatterHolder> scatterHolders) {
+        List<CWLScatterHolder> jobHolders = new ArrayList<>();
+        for (CWLScatterHolder scatterHolder : scatterHolders) {
+            if (scatterHolder.getChunkSize() > 0) {
+                jobHolders.add(scatterHolder);
+            }
+        }
+        return jobHolders;
+    }
+
+    /**
+     * Sets the LSF job IDs of the submitted jobs to the scatter holders, a
+     * packed scatter holder takes the job ID of its chunk
+     * 
+     * @param scatterHolders
+     *            The scatter holders of a CWL scatter step instance
+     * @param jobIds
+     *            The LSF job IDs of the scatter holders that own a job command
+     */
+    public static void assignJobIds(List<CWLScatterHolder> scatterHolders, List<Long> jobIds) {
+        int jobIndex = -1;
+        for (CWLScatterHolder scatterHolder : scatterHolders) {
+            if (scatterHolder.getChunkSize() > 0) {
+                jobIndex = jobIndex + 1;
+            }
+            if (jobIndex >= 0 && jobIndex < jobIds.size()) {
+                scatterHolder.setHPCJobId(jobIds.get(jobIndex));
+            }
+        }
+    }
+
+    /**
+     * Packs the commands of a chunk of consecutive scatter steps to a script,
+     * the script changes to the working directory of each scatter step, runs
+     * its command and records its exit code, the script exits with the first
+     * exit code of the scatter steps that is not a success code of the step
+     * 
+     * @param instance
+     *            A CWL scatter step instance
+     * @param chunk
+     *            The consecutive scatter holders of the chunk
+     * @param commands
+     *            The commands of the scatter steps in the chunk
+     * @return The path of the chunk script
+     * @throws CWLException
+     *             Failed to create the chunk script
+     */
+    public static String packScatterCommands(CWLCommandInstance instance,
+            List<CWLScatterHolder> chunk,
+            List<String> commands) throws CWLException {
+        String tmpDir = instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR);
+        List<Integer> scatterIndexes = new ArrayList<>();
+        List<String> workDirs = new ArrayList<>();
+        List<String> exitFiles = new ArrayList<>();
+        for (CWLScatterHolder scatterHolder : chunk) {
+            scatterIndexes.add(scatterHolder.getScatterIndex());
+            workDirs.add(tmpDir + File.separator + String.format("scatter%d", scatterHolder.getScatterIndex()));
+            exitFiles.add(findExitFile(instance, scatterHolder.getScatterIndex()).toString());
+        }
+        Path script = Paths.get(tmpDir, String.format("%s.chunk%d", instance.getName().replace("/", "_"),
+                chunk.get(0).getScatterIndex()));
+        int[] successCodes = null;
+        if (instance.getProcess() instanceof CommandLineTool) {
+            successCodes = ((CommandLineTool) instance.getProcess()).getSuccessCodes();
+        }
+        IOUtil.createCommandScript(script, toChunkScript(scatterIndexes, workDirs, exitFiles, commands,
+                successCodes));
+        logger.debug("Pack the scatter steps {} of step ({}) to script ({})", scatterIndexes, instance.getName(),
+                script);
+        return script.toString();
+    }
+
+    /**
+     * Finds the exit code of the first packed scatter step that did not exit
+     * with a success code, each packed scatter step records its own exit code
+     * 
+     * @param instance
+     *            A CWL scatter step instance, its jobs were finished
+     * @return The exit code of the first failed packed scatter step, null if
+     *         no packed scatter step failed
+     */
+    public static Integer findFailedElementExitCode(CWLCommandInstance instance) {
+        for (CWLScatterHolder scatterHolder : instance.getScatterHolders()) {
+            Path exitFile = findExitFile(instance, scatterHolder.getScatterIndex());
+            if (!exitFile.toFile().exists()) {
+                continue;
+            }
+            try {
+                int exitCode = Integer.parseInt(
+                        new String(Files.readAllBytes(exitFile), StandardCharsets.UTF_8).trim());
+                if (!isSuccessCode(instance, exitCode)) {
+                    logger.debug("The packed scatter step {} of step ({}) exited with {}",
+                            scatterHolder.getScatterIndex(), instance.getName(), exitCode);
+                    return exitCode;
+                }
+            } catch (IOException | NumberFormatException e) {
+                logger.debug("Cannot read the exit code of the packed scatter step {} of step ({}): {}",
+                        scatterHolder.getScatterIndex(), instance.getName(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If the scatter chunk size of a given scatter instance is adaptive,
+     * records the runtime of its jobs, the runtime of a packed job is divided
+     * by the number of scatter steps in it
+     * 
+     * @param instance
+     *            A CWL scatter step instance, its jobs were done
+     * @param jobHolders
+     *            The scatter holders that own a job command
+     * @param jobIds
+     *            The LSF job IDs of the scatter holders
+     */
+    public static void recordChunkUsage(CWLCommandInstance instance,
+            List<CWLScatterHolder> jobHolders,
+            List<Long> jobIds) {
+        CWLInstance main = CWLExecUtil.findMainInstance(instance);
+        if (CWLExecConfUtil.getScatterChunkSize(main.getFlowExecConf(),
+                instance.getName()) != FlowExecConf.ADAPTIVE_SCATTER_CHUNK_SIZE) {
+            return;
+        }
+        CWLInstanceService instanceService = CWLServiceFactory.getService(CWLInstanceService.class);
+        try {
+            for (int i = 0; i < jobHolders.size() && i < jobIds.size(); i++) {
+                CWLJobUsageRecord usage = LSFCommandUtil.findLSFJobUsage(jobIds.get(i));
+                if (usage != null && usage.getRunTime() != null) {
+                    usage.setToolKey(ResourceTuner.toToolKey(instance));
+                    usage.setRunTime(usage.getRunTime() / jobHolders.get(i).getChunkSize());
+                    usage.setEndTime(new Date().getTime());
+                    instanceService.addJobUsageRecord(usage);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn(ResourceLoader.getMessage("cwl.exec.job.usage.record.failed", instance.getName(),
+                    e.getMessage()));
+        }
+    }
+
+    /*
+     * The expected job runtime divided by the median runtime
+     */
+    protected static int toAdaptiveChunkSize(List<Long> runTimes) {
+        if (runTimes == null || runTimes.isEmpty()) {
+            return 1;
+        }
+        List<Long> sorted = new ArrayList<>(runTimes);
+        Collections.sort(sorted);
+        long median = Math.max(1L, ResourceTuner.percentile(sorted, 50));
+        return (int) Math.max(1L, ADAPTIVE_CHUNK_RUNTIME / median);
+    }
+
+    protected static String toChunkScript(List<Integer> scatterIndexes,
+            List<String> workDirs,
+            List<String> exitFiles,
+            List<String> commands,
+            int[] successCodes) {
+        StringBuilder successPattern = new StringBuilder("0");
+        if (successCodes != null) {
+            for (int successCode : successCodes) {
+                successPattern.append('|').append(successCode);
+            }
+        }
+        StringBuilder script = new StringBuilder();
+        script.append("#!/bin/bash\n");
+        script.append("CWLEXEC_EXIT_CODE=0\n");
+        for (int i = 0; i < commands.size(); i++) {
+            script.append(String.format("(cd \"%s\" && %s)%n", workDirs.get(i), commands.get(i)));
+            script.append("CWLEXEC_SCATTER_EXIT_CODE=$?\n");
+            script.append(String.format("echo $CWLEXEC_SCATTER_EXIT_CODE > \"%s\"%n", exitFiles.get(i)));
+            script.append(String.format("echo \"scatter%d exited with $CWLEXEC_SCATTER_EXIT_CODE\" >&2%n",
+                    scatterIndexes.get(i)));
+            script.append("case $CWLEXEC_SCATTER_EXIT_CODE in\n");
+            script.append(String.format("%s) ;;%n", successPattern));
+            script.append("*) [ $CWLEXEC_EXIT_CODE -eq 0 ] && CWLEXEC_EXIT_CODE=$CWLEXEC_SCATTER_EXIT_CODE ;;\n");
+            script.append("esac\n");
+        }
+        script.append("exit $CWLEXEC_EXIT_CODE\n");
+        return script.toString();
+    }
+
+    private static Path findExitFile(CWLCommandInstance instance, int scatterIndex) {
+        return Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
+                String.format("%s.scatter%d.exit", instance.getName().replace("/", "_"), scatterIndex));
+    }
+
+    private static boolean isSuccessCode(CWLCommandInstance instance, int exitCode) {
+        if (exitCode == 0) {
+            return true;
+        }
+        if (instance.getProcess() instanceof CommandLineTool) {
+            int[] successCodes = ((CommandLineTool) instance.getProcess()).getSuccessCodes();
+            if (successCodes != null) {
+                for (int successCode : successCodes) {
+                    if (successCode == exitCode) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
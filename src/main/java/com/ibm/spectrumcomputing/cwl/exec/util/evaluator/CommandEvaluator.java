@@ -20,8 +20,6 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,24 +71,29 @@ class CommandEvaluator {
             CWLFile cwlFile,
             List<CWLFieldValue> secondaryFiles) throws CWLException {
         List<Path> newSecondaryFiles = new ArrayList<>();
-        if (secondaryFiles != null) {
-            for (CWLFieldValue secondaryFileExpr : secondaryFiles) {
-                if (secondaryFileExpr.getExpression() != null) {
-                    newSecondaryFiles.addAll(
-                            evalSecondaryFileExpr(jsReq, runtime, inputs, cwlFile, secondaryFileExpr.getExpression()));
-                } else if (secondaryFileExpr.getValue() != null) {
-                    String suffix = secondaryFileExpr.getValue();
-                    if (suffix.startsWith("^")) {
-                        Path secondaryPath = Paths.get(IOUtil.removeFileExt(cwlFile.getPath(), suffix));
-                        newSecondaryFiles.add(secondaryPath);
-                    } else {
-                        Path secondaryPath = Paths.get(cwlFile.getPath() + suffix);
-                        newSecondaryFiles.add(secondaryPath);
+        JSEvaluator.openBatch();
+        try {
+            if (secondaryFiles != null) {
+                for (CWLFieldValue secondaryFileExpr : secondaryFiles) {
+                    if (secondaryFileExpr.getExpression() != null) {
+                        newSecondaryFiles.addAll(
+                                evalSecondaryFileExpr(jsReq, runtime, inputs, cwlFile, secondaryFileExpr.getExpression()));
+                    } else if (secondaryFileExpr.getValue() != null) {
+                        String suffix = secondaryFileExpr.getValue();
+                        if (suffix.startsWith("^")) {
+                            Path secondaryPath = Paths.get(IOUtil.removeFileExt(cwlFile.getPath(), suffix));
+                            newSecondaryFiles.add(secondaryPath);
+                        } else {
+                            Path secondaryPath = Paths.get(cwlFile.getPath() + suffix);
+                            newSecondaryFiles.add(secondaryPath);
+                        }
                     }
                 }
             }
+            return newSecondaryFiles;
+        } finally {
+            JSEvaluator.closeBatch();
         }
-        return newSecondaryFiles;
     }
 
     protected static void resetSecondaryFiles(CWLFile cwlFile, List<Path> secondaryPaths) {
@@ -149,14 +152,8 @@ class CommandEvaluator {
                 resovleToPaths(paths, r);
             }
         } else {
-            Pattern pattern = Pattern.compile("\\$\\([^\\(\\)]*(\\(.*?\\)[^\\(\\)]*)*\\)\\s*[, ]*");
-            Matcher matcher = pattern.matcher(expr);
-            String value = expr;
-            while (matcher.find()) {
-                String jsExpr = matcher.group().trim();
-                JSResultWrapper r = JSEvaluator.evaluate(context, jsExpr);
-                value = value.replace(matcher.group(), toFilePathValue(r));
-            }
+            String value = ExpressionTemplate.compile(expr)
+                    .fill(jsExpr -> toFilePathValue(JSEvaluator.evaluate(context, jsExpr)));
             paths.add(Paths.get(value));
         }
     }
@@ -37,6 +37,24 @@ public final class CommandLineBindingEvaluator {
     private CommandLineBindingEvaluator() {
     }
 
+    /**
+     * Holds the JavaScript runtime and inputs context on the current thread, so
+     * the context is built once for all valueFrom expressions of a command
+     * line. The inputs context is rebuilt if the value of an input is replaced,
+     * but the values must not be changed in place until
+     * {@link #releaseContext()} is called.
+     */
+    public static void holdContext() {
+        JSEvaluator.holdContext();
+    }
+
+    /**
+     * Releases the JavaScript context held by {@link #holdContext()}
+     */
+    public static void releaseContext() {
+        JSEvaluator.releaseContext();
+    }
+
     /**
      * Evaluates a given CommandLineBinding valueFrom expression
      * 
@@ -74,8 +92,9 @@ public final class CommandLineBindingEvaluator {
                 context.add(JSEvaluator.toSelfContext(self));
                 JSResultWrapper r = JSEvaluator.evaluate(context, expr);
                 if (!r.isNull()) {
-                    valueFromExpr.setValue(toStringValue(r, binding));
-                    valueFrom = valueFromExpr.getValue();
+                    // the binding is shared by the scatter elements, keep the
+                    // evaluated value out of it
+                    valueFrom = toStringValue(r, binding);
                 }
             }
         }
@@ -0,0 +1,54 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.evaluator;
+
+/**
+ * Evaluates the JavaScript expressions of a step or a scatter element in one
+ * batch. In a batch, the expressions evaluated on the current thread share one
+ * script engine, and the expression libraries are evaluated once, e.g.
+ * 
+ * <pre>
+ * ExpressionBatch.open();
+ * try {
+ *     InputsEvaluator.eval(jsReq, runtime, inputs);
+ *     CommandStdIOEvaluator.eval(jsReq, runtime, inputs, commandLineTool.getStdout());
+ * } finally {
+ *     ExpressionBatch.close();
+ * }
+ * </pre>
+ * 
+ * The batches can be nested, the engine is released when the outermost batch
+ * is closed.
+ */
+public final class ExpressionBatch {
+
+    private ExpressionBatch() {
+    }
+
+    /**
+     * Opens a batch on the current thread
+     */
+    public static void open() {
+        JSEvaluator.openBatch();
+    }
+
+    /**
+     * Closes the batch opened by {@link #open()} on the current thread
+     */
+    public static void close() {
+        JSEvaluator.closeBatch();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.evaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+
+/*
+ * A CWL expression that was parsed once into either a single JavaScript
+ * expression, or literal segments and the $(...) slots between them. The
+ * templates are cached by the expression text, so evaluating the same
+ * expression for each scatter element only fills in the slots.
+ */
+final class ExpressionTemplate {
+
+    private static final int MAX_CACHED_TEMPLATES = 4096;
+    private static final Map<String, ExpressionTemplate> templates = new ConcurrentHashMap<>();
+
+    private final String singleExpr;
+    private final List<String> literals;
+    private final List<String> slots;
+
+    /*
+     * Evaluates the expression in a slot to the string that replaces the slot
+     */
+    @FunctionalInterface
+    interface SlotEvaluator {
+        String eval(String slotExpr) throws CWLException;
+    }
+
+    private ExpressionTemplate(String singleExpr, List<String> literals, List<String> slots) {
+        this.singleExpr = singleExpr;
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /*
+     * Returns the template of an expression, the expression is parsed only at
+     * the first time
+     */
+    protected static ExpressionTemplate compile(String expr) {
+        ExpressionTemplate template = templates.get(expr);
+        if (template == null) {
+            template = parse(expr);
+            if (templates.size() >= MAX_CACHED_TEMPLATES) {
+                templates.clear();
+            }
+            templates.put(expr, template);
+        }
+        return template;
+    }
+
+    /*
+     * Returns the JavaScript expression if the whole expression is a single
+     * $(...) or ${...}, otherwise returns null
+     */
+    protected String getSingleExpr() {
+        return singleExpr;
+    }
+
+    /*
+     * Fills the slots of the template in order, each slot is replaced by its
+     * own value only. A single expression is filled as a template of one slot
+     */
+    protected String fill(SlotEvaluator evaluator) throws CWLException {
+        StringBuilder sb = new StringBuilder(literals.get(0));
+        for (int i = 0; i < slots.size(); i++) {
+            sb.append(evaluator.eval(slots.get(i)));
+            sb.append(literals.get(i + 1));
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Splits the expression into the literal segments and the $(...) slots,
+     * the text between two slots (e.g. the separators) belongs to a literal
+     */
+    private static ExpressionTemplate parse(String expr) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int last = 0;
+        int start = expr.indexOf("$(");
+        while (start != -1) {
+            int end = findSlotEnd(expr, start + 2);
+            if (end == -1) {
+                // the rest is not a balanced slot, keep it as a literal
+                break;
+            }
+            literals.add(expr.substring(last, start));
+            slots.add(expr.substring(start, end + 1));
+            last = end + 1;
+            start = expr.indexOf("$(", last);
+        }
+        literals.add(expr.substring(last));
+        return new ExpressionTemplate(toSingleExpr(expr), literals, slots);
+    }
+
+    /*
+     * Returns the index of the parenthesis that closes a slot, the
+     * parentheses in the JavaScript string literals are skipped. If the slot
+     * is not closed, returns -1
+     */
+    private static int findSlotEnd(String expr, int from) {
+        int depth = 1;
+        char quote = 0;
+        for (int i = from; i < expr.length(); i++) {
+            char c = expr.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String toSingleExpr(String expr) {
+        String script = expr.trim();
+        if (script.startsWith("$") && (script.lastIndexOf("$(") == 0 || script.lastIndexOf("${") == 0)) {
+            if (script.substring(1).startsWith("(") && script.substring(1).endsWith(")")) {
+                script = script.substring(2, script.length() - 1).trim();
+                if (script.startsWith("{") && script.endsWith("}")) {
+                    return String.format("var __cwlvar=%s; __cwlvar", script);
+                }
+                return script;
+            } else if (script.substring(1).startsWith("{") && script.substring(1).endsWith("}")) {
+                return String.format("var __cwlfun=function(){%s}; __cwlfun();", script.substring(2, script.length() - 1));
+            }
+        }
+        return null;
+    }
+}
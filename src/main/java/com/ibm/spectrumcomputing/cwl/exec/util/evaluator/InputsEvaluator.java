@@ -55,8 +55,31 @@ public final class InputsEvaluator extends CommandEvaluator {
     public static void eval(InlineJavascriptRequirement jsReq,
             Map<String, String> runtime,
             List<? extends CWLParameter> inputs) throws CWLException {
-        if (inputs != null) {
-            for (CWLParameter input : inputs) {
+        eval(jsReq, runtime, inputs, inputs);
+    }
+
+    /**
+     * Evaluates the secondrayFiles and format expression of a part of the
+     * CWLInputParameter objects, the expressions are evaluated with all of the
+     * CWLInputParameter objects
+     * 
+     * @param jsReq
+     *            The InlineJavascriptRequirement of the CWLInputParameter objects
+     * @param runtime
+     *            The runtime of the CWLInputParameter objects
+     * @param inputs
+     *            The list of all of the CWLInputParameter objects
+     * @param evaluatedInputs
+     *            The list of the CWLInputParameter objects to evaluate
+     * @throws CWLException
+     *             Failed to evaluate the expression
+     */
+    public static void eval(InlineJavascriptRequirement jsReq,
+            Map<String, String> runtime,
+            List<? extends CWLParameter> inputs,
+            List<? extends CWLParameter> evaluatedInputs) throws CWLException {
+        if (inputs != null && evaluatedInputs != null) {
+            for (CWLParameter input : evaluatedInputs) {
                 evalSecondaryFiles(jsReq, runtime, inputs, input);
                 evalFormat(jsReq, runtime, inputs, input.getFormat());
             }
@@ -0,0 +1,114 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.evaluator;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.script.ScriptEngine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/*
+ * A pool of the script engines of the selected JSEngineProvider, at most
+ * cwlexec.js.engine.pool (the number of processors by default) idle engines
+ * are kept, so the threads that build the commands of a scatter can evaluate
+ * concurrently without creating an engine for each expression. Only the idle
+ * engines are limited, a borrower never waits for an engine, because a thread
+ * that holds the engine of a batch may wait for the scatter workers
+ */
+final class JSEnginePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(JSEnginePool.class);
+
+    protected static final String ENGINE_PROPERTY = "cwlexec.js.engine";
+    protected static final String POOL_SIZE_PROPERTY = "cwlexec.js.engine.pool";
+    private static final String DEFAULT_ENGINE = "nashorn";
+
+    private static volatile JSEngineProvider provider;
+    private static final BlockingQueue<ScriptEngine> idleEngines = new ArrayBlockingQueue<>(
+            Integer.getInteger(POOL_SIZE_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+    private JSEnginePool() {
+    }
+
+    /*
+     * Returns the provider selected by the cwlexec.js.engine property, the
+     * provider is selected at the first time
+     */
+    protected static JSEngineProvider getProvider() {
+        if (provider == null) {
+            synchronized (JSEnginePool.class) {
+                if (provider == null) {
+                    provider = selectProvider(System.getProperty(ENGINE_PROPERTY, DEFAULT_ENGINE));
+                }
+            }
+        }
+        return provider;
+    }
+
+    /*
+     * Takes an idle engine, or creates one if no engine is idle, the number of
+     * the engines in use is not limited
+     */
+    protected static ScriptEngine borrow() {
+        ScriptEngine engine = idleEngines.poll();
+        if (engine == null) {
+            engine = getProvider().newEngine();
+        }
+        return engine;
+    }
+
+    /*
+     * Gives an engine back to the pool, the engine is dropped if the pool is
+     * full
+     */
+    protected static void release(ScriptEngine engine) {
+        if (engine != null) {
+            idleEngines.offer(engine);
+        }
+    }
+
+    /*
+     * Selects a registered provider or the script engine of a name, if
+     * neither is found, the default engine is used. If the default engine is
+     * not found either (e.g. the JDK has no Nashorn), throws an
+     * IllegalStateException
+     */
+    protected static JSEngineProvider selectProvider(String name) {
+        for (JSEngineProvider registered : ServiceLoader.load(JSEngineProvider.class)) {
+            if (name.equals(registered.getName())) {
+                logger.debug("Evaluate js expressions with the engine provider {}", registered.getClass().getName());
+                return registered;
+            }
+        }
+        ScriptEngineProvider scriptEngineProvider = new ScriptEngineProvider(name);
+        if (scriptEngineProvider.newEngine() != null) {
+            logger.debug("Evaluate js expressions with the script engine {}", name);
+            return scriptEngineProvider;
+        }
+        ScriptEngineProvider defaultProvider = new ScriptEngineProvider(DEFAULT_ENGINE);
+        if (DEFAULT_ENGINE.equals(name) || defaultProvider.newEngine() == null) {
+            throw new IllegalStateException(ResourceLoader.getMessage("cwl.expression.engine.not.found", name));
+        }
+        logger.warn("The script engine \"{}\" is not found, use \"{}\"", name, DEFAULT_ENGINE);
+        return defaultProvider;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.evaluator;
+
+import javax.script.ScriptEngine;
+
+/**
+ * Provides the JavaScript engines that evaluate the CWL expressions. A provider
+ * is registered as a {@link java.util.ServiceLoader} service, and is selected
+ * by its name with the <code>cwlexec.js.engine</code> system property. If no
+ * registered provider has the name, the JSR-223 script engine of the name is
+ * used.
+ */
+public interface JSEngineProvider {
+
+    /**
+     * Returns the name of this provider
+     * 
+     * @return The name of this provider
+     */
+    String getName();
+
+    /**
+     * Creates a script engine, the engines are pooled and reused, each
+     * evaluation runs in its own bindings created by
+     * {@link ScriptEngine#createBindings()}
+     * 
+     * @return A new script engine
+     */
+    ScriptEngine newEngine();
+
+    /**
+     * Converts an evaluated value to a value that cwlexec understands, a
+     * JavaScript object or array is either a java.util.Map or java.util.List,
+     * or a jdk.nashorn.api.scripting.ScriptObjectMirror like object, which has
+     * the isArray, isExtensible, isEmpty, keySet, values and get methods. The
+     * value is not converted by default
+     * 
+     * @param value
+     *            An evaluated value
+     * @return The converted value
+     */
+    default Object toResult(Object value) {
+        return value;
+    }
+}
@@ -15,20 +15,25 @@
  */
 package com.ibm.spectrumcomputing.cwl.exec.util.evaluator;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.script.Bindings;
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLTypeSymbol;
@@ -45,6 +50,10 @@ final class JSEvaluator {
 
     private static final Logger logger = LoggerFactory.getLogger(JSEvaluator.class);
 
+    private static final ThreadLocal<HeldContext> heldContext = new ThreadLocal<>();
+    private static final ThreadLocal<Batch> batch = new ThreadLocal<>();
+    private static final Pattern REBINDABLE_CONTEXT = Pattern.compile("^var (runtime|inputs|self)=");
+
     private JSEvaluator() {}
 
     protected static JSResultWrapper evaluate(String expr) throws CWLException {
@@ -54,33 +63,69 @@ final class JSEvaluator {
     protected static JSResultWrapper evaluate(List<String> expressionLibs, String expr) throws CWLException {
         JSResultWrapper result = null;
         if (expr != null) {
-            StringBuilder scriptBuilder = new StringBuilder();
-            scriptBuilder.append(buildExpressionLib(expressionLibs));
-            String singleExpr = buildSingleExpr(expr);
+            ExpressionTemplate template = ExpressionTemplate.compile(expr);
+            String singleExpr = template.getSingleExpr();
             if (singleExpr != null) {
-                scriptBuilder.append(singleExpr);
-                String script = scriptBuilder.toString().trim();
-                if (!script.isEmpty()) {
-                    try {
-                        logger.debug("Evaluate js expression \"{}\" with context\n{}", expr, expressionLibs);
-                        ScriptEngine engine = new ScriptEngineManager().getEngineByName("nashorn");
-                        result = new JSResultWrapper(engine.eval(script));
-                        logger.debug("Evaluated js expression \"{}\" to {}", expr, result);
-                    } catch (ScriptException e) {
-                        throw new CWLException(
-                                ResourceLoader.getMessage("cwl.expression.evaluate.failed", expr, e.getMessage()),
-                                253);
+                Batch current = batch.get();
+                if (current != null) {
+                    result = current.evaluate(expressionLibs, expr, singleExpr);
+                } else {
+                    StringBuilder scriptBuilder = new StringBuilder();
+                    scriptBuilder.append(buildExpressionLib(expressionLibs));
+                    scriptBuilder.append(singleExpr);
+                    String script = scriptBuilder.toString().trim();
+                    if (!script.isEmpty()) {
+                        try {
+                            logger.debug("Evaluate js expression \"{}\" with context\n{}", expr, expressionLibs);
+                            result = new JSResultWrapper(evalScript(script));
+                            logger.debug("Evaluated js expression \"{}\" to {}", expr, result);
+                        } catch (ScriptException e) {
+                            throw new CWLException(
+                                    ResourceLoader.getMessage("cwl.expression.evaluate.failed", expr, e.getMessage()),
+                                    253);
+                        }
                     }
                 }
             } else {
                 //The expression is not a single expression, so the evaluated result should always be a string
-                result = new JSResultWrapper(evalScript(expressionLibs, expr.trim()).trim());
+                //The separators between the slots are kept, only the whitespace around the whole string
+                //(e.g. the line break of a YAML block scalar) is trimmed
+                openBatch();
+                try {
+                    result = new JSResultWrapper(
+                            template.fill(slotExpr -> toInterpolatedValue(evaluate(expressionLibs, slotExpr))).trim());
+                } finally {
+                    closeBatch();
+                }
                 logger.debug("Evaluated script \"{}\" to {}", expr, result);
             }
         }
         return result;
     }
 
+    /*
+     * Until closeBatch is called, the expressions evaluated on the current
+     * thread share one script engine, the expression libraries are evaluated
+     * only if they differ from the ones of the previous expression, the
+     * runtime, inputs and self variables are evaluated for every expression
+     */
+    protected static void openBatch() {
+        Batch current = batch.get();
+        if (current == null) {
+            current = new Batch();
+            batch.set(current);
+        }
+        current.depth++;
+    }
+
+    protected static void closeBatch() {
+        Batch current = batch.get();
+        if (current != null && --current.depth == 0) {
+            batch.remove();
+            JSEnginePool.release(current.engine);
+        }
+    }
+
     protected static List<String> constructEvalContext(InlineJavascriptRequirement jsReq) {
         List<String> context = new ArrayList<>();
         if (jsReq != null && jsReq.getExpressionLib() != null && !jsReq.getExpressionLib().isEmpty()) {
@@ -90,103 +135,89 @@ final class JSEvaluator {
     }
 
     protected static String toRuntimeContext(Map<String, String> runtime) {
-        List<String> elements = new ArrayList<>();
-        for (Entry<String, String> e : runtime.entrySet()) {
-            String inputJson = CommonUtil.asJsonStr(e.getKey(), e.getValue());
-            if (inputJson != null) {
-                elements.add(inputJson.substring(1, inputJson.length() - 1));
+        HeldContext held = heldContext.get();
+        if (held != null && held.runtime == runtime) {
+            return held.runtimeContext;
+        }
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = CommonUtil.getJsonMapper().getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            for (Entry<String, String> e : runtime.entrySet()) {
+                generator.writeStringField(e.getKey(), e.getValue());
             }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            logger.warn("Cannot process the runtime {} to json string, {}", runtime, e.getMessage());
+            out = new StringWriter().append("{}");
+        }
+        String context = String.format("var runtime=%s;", out);
+        if (held != null) {
+            held.runtime = runtime;
+            held.runtimeContext = context;
         }
-        return String.format("var runtime={%s};", String.join(",", elements));
+        return context;
     }
 
     protected static String toInputsContext(List<? extends CWLParameter> inputs) {
-        List<String> elements = new ArrayList<>();
-        for (CWLParameter input : inputs) {
-            Object value = input.getValue();
-            if (value == null || value == NullValue.NULL) {
-                value = input.getDefaultValue();
-            }
-            if (input.getType() != null &&
-                    input.getType().getType() != null &&
-                    input.getType().getType().getSymbol() == CWLTypeSymbol.RECORD) {
-                if (value instanceof List<?>) {
-                    List<?> recordFields = (List<?>) value;
-                    List<String> records = new ArrayList<>();
-                    for (Object recordField : recordFields) {
-                        if (recordField instanceof InputRecordField) {
-                            String inputJson = CommonUtil.asJsonStr(((InputRecordField) recordField).getName(),
-                                    ((InputRecordField) recordField).getValue());
-                            if (inputJson != null) {
-                                records.add(inputJson.substring(1, inputJson.length() - 1));
-                            }
-                        }
-                    }
-                    if (!records.isEmpty()) {
-                        elements.add(String.format("\"%s\":{%s}", input.getId(), String.join(",", records)));
-                    }
-                }
-            } else if (value instanceof List<?>) {
-                List<?> recordFields = (List<?>) value;
-                List<String> records = new ArrayList<>();
-                for (Object recordField : recordFields) {
-                    if (recordField instanceof InputRecordField) {
-                        String inputJson = CommonUtil.asJsonStr(((InputRecordField) recordField).getName(),
-                                ((InputRecordField) recordField).getValue());
-                        if (inputJson != null) {
-                            records.add(inputJson.substring(1, inputJson.length() - 1));
-                        }
-                    }
-                }
-                if (!records.isEmpty()) {
-                    return String.format("var inputs={%s};", String.join(",", records));
-                } else {
-                    String inputJson = CommonUtil.asJsonStr(input.getId(), value);
-                    if (inputJson != null) {
-                        elements.add(inputJson.substring(1, inputJson.length() - 1));
-                    }
-                }
-            } else {
-                String inputJson = CommonUtil.asJsonStr(input.getId(), value);
-                if (inputJson != null) {
-                    elements.add(inputJson.substring(1, inputJson.length() - 1));
-                }
-            }
+        HeldContext held = heldContext.get();
+        if (held != null && held.isHeld(inputs)) {
+            return held.inputsContext;
+        }
+        String context;
+        try {
+            context = String.format("var inputs=%s;", writeInputs(inputs));
+        } catch (IOException e) {
+            logger.warn("Cannot process the inputs to json string, {}", e.getMessage());
+            context = "var inputs={};";
+        }
+        if (held != null) {
+            held.hold(inputs, context);
+        }
+        return context;
+    }
+
+    /*
+     * Keeps the runtime and inputs context on the current thread until
+     * releaseContext is called, the inputs context is rebuilt if the value of
+     * an input is replaced. The values must not be changed in place meanwhile.
+     */
+    protected static void holdContext() {
+        HeldContext held = heldContext.get();
+        if (held == null) {
+            held = new HeldContext();
+            heldContext.set(held);
+        }
+        held.depth++;
+    }
+
+    protected static void releaseContext() {
+        HeldContext held = heldContext.get();
+        if (held != null && --held.depth == 0) {
+            heldContext.remove();
         }
-        return String.format("var inputs={%s};", String.join(",", elements));
     }
 
     protected static String toSelfContext(Object obj) {
         return String.format("var self=%s;", CommonUtil.asJsonStr(obj));
     }
 
-    private static String evalScript(List<String> expressionLibs, String script) throws CWLException {
-        Pattern pattern = Pattern.compile("\\$\\([^\\(\\)]*(\\(.*?\\)[^\\(\\)]*)*\\)\\s*[, ]*");
-        Matcher matcher = pattern.matcher(script);
-        String express = null;
-        JSResultWrapper r = null;
-        String value = null;
-        while (matcher.find()) {
-            express = matcher.group().trim();
-            r = JSEvaluator.evaluate(expressionLibs, express);
-            if (!r.isNull()) {
-                if (r.isBool()) {
-                    value = String.valueOf(r.asBool());
-                } else if (r.isString()) {
-                    value = r.asString();
-                } else if (r.isDouble()) {
-                    value = String.valueOf(r.asDouble());
-                } else if (r.isLong()) {
-                    value = String.valueOf(r.asLong());
-                } else {
-                    throw new CWLException(
-                            "The expression must return a bool, string or number",
-                            253);
-                }
-            }
-            script = script.replace(matcher.group(), value);
+    /*
+     * Converts the result of an expression which is interpolated in a string,
+     * a null result is interpolated as "null"
+     */
+    protected static String toInterpolatedValue(JSResultWrapper r) throws CWLException {
+        if (r == null || r.isNull()) {
+            return "null";
+        } else if (r.isBool()) {
+            return String.valueOf(r.asBool());
+        } else if (r.isString()) {
+            return r.asString();
+        } else if (r.isDouble()) {
+            return String.valueOf(r.asDouble());
+        } else if (r.isLong()) {
+            return String.valueOf(r.asLong());
         }
-        return script;
+        throw new CWLException("The expression must return a bool, string or number", 253);
     }
 
     private static String buildExpressionLib(List<String> expressionLibs) {
@@ -203,20 +234,221 @@ final class JSEvaluator {
         return script.toString();
     }
 
-     private static String buildSingleExpr(String expr) throws CWLException {
-        String script = expr.trim();
-        if (script.startsWith("$") && (script.lastIndexOf("$(") == 0 || script.lastIndexOf("${") == 0)) {
-            if (script.substring(1).startsWith("(") && script.substring(1).endsWith(")")) {
-                script = script.substring(2, script.length() - 1).trim();
-                if(script.startsWith("{") && script.endsWith("}")) {
-                    return String.format("var __cwlvar=%s; __cwlvar", script);
+    /*
+     * Writes the inputs as one JSON object, if an input that is not a record has
+     * record fields as its value, the record fields are the inputs
+     */
+    private static String writeInputs(List<? extends CWLParameter> inputs) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = CommonUtil.getJsonMapper().getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            for (CWLParameter input : inputs) {
+                Object value = input.getValue();
+                if (value == null || value == NullValue.NULL) {
+                    value = input.getDefaultValue();
+                }
+                List<InputRecordField> records = toRecordFields(value);
+                if (input.getType() != null &&
+                        input.getType().getType() != null &&
+                        input.getType().getType().getSymbol() == CWLTypeSymbol.RECORD) {
+                    if (!records.isEmpty()) {
+                        generator.writeObjectFieldStart(input.getId());
+                        writeRecordFields(generator, records);
+                        generator.writeEndObject();
+                    }
+                } else if (!records.isEmpty()) {
+                    return writeRecords(records);
+                } else {
+                    writeField(generator, input.getId(), value);
+                }
+            }
+            generator.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    private static String writeRecords(List<InputRecordField> records) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = CommonUtil.getJsonMapper().getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            writeRecordFields(generator, records);
+            generator.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    private static void writeRecordFields(JsonGenerator generator, List<InputRecordField> records)
+            throws IOException {
+        for (InputRecordField record : records) {
+            writeField(generator, record.getName(), record.getValue());
+        }
+    }
+
+    private static void writeField(JsonGenerator generator, String name, Object value) throws IOException {
+        generator.writeFieldName(name);
+        if (NullValue.NULL.equals(value)) {
+            generator.writeNull();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    private static List<InputRecordField> toRecordFields(Object value) {
+        List<InputRecordField> records = new ArrayList<>();
+        if (value instanceof List<?>) {
+            for (Object recordField : (List<?>) value) {
+                if (recordField instanceof InputRecordField) {
+                    records.add((InputRecordField) recordField);
                 }
-                return script;
-            } else if (script.substring(1).startsWith("{") && script.substring(1).endsWith("}")) {
-                return String.format("var __cwlfun=function(){%s}; __cwlfun();", script.substring(2, script.length() - 1));
             }
         }
-        return null;
+        return records;
     }
 
+    private static final class HeldContext {
+        private int depth;
+        private Map<String, String> runtime;
+        private String runtimeContext;
+        private List<? extends CWLParameter> inputs;
+        private Object[] values;
+        private int[] sizes;
+        private String inputsContext;
+
+        private boolean isHeld(List<? extends CWLParameter> inputs) {
+            if (this.inputs != inputs || values.length != inputs.size()) {
+                return false;
+            }
+            for (int i = 0; i < values.length; i++) {
+                Object value = inputs.get(i).getValue();
+                // a delayed valueFrom appends its value to the value list
+                if (values[i] != value || sizes[i] != sizeOf(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void hold(List<? extends CWLParameter> inputs, String inputsContext) {
+            this.inputs = inputs;
+            this.values = new Object[inputs.size()];
+            this.sizes = new int[inputs.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = inputs.get(i).getValue();
+                sizes[i] = sizeOf(values[i]);
+            }
+            this.inputsContext = inputsContext;
+        }
+
+        private static int sizeOf(Object value) {
+            return value instanceof List<?> ? ((List<?>) value).size() : -1;
+        }
+    }
+
+    /*
+     * Evaluates a script in its own bindings on a pooled engine
+     */
+    private static Object evalScript(String script) throws ScriptException {
+        ScriptEngine engine = JSEnginePool.borrow();
+        try {
+            return JSEnginePool.getProvider().toResult(engine.eval(script, engine.createBindings()));
+        } finally {
+            JSEnginePool.release(engine);
+        }
+    }
+
+    private static final class Batch {
+        private int depth;
+        private ScriptEngine engine;
+        private Bindings bindings;
+        private List<String> evaluated = new ArrayList<>();
+
+        private JSResultWrapper evaluate(List<String> expressionLibs,
+                String expr,
+                String singleExpr) throws CWLException {
+            List<String> context = expressionLibs != null ? expressionLibs : new ArrayList<>();
+            if (singleExpr.trim().isEmpty() && buildExpressionLib(context).trim().isEmpty()) {
+                return null;
+            }
+            try {
+                logger.debug("Evaluate js expression \"{}\" in batch with context\n{}", expr, context);
+                prepare(context);
+                Set<String> globals = new HashSet<>(bindings.keySet());
+                JSResultWrapper result = new JSResultWrapper(
+                        JSEnginePool.getProvider().toResult(engine.eval(singleExpr, bindings)));
+                removeGlobals(globals);
+                logger.debug("Evaluated js expression \"{}\" to {}", expr, result);
+                return result;
+            } catch (ScriptException e) {
+                // the state of the bindings is unknown, start over
+                bindings = null;
+                throw new CWLException(
+                        ResourceLoader.getMessage("cwl.expression.evaluate.failed", expr, e.getMessage()),
+                        253);
+            }
+        }
+
+        /*
+         * The bindings are reused if the contexts differ only in the runtime,
+         * inputs and self variables. These variables are evaluated again even
+         * if they are not changed, because the previous expression may modify
+         * them, the variables that the new context does not have are reset to
+         * undefined
+         */
+        private void prepare(List<String> context) throws ScriptException {
+            int common = 0;
+            while (common < context.size() && common < evaluated.size()
+                    && context.get(common).equals(evaluated.get(common))
+                    && !REBINDABLE_CONTEXT.matcher(context.get(common)).find()) {
+                common++;
+            }
+            if (engine == null) {
+                engine = JSEnginePool.borrow();
+            }
+            if (bindings == null || !isRebindable(evaluated, common) || !isRebindable(context, common)) {
+                bindings = engine.createBindings();
+                common = 0;
+            } else {
+                for (String variable : evaluated.subList(common, evaluated.size())) {
+                    Matcher matcher = REBINDABLE_CONTEXT.matcher(variable);
+                    if (matcher.find() && !hasVariable(context, common, matcher.group())) {
+                        engine.eval(matcher.group(1) + "=undefined;", bindings);
+                    }
+                }
+            }
+            for (String element : context.subList(common, context.size())) {
+                engine.eval(element, bindings);
+            }
+            evaluated = new ArrayList<>(context);
+        }
+
+        /*
+         * Removes the global variables that an expression assigns without
+         * declaring them, so the next expression does not see them
+         */
+        private void removeGlobals(Set<String> globals) {
+            for (String key : new ArrayList<>(bindings.keySet())) {
+                if (!globals.contains(key)) {
+                    bindings.remove(key);
+                }
+            }
+        }
+
+        private static boolean isRebindable(List<String> context, int from) {
+            for (String element : context.subList(from, context.size())) {
+                if (!REBINDABLE_CONTEXT.matcher(element).find()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean hasVariable(List<String> context, int from, String declaration) {
+            for (String element : context.subList(from, context.size())) {
+                if (element.startsWith(declaration)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
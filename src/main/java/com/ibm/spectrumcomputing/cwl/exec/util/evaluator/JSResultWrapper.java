@@ -46,6 +46,7 @@ class JSResultWrapper {
     private static final String CLASS = "class";
     private static final String IS_EXTENSIBLE = "isExtensible";
     private static final String IS_ARRAY = "isArray";
+    private static final String IS_EMPTY = "isEmpty";
     private final Object result;
 
     enum ResultType {
@@ -77,7 +78,7 @@ class JSResultWrapper {
     }
 
     protected boolean isNull() {
-        return this.result == null || invokeBoolMethod(this.result, "isEmpty");
+        return this.result == null || invokeBoolMethod(this.result, IS_EMPTY);
     }
 
     protected boolean isString() {
@@ -243,6 +244,13 @@ class JSResultWrapper {
      */
     protected List<JSResultWrapper> elements() {
         List<JSResultWrapper> elements = null;
+        if (this.result instanceof List<?>) {
+            elements = new ArrayList<>();
+            for (Object v : (List<?>) this.result) {
+                elements.add(new JSResultWrapper(v));
+            }
+            return elements;
+        }
         Class<?> clazz = this.result.getClass();
         String className = clazz.getName();
         if (SCRIPT_OBJECT_MIRROR_CLASSNAME.equals(className)) {
@@ -272,7 +280,12 @@ class JSResultWrapper {
      */
     protected List<String> keys() {
         List<String> keys = null;
-        if (invokeBoolMethod(this.result, IS_EXTENSIBLE)) {
+        if (isJavaMap(this.result)) {
+            keys = new ArrayList<>();
+            for (Object key : ((Map<?, ?>) this.result).keySet()) {
+                keys.add(String.valueOf(key));
+            }
+        } else if (invokeBoolMethod(this.result, IS_EXTENSIBLE)) {
             Class<?> clazz = this.result.getClass();
             String className = clazz.getName();
             if (SCRIPT_OBJECT_MIRROR_CLASSNAME.equals(className)) {
@@ -301,6 +314,9 @@ class JSResultWrapper {
     protected JSResultWrapper getValue(String key) {
         JSResultWrapper value = null;
         if (key != null && key.length() != 0) {
+            if (isJavaMap(this.result)) {
+                return new JSResultWrapper(((Map<?, ?>) this.result).get(key));
+            }
             Class<?> clazz = this.result.getClass();
             String className = clazz.getName();
             if (SCRIPT_OBJECT_MIRROR_CLASSNAME.equals(className)) {
@@ -374,7 +390,24 @@ class JSResultWrapper {
         return obj;
     }
 
+    /*
+     * The engines other than Nashorn may give the objects and arrays as the
+     * java.util.Map and java.util.List, an empty one is taken as null like an
+     * empty ScriptObjectMirror
+     */
     private boolean invokeBoolMethod(Object obj, String method) {
+        if (isJavaMap(obj) || obj instanceof List<?>) {
+            switch (method) {
+            case IS_ARRAY:
+                return obj instanceof List<?>;
+            case IS_EXTENSIBLE:
+                return obj instanceof Map<?, ?>;
+            case IS_EMPTY:
+                return obj instanceof Map<?, ?> ? ((Map<?, ?>) obj).isEmpty() : ((List<?>) obj).isEmpty();
+            default:
+                return false;
+            }
+        }
         boolean is = false;
         Class<?> clazz = obj.getClass();
         String className = clazz.getName();
@@ -388,4 +421,11 @@ class JSResultWrapper {
         }
         return is;
     }
+
+    /*
+     * The ScriptObjectMirror is a java.util.Map too
+     */
+    private static boolean isJavaMap(Object obj) {
+        return obj instanceof Map<?, ?> && !SCRIPT_OBJECT_MIRROR_CLASSNAME.equals(obj.getClass().getName());
+    }
 }
@@ -172,10 +172,15 @@ public final class RequirementsEvaluator {
             if (inputsContext.length() != 0) {
                 scriptLibs.add(inputsContext);
             }
-            evalCores(scriptLibs, resReq);
-            evalRam(scriptLibs, resReq);
-            evalTmpdir(scriptLibs, resReq);
-            evalOutdir(scriptLibs, resReq);
+            JSEvaluator.openBatch();
+            try {
+                evalCores(scriptLibs, resReq);
+                evalRam(scriptLibs, resReq);
+                evalTmpdir(scriptLibs, resReq);
+                evalOutdir(scriptLibs, resReq);
+            } finally {
+                JSEvaluator.closeBatch();
+            }
         }
     }
 
@@ -315,11 +320,16 @@ public final class RequirementsEvaluator {
         String inputsContext = JSEvaluator.toInputsContext((List<CommandInputParameter>) processObj.getInputs());
         scriptLibs.add(inputsContext);
         // copy listing files to working directory
-        copyInitialWorkDirListing(processObj.getOwner(), runtime, scriptLibs, initialWorkDirRequirement);
-        // Only validates files and dirs, they also may need to be copied in
-        // future
-        validateFilesAndDirs(initialWorkDirRequirement);
-        evalDirentListing(processObj.getOwner(), runtime, scriptLibs, initialWorkDirRequirement);
+        JSEvaluator.openBatch();
+        try {
+            copyInitialWorkDirListing(processObj.getOwner(), runtime, scriptLibs, initialWorkDirRequirement);
+            // Only validates files and dirs, they also may need to be copied in
+            // future
+            validateFilesAndDirs(initialWorkDirRequirement);
+            evalDirentListing(processObj.getOwner(), runtime, scriptLibs, initialWorkDirRequirement);
+        } finally {
+            JSEvaluator.closeBatch();
+        }
     }
 
     private static void copyInitialWorkDirListing(String owner,
@@ -553,57 +563,39 @@ public final class RequirementsEvaluator {
     }
 
     private static String evalDirentEntry(List<String> scriptLibs, String entry) throws CWLException {
-        Pattern pattern = Pattern.compile("\\$\\([^\\(\\)]*(\\(.*?\\)[^\\(\\)]*)*\\)\\s*[, ]*");
-        Matcher matcher = pattern.matcher(entry);
-        String express = null;
-        JSResultWrapper r = null;
-        String value = null;
-        while (matcher.find()) {
-            express = matcher.group().trim();
-            r = JSEvaluator.evaluate(scriptLibs, express);
-            if (!r.isNull()) {
-                if (r.isBool()) {
-                    value = String.valueOf(r.asBool());
-                } else if (r.isString()) {
-                    value = r.asString();
-                } else if (r.isDouble()) {
-                    value = String.valueOf(r.asDouble());
-                } else if (r.isLong()) {
-                    value = String.valueOf(r.asLong());
-                } else {
-                    throw new CWLException("The expression must return a bool, string or number",
-                            253);
-                }
-            }
-            entry = entry.replace(matcher.group(), value);
-        }
-        return entry;
+        return ExpressionTemplate.compile(entry)
+                .fill(slotExpr -> JSEvaluator.toInterpolatedValue(JSEvaluator.evaluate(scriptLibs, slotExpr)));
     }
 
     private static void evalEnvVarReq(InlineJavascriptRequirement jsRequirement,
             Map<String, String> runtime,
             CWLProcess processObj,
             EnvVarRequirement envVarRequirement) throws CWLException {
-        for (EnvironmentDef envDef : envVarRequirement.getEnvDef()) {
-            String expression = envDef.getEnvValue().getExpression();
-            if (expression != null) {
-                List<String> scriptLibs = new ArrayList<>();
-                if (jsRequirement != null && jsRequirement.getExpressionLib() != null
-                        && !jsRequirement.getExpressionLib().isEmpty()) {
-                    scriptLibs.addAll(jsRequirement.getExpressionLib());
-                }
-                String runtimeContext = JSEvaluator.toRuntimeContext(runtime);
-                if (runtimeContext != null) {
-                    scriptLibs.add(runtimeContext);
-                }
-                @SuppressWarnings("unchecked")
-                String inputsContext = JSEvaluator.toInputsContext(
-                        (List<CommandInputParameter>) processObj.getInputs());
-                if (inputsContext.length() != 0) {
-                    scriptLibs.add(inputsContext);
+        JSEvaluator.openBatch();
+        try {
+            for (EnvironmentDef envDef : envVarRequirement.getEnvDef()) {
+                String expression = envDef.getEnvValue().getExpression();
+                if (expression != null) {
+                    List<String> scriptLibs = new ArrayList<>();
+                    if (jsRequirement != null && jsRequirement.getExpressionLib() != null
+                            && !jsRequirement.getExpressionLib().isEmpty()) {
+                        scriptLibs.addAll(jsRequirement.getExpressionLib());
+                    }
+                    String runtimeContext = JSEvaluator.toRuntimeContext(runtime);
+                    if (runtimeContext != null) {
+                        scriptLibs.add(runtimeContext);
+                    }
+                    @SuppressWarnings("unchecked")
+                    String inputsContext = JSEvaluator.toInputsContext(
+                            (List<CommandInputParameter>) processObj.getInputs());
+                    if (inputsContext.length() != 0) {
+                        scriptLibs.add(inputsContext);
+                    }
+                    envDef.getEnvValue().setValue(toEnvVarReqValue(scriptLibs, expression));
                 }
-                envDef.getEnvValue().setValue(toEnvVarReqValue(scriptLibs, expression));
             }
+        } finally {
+            JSEvaluator.closeBatch();
         }
     }
 
@@ -0,0 +1,42 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.evaluator;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+
+/*
+ * Provides the JSR-223 script engine of a name, e.g. nashorn
+ */
+final class ScriptEngineProvider implements JSEngineProvider {
+
+    private final String name;
+    private final ScriptEngineManager manager = new ScriptEngineManager();
+
+    protected ScriptEngineProvider(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public ScriptEngine newEngine() {
+        return manager.getEngineByName(name);
+    }
+}
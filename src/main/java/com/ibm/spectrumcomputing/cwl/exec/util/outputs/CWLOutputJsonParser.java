@@ -65,7 +65,7 @@ public class CWLOutputJsonParser {
         DockerRequirement dockerRequirement = CWLExecUtil.findRequirement(instance, DockerRequirement.class);
         String tmpDir = instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR);
         String outDir = instance.getRuntime().get(CommonUtil.RUNTIME_OUTPUT_DIR);
-        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper mapper = CommonUtil.getJsonMapper();
         List<? extends CWLParameter> outputs = instance.getProcess().getOutputs();
         for (CWLParameter output : outputs) {
             JsonNode outputNode = jsonNode.get(output.getId());
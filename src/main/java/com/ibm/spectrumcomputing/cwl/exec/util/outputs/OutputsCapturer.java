@@ -107,6 +107,34 @@ public class OutputsCapturer {
         }
     }
 
+    /**
+     * Captures an output of a single scatter step of a CWL scatter step
+     * instance, the scatter step was done but the other scatter steps may be
+     * running
+     * 
+     * @param instance
+     *            A CWL scatter step instance
+     * @param outputId
+     *            The ID of the output
+     * @param scatterIndex
+     *            The index of the scatter step, the index is from 1
+     * @return The output value of the scatter step
+     * @throws CWLException
+     *             Failed to capture the output
+     */
+    public static Object captureScatterOutput(CWLCommandInstance instance,
+            String outputId,
+            int scatterIndex) throws CWLException {
+        CommandLineTool commandLineTool = (CommandLineTool) instance.getProcess();
+        InlineJavascriptRequirement jsReq = CWLExecUtil.findRequirement(instance, InlineJavascriptRequirement.class);
+        CommandOutputParameter output = (CommandOutputParameter) CommonUtil.findParameter(outputId,
+                commandLineTool.getOutputs());
+        if (output == null || output.getType().getType() == null) {
+            throw new CWLException(ResourceLoader.getMessage("cwl.output.value.not.found", instance.getId()), 250);
+        }
+        return findScatterElementValue(jsReq, instance, output.getType().getType(), output, scatterIndex);
+    }
+
     /**
      * Captures the outputs of a CWL Workflow instance
      * 
@@ -502,21 +530,7 @@ public class OutputsCapturer {
             addEmptyScatter(valueList, scatterSize, groupSize);
         } else {
             for (int i = 1; i <= scatterSize; i++) {
-                List<CommandInputParameter> inputs = instance.getScatterHolders().get(i-1).getInputs();
-                CommandOutputBindingEvaluator.evalGlob(jsReq, inputs, outputBinding);
-                CommandOutputBinding scatterOutputBinding = new CommandOutputBinding();
-                OutputBindingGlob glob = new OutputBindingGlob();
-                glob.setPatterns(outputBinding.getGlob().getPatterns());
-                glob.setGlobExpr(new CWLFieldValue());
-                glob.getGlobExpr().setExpression(outputBinding.getGlob().getGlobExpr().getExpression());
-                glob.getGlobExpr().setValue(outputBinding.getGlob().getGlobExpr().getValue());
-                glob.setScatterIndex(i);
-                scatterOutputBinding.setGlob(glob);
-                scatterOutputBinding.setOutputEval(outputBinding.getOutputEval());
-                scatterOutputBinding.setLoadContents(outputBinding.isLoadContents());
-                Path globDir = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR), String.format("scatter%d", i));
-                logger.debug("Glob scatter job output in {}", globDir);
-                Object value = findOutputValue(globDir, instance, jsReq, inputs, output.getId(), outputType, scatterOutputBinding);
+                Object value = findScatterElementValue(jsReq, instance, outputType, output, i);
                 if (groupSize > 0) {
                     groupList.add(value);
                     length++;
@@ -534,6 +548,30 @@ public class OutputsCapturer {
         return valueList;
     }
 
+    private static Object findScatterElementValue(InlineJavascriptRequirement jsReq,
+            CWLCommandInstance instance,
+            CWLType outputType,
+            CommandOutputParameter output,
+            int scatterIndex) throws CWLException {
+        CommandOutputBinding outputBinding = output.getOutputBinding();
+        List<CommandInputParameter> inputs = instance.getScatterHolders().get(scatterIndex - 1).getInputs();
+        CommandOutputBindingEvaluator.evalGlob(jsReq, inputs, outputBinding);
+        CommandOutputBinding scatterOutputBinding = new CommandOutputBinding();
+        OutputBindingGlob glob = new OutputBindingGlob();
+        glob.setPatterns(outputBinding.getGlob().getPatterns());
+        glob.setGlobExpr(new CWLFieldValue());
+        glob.getGlobExpr().setExpression(outputBinding.getGlob().getGlobExpr().getExpression());
+        glob.getGlobExpr().setValue(outputBinding.getGlob().getGlobExpr().getValue());
+        glob.setScatterIndex(scatterIndex);
+        scatterOutputBinding.setGlob(glob);
+        scatterOutputBinding.setOutputEval(outputBinding.getOutputEval());
+        scatterOutputBinding.setLoadContents(outputBinding.isLoadContents());
+        Path globDir = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
+                String.format("scatter%d", scatterIndex));
+        logger.debug("Glob scatter job output in {}", globDir);
+        return findOutputValue(globDir, instance, jsReq, inputs, output.getId(), outputType, scatterOutputBinding);
+    }
+
     private static void addEmptyScatter(List<Object> valueList, int scatterSize, int groupSize) {
         if (groupSize > 0) {
             int numGroups = scatterSize / groupSize;
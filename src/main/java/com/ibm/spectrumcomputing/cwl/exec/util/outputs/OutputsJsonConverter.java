@@ -0,0 +1,204 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.outputs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLDirectory;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFileBase;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+
+/**
+ * Utility methods for converting the captured outputs of a step to JSON and
+ * rehydrating them, so a done step can be recovered without capturing its
+ * outputs again
+ */
+public final class OutputsJsonConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutputsJsonConverter.class);
+
+    private static final String CLASS = "class";
+    private static final String SECONDARY_FILES = "secondaryFiles";
+    private static final String LISTING = "listing";
+
+    private OutputsJsonConverter() {
+    }
+
+    /**
+     * Converts the captured outputs of a given instance to a JSON string
+     * 
+     * @param instance
+     *            A done CWL step instance
+     * @return The JSON string of the outputs, if an output value (e.g. a
+     *         record) cannot be rehydrated, return null
+     */
+    public static String toJson(CWLInstance instance) {
+        ObjectMapper mapper = CommonUtil.getJsonMapper();
+        ObjectNode outputsNode = mapper.createObjectNode();
+        for (CWLParameter output : instance.getProcess().getOutputs()) {
+            Object value = output.getValue();
+            if (!isConvertible(value)) {
+                logger.debug("The output ({}) of step ({}) cannot be converted to JSON", output.getId(),
+                        instance.getName());
+                return null;
+            }
+            outputsNode.set(output.getId(), mapper.valueToTree(value));
+        }
+        return outputsNode.toString();
+    }
+
+    /**
+     * Rehydrates the outputs of a given instance from a JSON string that was
+     * converted by {@link #toJson(CWLInstance)}
+     * 
+     * @param instance
+     *            A done CWL step instance
+     * @param outputsJson
+     *            The JSON string of the outputs
+     * @return If all outputs were rehydrated, return true
+     */
+    public static boolean restore(CWLInstance instance, String outputsJson) {
+        if (outputsJson == null) {
+            return false;
+        }
+        Map<String, Object> values = new HashMap<>();
+        try {
+            JsonNode outputsNode = CommonUtil.getJsonMapper().readTree(outputsJson);
+            for (CWLParameter output : instance.getProcess().getOutputs()) {
+                JsonNode valueNode = outputsNode.get(output.getId());
+                if (valueNode == null) {
+                    return false;
+                }
+                values.put(output.getId(), toValue(valueNode));
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to restore the outputs of step ({}): {}", instance.getName(), e.getMessage());
+            return false;
+        }
+        for (CWLParameter output : instance.getProcess().getOutputs()) {
+            output.setValue(values.get(output.getId()));
+        }
+        return true;
+    }
+
+    private static boolean isConvertible(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof CWLFileBase) {
+            return true;
+        }
+        if (value instanceof List<?>) {
+            for (Object element : (List<?>) value) {
+                if (!isConvertible(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (value instanceof Map<?, ?>) {
+            for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String) || !isConvertible(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static Object toValue(JsonNode node) throws IOException {
+        Object value = null;
+        if (node.isTextual()) {
+            value = node.asText();
+        } else if (node.isBoolean()) {
+            value = node.booleanValue();
+        } else if (node.isIntegralNumber()) {
+            value = node.canConvertToInt() ? Integer.valueOf(node.intValue()) : Long.valueOf(node.longValue());
+        } else if (node.isNumber()) {
+            value = node.doubleValue();
+        } else if (node.isArray()) {
+            List<Object> values = new ArrayList<>();
+            for (JsonNode element : node) {
+                values.add(toValue(element));
+            }
+            value = values;
+        } else if (node.isObject()) {
+            if (isFileNode(node)) {
+                value = toFileBase(node);
+            } else {
+                Map<String, Object> values = new LinkedHashMap<>();
+                Iterator<Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Entry<String, JsonNode> field = fields.next();
+                    values.put(field.getKey(), toValue(field.getValue()));
+                }
+                value = values;
+            }
+        }
+        return value;
+    }
+
+    private static boolean isFileNode(JsonNode node) {
+        JsonNode classNode = node.get(CLASS);
+        return classNode != null &&
+                ("File".equals(classNode.asText()) || "Directory".equals(classNode.asText()));
+    }
+
+    private static CWLFileBase toFileBase(JsonNode node) throws IOException {
+        ObjectMapper mapper = CommonUtil.getJsonMapper();
+        ObjectNode fileNode = ((ObjectNode) node).deepCopy();
+        fileNode.remove(CLASS);
+        if ("File".equals(node.get(CLASS).asText())) {
+            JsonNode secondaryFilesNode = fileNode.remove(SECONDARY_FILES);
+            CWLFile file = mapper.treeToValue(fileNode, CWLFile.class);
+            if (secondaryFilesNode != null && secondaryFilesNode.isArray()) {
+                file.setSecondaryFiles(toFileBases(secondaryFilesNode));
+            }
+            return file;
+        }
+        JsonNode listingNode = fileNode.remove(LISTING);
+        CWLDirectory dir = mapper.treeToValue(fileNode, CWLDirectory.class);
+        if (listingNode != null && listingNode.isArray()) {
+            dir.setListing(toFileBases(listingNode));
+        }
+        return dir;
+    }
+
+    private static List<CWLFileBase> toFileBases(JsonNode arrayNode) throws IOException {
+        List<CWLFileBase> files = new ArrayList<>();
+        for (JsonNode element : arrayNode) {
+            if (isFileNode(element)) {
+                files.add(toFileBase(element));
+            }
+        }
+        return files;
+    }
+}
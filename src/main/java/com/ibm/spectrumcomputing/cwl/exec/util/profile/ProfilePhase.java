@@ -0,0 +1,79 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.profile;
+
+/**
+ * Represents a phase of the step lifecycle that is measured by
+ * {@link RunProfiler}
+ */
+public enum ProfilePhase {
+
+    /**
+     * Resolves the step inputs from the workflow inputs and upstream outputs
+     */
+    RESOLVE("resolve"),
+    /**
+     * Evaluates the step inputs and standard streams (includes Javascript)
+     */
+    EVALUATE("evaluate"),
+    /**
+     * Builds the step command and the bsub command
+     */
+    BUILD("build"),
+    /**
+     * Submits (bsub) or releases (bresume) the step job
+     */
+    SUBMIT("submit"),
+    /**
+     * The step job is pending in LSF after it was released
+     */
+    PENDING("pending"),
+    /**
+     * The step job is running on an execution host
+     */
+    RUN("run"),
+    /**
+     * From the step job finished to cwlexec was notified (bwait returned)
+     */
+    NOTIFY("notify"),
+    /**
+     * Captures the step outputs (includes outputEval Javascript)
+     */
+    CAPTURE("capture"),
+    /**
+     * Persists the step state to the database
+     */
+    PERSIST("persist"),
+    /**
+     * The step job is held until the steps on which it depends are done
+     */
+    WAIT("wait");
+
+    private final String label;
+
+    private ProfilePhase(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Returns the label of this phase, it is used in the profile files
+     * 
+     * @return The label of this phase
+     */
+    public String getLabel() {
+        return label;
+    }
+}
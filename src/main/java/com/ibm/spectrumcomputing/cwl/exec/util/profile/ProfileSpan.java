@@ -0,0 +1,51 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.profile;
+
+/*
+ * A time span of a phase, the element is the scatter element index of the
+ * span, 0 means the span belongs to the step itself
+ */
+final class ProfileSpan {
+
+    private final ProfilePhase phase;
+    private final int element;
+    private final long start;
+    private final long end;
+
+    ProfileSpan(ProfilePhase phase, int element, long start, long end) {
+        this.phase = phase;
+        this.element = element;
+        this.start = start;
+        this.end = end;
+    }
+
+    ProfilePhase getPhase() {
+        return phase;
+    }
+
+    int getElement() {
+        return element;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.profile;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
+import com.ibm.spectrumcomputing.cwl.exec.util.CWLInstanceDependencyResolver;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.ResourceLoader;
+
+/**
+ * Records the time spans of the step lifecycle phases of a CWL main process
+ * (Workflow or CommandLineTool), and writes them as a JSON profile
+ * (cwlexec-profile.json) and a Prometheus text exposition file
+ * (cwlexec-metrics.prom) and a trace event timeline (cwlexec-trace.json) to
+ * the outputs directory when the main process is finished
+ */
+public final class RunProfiler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunProfiler.class);
+
+    /**
+     * The file name of the JSON profile
+     */
+    public static final String PROFILE_FILE = "cwlexec-profile.json";
+    /**
+     * The file name of the Prometheus text exposition file
+     */
+    public static final String METRICS_FILE = "cwlexec-metrics.prom";
+    /**
+     * The file name of the trace event (Chrome/Perfetto) timeline
+     */
+    public static final String TRACE_FILE = "cwlexec-trace.json";
+
+    private static final String LSF_STARTED = "Started at ";
+    private static final String LSF_TERMINATED = "Terminated at ";
+
+    // main instance id -> step name -> step profile
+    private static final Map<String, Map<String, StepProfile>> profiles = new ConcurrentHashMap<>();
+    // main instance id -> the step names on the critical path
+    private static final Map<String, List<String>> criticalPaths = new ConcurrentHashMap<>();
+
+    private RunProfiler() {
+    }
+
+    /**
+     * Records a phase span of a given step, the span ends now
+     * 
+     * @param instance
+     *            A CWL step instance
+     * @param phase
+     *            The phase
+     * @param start
+     *            The start time (milliseconds) of the phase
+     */
+    public static void record(CWLInstance instance, ProfilePhase phase, long start) {
+        record(instance, phase, start, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a phase span of a given step
+     * 
+     * @param instance
+     *            A CWL step instance
+     * @param phase
+     *            The phase
+     * @param start
+     *            The start time (milliseconds) of the phase
+     * @param end
+     *            The end time (milliseconds) of the phase
+     */
+    public static void record(CWLInstance instance, ProfilePhase phase, long start, long end) {
+        if (instance != null) {
+            record(CWLExecUtil.findMainInstance(instance), instance.getName(), phase, start, end);
+        }
+    }
+
+    /**
+     * Records a phase span of a step by name, it is used before the step
+     * instance is created
+     * 
+     * @param main
+     *            The CWL main process instance
+     * @param stepName
+     *            The step name
+     * @param phase
+     *            The phase
+     * @param start
+     *            The start time (milliseconds) of the phase
+     * @param end
+     *            The end time (milliseconds) of the phase
+     */
+    public static void record(CWLInstance main, String stepName, ProfilePhase phase, long start, long end) {
+        if (main == null || main.getId() == null || stepName == null) {
+            return;
+        }
+        findStepProfile(main, stepName).add(phase, 0, start, end);
+    }
+
+    /**
+     * Records the pending, running and notification spans of a finished step
+     * job, the job start and termination time are read from the LSF job report
+     * (the job stdout), the pending span starts when the job was last submitted
+     * or released
+     * 
+     * @param instance
+     *            A CWL step instance, its job was finished
+     * @param notified
+     *            The time (milliseconds) that cwlexec was notified the job
+     *            was finished
+     */
+    public static void recordLSFJob(CWLCommandInstance instance, long notified) {
+        if (instance == null || instance.getHPCJobId() <= 0 || instance.getRuntime() == null) {
+            return;
+        }
+        Path lsfOutput = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
+                String.format("%d_out", instance.getHPCJobId()));
+        recordLSFJob(instance, 0, instance.getHPCJobId(), lsfOutput, notified);
+    }
+
+    /**
+     * Records the pending, running and notification spans of a finished
+     * scatter element job of a step, the pending span starts when the scatter
+     * jobs were submitted
+     * 
+     * @param instance
+     *            A CWL scatter step instance
+     * @param scatterIndex
+     *            The scatter element index (from 1)
+     * @param jobId
+     *            The LSF job ID of the scatter element
+     * @param notified
+     *            The time (milliseconds) that cwlexec was notified the job
+     *            was finished
+     */
+    public static void recordLSFScatterJob(CWLCommandInstance instance, int scatterIndex, long jobId,
+            long notified) {
+        if (instance == null || scatterIndex <= 0 || jobId <= 0 || instance.getRuntime() == null) {
+            return;
+        }
+        Path lsfOutput = Paths.get(instance.getRuntime().get(CommonUtil.RUNTIME_TMP_DIR),
+                String.format("scatter%d", scatterIndex), String.format("%d_out", jobId));
+        recordLSFJob(instance, scatterIndex, jobId, lsfOutput, notified);
+    }
+
+    private static void recordLSFJob(CWLCommandInstance instance, int element, long jobId, Path lsfOutput,
+            long notified) {
+        long started = -1L;
+        long terminated = -1L;
+        for (String line : IOUtil.readLSFOutputFile(lsfOutput).toString().split("\\r?\\n")) {
+            if (line.startsWith(LSF_STARTED)) {
+                started = toLSFReportTime(line.substring(LSF_STARTED.length()));
+            } else if (line.startsWith(LSF_TERMINATED)) {
+                terminated = toLSFReportTime(line.substring(LSF_TERMINATED.length()));
+            }
+        }
+        if (started == -1L || terminated == -1L) {
+            logger.debug("Cannot find the job report of step ({}) in {}", instance.getName(), lsfOutput);
+            return;
+        }
+        StepProfile stepProfile = findStepProfile(CWLExecUtil.findMainInstance(instance), instance.getName());
+        stepProfile.setJobId(element, jobId);
+        long released = stepProfile.lastEnd(ProfilePhase.SUBMIT);
+        if (released != -1L && released < started) {
+            stepProfile.add(ProfilePhase.PENDING, element, released, started);
+        }
+        stepProfile.add(ProfilePhase.RUN, element, started, terminated);
+        if (terminated < notified) {
+            stepProfile.add(ProfilePhase.NOTIFY, element, terminated, notified);
+        }
+    }
+
+    /**
+     * Records the critical path of a CWL main process and the path weight of
+     * each step, they are reported in the JSON profile
+     * 
+     * @param main
+     *            The CWL main process instance
+     * @param weights
+     *            The map of step name to the weight (the runtime of its
+     *            longest downstream path)
+     * @param criticalPath
+     *            The step names on the critical path
+     */
+    public static void recordCriticalPath(CWLInstance main, Map<String, Long> weights, List<String> criticalPath) {
+        if (main == null || main.getId() == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> weight : weights.entrySet()) {
+            findStepProfile(main, weight.getKey()).setWeight(weight.getValue());
+        }
+        criticalPaths.put(main.getId(), new ArrayList<>(criticalPath));
+    }
+
+    /**
+     * Writes the profile of a given finished CWL main process to its outputs
+     * directory, and clears the recorded spans
+     * 
+     * @param main
+     *            A finished CWL main process instance
+     */
+    public static void write(CWLInstance main) {
+        Map<String, StepProfile> stepProfiles = profiles.remove(main.getId());
+        List<String> criticalPath = criticalPaths.remove(main.getId());
+        if (stepProfiles == null || main.getRuntime() == null) {
+            return;
+        }
+        Path outputDir = Paths.get(main.getRuntime().get(CommonUtil.RUNTIME_OUTPUT_DIR));
+        try {
+            IOUtil.mkdirs(main.getOwner(), outputDir);
+            List<StepProfile> steps = new ArrayList<>(stepProfiles.values());
+            steps.sort((s1, s2) -> Long.compare(s1.firstStart(), s2.firstStart()));
+            IOUtil.write(outputDir.resolve(PROFILE_FILE).toFile(), toProfileJson(main, steps, criticalPath));
+            IOUtil.write(outputDir.resolve(METRICS_FILE).toFile(), toPrometheusText(main, steps));
+            IOUtil.write(outputDir.resolve(TRACE_FILE).toFile(),
+                    TraceEventWriter.toTraceJson(main, steps, findDependencies(main, stepProfiles)));
+            logger.debug("Wrote the profile of ({}) to {}", main.getName(), outputDir);
+        } catch (CWLException e) {
+            logger.warn(ResourceLoader.getMessage("cwl.exec.profile.write.failed", main.getName(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Clears the recorded spans of a given CWL main process, it is called
+     * when the main process ends, whether or not its profile was written
+     * 
+     * @param main
+     *            A CWL main process instance
+     */
+    public static void clear(CWLInstance main) {
+        if (main != null && main.getId() != null) {
+            profiles.remove(main.getId());
+            criticalPaths.remove(main.getId());
+        }
+    }
+
+    private static StepProfile findStepProfile(CWLInstance main, String stepName) {
+        return profiles.computeIfAbsent(main.getId(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stepName, StepProfile::new);
+    }
+
+    /*
+     * Finds the profiled steps on which each profiled step depends, they are
+     * the edges of the workflow DAG
+     */
+    private static Map<String, Set<String>> findDependencies(CWLInstance main,
+            Map<String, StepProfile> stepProfiles) {
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        if (!(main instanceof CWLWorkflowInstance)) {
+            return dependencies;
+        }
+        for (CWLInstance instance : ((CWLWorkflowInstance) main).getInstances()) {
+            if (!stepProfiles.containsKey(instance.getName()) || instance.getStep() == null
+                    || instance.getStep().getDependencies() == null) {
+                continue;
+            }
+            try {
+                Set<String> upstreams = new HashSet<>();
+                for (String upstream : CWLInstanceDependencyResolver.resolveDependentSteps(instance)) {
+                    if (stepProfiles.containsKey(upstream)) {
+                        upstreams.add(upstream);
+                    }
+                }
+                dependencies.put(instance.getName(), upstreams);
+            } catch (CWLException e) {
+                logger.debug("Cannot resolve the dependencies of step ({}): {}", instance.getName(),
+                        e.getMessage());
+            }
+        }
+        return dependencies;
+    }
+
+    private static long toLSFReportTime(String time) {
+        // e.g. Mon Oct 19 10:00:00 2026
+        SimpleDateFormat format = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy", Locale.US);
+        try {
+            return format.parse(time.trim()).getTime();
+        } catch (ParseException e) {
+            return -1L;
+        }
+    }
+
+    private static String toProfileJson(CWLInstance main, List<StepProfile> steps, List<String> criticalPath) {
+        ObjectMapper mapper = CommonUtil.getJsonMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("id", main.getId());
+        root.put("name", main.getName());
+        root.put("state", String.valueOf(main.getState()));
+        root.put("startTime", main.getStartTime());
+        root.put("endTime", main.getEndTime());
+        root.put("wallTime", wallTime(main));
+        Map<ProfilePhase, Long> totals = new EnumMap<>(ProfilePhase.class);
+        ArrayNode stepsNode = root.putArray("steps");
+        for (StepProfile step : steps) {
+            ObjectNode stepNode = stepsNode.addObject();
+            stepNode.put("name", step.getName());
+            if (step.getJobId(0) > 0) {
+                stepNode.put("jobId", step.getJobId(0));
+            }
+            if (step.getWeight() >= 0) {
+                stepNode.put("criticalPathWeight", step.getWeight());
+            }
+            ObjectNode phasesNode = stepNode.putObject("phases");
+            for (Map.Entry<ProfilePhase, Long> duration : step.durations().entrySet()) {
+                phasesNode.put(duration.getKey().getLabel(), duration.getValue());
+                totals.merge(duration.getKey(), duration.getValue(), Long::sum);
+            }
+            ArrayNode spansNode = stepNode.putArray("spans");
+            for (ProfileSpan span : step.getSpans()) {
+                ObjectNode spanNode = spansNode.addObject();
+                spanNode.put("phase", span.getPhase().getLabel());
+                if (span.getElement() > 0) {
+                    spanNode.put("element", span.getElement());
+                }
+                spanNode.put("start", span.getStart());
+                spanNode.put("end", span.getEnd());
+            }
+        }
+        ObjectNode totalsNode = mapper.createObjectNode();
+        for (Map.Entry<ProfilePhase, Long> total : totals.entrySet()) {
+            totalsNode.put(total.getKey().getLabel(), total.getValue());
+        }
+        root.set("phases", totalsNode);
+        if (criticalPath != null) {
+            ArrayNode criticalPathNode = root.putArray("criticalPath");
+            for (String stepName : criticalPath) {
+                criticalPathNode.add(stepName);
+            }
+        }
+        return CommonUtil.asPrettyJsonStr(root);
+    }
+
+    private static String toPrometheusText(CWLInstance main, List<StepProfile> steps) {
+        String workflowLabels = String.format("workflow_id=\"%s\",workflow=\"%s\"",
+                escapeLabel(main.getId()), escapeLabel(main.getName()));
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP cwlexec_workflow_wall_seconds The wall time of the workflow.\n");
+        text.append("# TYPE cwlexec_workflow_wall_seconds gauge\n");
+        text.append(String.format("cwlexec_workflow_wall_seconds{%s} %s%n", workflowLabels,
+                toSeconds(wallTime(main))));
+        Map<ProfilePhase, Long> totals = new EnumMap<>(ProfilePhase.class);
+        text.append("# HELP cwlexec_step_phase_seconds The time a step spent in a lifecycle phase.\n");
+        text.append("# TYPE cwlexec_step_phase_seconds gauge\n");
+        for (StepProfile step : steps) {
+            for (Map.Entry<ProfilePhase, Long> duration : step.durations().entrySet()) {
+                text.append(String.format("cwlexec_step_phase_seconds{%s,step=\"%s\",phase=\"%s\"} %s%n",
+                        workflowLabels, escapeLabel(step.getName()), duration.getKey().getLabel(),
+                        toSeconds(duration.getValue())));
+                totals.merge(duration.getKey(), duration.getValue(), Long::sum);
+            }
+        }
+        text.append("# HELP cwlexec_workflow_phase_seconds The time all steps spent in a lifecycle phase.\n");
+        text.append("# TYPE cwlexec_workflow_phase_seconds gauge\n");
+        for (Map.Entry<ProfilePhase, Long> total : totals.entrySet()) {
+            text.append(String.format("cwlexec_workflow_phase_seconds{%s,phase=\"%s\"} %s%n", workflowLabels,
+                    total.getKey().getLabel(), toSeconds(total.getValue())));
+        }
+        return text.toString();
+    }
+
+    private static long wallTime(CWLInstance main) {
+        if (main.getStartTime() != null && main.getEndTime() != null &&
+                main.getEndTime() >= main.getStartTime()) {
+            return main.getEndTime() - main.getStartTime();
+        }
+        return 0L;
+    }
+
+    private static String toSeconds(long millis) {
+        return String.valueOf(millis / 1000.0);
+    }
+
+    private static String escapeLabel(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
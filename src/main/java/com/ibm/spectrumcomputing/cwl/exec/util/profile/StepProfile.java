@@ -0,0 +1,98 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.profile;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The recorded spans of a step and its scatter elements
+ */
+final class StepProfile {
+
+    private final String name;
+    private final List<ProfileSpan> spans = new ArrayList<>();
+    private final Map<Integer, Long> jobIds = new HashMap<>();
+    private long weight = -1L;
+
+    StepProfile(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    synchronized long getJobId(int element) {
+        Long jobId = jobIds.get(element);
+        return jobId == null ? -1L : jobId;
+    }
+
+    synchronized void setJobId(int element, long jobId) {
+        jobIds.put(element, jobId);
+    }
+
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    synchronized void setWeight(long weight) {
+        this.weight = weight;
+    }
+
+    synchronized void add(ProfilePhase phase, int element, long start, long end) {
+        spans.add(new ProfileSpan(phase, element, start, Math.max(start, end)));
+    }
+
+    synchronized List<ProfileSpan> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    synchronized long lastEnd(ProfilePhase phase) {
+        long end = -1L;
+        for (ProfileSpan span : spans) {
+            if (span.getPhase() == phase && span.getElement() == 0) {
+                end = Math.max(end, span.getEnd());
+            }
+        }
+        return end;
+    }
+
+    synchronized long firstStart() {
+        long start = Long.MAX_VALUE;
+        for (ProfileSpan span : spans) {
+            start = Math.min(start, span.getStart());
+        }
+        return start;
+    }
+
+    /*
+     * The phase durations of the step itself, the scatter elements are
+     * excluded
+     */
+    synchronized Map<ProfilePhase, Long> durations() {
+        Map<ProfilePhase, Long> durations = new EnumMap<>(ProfilePhase.class);
+        for (ProfileSpan span : spans) {
+            if (span.getElement() == 0) {
+                durations.merge(span.getPhase(), span.getEnd() - span.getStart(), Long::sum);
+            }
+        }
+        return durations;
+    }
+}
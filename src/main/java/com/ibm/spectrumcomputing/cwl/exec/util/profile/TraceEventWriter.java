@@ -0,0 +1,190 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.exec.util.profile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+
+/*
+ * Converts the recorded spans to the trace event format (the JSON object
+ * format of "traceEvents") that can be loaded by chrome://tracing or
+ * Perfetto. Each step and each scatter element has its own track (thread),
+ * the spans are complete events and the workflow DAG edges are flow events
+ * from the last span of the upstream step to the downstream step.
+ */
+final class TraceEventWriter {
+
+    private static final String CATEGORY = "cwlexec";
+    private static final int PID = 1;
+
+    private TraceEventWriter() {
+    }
+
+    static String toTraceJson(CWLInstance main, List<StepProfile> steps, Map<String, Set<String>> dependencies) {
+        ObjectMapper mapper = CommonUtil.getJsonMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("displayTimeUnit", "ms");
+        ArrayNode events = root.putArray("traceEvents");
+        long origin = Long.MAX_VALUE;
+        for (StepProfile step : steps) {
+            origin = Math.min(origin, step.firstStart());
+        }
+        if (main.getStartTime() != null) {
+            origin = Math.min(origin, main.getStartTime());
+        }
+        addMetadata(events, "process_name", 0, "name", main.getName());
+        Map<String, Integer> stepTracks = new HashMap<>();
+        int tid = 1;
+        for (StepProfile step : steps) {
+            // group the spans by element, the step itself (0) first
+            Map<Integer, ArrayNode> elementEvents = new TreeMap<>();
+            for (ProfileSpan span : step.getSpans()) {
+                ArrayNode spanEvents = elementEvents.computeIfAbsent(span.getElement(),
+                        k -> mapper.createArrayNode());
+                ObjectNode event = spanEvents.addObject();
+                event.put("name", span.getPhase().getLabel());
+                event.put("cat", CATEGORY);
+                event.put("ph", "X");
+                event.put("pid", PID);
+                event.put("ts", toMicros(span.getStart() - origin));
+                event.put("dur", toMicros(span.getEnd() - span.getStart()));
+            }
+            for (Map.Entry<Integer, ArrayNode> entry : elementEvents.entrySet()) {
+                int element = entry.getKey();
+                String trackName = element == 0 ? step.getName() : String.format("%s[%d]", step.getName(), element);
+                addMetadata(events, "thread_name", tid, "name", trackName);
+                addMetadata(events, "thread_sort_index", tid, "sort_index", tid);
+                long jobId = step.getJobId(element);
+                for (int i = 0; i < entry.getValue().size(); i++) {
+                    ObjectNode event = (ObjectNode) entry.getValue().get(i);
+                    event.put("tid", tid);
+                    if (jobId > 0) {
+                        event.putObject("args").put("jobId", jobId);
+                    }
+                    events.add(event);
+                }
+                if (element == 0) {
+                    stepTracks.put(step.getName(), tid);
+                }
+                tid = tid + 1;
+            }
+        }
+        addFlows(events, steps, dependencies, stepTracks, origin);
+        return root.toString();
+    }
+
+    private static void addFlows(ArrayNode events,
+            List<StepProfile> steps,
+            Map<String, Set<String>> dependencies,
+            Map<String, Integer> stepTracks,
+            long origin) {
+        Map<String, StepProfile> stepProfiles = new HashMap<>();
+        for (StepProfile step : steps) {
+            stepProfiles.put(step.getName(), step);
+        }
+        int flowId = 1;
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            StepProfile downstream = stepProfiles.get(entry.getKey());
+            Integer downstreamTrack = stepTracks.get(entry.getKey());
+            if (downstream == null || downstreamTrack == null) {
+                continue;
+            }
+            for (String upstreamName : entry.getValue()) {
+                StepProfile upstream = stepProfiles.get(upstreamName);
+                Integer upstreamTrack = stepTracks.get(upstreamName);
+                if (upstream == null || upstreamTrack == null) {
+                    continue;
+                }
+                ProfileSpan from = lastSpan(upstream);
+                ProfileSpan to = from == null ? null : firstSpanAfter(downstream, from.getEnd());
+                if (to == null) {
+                    // the step was not run, e.g. it was done in the previous run
+                    continue;
+                }
+                addFlow(events, "s", flowId, upstreamTrack, toMicros(from.getStart() - origin));
+                addFlow(events, "f", flowId, downstreamTrack, toMicros(to.getStart() - origin));
+                flowId = flowId + 1;
+            }
+        }
+    }
+
+    private static ProfileSpan lastSpan(StepProfile step) {
+        ProfileSpan last = null;
+        for (ProfileSpan span : step.getSpans()) {
+            if (span.getElement() == 0 && (last == null || span.getEnd() >= last.getEnd())) {
+                last = span;
+            }
+        }
+        return last;
+    }
+
+    /*
+     * The first span of a step starts after a given time, if no such span,
+     * the last span of the step
+     */
+    private static ProfileSpan firstSpanAfter(StepProfile step, long time) {
+        ProfileSpan first = null;
+        for (ProfileSpan span : step.getSpans()) {
+            if (span.getElement() == 0 && span.getStart() >= time
+                    && (first == null || span.getStart() < first.getStart())) {
+                first = span;
+            }
+        }
+        return first != null ? first : lastSpan(step);
+    }
+
+    private static void addFlow(ArrayNode events, String ph, int id, int tid, long ts) {
+        ObjectNode event = events.addObject();
+        event.put("name", "dependency");
+        event.put("cat", CATEGORY);
+        event.put("ph", ph);
+        event.put("id", id);
+        event.put("pid", PID);
+        event.put("tid", tid);
+        event.put("ts", ts);
+        if ("f".equals(ph)) {
+            // bind to the enclosing span of the downstream step
+            event.put("bp", "e");
+        }
+    }
+
+    private static void addMetadata(ArrayNode events, String name, int tid, String argName, Object argValue) {
+        ObjectNode event = events.addObject();
+        event.put("name", name);
+        event.put("ph", "M");
+        event.put("pid", PID);
+        event.put("tid", tid);
+        ObjectNode args = event.putObject("args");
+        if (argValue instanceof Integer) {
+            args.put(argName, (Integer) argValue);
+        } else {
+            args.put(argName, String.valueOf(argValue));
+        }
+    }
+
+    private static long toMicros(long millis) {
+        return millis * 1000L;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.model.conf;
+
+/**
+ * Represents the resource reservation auto-tune configuration, the memory
+ * reservation of a step job is sized from the actual memory usage of the
+ * previous jobs of the same tool with a similar input size
+ */
+public class AutoTuneConf {
+
+    private int percentile = 95;
+    private int margin = 20;
+    private int minSamples = 3;
+
+    /**
+     * Returns the percentile of the historical maximum memory usage that is
+     * reserved (rusage[mem=...])
+     * 
+     * @return The percentile (1-100), the default is 95
+     */
+    public int getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Sets the percentile of the historical maximum memory usage that is
+     * reserved
+     * 
+     * @param percentile
+     *            The percentile (1-100)
+     */
+    public void setPercentile(int percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * Returns the safety margin (percent) that is added to the memory
+     * reservation and limit
+     * 
+     * @return The safety margin (percent), the default is 20
+     */
+    public int getMargin() {
+        return margin;
+    }
+
+    /**
+     * Sets the safety margin (percent) that is added to the memory reservation
+     * and limit
+     * 
+     * @param margin
+     *            The safety margin (percent)
+     */
+    public void setMargin(int margin) {
+        this.margin = margin;
+    }
+
+    /**
+     * Returns the minimum number of historical jobs that are required to tune
+     * the reservation, if there are fewer jobs, the ResourceRequirement is
+     * used
+     * 
+     * @return The minimum number of historical jobs, the default is 3
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    /**
+     * Sets the minimum number of historical jobs that are required to tune the
+     * reservation
+     * 
+     * @param minSamples
+     *            The minimum number of historical jobs
+     */
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+}
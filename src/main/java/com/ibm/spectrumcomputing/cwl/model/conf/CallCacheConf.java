@@ -0,0 +1,85 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.model.conf;
+
+/**
+ * Represents the step call cache configuration
+ */
+public class CallCacheConf {
+
+    private String dir;
+    private int maxEntries;
+    private long maxSize;
+
+    /**
+     * Returns the directory of the call cache
+     * 
+     * @return The directory of the call cache
+     */
+    public String getDir() {
+        return dir;
+    }
+
+    /**
+     * Sets the directory of the call cache
+     * 
+     * @param dir
+     *            The directory of the call cache
+     */
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the maximum number of the call cache entries, the least recently
+     * used entries are evicted when the number is exceeded
+     * 
+     * @return The maximum number of the call cache entries, 0 means unlimited
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of the call cache entries
+     * 
+     * @param maxEntries
+     *            The maximum number of the call cache entries
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the maximum size (MB) of the call cache, the least recently used
+     * entries are evicted when the size is exceeded
+     * 
+     * @return The maximum size (MB) of the call cache, 0 means unlimited
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum size (MB) of the call cache
+     * 
+     * @param maxSize
+     *            The maximum size (MB) of the call cache
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.model.conf;
+
+/**
+ * Represents the critical path submission configuration, the steps are
+ * submitted in descending order of their longest downstream path, the path is
+ * weighted by the historical runtimes of the steps
+ */
+public class CriticalPathConf {
+
+    private int maxPriority;
+
+    /**
+     * Returns the maximum LSF user priority (bsub -sp), the step on the
+     * critical path is submitted with this priority and the other steps are
+     * submitted with a priority in proportion to their downstream path
+     * 
+     * @return The maximum LSF user priority, 0 means the user priority is not
+     *         specified
+     */
+    public int getMaxPriority() {
+        return maxPriority;
+    }
+
+    /**
+     * Sets the maximum LSF user priority (bsub -sp)
+     * 
+     * @param maxPriority
+     *            The maximum LSF user priority
+     */
+    public void setMaxPriority(int maxPriority) {
+        this.maxPriority = maxPriority;
+    }
+}
@@ -21,6 +21,13 @@ import java.util.Map;
  * Represents the cwlexec execution configuration on main process level
  */
 public class FlowExecConf {
+
+    /**
+     * The scatter chunk size that is adapted from the runtimes of the previous
+     * runs of a scatter step
+     */
+    public static final int ADAPTIVE_SCATTER_CHUNK_SIZE = 0;
+
     private String app;
     private String resource;
     private String queue;
@@ -28,6 +35,17 @@ public class FlowExecConf {
     private boolean rerunnable;
     private String processors;
     private PostFailureScript pfscript;
+    private String scratch;
+    private boolean scratchOutdir;
+    private CallCacheConf callCache;
+    private CriticalPathConf criticalPath;
+    private AutoTuneConf autoTune;
+    private Integer scatterChunkSize;
+    private boolean pipelineScatter;
+    private boolean local;
+    private Integer localMaxRuntime;
+    private Integer localSlots;
+    private boolean fuseChains;
     private Map<String, StepExecConf> steps;
 
     /**
@@ -180,4 +198,229 @@ public class FlowExecConf {
     public void setPostFailureScript(PostFailureScript postFailureScript) {
         this.pfscript = postFailureScript;
     }
+
+    /**
+     * Returns the node-local scratch directory, e.g. $LSF_TMPDIR or
+     * /local/scratch, the TMPDIR of a job is pointed to it
+     * 
+     * @return The node-local scratch directory
+     */
+    public String getScratch() {
+        return scratch;
+    }
+
+    /**
+     * Sets the node-local scratch directory
+     * 
+     * @param scratch
+     *            The node-local scratch directory
+     */
+    public void setScratch(String scratch) {
+        this.scratch = scratch;
+    }
+
+    /**
+     * Returns whether a job runs in the node-local scratch directory, in this
+     * case, the job inputs are staged in and the job outputs are staged out
+     * 
+     * @return The scratch outdir option
+     */
+    public boolean isScratchOutdir() {
+        return scratchOutdir;
+    }
+
+    /**
+     * Sets whether a job runs in the node-local scratch directory
+     * 
+     * @param scratchOutdir
+     *            The scratch outdir option
+     */
+    public void setScratchOutdir(boolean scratchOutdir) {
+        this.scratchOutdir = scratchOutdir;
+    }
+
+    /**
+     * Returns the step call cache configuration
+     * 
+     * @return The step call cache configuration, null means the call cache is
+     *         disabled
+     */
+    public CallCacheConf getCallCache() {
+        return callCache;
+    }
+
+    /**
+     * Sets the step call cache configuration
+     * 
+     * @param callCache
+     *            The step call cache configuration
+     */
+    public void setCallCache(CallCacheConf callCache) {
+        this.callCache = callCache;
+    }
+
+    /**
+     * Returns the critical path submission configuration
+     * 
+     * @return The critical path submission configuration, null means the steps
+     *         are submitted in the workflow order
+     */
+    public CriticalPathConf getCriticalPath() {
+        return criticalPath;
+    }
+
+    /**
+     * Sets the critical path submission configuration
+     * 
+     * @param criticalPath
+     *            The critical path submission configuration
+     */
+    public void setCriticalPath(CriticalPathConf criticalPath) {
+        this.criticalPath = criticalPath;
+    }
+
+    /**
+     * Returns the resource reservation auto-tune configuration
+     * 
+     * @return The resource reservation auto-tune configuration, null means the
+     *         reservation is not tuned
+     */
+    public AutoTuneConf getAutoTune() {
+        return autoTune;
+    }
+
+    /**
+     * Sets the resource reservation auto-tune configuration
+     * 
+     * @param autoTune
+     *            The resource reservation auto-tune configuration
+     */
+    public void setAutoTune(AutoTuneConf autoTune) {
+        this.autoTune = autoTune;
+    }
+
+    /**
+     * Returns the number of consecutive scatter elements that are packed into
+     * one LSF job
+     * 
+     * @return The scatter chunk size, null means each scatter element is
+     *         submitted as its own job, {@link #ADAPTIVE_SCATTER_CHUNK_SIZE}
+     *         means the size is adapted from the previous runs
+     */
+    public Integer getScatterChunkSize() {
+        return scatterChunkSize;
+    }
+
+    /**
+     * Sets the number of consecutive scatter elements that are packed into one
+     * LSF job
+     * 
+     * @param scatterChunkSize
+     *            The scatter chunk size
+     */
+    public void setScatterChunkSize(Integer scatterChunkSize) {
+        this.scatterChunkSize = scatterChunkSize;
+    }
+
+    /**
+     * Returns whether the scatter elements of a step are released as soon as
+     * the corresponding scatter elements of its upstream scatter step are done
+     * 
+     * @return The pipeline scatter option
+     */
+    public boolean isPipelineScatter() {
+        return pipelineScatter;
+    }
+
+    /**
+     * Sets whether the scatter elements of a step are released as soon as the
+     * corresponding scatter elements of its upstream scatter step are done
+     * 
+     * @param pipelineScatter
+     *            The pipeline scatter option
+     */
+    public void setPipelineScatter(boolean pipelineScatter) {
+        this.pipelineScatter = pipelineScatter;
+    }
+
+    /**
+     * Returns whether the steps run as local processes on the submission host
+     * instead of LSF jobs
+     * 
+     * @return The local option
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
+    /**
+     * Sets whether the steps run as local processes on the submission host
+     * instead of LSF jobs
+     * 
+     * @param local
+     *            The local option
+     */
+    public void setLocal(boolean local) {
+        this.local = local;
+    }
+
+    /**
+     * Returns the runtime (in seconds) under which a step runs as a local
+     * process, the runtime of a step is the median runtime of the previous
+     * jobs of the same tool
+     * 
+     * @return The local max runtime, null if it is not configured
+     */
+    public Integer getLocalMaxRuntime() {
+        return localMaxRuntime;
+    }
+
+    /**
+     * Sets the runtime (in seconds) under which a step runs as a local process
+     * 
+     * @param localMaxRuntime
+     *            The local max runtime
+     */
+    public void setLocalMaxRuntime(Integer localMaxRuntime) {
+        this.localMaxRuntime = localMaxRuntime;
+    }
+
+    /**
+     * Returns the number of the local steps that can run at the same time
+     * 
+     * @return The local slots, null if it is not configured
+     */
+    public Integer getLocalSlots() {
+        return localSlots;
+    }
+
+    /**
+     * Sets the number of the local steps that can run at the same time
+     * 
+     * @param localSlots
+     *            The local slots
+     */
+    public void setLocalSlots(Integer localSlots) {
+        this.localSlots = localSlots;
+    }
+
+    /**
+     * Returns whether the linear chains of steps are fused, the steps of a
+     * chain run in one LSF job
+     * 
+     * @return The fuse chains option
+     */
+    public boolean isFuseChains() {
+        return fuseChains;
+    }
+
+    /**
+     * Sets whether the linear chains of steps are fused
+     * 
+     * @param fuseChains
+     *            The fuse chains option
+     */
+    public void setFuseChains(boolean fuseChains) {
+        this.fuseChains = fuseChains;
+    }
 }
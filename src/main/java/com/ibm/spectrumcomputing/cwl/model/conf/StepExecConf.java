@@ -27,6 +27,12 @@ public class StepExecConf {
     private String resource;
     private String processors;
     private PostFailureScript pfscript;
+    private String scratch;
+    private Boolean scratchOutdir;
+    private Integer scatterChunkSize;
+    private Boolean pipelineScatter;
+    private Boolean local;
+    private Integer localMaxRuntime;
 
     /**
      * Returns the LSF application profile option for a given step
@@ -157,4 +163,128 @@ public class StepExecConf {
     public void setPostFailureScript(PostFailureScript postFailureScript) {
         this.pfscript = postFailureScript;
     }
+
+    /**
+     * Returns the node-local scratch directory for a given step
+     * 
+     * @return The node-local scratch directory
+     */
+    public String getScratch() {
+        return scratch;
+    }
+
+    /**
+     * Sets the node-local scratch directory for a given step
+     * 
+     * @param scratch
+     *            The node-local scratch directory
+     */
+    public void setScratch(String scratch) {
+        this.scratch = scratch;
+    }
+
+    /**
+     * Returns whether a given step runs in the node-local scratch directory
+     * 
+     * @return The scratch outdir option, null if it is not configured
+     */
+    public Boolean getScratchOutdir() {
+        return scratchOutdir;
+    }
+
+    /**
+     * Sets whether a given step runs in the node-local scratch directory
+     * 
+     * @param scratchOutdir
+     *            The scratch outdir option
+     */
+    public void setScratchOutdir(Boolean scratchOutdir) {
+        this.scratchOutdir = scratchOutdir;
+    }
+
+    /**
+     * Returns the number of consecutive scatter elements of a given step that
+     * are packed into one LSF job
+     * 
+     * @return The scatter chunk size, null if it is not configured
+     */
+    public Integer getScatterChunkSize() {
+        return scatterChunkSize;
+    }
+
+    /**
+     * Sets the number of consecutive scatter elements of a given step that are
+     * packed into one LSF job
+     * 
+     * @param scatterChunkSize
+     *            The scatter chunk size
+     */
+    public void setScatterChunkSize(Integer scatterChunkSize) {
+        this.scatterChunkSize = scatterChunkSize;
+    }
+
+    /**
+     * Returns whether the scatter elements of a given step are released as
+     * soon as the corresponding scatter elements of its upstream scatter step
+     * are done
+     * 
+     * @return The pipeline scatter option, null if it is not configured
+     */
+    public Boolean getPipelineScatter() {
+        return pipelineScatter;
+    }
+
+    /**
+     * Sets whether the scatter elements of a given step are released as soon
+     * as the corresponding scatter elements of its upstream scatter step are
+     * done
+     * 
+     * @param pipelineScatter
+     *            The pipeline scatter option
+     */
+    public void setPipelineScatter(Boolean pipelineScatter) {
+        this.pipelineScatter = pipelineScatter;
+    }
+
+    /**
+     * Returns whether a given step runs as a local process on the submission
+     * host instead of a LSF job
+     * 
+     * @return The local option, null if it is not configured
+     */
+    public Boolean getLocal() {
+        return local;
+    }
+
+    /**
+     * Sets whether a given step runs as a local process on the submission
+     * host instead of a LSF job
+     * 
+     * @param local
+     *            The local option
+     */
+    public void setLocal(Boolean local) {
+        this.local = local;
+    }
+
+    /**
+     * Returns the runtime (in seconds) under which a given step runs as a
+     * local process
+     * 
+     * @return The local max runtime, null if it is not configured
+     */
+    public Integer getLocalMaxRuntime() {
+        return localMaxRuntime;
+    }
+
+    /**
+     * Sets the runtime (in seconds) under which a given step runs as a local
+     * process
+     * 
+     * @param localMaxRuntime
+     *            The local max runtime
+     */
+    public void setLocalMaxRuntime(Integer localMaxRuntime) {
+        this.localMaxRuntime = localMaxRuntime;
+    }
 }
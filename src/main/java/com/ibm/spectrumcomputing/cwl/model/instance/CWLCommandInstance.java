@@ -40,6 +40,9 @@ public class CWLCommandInstance extends CWLInstance {
     private List<String> scatter;
     private ScatterMethod scatterMethod;
     private List<CWLScatterHolder> scatterHolders;
+    private long reclaimedBytes = -1L;
+    private int userPriority;
+    private String fusedHead;
 
     /**
      * Constructs a CWL CommandLineTool instance if the corresponding process is
@@ -216,4 +219,67 @@ public class CWLCommandInstance extends CWLInstance {
     public void setScatterHolders(List<CWLScatterHolder> scatterHolders) {
         this.scatterHolders = scatterHolders;
     }
+
+    /**
+     * Returns the bytes of intermediate outputs that were reclaimed after all
+     * consumers of this instance were done
+     * 
+     * @return The reclaimed bytes, -1 means the intermediate outputs of this
+     *         instance were not reclaimed
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    /**
+     * Sets the bytes of intermediate outputs that were reclaimed
+     * 
+     * @param reclaimedBytes
+     *            The reclaimed bytes
+     */
+    public void setReclaimedBytes(long reclaimedBytes) {
+        this.reclaimedBytes = reclaimedBytes;
+    }
+
+    /**
+     * Returns the LSF user priority (bsub -sp) of this instance, it is
+     * resolved from the critical path of the workflow
+     * 
+     * @return The LSF user priority, 0 means the priority is not specified
+     */
+    public int getUserPriority() {
+        return userPriority;
+    }
+
+    /**
+     * Sets the LSF user priority (bsub -sp) of this instance
+     * 
+     * @param userPriority
+     *            The LSF user priority
+     */
+    public void setUserPriority(int userPriority) {
+        this.userPriority = userPriority;
+    }
+
+    /**
+     * Returns the name of the head step of the fused chain that this instance
+     * belongs to, the steps of a fused chain run in one LSF job
+     * 
+     * @return The name of the chain head step, null if this instance is not
+     *         fused
+     */
+    public String getFusedHead() {
+        return fusedHead;
+    }
+
+    /**
+     * Sets the name of the head step of the fused chain that this instance
+     * belongs to
+     * 
+     * @param fusedHead
+     *            The name of the chain head step
+     */
+    public void setFusedHead(String fusedHead) {
+        this.fusedHead = fusedHead;
+    }
 }
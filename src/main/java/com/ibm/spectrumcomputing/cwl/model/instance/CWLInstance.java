@@ -17,11 +17,13 @@ package com.ibm.spectrumcomputing.cwl.model.instance;
 
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.ibm.spectrumcomputing.cwl.model.RuntimeEnv;
 import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
 import com.ibm.spectrumcomputing.cwl.model.process.CWLProcess;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.Requirement;
 import com.ibm.spectrumcomputing.cwl.model.process.workflow.WorkflowStep;
 
 /**
@@ -55,6 +57,9 @@ public abstract class CWLInstance {
 
     private WorkflowStep step;
 
+    private volatile Map<String, Requirement> effectiveRequirements;
+    private volatile CWLInstance mainInstance;
+
     /**
      * Constructs a CWL process instance
      * 
@@ -337,5 +342,49 @@ public abstract class CWLInstance {
      */
     public void setStep(WorkflowStep step) {
         this.step = step;
+        // the step requirements override the others, resolve them again
+        this.effectiveRequirements = null;
+    }
+
+    /**
+     * Returns the effective requirements of this instance, keyed by the
+     * requirement class name
+     * 
+     * @return The effective requirements, or null if they are not resolved
+     */
+    @JsonIgnore
+    public Map<String, Requirement> getEffectiveRequirements() {
+        return effectiveRequirements;
+    }
+
+    /**
+     * Sets the resolved effective requirements of this instance
+     * 
+     * @param effectiveRequirements
+     *            The effective requirements, keyed by the requirement class
+     *            name
+     */
+    public void setEffectiveRequirements(Map<String, Requirement> effectiveRequirements) {
+        this.effectiveRequirements = effectiveRequirements;
+    }
+
+    /**
+     * Returns the main instance of this instance
+     * 
+     * @return The main instance, or null if it is not resolved
+     */
+    @JsonIgnore
+    public CWLInstance getMainInstance() {
+        return mainInstance;
+    }
+
+    /**
+     * Sets the resolved main instance of this instance
+     * 
+     * @param mainInstance
+     *            The main instance, for a main instance, it is itself
+     */
+    public void setMainInstance(CWLInstance mainInstance) {
+        this.mainInstance = mainInstance;
     }
 }
@@ -27,6 +27,8 @@ public class CWLScatterHolder {
     private int scatterIndex;
     private List<CommandInputParameter> inputs;
     private List<String> command;
+    private int chunkSize = 1;
+    private long hpcJobId = -1L;
 
     /**
      * Returns the index of a scatter step
@@ -84,4 +86,46 @@ public class CWLScatterHolder {
     public void setCommand(List<String> command) {
         this.command = command;
     }
+
+    /**
+     * Returns the number of consecutive scatter steps that are run by the
+     * command of this scatter step
+     * 
+     * @return The scatter chunk size, 0 means this scatter step is packed into
+     *         the command of a preceding scatter step
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of consecutive scatter steps that are run by the command
+     * of this scatter step, the default is 1
+     * 
+     * @param chunkSize
+     *            The scatter chunk size
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the LSF job ID of a scatter step
+     * 
+     * @return The LSF job ID, -1 if the scatter step was not submitted
+     */
+    public long getHPCJobId() {
+        return hpcJobId;
+    }
+
+    /**
+     * Sets the LSF job ID of a scatter step, a packed scatter step takes the
+     * job ID of its chunk
+     * 
+     * @param hpcJobId
+     *            The LSF job ID
+     */
+    public void setHPCJobId(long hpcJobId) {
+        this.hpcJobId = hpcJobId;
+    }
 }
@@ -0,0 +1,207 @@
+package com.ibm.spectrumcomputing.cwl.model.persistence;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.GenericGenerator;
+
+/**
+ * Represents the persistence object for the actual resource usage of a
+ * finished step job, the records are grouped by the tool and the input size
+ * bucket and used to tune the resource reservation of the later jobs
+ */
+@Entity
+@Table(name = "cwlJobUsage", indexes = {
+        @Index(name = "cwlJobUsage_toolKey_sizeBucket", columnList = "toolKey,sizeBucket") })
+public class CWLJobUsageRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "id")
+    private String id;
+
+    @Column(name = "toolKey", nullable = false, length = 1024)
+    private String toolKey;
+
+    @Column(name = "sizeBucket", nullable = false)
+    private Integer sizeBucket;
+
+    @Column(name = "hpcJobId", nullable = false)
+    private Long hpcJobId = -1L;
+
+    @Column(name = "maxMem", nullable = true)
+    private Long maxMem;
+
+    @Column(name = "runTime", nullable = true)
+    private Long runTime;
+
+    @Column(name = "cpuUsed", nullable = true)
+    private Double cpuUsed;
+
+    @Column(name = "endTime", nullable = true)
+    private Long endTime;
+
+    /**
+     * Returns an UUID for this record
+     * 
+     * @return An UUID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the record ID for this record, it is called by Hibernate framework
+     * automatically
+     * 
+     * @param id
+     *            A record ID
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the key of the tool that the job ran, it is the tool description
+     * file path and the tool ID
+     * 
+     * @return The tool key
+     */
+    public String getToolKey() {
+        return toolKey;
+    }
+
+    /**
+     * Sets the key of the tool that the job ran
+     * 
+     * @param toolKey
+     *            The tool key
+     */
+    public void setToolKey(String toolKey) {
+        this.toolKey = toolKey;
+    }
+
+    /**
+     * Returns the input size bucket of the job, the bucket is the binary
+     * order of magnitude of the total input file size in MB
+     * 
+     * @return The input size bucket
+     */
+    public Integer getSizeBucket() {
+        return sizeBucket;
+    }
+
+    /**
+     * Sets the input size bucket of the job
+     * 
+     * @param sizeBucket
+     *            The input size bucket
+     */
+    public void setSizeBucket(Integer sizeBucket) {
+        this.sizeBucket = sizeBucket;
+    }
+
+    /**
+     * Returns the LSF job ID
+     * 
+     * @return The LSF job ID
+     */
+    public Long getHpcJobId() {
+        return hpcJobId;
+    }
+
+    /**
+     * Sets the LSF job ID
+     * 
+     * @param hpcJobId
+     *            The LSF job ID
+     */
+    public void setHpcJobId(Long hpcJobId) {
+        this.hpcJobId = hpcJobId;
+    }
+
+    /**
+     * Returns the maximum memory (MB) that the job used
+     * 
+     * @return The maximum memory (MB), null if it is unknown
+     */
+    public Long getMaxMem() {
+        return maxMem;
+    }
+
+    /**
+     * Sets the maximum memory (MB) that the job used
+     * 
+     * @param maxMem
+     *            The maximum memory (MB)
+     */
+    public void setMaxMem(Long maxMem) {
+        this.maxMem = maxMem;
+    }
+
+    /**
+     * Returns the run time (seconds) of the job
+     * 
+     * @return The run time (seconds), null if it is unknown
+     */
+    public Long getRunTime() {
+        return runTime;
+    }
+
+    /**
+     * Sets the run time (seconds) of the job
+     * 
+     * @param runTime
+     *            The run time (seconds)
+     */
+    public void setRunTime(Long runTime) {
+        this.runTime = runTime;
+    }
+
+    /**
+     * Returns the CPU time (seconds) that the job used
+     * 
+     * @return The CPU time (seconds), null if it is unknown
+     */
+    public Double getCpuUsed() {
+        return cpuUsed;
+    }
+
+    /**
+     * Sets the CPU time (seconds) that the job used
+     * 
+     * @param cpuUsed
+     *            The CPU time (seconds)
+     */
+    public void setCpuUsed(Double cpuUsed) {
+        this.cpuUsed = cpuUsed;
+    }
+
+    /**
+     * Returns the time that the job usage was recorded
+     * 
+     * @return The record time
+     */
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Sets the time that the job usage was recorded
+     * 
+     * @param endTime
+     *            The record time
+     */
+    public void setEndTime(Long endTime) {
+        this.endTime = endTime;
+    }
+}
@@ -14,7 +14,8 @@ import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
  * corresponds with one instance
  */
 @Entity
-@Table(name = "cwlWorkflow")
+@Table(name = "cwlWorkflow", indexes = {
+        @Index(name = "cwlWorkflow_state_submitTime", columnList = "state,submitTime") })
 public class CWLMainProcessRecord implements Serializable {
 
     private static final long serialVersionUID = 1L;
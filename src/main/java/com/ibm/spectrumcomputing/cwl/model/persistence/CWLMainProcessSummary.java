@@ -0,0 +1,115 @@
+package com.ibm.spectrumcomputing.cwl.model.persistence;
+
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
+
+/**
+ * Represents a read-only projection of {@link CWLMainProcessRecord}, it only
+ * holds the columns that are shown when listing the CWL main processes
+ */
+public class CWLMainProcessSummary {
+
+    private final String id;
+    private final String name;
+    private final Long submitTime;
+    private final Long startTime;
+    private final Long endTime;
+    private final CWLInstanceState state;
+    private final Integer exitCode;
+
+    /**
+     * Constructs this object, it is called by the Hibernate query
+     * 
+     * @param id
+     *            The record ID
+     * @param name
+     *            The process name
+     * @param submitTime
+     *            The submit time
+     * @param startTime
+     *            The start time
+     * @param endTime
+     *            The end time
+     * @param state
+     *            The process state
+     * @param exitCode
+     *            The exit code
+     */
+    public CWLMainProcessSummary(String id,
+            String name,
+            Long submitTime,
+            Long startTime,
+            Long endTime,
+            CWLInstanceState state,
+            Integer exitCode) {
+        this.id = id;
+        this.name = name;
+        this.submitTime = submitTime;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.state = state;
+        this.exitCode = exitCode;
+    }
+
+    /**
+     * Returns the record ID
+     * 
+     * @return The record ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the process name
+     * 
+     * @return The process name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the submit time
+     * 
+     * @return The submit time
+     */
+    public Long getSubmitTime() {
+        return submitTime;
+    }
+
+    /**
+     * Returns the start time
+     * 
+     * @return The start time
+     */
+    public Long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the end time
+     * 
+     * @return The end time
+     */
+    public Long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the process state
+     * 
+     * @return The process state
+     */
+    public CWLInstanceState getState() {
+        return state;
+    }
+
+    /**
+     * Returns the exit code
+     * 
+     * @return The exit code
+     */
+    public Integer getExitCode() {
+        return exitCode;
+    }
+}
@@ -8,6 +8,8 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
 import javax.persistence.Table;
 
 import org.hibernate.annotations.GenericGenerator;
@@ -20,7 +22,9 @@ import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
  * corresponds with one instance
  */
 @Entity
-@Table(name = "cwlStep")
+@Table(name = "cwlStep", indexes = {
+        @Index(name = "cwlStep_parentId_state", columnList = "parentId,state"),
+        @Index(name = "cwlStep_parentId_name", columnList = "parentId,name") })
 public class CWLStepProcessRecord implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -63,6 +67,16 @@ public class CWLStepProcessRecord implements Serializable {
     @Column(name = "endTime", nullable = true)
     private Long endTime;
 
+    @Column(name = "reclaimedBytes", nullable = true)
+    private Long reclaimedBytes;
+
+    @Column(name = "fusedHead", nullable = true)
+    private String fusedHead;
+
+    @Lob
+    @Column(name = "outputs", nullable = true)
+    private String outputs;
+
     /**
      * Returns an UUID for this record
      * 
@@ -273,4 +287,68 @@ public class CWLStepProcessRecord implements Serializable {
     public void setEndTime(Long endTime) {
         this.endTime = endTime;
     }
+
+    /**
+     * Returns the bytes of intermediate outputs that were reclaimed for this
+     * record
+     * 
+     * @return The reclaimed bytes, if the intermediate outputs were not
+     *         reclaimed, return null
+     */
+    public Long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    /**
+     * Records the bytes of intermediate outputs that were reclaimed for
+     * corresponding instance
+     * 
+     * @param reclaimedBytes
+     *            The reclaimed bytes
+     */
+    public void setReclaimedBytes(Long reclaimedBytes) {
+        this.reclaimedBytes = reclaimedBytes;
+    }
+
+    /**
+     * Returns the name of the head step of the fused chain that corresponding
+     * instance belongs to, the steps of a fused chain share the LSF job ID
+     * 
+     * @return The name of the chain head step, if the instance was not fused,
+     *         return null
+     */
+    public String getFusedHead() {
+        return fusedHead;
+    }
+
+    /**
+     * Records the name of the head step of the fused chain that corresponding
+     * instance belongs to
+     * 
+     * @param fusedHead
+     *            The name of the chain head step
+     */
+    public void setFusedHead(String fusedHead) {
+        this.fusedHead = fusedHead;
+    }
+
+    /**
+     * Returns the captured outputs (JSON) of this step, it is kept after the
+     * step is done
+     * 
+     * @return The captured outputs
+     */
+    public String getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Sets the captured outputs (JSON) of this step
+     * 
+     * @param outputs
+     *            The captured outputs
+     */
+    public void setOutputs(String outputs) {
+        this.outputs = outputs;
+    }
 }
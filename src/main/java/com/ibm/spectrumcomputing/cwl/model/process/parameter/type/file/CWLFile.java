@@ -15,17 +15,40 @@
  */
 package com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file;
 
+import java.io.File;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 /**
  * Represents a CWLFile object
+ * <p>
+ * To keep a huge number of files in a small heap, the path is kept as an
+ * interned parent directory and a file name. The location, dirname, nameroot
+ * and nameext are derived from the path or the basename on access if they
+ * have the derived values, and the size can be read from the file system on
+ * the first access.
  */
 @JsonInclude(Include.NON_NULL)
+@JsonPropertyOrder({ "location", "path", "basename", "srcPath", "dirname", "nameroot", "nameext", "checksum",
+        "size", "secondaryFiles", "format", "contents", "class" })
 public class CWLFile extends CWLFileBase {
 
+    private static final String FILE_PREFIX = "file://";
+
+    // the fields are derived, instead of being kept
+    private static final int LOCATION_PATH = 1;
+    private static final int LOCATION_URI = 1 << 1;
+    private static final int DIRNAME = 1 << 2;
+    private static final int NAMEROOT = 1 << 3;
+    private static final int NAMEEXT = 1 << 4;
+    private static final int SIZE = 1 << 5;
+
+    private String parent;
+    private String name;
+    private byte derived;
     private String dirname;
     private String nameroot;
     private String nameext;
@@ -35,6 +58,105 @@ public class CWLFile extends CWLFileBase {
     private String format;
     private String contents;
 
+    /**
+     * Returns an IRI that identifies the file resource.
+     * 
+     * @return A file location
+     */
+    @Override
+    public String getLocation() {
+        if ((derived & LOCATION_PATH) != 0) {
+            return getPath();
+        }
+        if ((derived & LOCATION_URI) != 0) {
+            return FILE_PREFIX + getPath();
+        }
+        return super.getLocation();
+    }
+
+    /**
+     * Sets an IRI that identifies the file resource.
+     * 
+     * @param location
+     *            A file location
+     */
+    @Override
+    public void setLocation(String location) {
+        derived &= ~(LOCATION_PATH | LOCATION_URI);
+        super.setLocation(location);
+        deriveLocation();
+    }
+
+    /**
+     * Returns a local host path where the File is available when a
+     * CommandLineTool is executed.
+     * 
+     * @return A file path
+     */
+    @Override
+    public String getPath() {
+        if (parent == null) {
+            return name;
+        }
+        return parent + File.separatorChar + name;
+    }
+
+    /**
+     * Sets a local host path where the File is available when a
+     * CommandLineTool is executed.
+     * 
+     * @param path
+     *            A file path
+     */
+    @Override
+    public void setPath(String path) {
+        // keep the values which were derived from the previous path
+        if ((derived & (LOCATION_PATH | LOCATION_URI)) != 0) {
+            super.setLocation(getLocation());
+        }
+        if ((derived & DIRNAME) != 0) {
+            dirname = deriveDirname();
+        }
+        if ((derived & SIZE) != 0) {
+            size = statSize();
+        }
+        derived &= ~(LOCATION_PATH | LOCATION_URI | DIRNAME | SIZE);
+        int index = path == null ? -1 : path.lastIndexOf(File.separatorChar);
+        if (index == -1) {
+            parent = null;
+            name = path;
+        } else {
+            parent = path.substring(0, index).intern();
+            name = path.substring(index + 1);
+        }
+        if (name != null && name.equals(super.getBasename())) {
+            super.setBasename(name);
+        }
+        deriveLocation();
+        setDirname(dirname);
+    }
+
+    /**
+     * Sets the base name of a file
+     * 
+     * @param basename
+     *            The base name of a file
+     */
+    @Override
+    public void setBasename(String basename) {
+        // keep the values which were derived from the previous basename
+        if ((derived & NAMEROOT) != 0) {
+            nameroot = deriveNameroot();
+        }
+        if ((derived & NAMEEXT) != 0) {
+            nameext = deriveNameext();
+        }
+        derived &= ~(NAMEROOT | NAMEEXT);
+        super.setBasename(basename != null && basename.equals(name) ? name : basename);
+        setNameroot(nameroot);
+        setNameext(nameext);
+    }
+
     /**
      * Returns the name of the directory containing file, that is, the path
      * leading up to the final slash in the path such that dirname + '/' +
@@ -43,7 +165,7 @@ public class CWLFile extends CWLFileBase {
      * @return The name of the directory containing file
      */
     public String getDirname() {
-        return dirname;
+        return (derived & DIRNAME) != 0 ? deriveDirname() : dirname;
     }
 
     /**
@@ -55,7 +177,13 @@ public class CWLFile extends CWLFileBase {
      *            The name of the directory containing file
      */
     public void setDirname(String dirname) {
-        this.dirname = dirname;
+        if (dirname != null && dirname.equals(deriveDirname())) {
+            this.dirname = null;
+            derived |= DIRNAME;
+        } else {
+            this.dirname = dirname;
+            derived &= ~DIRNAME;
+        }
     }
 
     /**
@@ -67,7 +195,7 @@ public class CWLFile extends CWLFileBase {
      * @return The root name of a file
      */
     public String getNameroot() {
-        return nameroot;
+        return (derived & NAMEROOT) != 0 ? deriveNameroot() : nameroot;
     }
 
     /**
@@ -80,7 +208,13 @@ public class CWLFile extends CWLFileBase {
      *            The root name of a file
      */
     public void setNameroot(String nameroot) {
-        this.nameroot = nameroot;
+        if (nameroot != null && nameroot.equals(deriveNameroot())) {
+            this.nameroot = null;
+            derived |= NAMEROOT;
+        } else {
+            this.nameroot = nameroot;
+            derived &= ~NAMEROOT;
+        }
     }
 
     /**
@@ -92,7 +226,7 @@ public class CWLFile extends CWLFileBase {
      * @return The extension name of a file
      */
     public String getNameext() {
-        return nameext;
+        return (derived & NAMEEXT) != 0 ? deriveNameext() : nameext;
     }
 
     /**
@@ -105,7 +239,13 @@ public class CWLFile extends CWLFileBase {
      *            The extension name of a file
      */
     public void setNameext(String nameext) {
-        this.nameext = nameext;
+        if (nameext != null && nameext.equals(deriveNameext())) {
+            this.nameext = null;
+            derived |= NAMEEXT;
+        } else {
+            this.nameext = nameext;
+            derived &= ~NAMEEXT;
+        }
     }
 
     /**
@@ -135,6 +275,10 @@ public class CWLFile extends CWLFileBase {
      * @return The file size
      */
     public long getSize() {
+        if ((derived & SIZE) != 0) {
+            size = statSize();
+            derived &= ~SIZE;
+        }
         return size;
     }
 
@@ -146,6 +290,16 @@ public class CWLFile extends CWLFileBase {
      */
     public void setSize(long size) {
         this.size = size;
+        derived &= ~SIZE;
+    }
+
+    /**
+     * Reads the file size from the file system on the first access of the
+     * size, instead of now. If the file was removed before the first access,
+     * the size is 0
+     */
+    public void deferSize() {
+        derived |= SIZE;
     }
 
     /**
@@ -218,4 +372,55 @@ public class CWLFile extends CWLFileBase {
     public String getClazz() {
         return "File";
     }
+
+    private void deriveLocation() {
+        String location = super.getLocation();
+        String path = getPath();
+        if (location == null || path == null) {
+            return;
+        }
+        if (location.equals(path)) {
+            super.setLocation(null);
+            derived |= LOCATION_PATH;
+        } else if (location.length() == FILE_PREFIX.length() + path.length() && location.startsWith(FILE_PREFIX)
+                && location.endsWith(path)) {
+            super.setLocation(null);
+            derived |= LOCATION_URI;
+        }
+    }
+
+    private String deriveDirname() {
+        if (parent == null) {
+            return null;
+        }
+        return parent.isEmpty() ? File.separator : parent;
+    }
+
+    private String deriveNameroot() {
+        String basename = super.getBasename();
+        if (basename == null || basename.lastIndexOf('.') == -1) {
+            return null;
+        }
+        return basename.substring(0, basename.lastIndexOf('.'));
+    }
+
+    private String deriveNameext() {
+        String basename = super.getBasename();
+        if (basename == null || basename.lastIndexOf('.') == -1) {
+            return null;
+        }
+        return basename.substring(basename.lastIndexOf('.'));
+    }
+
+    private long statSize() {
+        String path = getPath();
+        if (path == null) {
+            return 0;
+        }
+        if (path.startsWith(FILE_PREFIX)) {
+            path = path.substring(FILE_PREFIX.length());
+        }
+        File file = new File(path);
+        return file.isFile() ? file.length() : 0;
+    }
 }
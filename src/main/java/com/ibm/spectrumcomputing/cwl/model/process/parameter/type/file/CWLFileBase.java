@@ -124,6 +124,6 @@ public abstract class CWLFileBase {
      */
     @Override
     public String toString() {
-        return this.getClazz() + ":" + this.path;
+        return this.getClazz() + ":" + this.getPath();
     }
 }
@@ -29,6 +29,10 @@ import java.util.Map.Entry;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.ibm.spectrumcomputing.cwl.model.CWLFieldValue;
+import com.ibm.spectrumcomputing.cwl.model.conf.AutoTuneConf;
+import com.ibm.spectrumcomputing.cwl.model.conf.CallCacheConf;
+import com.ibm.spectrumcomputing.cwl.model.conf.CriticalPathConf;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
 import com.ibm.spectrumcomputing.cwl.model.conf.PostFailureScript;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.process.CWLVersion;
@@ -605,6 +609,18 @@ class BaseParser {
             String id,
             JsonNode fileNode,
             boolean nochecksum) throws CWLException {
+        return processCWLFile(parentPath, id, fileNode, nochecksum, true);
+    }
+
+    /*
+     * If stat is false, the file system is not touched for the file size,
+     * the caller stats the file later, see InputSettingsLoader#statFiles
+     */
+    protected static CWLFile processCWLFile(String parentPath,
+            String id,
+            JsonNode fileNode,
+            boolean nochecksum,
+            boolean stat) throws CWLException {
         CWLFile cwlFile = null;
         if (fileNode.isObject() && validateClassField(fileNode.get("class"), "File")) {
             cwlFile = new CWLFile();
@@ -615,7 +631,7 @@ class BaseParser {
                 filePath = filePath.substring(7);
             }
             File file = new File(filePath);
-            setPhysicalFileAttr(file, cwlFile, fileNode, nochecksum);
+            setPhysicalFileAttr(file, cwlFile, fileNode, nochecksum, stat);
             // secondaryFiles
             JsonNode secondaryFilesNode = fileNode.get("secondaryFiles");
             if (secondaryFilesNode != null && secondaryFilesNode.isArray()) {
@@ -698,6 +714,98 @@ class BaseParser {
         return pfs;
     }
 
+    protected static CallCacheConf processCallCache(String key, JsonNode node) throws CWLException {
+        CallCacheConf callCache = null;
+        if (node != null) {
+            if (node.isObject()) {
+                callCache = toCallCacheConf(key, node);
+            } else {
+                throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_TYPE, key, "Object"), 251);
+            }
+        }
+        return callCache;
+    }
+
+    protected static CriticalPathConf processCriticalPath(String key, JsonNode node) throws CWLException {
+        CriticalPathConf criticalPath = null;
+        if (node != null) {
+            if (node.isObject()) {
+                criticalPath = new CriticalPathConf();
+                Integer maxPriority = processIntegerField(key + "#max-priority", node.get("max-priority"));
+                if (maxPriority != null) {
+                    if (maxPriority < 0) {
+                        throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_FIELD,
+                                key + "#max-priority", "Must be a non-negative integer"), 251);
+                    }
+                    criticalPath.setMaxPriority(maxPriority);
+                }
+            } else {
+                throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_TYPE, key, "Object"), 251);
+            }
+        }
+        return criticalPath;
+    }
+
+    protected static AutoTuneConf processAutoTune(String key, JsonNode node) throws CWLException {
+        AutoTuneConf autoTune = null;
+        if (node != null) {
+            if (node.isObject()) {
+                autoTune = new AutoTuneConf();
+                Integer percentile = processIntegerField(key + "#percentile", node.get("percentile"));
+                if (percentile != null) {
+                    if (percentile < 1 || percentile > 100) {
+                        throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_FIELD,
+                                key + "#percentile", "Must be an integer between 1 and 100"), 251);
+                    }
+                    autoTune.setPercentile(percentile);
+                }
+                Integer margin = processIntegerField(key + "#margin", node.get("margin"));
+                if (margin != null) {
+                    if (margin < 0) {
+                        throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_FIELD,
+                                key + "#margin", "Must be a non-negative integer"), 251);
+                    }
+                    autoTune.setMargin(margin);
+                }
+                Integer minSamples = processIntegerField(key + "#min-samples", node.get("min-samples"));
+                if (minSamples != null) {
+                    autoTune.setMinSamples(Math.max(1, minSamples));
+                }
+            } else {
+                throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_TYPE, key, "Object"), 251);
+            }
+        }
+        return autoTune;
+    }
+
+    protected static Integer processScatterChunkSize(String key, JsonNode node) throws CWLException {
+        Integer scatterChunkSize = null;
+        if (node != null) {
+            if (node.isTextual() && "auto".equals(node.asText())) {
+                scatterChunkSize = FlowExecConf.ADAPTIVE_SCATTER_CHUNK_SIZE;
+            } else if (node.isInt() && node.asInt() > 0) {
+                scatterChunkSize = node.asInt();
+            } else {
+                throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_FIELD, key,
+                        "Must be a positive integer or \"auto\""), 251);
+            }
+        }
+        return scatterChunkSize;
+    }
+
+    protected static Integer processPositiveIntegerField(String key, JsonNode node) throws CWLException {
+        Integer integer = null;
+        if (node != null) {
+            if (node.isInt() && node.asInt() > 0) {
+                integer = Integer.valueOf(node.asInt());
+            } else {
+                throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_INVALID_FIELD, key,
+                        "Must be a positive integer"), 251);
+            }
+        }
+        return integer;
+    }
+
     private static boolean validateClassField(JsonNode classNode, String expectedClass) throws CWLException {
         if (classNode != null && classNode.isTextual()) {
             if (classNode.asText().equals(expectedClass)) {
@@ -729,6 +837,24 @@ class BaseParser {
         return pfs;
     }
 
+    private static CallCacheConf toCallCacheConf(String key, JsonNode node) throws CWLException {
+        CallCacheConf callCache = new CallCacheConf();
+        if (node.get("dir") != null) {
+            callCache.setDir(node.get("dir").asText());
+        } else {
+            throw new CWLException(ResourceLoader.getMessage(CWL_PARSER_FIELD_REQUIRED, key + "#dir"), 251);
+        }
+        Integer maxEntries = processIntegerField(key + "#max-entries", node.get("max-entries"));
+        if (maxEntries != null) {
+            callCache.setMaxEntries(maxEntries);
+        }
+        Long maxSize = processLongField(key + "#max-size", node.get("max-size"));
+        if (maxSize != null) {
+            callCache.setMaxSize(maxSize);
+        }
+        return callCache;
+    }
+
     private static CWLType findSchemaType(String typeSymbol) {
         CWLType schemaType = null;
         if (typeSymbol != null) {
@@ -952,12 +1078,16 @@ class BaseParser {
         }
     }
 
-    private static void setPhysicalFileAttr(File file, CWLFile cwlFile, JsonNode fileNode, boolean nochecksum) {
+    private static void setPhysicalFileAttr(File file,
+            CWLFile cwlFile,
+            JsonNode fileNode,
+            boolean nochecksum,
+            boolean stat) {
         // checksum
         JsonNode checksumNode = fileNode.get("checksum");
         if (checksumNode != null && checksumNode.isTextual()) {
             cwlFile.setChecksum(checksumNode.asText());
-        } else if (file.exists() && !nochecksum) {
+        } else if (stat && !nochecksum && file.exists()) {
             String path = cwlFile.getPath();
             if (path != null && path.startsWith(IOUtil.FILE_PREFIX)) {
                 path = path.substring(7);
@@ -968,7 +1098,7 @@ class BaseParser {
         JsonNode sizeNode = fileNode.get("size");
         if (sizeNode != null && sizeNode.isLong()) {
             cwlFile.setSize(sizeNode.asLong());
-        } else if (file.exists()) {
+        } else if (stat && file.exists()) {
             cwlFile.setSize(file.length());
         }
     }
@@ -72,6 +72,17 @@ public final class CWLParser {
     private static final String QUEUE = "queue";
     private static final String PROCESSORS = "processors";
     private static final String POST_FAILURE_SCRIPT = "post-failure-script";
+    private static final String SCRATCH = "scratch";
+    private static final String SCRATCH_OUTDIR = "scratch-outdir";
+    private static final String CALL_CACHE = "call-cache";
+    private static final String CRITICAL_PATH = "critical-path";
+    private static final String AUTO_TUNE = "auto-tune";
+    private static final String SCATTER_CHUNK_SIZE = "scatter-chunk-size";
+    private static final String PIPELINE_SCATTER = "pipeline-scatter";
+    private static final String LOCAL = "local";
+    private static final String LOCAL_MAX_RUNTIME = "local-max-runtime";
+    private static final String LOCAL_SLOTS = "local-slots";
+    private static final String FUSE_CHAINS = "fuse-chains";
 
     /**
      * Processes a CWL description file and yields a CWL process object
@@ -195,10 +206,9 @@ public final class CWLParser {
             inputSettingFilePath = inputSettingsFile.getAbsolutePath();
         }
         try {
-            JsonNode settingsNode = IOUtil.toJsonNode(inputSettingsFile);
             if (processObj instanceof CommandLineTool || processObj instanceof Workflow) {
                 logger.debug("Apply input settings {}", inputSettingFilePath);
-                setInputSettings(processObj, inputSettingFilePath, settingsNode);
+                setInputSettings(processObj, inputSettingFilePath, inputSettingsFile);
             } else {
                 throw new CWLException(
                         ResourceLoader.getMessage("cwl.parser.field.unsupported", BaseParser.CLASS,
@@ -216,8 +226,8 @@ public final class CWLParser {
         }
     }
 
-	private static void setInputSettings(CWLProcess processObj, String inputSettingFilePath, JsonNode settingsNode)
-			throws CWLException {
+	private static void setInputSettings(CWLProcess processObj, String inputSettingFilePath, File inputSettingsFile)
+			throws IOException, CWLException {
 		List<? extends CWLParameter> inputs = processObj.getInputs();
 		//Fix record-output.cwl
 		if (processObj instanceof Workflow) {
@@ -238,7 +248,10 @@ public final class CWLParser {
 			}
 		}
 		String parentPath = Paths.get(inputSettingFilePath).getParent().toString();
-		InputSettingsParser.processInputSettings(parentPath, settingsNode, inputs);
+		// stream the input settings, a File[] input may have a huge number of files
+		InputSettingsLoader loader = new InputSettingsLoader(parentPath, inputs);
+		loader.load(inputSettingsFile);
+		InputSettingsParser.processInputSettings(parentPath, loader.getSettingsNode(), loader.getFileArrays(), inputs);
 		processObj.setInputsPath(inputSettingFilePath);
 	}
 
@@ -267,6 +280,26 @@ public final class CWLParser {
             flowExecConf.setResource(BaseParser.processStringField(RESOURCE, configNode.get(RESOURCE)));
             flowExecConf.setPostFailureScript(
                     BaseParser.processPostFailureScript(POST_FAILURE_SCRIPT, configNode.get(POST_FAILURE_SCRIPT)));
+            flowExecConf.setScratch(BaseParser.processStringField(SCRATCH, configNode.get(SCRATCH)));
+            Boolean scratchOutdir = BaseParser.processBooleanField(SCRATCH_OUTDIR, configNode.get(SCRATCH_OUTDIR));
+            flowExecConf.setScratchOutdir(scratchOutdir != null ? scratchOutdir.booleanValue() : false);
+            flowExecConf.setCallCache(BaseParser.processCallCache(CALL_CACHE, configNode.get(CALL_CACHE)));
+            flowExecConf.setCriticalPath(
+                    BaseParser.processCriticalPath(CRITICAL_PATH, configNode.get(CRITICAL_PATH)));
+            flowExecConf.setAutoTune(BaseParser.processAutoTune(AUTO_TUNE, configNode.get(AUTO_TUNE)));
+            flowExecConf.setScatterChunkSize(
+                    BaseParser.processScatterChunkSize(SCATTER_CHUNK_SIZE, configNode.get(SCATTER_CHUNK_SIZE)));
+            Boolean pipelineScatter = BaseParser.processBooleanField(PIPELINE_SCATTER,
+                    configNode.get(PIPELINE_SCATTER));
+            flowExecConf.setPipelineScatter(pipelineScatter != null ? pipelineScatter.booleanValue() : false);
+            Boolean local = BaseParser.processBooleanField(LOCAL, configNode.get(LOCAL));
+            flowExecConf.setLocal(local != null ? local.booleanValue() : false);
+            flowExecConf.setLocalMaxRuntime(
+                    BaseParser.processPositiveIntegerField(LOCAL_MAX_RUNTIME, configNode.get(LOCAL_MAX_RUNTIME)));
+            flowExecConf.setLocalSlots(
+                    BaseParser.processPositiveIntegerField(LOCAL_SLOTS, configNode.get(LOCAL_SLOTS)));
+            Boolean fuseChains = BaseParser.processBooleanField(FUSE_CHAINS, configNode.get(FUSE_CHAINS));
+            flowExecConf.setFuseChains(fuseChains != null ? fuseChains.booleanValue() : false);
             JsonNode stepsConfigNode = configNode.get("steps");
             if (stepsConfigNode != null && stepsConfigNode.isObject()) {
                 Map<String, StepExecConf> steps = new HashMap<>();
@@ -288,6 +321,18 @@ public final class CWLParser {
                             BaseParser.processStringField(stepId + "#resource", stepConfigNode.get(RESOURCE)));
                     stepExecConf.setPostFailureScript(BaseParser.processPostFailureScript(stepId + "#post-failure-script",
                             stepConfigNode.get(POST_FAILURE_SCRIPT)));
+                    stepExecConf.setScratch(
+                            BaseParser.processStringField(stepId + "#scratch", stepConfigNode.get(SCRATCH)));
+                    stepExecConf.setScratchOutdir(BaseParser.processBooleanField(stepId + "#scratch-outdir",
+                            stepConfigNode.get(SCRATCH_OUTDIR)));
+                    stepExecConf.setScatterChunkSize(BaseParser.processScatterChunkSize(
+                            stepId + "#scatter-chunk-size", stepConfigNode.get(SCATTER_CHUNK_SIZE)));
+                    stepExecConf.setPipelineScatter(BaseParser.processBooleanField(stepId + "#pipeline-scatter",
+                            stepConfigNode.get(PIPELINE_SCATTER)));
+                    stepExecConf.setLocal(BaseParser.processBooleanField(stepId + "#local",
+                            stepConfigNode.get(LOCAL)));
+                    stepExecConf.setLocalMaxRuntime(BaseParser.processPositiveIntegerField(
+                            stepId + "#local-max-runtime", stepConfigNode.get(LOCAL_MAX_RUNTIME)));
                     steps.put(stepId, stepExecConf);
                 }
                 flowExecConf.setSteps(steps);
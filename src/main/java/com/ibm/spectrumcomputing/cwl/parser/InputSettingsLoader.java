@@ -0,0 +1,182 @@
+/*
+ * Copyright International Business Machines Corp, 2018.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibm.spectrumcomputing.cwl.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLType;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLTypeSymbol;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.ParameterType;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.input.InputArrayType;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+import com.ibm.spectrumcomputing.cwl.parser.util.IOUtil;
+
+/*
+ * Reads a CWL input settings file as a token stream. The values of File[]
+ * inputs are bound element by element while they are read, so a huge file
+ * array never exists as a JSON tree, and the files are stat'ed in parallel
+ * batches after the whole file was read. The other input values are read into
+ * an object node for InputSettingsParser.
+ */
+final class InputSettingsLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(InputSettingsLoader.class);
+
+    private static final String JSON_SUFFIX = ".json";
+    private static final int STAT_BATCH_SIZE = 512;
+
+    private final String parentPath;
+    private final Set<String> fileArrayInputs = new HashSet<>();
+    private ObjectNode settingsNode;
+    private Map<String, List<CWLFile>> fileArrays;
+
+    protected InputSettingsLoader(String parentPath, List<? extends CWLParameter> inputs) {
+        this.parentPath = parentPath;
+        for (CWLParameter input : inputs) {
+            if (isFileArray(input.getType())) {
+                fileArrayInputs.add(input.getId());
+            }
+        }
+    }
+
+    /*
+     * Reads the input settings file, if the file cannot be parsed in the format
+     * of its extension, tries the other one, see IOUtil#toJsonNode
+     */
+    protected void load(File inputSettingsFile) throws IOException, CWLException {
+        boolean isJson = inputSettingsFile.getName().endsWith(JSON_SUFFIX);
+        try {
+            read(inputSettingsFile, isJson ? CommonUtil.getJsonMapper() : CommonUtil.getYamlMapper());
+        } catch (JsonProcessingException e) {
+            try {
+                read(inputSettingsFile, isJson ? CommonUtil.getYamlMapper() : CommonUtil.getJsonMapper());
+            } catch (JsonProcessingException ex) {
+                throw e;
+            }
+        }
+        List<CWLFile> files = new ArrayList<>();
+        for (List<CWLFile> fileArray : fileArrays.values()) {
+            files.addAll(fileArray);
+        }
+        statFiles(files);
+        logger.debug("Streamed {} files of {} inputs", files.size(), fileArrays.size());
+    }
+
+    protected ObjectNode getSettingsNode() {
+        return settingsNode;
+    }
+
+    protected Map<String, List<CWLFile>> getFileArrays() {
+        return fileArrays;
+    }
+
+    /*
+     * Fills out the size of the files which has no size in the input settings
+     */
+    protected static void statFiles(List<CWLFile> files) {
+        int batches = (files.size() + STAT_BATCH_SIZE - 1) / STAT_BATCH_SIZE;
+        IntStream.range(0, batches).parallel().forEach(batch -> {
+            int end = Math.min(files.size(), (batch + 1) * STAT_BATCH_SIZE);
+            for (CWLFile file : files.subList(batch * STAT_BATCH_SIZE, end)) {
+                statFile(file);
+            }
+        });
+    }
+
+    private void read(File inputSettingsFile, ObjectMapper mapper) throws IOException, CWLException {
+        settingsNode = JsonNodeFactory.instance.objectNode();
+        fileArrays = new HashMap<>();
+        try (JsonParser parser = mapper.getFactory().createParser(inputSettingsFile)) {
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_OBJECT) {
+                // an empty or an invalid input settings, leave it to InputSettingsParser
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String inputId = parser.getCurrentName();
+                token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY && fileArrayInputs.contains(inputId)) {
+                    fileArrays.put(inputId, readFileArray(inputId, parser, mapper));
+                } else {
+                    settingsNode.set(inputId, mapper.readTree(parser));
+                }
+            }
+        }
+    }
+
+    private List<CWLFile> readFileArray(String inputId,
+            JsonParser parser,
+            ObjectMapper mapper) throws IOException, CWLException {
+        ArrayList<CWLFile> files = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            JsonNode fileNode = mapper.readTree(parser);
+            files.add(BaseParser.processCWLFile(parentPath, inputId, fileNode, true, false));
+        }
+        files.trimToSize();
+        return files;
+    }
+
+    private static void statFile(CWLFile file) {
+        if (file.getSize() != 0) {
+            return;
+        }
+        String path = file.getPath();
+        if (path.startsWith(IOUtil.FILE_PREFIX)) {
+            path = path.substring(7);
+        }
+        try {
+            file.setSize(Files.readAttributes(Paths.get(path), BasicFileAttributes.class).size());
+        } catch (IOException e) {
+            // the file does not exist, keep it as the tree parsing does
+        }
+    }
+
+    private static boolean isFileArray(ParameterType type) {
+        if (type == null || !(type.getType() instanceof InputArrayType)) {
+            return false;
+        }
+        ParameterType itemType = ((InputArrayType) type.getType()).getItems();
+        if (itemType == null || itemType.getTypes() != null) {
+            return false;
+        }
+        CWLType item = itemType.getType();
+        return item != null && item.getSymbol() == CWLTypeSymbol.FILE;
+    }
+}
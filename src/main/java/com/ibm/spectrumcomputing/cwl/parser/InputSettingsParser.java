@@ -18,6 +18,7 @@ package com.ibm.spectrumcomputing.cwl.parser;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -50,11 +51,14 @@ final class InputSettingsParser extends BaseParser {
 
     protected static void processInputSettings(String parentPath,
             JsonNode settingsNode,
+            Map<String, List<CWLFile>> fileArrays,
             List<? extends CWLParameter> inputs) throws CWLException {
         for (CWLParameter input : inputs) {
             String inputId = input.getId();
-            JsonNode inputNode = settingsNode.get(inputId);
-            Object value = bindInputSettingValue(parentPath, input, inputNode);
+            Object value = fileArrays.get(inputId);
+            if (value == null) {
+                value = bindInputSettingValue(parentPath, input, settingsNode.get(inputId));
+            }
             if (value == null) {
                 ParameterType type = input.getType();
                 if (type == null || type.getType().getSymbol() != CWLTypeSymbol.NULL) {
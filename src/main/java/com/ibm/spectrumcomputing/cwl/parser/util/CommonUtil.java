@@ -26,6 +26,8 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.NullValue;
 
@@ -50,9 +52,34 @@ public class CommonUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(CommonUtil.class);
 
+    // the mappers are thread-safe, never configure them after they were created
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    private static final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
+    private static final ObjectWriter prettyWriter = jsonMapper.writerWithDefaultPrettyPrinter();
+
     private CommonUtil() {
     }
 
+    /**
+     * Returns the shared JSON object mapper, the mapper must not be
+     * reconfigured
+     * 
+     * @return the JSON object mapper
+     */
+    public static ObjectMapper getJsonMapper() {
+        return jsonMapper;
+    }
+
+    /**
+     * Returns the shared YAML object mapper, the mapper must not be
+     * reconfigured
+     * 
+     * @return the YAML object mapper
+     */
+    public static ObjectMapper getYamlMapper() {
+        return yamlMapper;
+    }
+
     /**
      * Returns a JSON string by given key and object
      * 
@@ -72,7 +99,7 @@ public class CommonUtil {
                 propertis.put(key, obj);
             }
             try {
-                jsonStr = (new ObjectMapper()).writeValueAsString(propertis);
+                jsonStr = jsonMapper.writeValueAsString(propertis);
             } catch (JsonProcessingException e) {
                 logger.warn("Cannot process the {}:{} to json string.", key, obj);
             }
@@ -91,7 +118,7 @@ public class CommonUtil {
         String jsonStr = null;
         if (obj != null) {
             try {
-                jsonStr = (new ObjectMapper()).writeValueAsString(obj);
+                jsonStr = jsonMapper.writeValueAsString(obj);
             } catch (JsonProcessingException e) {
                 logger.warn("Cannot process the {} to json string.", obj);
             }
@@ -107,9 +134,8 @@ public class CommonUtil {
      * @return A pretty JSON string represents the object
      */
     public static String asPrettyJsonStr(Object obj) {
-        ObjectMapper mapper = new ObjectMapper();
         try {
-            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(obj);
+            return prettyWriter.writeValueAsString(obj);
         } catch (JsonProcessingException e) {
             logger.warn("Cannot process the {} to json string, {}", obj.getClass().getName(), e.getMessage());
         }
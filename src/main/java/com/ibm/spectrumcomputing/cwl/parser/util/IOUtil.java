@@ -49,7 +49,6 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLDirectory;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
@@ -78,6 +77,11 @@ public final class IOUtil {
      * A flag to create symbol link instead of coping input files
      */
     public static final String USING_SYMBOL_LINK = "using.symbol.link";
+    /**
+     * A flag to keep the intermediate outputs in working directory until the
+     * workflow is finished
+     */
+    public static final String KEEP_INTERMEDIATES = "keep.intermediates";
     /**
      * The prefix of FTP protocol
      */
@@ -704,7 +708,7 @@ public final class IOUtil {
             if (!nochecksum) {
                 cwlFile.setChecksum("sha1$" + IOUtil.md5(cwlFilePath.toString()));
             }
-            cwlFile.setSize(cwlFilePath.toFile().length());
+            cwlFile.deferSize();
             if (basename.lastIndexOf('.') != -1) {
                 cwlFile.setNameroot(basename.substring(0, basename.lastIndexOf('.')));
                 cwlFile.setNameext(basename.substring(basename.lastIndexOf('.')));
@@ -772,9 +776,9 @@ public final class IOUtil {
         // get file type from file extension
         boolean isJson = file.getName().endsWith(JSON_SUFFIX);
         if (isJson) {
-            mapper = new ObjectMapper();
+            mapper = CommonUtil.getJsonMapper();
         } else {
-            mapper = new ObjectMapper(new YAMLFactory());
+            mapper = CommonUtil.getYamlMapper();
         }
         try {
             return mapper.readTree(file);
@@ -787,9 +791,9 @@ public final class IOUtil {
             // file
             // and file not ends with '.json' as json file
             if (isJson) {
-                mapper = new ObjectMapper(new YAMLFactory());
+                mapper = CommonUtil.getYamlMapper();
             } else {
-                mapper = new ObjectMapper();
+                mapper = CommonUtil.getJsonMapper();
             }
             try {
                 return mapper.readTree(file);
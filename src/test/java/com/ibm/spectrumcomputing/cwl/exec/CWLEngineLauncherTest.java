@@ -184,4 +184,56 @@ public class CWLEngineLauncherTest extends CWLExecTestBase {
             Assert.assertTrue(false);
         }
     }
+
+    @Test
+    public void parseCommands8() {
+        try {
+            CWLExecLauncher launcher = new CWLExecLauncher();
+            Options options = launcher.getCommandOptions();
+            String[] args = new String[3];
+            args[0] = "--keep-intermediates";
+            args[1] = "/opt/cwl/workflow.cwl";
+            args[2] = "/opt/cwl/workflow.settings";
+            CommandLine commandLine = parser.parse(options, args);
+            List<String> argList = commandLine.getArgList();
+            Assert.assertNotNull(argList);
+            Assert.assertEquals(2, argList.size());
+            Assert.assertTrue(commandLine.hasOption("k"));
+        } catch (Exception e) {
+            Assert.assertTrue(false);
+        }
+    }
+
+    @Test
+    public void parseCommands9() {
+        try {
+            CWLExecLauncher launcher = new CWLExecLauncher();
+            Options options = launcher.getCommandOptions();
+            CommandLine commandLine = parser.parse(options, new String[] { "-l", "-n", "20", "--skip", "40" });
+            Assert.assertTrue(commandLine.hasOption("l"));
+            Assert.assertEquals("20", commandLine.getOptionValue("limit"));
+            Assert.assertEquals("40", commandLine.getOptionValue("s"));
+            commandLine = parser.parse(options, new String[] { "--purge", "30" });
+            Assert.assertEquals("30", commandLine.getOptionValue("purge"));
+        } catch (Exception e) {
+            Assert.assertTrue(false);
+        }
+    }
+
+    @Test
+    public void parseCommands10() {
+        try {
+            CWLExecLauncher launcher = new CWLExecLauncher();
+            Options options = launcher.getCommandOptions();
+            CommandLine commandLine = parser.parse(options,
+                    new String[] { "--detach", "/opt/cwl/workflow.cwl", "/opt/cwl/workflow.settings" });
+            Assert.assertTrue(commandLine.hasOption("detach"));
+            Assert.assertEquals(2, commandLine.getArgList().size());
+            commandLine = parser.parse(options, new String[] { "--attach", "12345" });
+            Assert.assertEquals("12345", commandLine.getOptionValue("attach"));
+            Assert.assertFalse(commandLine.hasOption("detach"));
+        } catch (Exception e) {
+            Assert.assertTrue(false);
+        }
+    }
 }
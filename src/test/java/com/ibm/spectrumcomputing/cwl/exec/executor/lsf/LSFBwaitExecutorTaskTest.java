@@ -0,0 +1,45 @@
+package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
+
+public class LSFBwaitExecutorTaskTest extends CWLExecTestBase {
+
+    @Test
+    public void takeDonePipelinedElements() {
+        // upstream job 101 runs the packed scatter elements 1 and 2
+        Map<Long, List<Integer>> pendingJobs = new LinkedHashMap<>();
+        pendingJobs.put(101L, Arrays.asList(1, 2));
+        pendingJobs.put(102L, Arrays.asList(3));
+        pendingJobs.put(103L, Arrays.asList(4));
+        Map<Long, CWLInstanceState> states = new HashMap<>();
+        states.put(101L, CWLInstanceState.DONE);
+        states.put(102L, CWLInstanceState.RUNNING);
+        // job 103 was not waited, it is taken by a later wait
+        states.put(103L, CWLInstanceState.DONE);
+        List<Integer> doneElements = LSFBwaitExecutorTask.takeDoneElements(pendingJobs,
+                Arrays.asList(101L, 102L), states);
+        assertEquals(Arrays.asList(1, 2), doneElements);
+        assertEquals(Arrays.asList(102L, 103L), new ArrayList<>(pendingJobs.keySet()));
+        // no waited job ended, nothing is taken
+        states.put(102L, CWLInstanceState.PENDING);
+        assertTrue(LSFBwaitExecutorTask.takeDoneElements(pendingJobs, Arrays.asList(102L), states).isEmpty());
+        assertEquals(2, pendingJobs.size());
+        // a waited job exited, the pipelining stops
+        states.put(102L, CWLInstanceState.EXITED);
+        assertNull(LSFBwaitExecutorTask.takeDoneElements(pendingJobs, Arrays.asList(102L, 103L), states));
+    }
+}
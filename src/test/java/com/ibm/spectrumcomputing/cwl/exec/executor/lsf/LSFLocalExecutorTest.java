@@ -0,0 +1,122 @@
+package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
+import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutionResult;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.output.CommandOutputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+
+public class LSFLocalExecutorTest extends CWLExecTestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(LSFLocalExecutorTest.class);
+
+    @Test
+    public void runLocalStep() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        if (is_win) {
+            logger.warn("The LSFLocalExecutorTest#runLocalStep is unsupported on Windows");
+            return;
+        }
+        Path workDir = Paths.get(runtime.get(CommonUtil.RUNTIME_TMP_DIR), CommonUtil.getRandomStr());
+        Files.createDirectories(workDir);
+        CWLCommandInstance instance = createLocalInstance(workDir, "echo $TMPDIR > out.txt");
+        List<CommandExecutionResult> results = new ArrayList<>();
+        try {
+            Future<?> future = LSFLocalExecutor.getExecutor(2)
+                    .submit(() -> results.add(LSFLocalExecutorTask.runCommand(instance)));
+            future.get(30, TimeUnit.SECONDS);
+        } finally {
+            LSFLocalExecutor.stopExecutor();
+        }
+        assertEquals(0, results.get(0).getExitCode());
+        // the command ran in the step working directory with its TMPDIR
+        assertEquals(workDir.toString(),
+                new String(Files.readAllBytes(workDir.resolve("out.txt")), StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    public void resizeLocalSlots() {
+        try {
+            LSFLocalExecutor executor = LSFLocalExecutor.getExecutor(1);
+            assertEquals(1, executor.getSlots());
+            assertSame(executor, LSFLocalExecutor.getExecutor(3));
+            assertEquals(3, executor.getSlots());
+            assertEquals(2, LSFLocalExecutor.getExecutor(2).getSlots());
+        } finally {
+            LSFLocalExecutor.stopExecutor();
+        }
+    }
+
+    @Test
+    public void stopRunningLocalSteps() throws IOException, InterruptedException {
+        if (is_win) {
+            logger.warn("The LSFLocalExecutorTest#stopRunningLocalSteps is unsupported on Windows");
+            return;
+        }
+        Path workDir = Paths.get(runtime.get(CommonUtil.RUNTIME_TMP_DIR), CommonUtil.getRandomStr());
+        Files.createDirectories(workDir);
+        CWLCommandInstance instance = createLocalInstance(workDir, "touch started.txt; sleep 2; touch late.txt");
+        List<CommandExecutionResult> results = new ArrayList<>();
+        LSFLocalExecutor executor = LSFLocalExecutor.getExecutor(1);
+        Future<?> future = executor.submit(() -> results.add(LSFLocalExecutorTask.runCommand(instance)));
+        for (int i = 0; i < 100 && !Files.exists(workDir.resolve("started.txt")); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(Files.exists(workDir.resolve("started.txt")));
+        long stopStart = System.currentTimeMillis();
+        LSFLocalExecutor.stopExecutor();
+        // the shell was destroyed instead of waiting the sleep
+        assertTrue(System.currentTimeMillis() - stopStart < 2000);
+        assertTrue(future.isDone());
+        assertNotEquals(0, results.get(0).getExitCode());
+        // the children of the shell were killed too
+        Thread.sleep(3000);
+        assertFalse(Files.exists(workDir.resolve("late.txt")));
+        // the stopped executor was cleared
+        LSFLocalExecutor newExecutor = LSFLocalExecutor.getExecutor(1);
+        assertNotSame(executor, newExecutor);
+        LSFLocalExecutor.stopExecutor();
+    }
+
+    private CWLCommandInstance createLocalInstance(Path workDir, String command) {
+        CommandLineTool tool = new CommandLineTool(new ArrayList<CommandInputParameter>(),
+                new ArrayList<CommandOutputParameter>());
+        CWLCommandInstance instance = new CWLCommandInstance(CommonUtil.getRandomStr(), owner, tool,
+                new FlowExecConf());
+        instance.setName("local");
+        Map<String, String> instanceRuntime = new HashMap<>();
+        instanceRuntime.put(CommonUtil.RUNTIME_TMP_DIR, workDir.toString());
+        instanceRuntime.put(CommonUtil.RUNTIME_OUTPUT_DIR, workDir.toString());
+        instance.setRuntime(instanceRuntime);
+        instance.setCommands(Arrays.asList("/bin/sh", "-c", command));
+        return instance;
+    }
+}
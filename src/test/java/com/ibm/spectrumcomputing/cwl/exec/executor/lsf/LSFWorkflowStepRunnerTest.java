@@ -0,0 +1,138 @@
+package com.ibm.spectrumcomputing.cwl.exec.executor.lsf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
+import com.ibm.spectrumcomputing.cwl.exec.service.CWLServiceFactory;
+import com.ibm.spectrumcomputing.cwl.exec.util.DatabaseManager;
+import com.ibm.spectrumcomputing.cwl.model.CWLFieldValue;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.ParameterType;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.output.CommandOutputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.IntType;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.output.OutputArrayType;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvVarRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvironmentDef;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.Requirement;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.ExpressionTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+
+public class LSFWorkflowStepRunnerTest extends CWLExecTestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(LSFWorkflowStepRunnerTest.class);
+
+    @Test
+    public void refuseFusionOnDifferentRequirements() {
+        // no requirements on both steps
+        assertTrue(LSFWorkflowStepRunner.sameRequirements(createInstance(), createInstance()));
+        // the same image and environment on both steps
+        assertTrue(LSFWorkflowStepRunner.sameRequirements(
+                createInstance(createDockerRequirement("ubuntu:16.04"), createEnvVarRequirement("A", "1")),
+                createInstance(createDockerRequirement("ubuntu:16.04"), createEnvVarRequirement("A", "1"))));
+        // only one step runs in a container
+        assertFalse(LSFWorkflowStepRunner.sameRequirements(
+                createInstance(createDockerRequirement("ubuntu:16.04")), createInstance()));
+        assertFalse(LSFWorkflowStepRunner.sameRequirements(
+                createInstance(), createInstance(createDockerRequirement("ubuntu:16.04"))));
+        // the steps run in different containers
+        assertFalse(LSFWorkflowStepRunner.sameRequirements(
+                createInstance(createDockerRequirement("ubuntu:16.04")),
+                createInstance(createDockerRequirement("centos:7"))));
+        // the head step sets an environment that the next step does not expect
+        assertFalse(LSFWorkflowStepRunner.sameRequirements(
+                createInstance(createEnvVarRequirement("A", "1")), createInstance()));
+        assertFalse(LSFWorkflowStepRunner.sameRequirements(
+                createInstance(), createInstance(createEnvVarRequirement("A", "1"))));
+        assertFalse(LSFWorkflowStepRunner.sameRequirements(
+                createInstance(createEnvVarRequirement("A", "1")),
+                createInstance(createEnvVarRequirement("A", "2"))));
+    }
+
+    @Test
+    public void runExpressionInProcess() throws CWLException {
+        if (is_win) {
+            logger.warn("The LSFWorkflowStepRunnerTest#runExpressionInProcess is unsupported on Windows");
+            return;
+        }
+        CWLServiceFactory.init(new DatabaseManager(testDatabaseConfig()));
+        CommandInputParameter n = new CommandInputParameter("n");
+        n.setType(createIntType());
+        n.setValue(41);
+        CommandOutputParameter output = new CommandOutputParameter("output");
+        ParameterType outputType = new ParameterType();
+        outputType.setType(new OutputArrayType(createIntType()));
+        output.setType(outputType);
+        List<CommandInputParameter> inputs = new ArrayList<>();
+        inputs.add(n);
+        List<CommandOutputParameter> outputs = new ArrayList<>();
+        outputs.add(output);
+        ExpressionTool tool = new ExpressionTool(inputs, outputs);
+        tool.setExpression("$({'output': [inputs.n + 1]})");
+        CWLCommandInstance instance = new CWLCommandInstance(CommonUtil.getRandomStr(), owner, tool,
+                new FlowExecConf());
+        instance.setName("expression");
+        instance.setRuntime(runtime);
+        instance.setReadyToRun(true);
+        LSFWorkflowRunner main = mock(LSFWorkflowRunner.class);
+        LSFWorkflowStepRunner step = new LSFWorkflowStepRunner(main, instance);
+        assertTrue(step.isExpressionStep());
+        step.runExpression();
+        assertEquals(CWLInstanceState.DONE, instance.getState());
+        assertEquals(Arrays.asList(42L), output.getValue());
+        // no LSF command was built or submitted for the step
+        assertNull(instance.getCommands());
+        assertTrue(instance.getHPCJobId() <= 0);
+        verify(main).broadcast(argThat(event -> event.getType() == LSFJobEventType.START &&
+                instance.getId().equals(event.getInstanceId())));
+    }
+
+    private ParameterType createIntType() {
+        ParameterType type = new ParameterType();
+        type.setType(new IntType());
+        return type;
+    }
+
+    private CWLCommandInstance createInstance(Requirement... requirements) {
+        CommandLineTool tool = new CommandLineTool(new ArrayList<CommandInputParameter>(),
+                new ArrayList<CommandOutputParameter>());
+        tool.setRequirements(new ArrayList<>(Arrays.asList(requirements)));
+        CWLCommandInstance instance = new CWLCommandInstance(CommonUtil.getRandomStr(), owner, tool,
+                new FlowExecConf());
+        instance.setName("step");
+        return instance;
+    }
+
+    private DockerRequirement createDockerRequirement(String image) {
+        DockerRequirement dockerRequirement = new DockerRequirement();
+        dockerRequirement.setDockerPull(image);
+        return dockerRequirement;
+    }
+
+    private EnvVarRequirement createEnvVarRequirement(String name, String value) {
+        CWLFieldValue envValue = new CWLFieldValue();
+        envValue.setValue(value);
+        List<EnvironmentDef> envDef = new ArrayList<>();
+        envDef.add(new EnvironmentDef(name, envValue));
+        return new EnvVarRequirement(envDef);
+    }
+}
@@ -9,6 +9,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -23,6 +24,8 @@ import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
 
+import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -33,7 +36,9 @@ import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstance;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLJobUsageRecord;
 import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessRecord;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLMainProcessSummary;
 import com.ibm.spectrumcomputing.cwl.model.process.workflow.Workflow;
 import com.ibm.spectrumcomputing.cwl.parser.CWLParser;
 import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
@@ -42,6 +47,7 @@ public class CWLPersistenceServiceTest extends CWLExecTestBase {
 
     private static final Logger logger = LoggerFactory.getLogger(CWLInstanceSchedulerTask.class);
 
+    private DatabaseManager hibernateHelper;
     private CWLInstanceService persistenceService;
 
     @Before
@@ -54,7 +60,7 @@ public class CWLPersistenceServiceTest extends CWLExecTestBase {
             runtime.put(CommonUtil.RUNTIME_TMP_DIR, "test_workdir");
             runtime.put("tmpdirSize", "20480");
             given(runtimeService.prepareMainRuntime(any(), any())).willReturn(runtime);
-            DatabaseManager hibernateHelper = new DatabaseManager(testDatabaseConfig());
+            hibernateHelper = new DatabaseManager(testDatabaseConfig());
             persistenceService = new CWLInstanceService(runtimeService, hibernateHelper);
         }
     }
@@ -175,6 +181,85 @@ public class CWLPersistenceServiceTest extends CWLExecTestBase {
         Assert.assertEquals(instance3.getId(), wfRecord.getId());
     }
 
+    @Test
+    public void listAndPurgeProcessInstances() throws CWLException {
+        if (is_win) {
+            logger.warn("CWLPersistenceServiceTest#listAndPurgeProcessInstances is unsupported on Windows.");
+            return;
+        }
+        long now = new Date().getTime();
+        Workflow processObj = (Workflow) CWLParser.yieldCWLProcessObject(new File(DEF_ROOT_PATH + "compile.cwl"), "main");
+        CWLInstance oldInstance = persistenceService.createMainInstance(owner, processObj, null);
+        updateSubmitTime(oldInstance.getId(), now - 11 * 24 * 3600 * 1000L);
+        oldInstance.setEndTime(now - 10 * 24 * 3600 * 1000L);
+        oldInstance.setState(CWLInstanceState.DONE);
+        persistenceService.updateCWLProcessInstance(oldInstance);
+        Workflow processObj2 = (Workflow) CWLParser.yieldCWLProcessObject(new File(DEF_ROOT_PATH + "compile.cwl"), "main");
+        CWLInstance newInstance = persistenceService.createMainInstance(owner, processObj2, null);
+        updateSubmitTime(newInstance.getId(), now - 3600 * 1000L);
+        newInstance.setEndTime(now);
+        newInstance.setState(CWLInstanceState.EXITED);
+        persistenceService.updateCWLProcessInstance(newInstance);
+        Workflow processObj3 = (Workflow) CWLParser.yieldCWLProcessObject(new File(DEF_ROOT_PATH + "compile.cwl"), "main");
+        CWLInstance waitingInstance = persistenceService.createMainInstance(owner, processObj3, null);
+        updateSubmitTime(waitingInstance.getId(), now);
+        List<CWLInstanceState> finished = Arrays.asList(CWLInstanceState.DONE, CWLInstanceState.EXITED);
+        List<CWLMainProcessSummary> summaries = persistenceService.findCWLProcessSummaries(finished, 0, 0);
+        assertEquals(2, summaries.size());
+        assertEquals(newInstance.getId(), summaries.get(0).getId());
+        summaries = persistenceService.findCWLProcessSummaries(finished, 1, 1);
+        assertEquals(1, summaries.size());
+        assertEquals(oldInstance.getId(), summaries.get(0).getId());
+        assertEquals(CWLInstanceState.DONE, summaries.get(0).getState());
+        // only the finished record that ended before 5 days ago is purged
+        assertEquals(1, persistenceService.purgeFinishedCWLProcessRecords(now - 5 * 24 * 3600 * 1000L));
+        assertNull(persistenceService.findCWLProcessRecord(oldInstance.getId()));
+        assertTrue(persistenceService.findStepsByState(oldInstance.getId(), CWLInstanceState.WAITING).isEmpty());
+        assertEquals(3, persistenceService.findStepsByState(newInstance.getId(), CWLInstanceState.WAITING).size());
+        assertEquals(2, persistenceService.findCWLProcessRecords().size());
+        // the session factory is closed before the database is shut down
+        persistenceService.compactDatabase();
+        assertTrue(hibernateHelper.getSessionFactory().isClosed());
+    }
+
+    @Test
+    public void findHistoricalStepRuntimes() throws CWLException {
+        if (is_win) {
+            logger.warn("CWLPersistenceServiceTest#findHistoricalStepRuntimes is unsupported on Windows.");
+            return;
+        }
+        Workflow processObj = (Workflow) CWLParser.yieldCWLProcessObject(new File(DEF_ROOT_PATH + "step_in_valueFrom/workflow.cwl"));
+        CWLWorkflowInstance previous = (CWLWorkflowInstance) persistenceService.createMainInstance(owner, processObj, null);
+        CWLInstance step1 = findInstance(previous, "step1");
+        step1.setState(CWLInstanceState.DONE);
+        step1.setStartTime(1000L);
+        step1.setEndTime(6000L);
+        persistenceService.updateCWLProcessInstance(step1);
+        Workflow processObj2 = (Workflow) CWLParser.yieldCWLProcessObject(new File(DEF_ROOT_PATH + "step_in_valueFrom/workflow.cwl"));
+        CWLInstance current = persistenceService.createMainInstance(owner, processObj2, null);
+        Map<String, Long> runtimes = persistenceService.findHistoricalStepRuntimes(current);
+        assertEquals(1, runtimes.size());
+        assertEquals(Long.valueOf(5000L), runtimes.get("step1"));
+        // the steps of the run itself are excluded
+        assertTrue(persistenceService.findHistoricalStepRuntimes(previous).isEmpty());
+    }
+
+    @Test
+    public void findJobMaxMems() {
+        for (long i = 1; i <= 3; i++) {
+            CWLJobUsageRecord usage = new CWLJobUsageRecord();
+            usage.setToolKey("/path/to/tool.cwl#tool");
+            usage.setSizeBucket(i == 3 ? 4 : 2);
+            usage.setHpcJobId(i);
+            usage.setMaxMem(i * 100L);
+            usage.setEndTime(i);
+            persistenceService.addJobUsageRecord(usage);
+        }
+        assertEquals(Arrays.asList(200L, 100L), persistenceService.findJobMaxMems("/path/to/tool.cwl#tool", 2, 10));
+        assertEquals(Arrays.asList(300L, 200L), persistenceService.findJobMaxMems("/path/to/tool.cwl#tool", null, 2));
+        assertTrue(persistenceService.findJobMaxMems("/path/to/other.cwl#tool", null, 10).isEmpty());
+    }
+
     @Test
     public void evaluateStepInValueFrom() throws CWLException {
         if (is_win) {
@@ -265,4 +350,14 @@ public class CWLPersistenceServiceTest extends CWLExecTestBase {
         }
         return null;
     }
+
+    private void updateSubmitTime(String processId, long submitTime) {
+        Session session = hibernateHelper.getSessionFactory().openSession();
+        Transaction transaction = session.beginTransaction();
+        CWLMainProcessRecord record = session.get(CWLMainProcessRecord.class, processId);
+        record.setSubmitTime(submitTime);
+        session.update(record);
+        transaction.commit();
+        session.close();
+    }
 }
@@ -4,19 +4,32 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 
 import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
 import com.ibm.spectrumcomputing.cwl.exec.util.CWLExecUtil;
 import com.ibm.spectrumcomputing.cwl.model.RuntimeEnv;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLWorkflowInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.ResourceRequirement;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.ShellCommandRequirement;
 import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.model.process.workflow.Workflow;
+import com.ibm.spectrumcomputing.cwl.model.process.workflow.WorkflowStep;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
 
 public class CWLEngineUtilTest extends CWLExecTestBase {
 
@@ -38,6 +51,30 @@ public class CWLEngineUtilTest extends CWLExecTestBase {
         assertNotNull(shellReq);
     }
 
+    @Test
+    public void findInstanceRequirement() {
+        ResourceRequirement workflowResReq = new ResourceRequirement();
+        ShellCommandRequirement workflowShellReq = new ShellCommandRequirement();
+        Workflow workflow = new Workflow(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        workflow.setRequirements(Arrays.asList(workflowResReq));
+        workflow.setHints(Arrays.asList(workflowShellReq));
+        CWLWorkflowInstance main = new CWLWorkflowInstance(CommonUtil.getRandomStr(), owner, workflow,
+                new FlowExecConf());
+        CommandLineTool commandLineTool = new CommandLineTool(new ArrayList<>(), new ArrayList<>());
+        CWLCommandInstance instance = new CWLCommandInstance(CommonUtil.getRandomStr(), owner, commandLineTool, main);
+        assertSame(main, CWLExecUtil.findMainInstance(instance));
+        assertSame(workflowResReq, CWLExecUtil.findRequirement(instance, ResourceRequirement.class));
+        assertSame(workflowShellReq, CWLExecUtil.findRequirement(instance, ShellCommandRequirement.class));
+        assertNull(CWLExecUtil.findRequirement(instance, DockerRequirement.class));
+        // the step requirement overrides the cached one
+        ResourceRequirement stepResReq = new ResourceRequirement();
+        WorkflowStep step = new WorkflowStep("step", new ArrayList<>(), new ArrayList<>());
+        step.setRequirements(Arrays.asList(stepResReq));
+        instance.setStep(step);
+        assertSame(stepResReq, CWLExecUtil.findRequirement(instance, ResourceRequirement.class));
+        assertSame(workflowShellReq, CWLExecUtil.findRequirement(instance, ShellCommandRequirement.class));
+    }
+
     @Test
     public void getRuntimeEnv() {
         assertEquals(RuntimeEnv.LSF, CWLExecUtil.getRuntimeEnv());
@@ -51,4 +88,31 @@ public class CWLEngineUtilTest extends CWLExecTestBase {
         assertTrue(CWLExecUtil.validateEnvvarName("__a__"));
         assertTrue(CWLExecUtil.validateEnvvarName("a_A"));
     }
+
+    @Test
+    public void resolveCriticalPath() {
+        // a -> b -> d, a -> c -> d, e (a wide but short fan-out)
+        Map<String, Set<String>> consumers = new HashMap<>();
+        consumers.put("a", new HashSet<>(Arrays.asList("b", "c")));
+        consumers.put("b", new HashSet<>(Arrays.asList("d")));
+        consumers.put("c", new HashSet<>(Arrays.asList("d")));
+        List<String> stepNames = Arrays.asList("a", "b", "c", "d", "e");
+        Map<String, Long> weights = CriticalPathResolver.resolveStepWeights(stepNames, consumers, new HashMap<>());
+        assertEquals(Long.valueOf(3L), weights.get("a"));
+        assertEquals(Long.valueOf(1L), weights.get("e"));
+        Map<String, Long> runtimes = new HashMap<>();
+        runtimes.put("a", 10L);
+        runtimes.put("b", 100L);
+        runtimes.put("c", 20L);
+        runtimes.put("d", 30L);
+        weights = CriticalPathResolver.resolveStepWeights(stepNames, consumers, runtimes);
+        assertEquals(Long.valueOf(140L), weights.get("a"));
+        assertEquals(Long.valueOf(50L), weights.get("c"));
+        // e has no history, the average runtime is used
+        assertEquals(Long.valueOf(40L), weights.get("e"));
+        assertEquals(Arrays.asList("a", "b", "d"), CriticalPathResolver.findCriticalPath(weights, consumers));
+        assertEquals(100, CriticalPathResolver.toUserPriority(140L, 140L, 100));
+        assertEquals(1, CriticalPathResolver.toUserPriority(0L, 140L, 100));
+        assertEquals(0, CriticalPathResolver.toUserPriority(140L, 140L, 0));
+    }
 }
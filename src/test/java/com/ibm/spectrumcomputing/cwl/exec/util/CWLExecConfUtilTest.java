@@ -41,6 +41,78 @@ public class CWLExecConfUtilTest extends CWLExecTestBase {
         assertTrue(CWLExecConfUtil.isRerunnable(flowExecConf, "step1"));
     }
 
+    @Test
+    public void parseScratchConf() throws CWLException {
+        FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/stepConfig.json"));
+        assertEquals("$LSF_TMPDIR", CWLExecConfUtil.getScratch(flowExecConf, "test"));
+        assertFalse(CWLExecConfUtil.isScratchOutdir(flowExecConf, "test"));
+        assertEquals("$LSF_TMPDIR", CWLExecConfUtil.getScratch(flowExecConf, "step1"));
+        assertTrue(CWLExecConfUtil.isScratchOutdir(flowExecConf, "step1"));
+        flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
+        assertNull(CWLExecConfUtil.getScratch(flowExecConf, "test"));
+    }
+
+    @Test
+    public void parseCallCacheConf() throws CWLException {
+        FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
+        assertEquals("/path/to/cache", flowExecConf.getCallCache().getDir());
+        assertEquals(100, flowExecConf.getCallCache().getMaxEntries());
+        assertEquals(0L, flowExecConf.getCallCache().getMaxSize());
+        flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/stepConfig.json"));
+        assertNull(flowExecConf.getCallCache());
+    }
+
+    @Test
+    public void parseCriticalPathConf() throws CWLException {
+        FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
+        assertEquals(100, flowExecConf.getCriticalPath().getMaxPriority());
+        flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/stepConfig.json"));
+        assertNull(flowExecConf.getCriticalPath());
+    }
+
+    @Test
+    public void parseAutoTuneConf() throws CWLException {
+        FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
+        assertEquals(90, flowExecConf.getAutoTune().getPercentile());
+        assertEquals(10, flowExecConf.getAutoTune().getMargin());
+        assertEquals(3, flowExecConf.getAutoTune().getMinSamples());
+        flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/stepConfig.json"));
+        assertNull(flowExecConf.getAutoTune());
+    }
+
+    @Test
+    public void parseScatterChunkSize() throws CWLException {
+        FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
+        assertEquals(FlowExecConf.ADAPTIVE_SCATTER_CHUNK_SIZE, CWLExecConfUtil.getScatterChunkSize(flowExecConf, "test"));
+        flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/stepConfig.json"));
+        assertEquals(8, CWLExecConfUtil.getScatterChunkSize(flowExecConf, "step1"));
+        assertEquals(1, CWLExecConfUtil.getScatterChunkSize(flowExecConf, "step2"));
+    }
+
+    @Test
+    public void parsePipelineScatter() throws CWLException {
+        FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
+        assertFalse(CWLExecConfUtil.isPipelineScatter(flowExecConf, "test"));
+        flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/stepConfig.json"));
+        assertTrue(CWLExecConfUtil.isPipelineScatter(flowExecConf, "step1"));
+        assertFalse(CWLExecConfUtil.isPipelineScatter(flowExecConf, "step2"));
+    }
+
+    @Test
+    public void parseLocal() throws CWLException {
+        FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
+        assertFalse(CWLExecConfUtil.isLocal(flowExecConf, "test"));
+        assertEquals(Integer.valueOf(30), CWLExecConfUtil.getLocalMaxRuntime(flowExecConf, "test"));
+        assertEquals(4, CWLExecConfUtil.getLocalSlots(flowExecConf));
+        assertTrue(flowExecConf.isFuseChains());
+        flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/stepConfig.json"));
+        assertTrue(CWLExecConfUtil.isLocal(flowExecConf, "step1"));
+        assertFalse(CWLExecConfUtil.isLocal(flowExecConf, "step2"));
+        assertNull(CWLExecConfUtil.getLocalMaxRuntime(flowExecConf, "step1"));
+        assertEquals(Runtime.getRuntime().availableProcessors(), CWLExecConfUtil.getLocalSlots(flowExecConf));
+        assertFalse(flowExecConf.isFuseChains());
+    }
+
     @Test
     public void parseWorkFlowPfscript() throws CWLException {
         FlowExecConf flowExecConf = CWLParser.parseFlowExecConf(new File(DEF_ROOT_PATH + "config/flowConfig.json"));
@@ -0,0 +1,139 @@
+package com.ibm.spectrumcomputing.cwl.exec.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
+import com.ibm.spectrumcomputing.cwl.model.conf.CallCacheConf;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.output.CommandOutputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+
+public class CallCacheUtilTest extends CWLExecTestBase {
+
+    @Test
+    public void computeCacheKey() throws IOException {
+        CallCacheConf conf = createCallCacheConf(0);
+        Path input = createTestDir().resolve("input.txt");
+        Files.write(input, "input".getBytes(StandardCharsets.UTF_8));
+        CWLCommandInstance first = createInstance(conf, input, createTestDir());
+        CallCacheUtil.prepareCacheKey(first, Arrays.asList("cat", input.toString()));
+        CWLCommandInstance second = createInstance(conf, input, createTestDir());
+        CallCacheUtil.prepareCacheKey(second, Arrays.asList("cat", input.toString()));
+        assertNotNull(CallCacheUtil.findCacheKey(first));
+        // the working directory is not a part of the key
+        assertEquals(CallCacheUtil.findCacheKey(first), CallCacheUtil.findCacheKey(second));
+        Files.write(input, "changed".getBytes(StandardCharsets.UTF_8));
+        CWLCommandInstance third = createInstance(conf, input, createTestDir());
+        CallCacheUtil.prepareCacheKey(third, Arrays.asList("cat", input.toString()));
+        assertNotEquals(CallCacheUtil.findCacheKey(first), CallCacheUtil.findCacheKey(third));
+        CWLCommandInstance fourth = createInstance(conf, input, createTestDir());
+        CallCacheUtil.prepareCacheKey(fourth, Arrays.asList("sort", input.toString()));
+        assertNotEquals(CallCacheUtil.findCacheKey(third), CallCacheUtil.findCacheKey(fourth));
+    }
+
+    @Test
+    public void storeAndRestore() throws IOException {
+        CallCacheConf conf = createCallCacheConf(0);
+        Path input = createTestDir().resolve("input.txt");
+        Files.write(input, "input".getBytes(StandardCharsets.UTF_8));
+        Path workDir = createTestDir();
+        CWLCommandInstance done = createInstance(conf, input, workDir);
+        CallCacheUtil.prepareCacheKey(done, Arrays.asList("cat", input.toString()));
+        Files.write(workDir.resolve("output.txt"), "output".getBytes(StandardCharsets.UTF_8));
+        CallCacheUtil.store(done);
+        File[] entries = new File(conf.getDir()).listFiles();
+        assertEquals(1, entries.length);
+        assertFalse(entries[0].getName().startsWith("."));
+
+        Path restoredWorkDir = createTestDir();
+        CWLCommandInstance restored = createInstance(conf, input, restoredWorkDir);
+        CallCacheUtil.prepareCacheKey(restored, Arrays.asList("cat", input.toString()));
+        assertTrue(CallCacheUtil.restore(restored));
+        Path output = restoredWorkDir.resolve("output.txt");
+        assertEquals("output", new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+        // the restored file is a copy, changing it does not change the cache
+        Files.write(output, "changed".getBytes(StandardCharsets.UTF_8));
+        Path cached = entries[0].toPath().resolve("files").resolve("output.txt");
+        assertEquals("output", new String(Files.readAllBytes(cached), StandardCharsets.UTF_8));
+
+        CWLCommandInstance missed = createInstance(conf, input, createTestDir());
+        CallCacheUtil.prepareCacheKey(missed, Arrays.asList("sort", input.toString()));
+        assertFalse(CallCacheUtil.restore(missed));
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedEntry() throws IOException {
+        CallCacheConf conf = createCallCacheConf(1);
+        Path input = createTestDir().resolve("input.txt");
+        Files.write(input, "input".getBytes(StandardCharsets.UTF_8));
+        Path workDir = createTestDir();
+        Files.write(workDir.resolve("output.txt"), "output".getBytes(StandardCharsets.UTF_8));
+        CWLCommandInstance first = createInstance(conf, input, workDir);
+        CallCacheUtil.prepareCacheKey(first, Arrays.asList("cat", input.toString()));
+        String firstKey = CallCacheUtil.findCacheKey(first);
+        CallCacheUtil.store(first);
+        Files.setLastModifiedTime(Paths.get(conf.getDir(), firstKey), FileTime.fromMillis(0L));
+        CWLCommandInstance second = createInstance(conf, input, workDir);
+        CallCacheUtil.prepareCacheKey(second, Arrays.asList("sort", input.toString()));
+        String secondKey = CallCacheUtil.findCacheKey(second);
+        CallCacheUtil.store(second);
+        assertFalse(Paths.get(conf.getDir(), firstKey).toFile().exists());
+        assertTrue(Paths.get(conf.getDir(), secondKey).toFile().exists());
+    }
+
+    private CallCacheConf createCallCacheConf(int maxEntries) throws IOException {
+        CallCacheConf conf = new CallCacheConf();
+        conf.setDir(createTestDir().toString());
+        conf.setMaxEntries(maxEntries);
+        return conf;
+    }
+
+    private Path createTestDir() throws IOException {
+        Path dir = Paths.get(runtime.get(CommonUtil.RUNTIME_TMP_DIR), "cache-" + UUID.randomUUID());
+        Files.createDirectories(dir);
+        return dir;
+    }
+
+    private CWLCommandInstance createInstance(CallCacheConf conf, Path input, Path workDir) {
+        CommandInputParameter inputParameter = new CommandInputParameter("input");
+        CWLFile inputFile = new CWLFile();
+        inputFile.setPath(input.toString());
+        inputParameter.setValue(inputFile);
+        CommandOutputParameter outputParameter = new CommandOutputParameter("output");
+        CWLFile outputFile = new CWLFile();
+        outputFile.setPath(workDir.resolve("output.txt").toString());
+        outputParameter.setValue(outputFile);
+        CommandLineTool tool = new CommandLineTool(Arrays.asList(inputParameter), Arrays.asList(outputParameter));
+        FlowExecConf flowExecConf = new FlowExecConf();
+        flowExecConf.setCallCache(conf);
+        CWLCommandInstance instance = new CWLCommandInstance(UUID.randomUUID().toString(), owner, tool, flowExecConf);
+        instance.setName("cached");
+        Map<String, String> instanceRuntime = new HashMap<>(runtime);
+        instanceRuntime.put(CommonUtil.RUNTIME_TMP_DIR, workDir.toString());
+        instanceRuntime.put(CommonUtil.RUNTIME_OUTPUT_DIR, workDir.toString());
+        instance.setRuntime(instanceRuntime);
+        return instance;
+    }
+}
@@ -3,6 +3,8 @@ package com.ibm.spectrumcomputing.cwl.exec.util.command;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -16,19 +18,30 @@ import com.ibm.spectrumcomputing.cwl.exec.util.command.DockerCommandBuilder;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.CommandStdIOEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.InputsEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.RequirementsEvaluator;
+import com.ibm.spectrumcomputing.cwl.model.CWLFieldValue;
 import com.ibm.spectrumcomputing.cwl.model.RuntimeEnv;
+import com.ibm.spectrumcomputing.cwl.model.conf.AutoTuneConf;
 import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
 import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLScatterHolder;
+import com.ibm.spectrumcomputing.cwl.model.persistence.CWLJobUsageRecord;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.CWLParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.ParameterType;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.binding.CommandLineBinding;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.StringType;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.input.InputArrayType;
 import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.input.InputRecordField;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.EnvVarRequirement;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.InlineJavascriptRequirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.Requirement;
+import com.ibm.spectrumcomputing.cwl.model.process.requirement.ResourceRequirement;
 import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
 import com.ibm.spectrumcomputing.cwl.parser.CWLParser;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
 
 public class CommandBuilderTest extends CWLExecTestBase {
 
@@ -223,7 +236,12 @@ public class CommandBuilderTest extends CWLExecTestBase {
             List<String> commands = CommandUtil.buildCommand(instance);
             DockerRequirement dockerRequirement = CWLExecUtil.findRequirement(instance.getProcess(), DockerRequirement.class);
             commands = DockerCommandBuilder.buildDockerRun(dockerRequirement, instance, commands, 0);
-            assertEquals(24, commands.size());
+            // the input files and their secondary files are in one directory,
+            // which is mounted by one read-only volume
+            assertEquals(13, commands.size());
+            assertEquals(1, commands.stream().filter(c -> c.startsWith("--volume=") && c.endsWith(":ro")).count());
+            // the user ids are resolved once
+            assertSame(DockerCommandBuilder.getUserIds(owner), DockerCommandBuilder.getUserIds(owner));
         } else {
             logger.info("The CommandBuilderTest.buildSecondaryFilesDocker cannot run on the Windows");
         }
@@ -248,7 +266,7 @@ public class CommandBuilderTest extends CWLExecTestBase {
             List<String> commands = CommandUtil.buildCommand(instance);
             DockerRequirement dockerRequirement = CWLExecUtil.findRequirement(instance.getProcess(), DockerRequirement.class);
             commands = DockerCommandBuilder.buildDockerRun(dockerRequirement, instance, commands, 0);
-            assertEquals(14, commands.size());
+            assertEquals(13, commands.size());
         } else {
             logger.info("The CommandBuilderTest.buildDocker cannot run on the Windows");
         }
@@ -313,7 +331,7 @@ public class CommandBuilderTest extends CWLExecTestBase {
         instance.setRuntime(runtime);
         instance.setRuntimeEnv(RuntimeEnv.LOCAL);
         List<String> commands = CommandUtil.buildCommand(instance);
-        assertEquals(20, commands.size());
+        assertEquals(13, commands.size());
     }
 
     @Test
@@ -337,7 +355,7 @@ public class CommandBuilderTest extends CWLExecTestBase {
         instance.setRuntime(runtime);
         instance.setRuntimeEnv(RuntimeEnv.LOCAL);
         List<String> commands = CommandUtil.buildCommand(instance);
-        assertEquals(20, commands.size());
+        assertEquals(13, commands.size());
     }
 
     @Test
@@ -365,7 +383,7 @@ public class CommandBuilderTest extends CWLExecTestBase {
         instance.setRuntime(runtime);
         instance.setRuntimeEnv(RuntimeEnv.LOCAL);
         List<String> commands = CommandUtil.buildCommand(instance);
-        assertEquals(16, commands.size());
+        assertEquals(13, commands.size());
     }
 
     @Test
@@ -464,7 +482,7 @@ public class CommandBuilderTest extends CWLExecTestBase {
         instance.setRuntime(runtime);
         instance.setRuntimeEnv(RuntimeEnv.LOCAL);
         List<String> commands = CommandUtil.buildCommand(instance);
-        assertEquals(15, commands.size());
+        assertEquals(14, commands.size());
     }
 
     @Test
@@ -548,4 +566,166 @@ public class CommandBuilderTest extends CWLExecTestBase {
         assertTrue(commands.contains("--INPUT"));
         assertTrue(commands.contains("--OUTPUT"));
     }
-} 
+
+    @Test
+    public void tuneMemoryFromJobUsage() {
+        CWLJobUsageRecord usage = LSFCommandUtil.toJobUsage("1.5 Gbytes,30 second(s),12.5 second(s)");
+        assertEquals(Long.valueOf(1536L), usage.getMaxMem());
+        assertEquals(Long.valueOf(30L), usage.getRunTime());
+        assertEquals(Double.valueOf(12.5), usage.getCpuUsed());
+        usage = LSFCommandUtil.toJobUsage("512 Kbytes,-,00:01:02.5");
+        assertEquals(Long.valueOf(1L), usage.getMaxMem());
+        assertNull(usage.getRunTime());
+        assertEquals(Double.valueOf(62.5), usage.getCpuUsed());
+        assertNull(LSFCommandUtil.toJobUsage("-"));
+        AutoTuneConf autoTuneConf = new AutoTuneConf();
+        List<Long> maxMems = Arrays.asList(100L, 200L, 300L, 400L, 1000L);
+        assertEquals(400L, ResourceTuner.percentile(maxMems, 80));
+        assertEquals(1000L, ResourceTuner.percentile(maxMems, 95));
+        assertTrue(ResourceTuner.isShortRunning(Arrays.asList(5L, 10L, 120L), 30));
+        assertFalse(ResourceTuner.isShortRunning(Arrays.asList(5L, 60L, 120L), 30));
+        assertFalse(ResourceTuner.isShortRunning(null, 30));
+        autoTuneConf.setPercentile(80);
+        assertEquals(Arrays.asList("-M", "1200", "-R", "rusage[mem=480]"),
+                ResourceTuner.buildTunedMemCommand(maxMems, autoTuneConf, null));
+        // the ResourceRequirement is the upper bound
+        ResourceRequirement resReq = new ResourceRequirement();
+        resReq.setRamMin(256L);
+        resReq.setRamMax(1024L);
+        assertEquals(Arrays.asList("-M", "1024", "-R", "rusage[mem=256]"),
+                ResourceTuner.buildTunedMemCommand(maxMems, autoTuneConf, resReq));
+        autoTuneConf.setMinSamples(10);
+        assertNull(ResourceTuner.buildTunedMemCommand(maxMems, autoTuneConf, null));
+    }
+
+    @Test
+    public void packScatterCommands() {
+        String script = ScatterPacker.toChunkScript(Arrays.asList(3, 4), Arrays.asList("/tmp/scatter3", "/tmp/scatter4"),
+                Arrays.asList("/tmp/step.scatter3.exit", "/tmp/step.scatter4.exit"),
+                Arrays.asList("echo 3 > out.txt", "echo 4 > out.txt"), new int[] { 2 });
+        assertTrue(script.contains("(cd \"/tmp/scatter3\" && echo 3 > out.txt)"));
+        assertTrue(script.contains("(cd \"/tmp/scatter4\" && echo 4 > out.txt)"));
+        assertTrue(script.contains("echo $CWLEXEC_SCATTER_EXIT_CODE > \"/tmp/step.scatter4.exit\""));
+        assertTrue(script.contains("echo \"scatter4 exited with $CWLEXEC_SCATTER_EXIT_CODE\" >&2"));
+        assertTrue(script.contains("0|2) ;;"));
+        assertTrue(script.endsWith("exit $CWLEXEC_EXIT_CODE\n"));
+        assertEquals(1, ScatterPacker.toAdaptiveChunkSize(null));
+        assertEquals(1, ScatterPacker.toAdaptiveChunkSize(Arrays.asList(600L)));
+        assertEquals(100, ScatterPacker.toAdaptiveChunkSize(Arrays.asList(2L, 3L, 30L)));
+        assertEquals(300, ScatterPacker.toAdaptiveChunkSize(Arrays.asList(0L)));
+    }
+
+    @Test
+    public void runPackedScatterCommands() throws CWLException {
+        if (is_win) {
+            logger.warn("The CommandBuilderTest#runPackedScatterCommands is unsupported on Windows");
+            return;
+        }
+        CommandLineTool tool = new CommandLineTool(new ArrayList<>(), new ArrayList<>());
+        tool.setSuccessCodes(new int[] { 3 });
+        CWLCommandInstance instance = new CWLCommandInstance(CommonUtil.getRandomStr(), owner, tool,
+                new FlowExecConf());
+        instance.setName("packed_" + CommonUtil.getRandomStr());
+        instance.setRuntime(runtime);
+        List<CWLScatterHolder> chunk = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            CWLScatterHolder scatterHolder = new CWLScatterHolder();
+            scatterHolder.setScatterIndex(i);
+            chunk.add(scatterHolder);
+            new File(runtime.get(CommonUtil.RUNTIME_TMP_DIR), String.format("scatter%d", i)).mkdirs();
+        }
+        instance.setScatterHolders(chunk);
+        // the first element exits with a success code, the second one fails
+        String script = ScatterPacker.packScatterCommands(instance, chunk, Arrays.asList("exit 3", "exit 5", "true"));
+        CommandExecutionResult result = CommandExecutor.run(Arrays.asList("/bin/bash", script));
+        assertEquals(5, result.getExitCode());
+        assertEquals(Integer.valueOf(5), ScatterPacker.findFailedElementExitCode(instance));
+        script = ScatterPacker.packScatterCommands(instance, chunk, Arrays.asList("exit 3", "true", "true"));
+        result = CommandExecutor.run(Arrays.asList("/bin/bash", script));
+        assertEquals(0, result.getExitCode());
+        assertNull(ScatterPacker.findFailedElementExitCode(instance));
+    }
+
+    @Test
+    public void fuseChainCommands() {
+        String script = ChainFuser.toChainScript(Arrays.asList("/work/step1", "/work/step2"),
+                Arrays.asList("/tmp/step1", "/tmp/step2"));
+        assertTrue(script.startsWith("#!/bin/bash\n"));
+        assertTrue(script.contains("cwlexec_run_step \"/work/step1\" \"/tmp/step1\"\n"));
+        assertTrue(script.endsWith("cwlexec_run_step \"/work/step2\" \"/tmp/step2\"\n"));
+        assertTrue(script.contains("until [ -e \"$2.ready\" ]; do"));
+        assertTrue(script.contains("mv \"$2.exit.tmp\" \"$2.exit\""));
+    }
+
+    @Test
+    public void prepareDockerImageOnce() {
+        DockerRequirement dockerReq = new DockerRequirement();
+        dockerReq.setDockerImageId("ubuntu:16.04");
+        dockerReq.setDockerLoad("/images/ubuntu.tar");
+        DockerRequirement sameReq = new DockerRequirement();
+        sameReq.setDockerImageId("ubuntu:16.04");
+        sameReq.setDockerLoad("/images/ubuntu.tar");
+        String key = DockerImagePreparer.toImageKey(dockerReq);
+        assertEquals(16, key.length());
+        assertEquals(key, DockerImagePreparer.toImageKey(sameReq));
+        sameReq.setDockerLoad("/images/ubuntu-new.tar");
+        assertNotEquals(key, DockerImagePreparer.toImageKey(sameReq));
+        String script = DockerImagePreparer.toPrepareScript(key, "ubuntu:16.04",
+                "docker load --input /images/ubuntu.tar");
+        assertTrue(script.contains("CWLEXEC_IMAGE=\"ubuntu:16.04\"\n"));
+        assertTrue(script.contains("cwlexec_has_image && exit 0\n"));
+        assertTrue(script.contains(String.format("CWLEXEC_PREPARED=\"/tmp/cwlexec-$(id -u)-%s\"", key)));
+        assertTrue(script.contains("flock 9"));
+        assertTrue(script.contains("docker load --input /images/ubuntu.tar\n"));
+        assertTrue(script.contains("touch \"$CWLEXEC_PREPARED.done\""));
+    }
+
+    @Test
+    public void buildScatterValueFrom() throws CWLException {
+        CommandInputParameter word = new CommandInputParameter("word");
+        ParameterType wordType = new ParameterType();
+        ParameterType itemType = new ParameterType();
+        itemType.setType(new StringType());
+        wordType.setType(new InputArrayType(itemType));
+        word.setType(wordType);
+        CommandLineBinding wordBinding = new CommandLineBinding();
+        wordBinding.setPosition(1);
+        CWLFieldValue valueFrom = new CWLFieldValue();
+        valueFrom.setExpression("$(self + \"-x\")");
+        wordBinding.setValueFrom(valueFrom);
+        word.setInputBinding(wordBinding);
+        List<String> words = new ArrayList<>();
+        for (int i = 1; i <= 16; i++) {
+            words.add("w" + i);
+        }
+        word.setValue(words);
+        CommandInputParameter tag = new CommandInputParameter("tag");
+        ParameterType tagType = new ParameterType();
+        tagType.setType(new StringType());
+        tag.setType(tagType);
+        CommandLineBinding tagBinding = new CommandLineBinding();
+        tagBinding.setPosition(2);
+        tag.setInputBinding(tagBinding);
+        tag.setValue("shared");
+        CommandLineTool tool = new CommandLineTool(Arrays.asList(word, tag), new ArrayList<>());
+        tool.setBaseCommand(Arrays.asList("echo"));
+        List<Requirement> requirements = new ArrayList<>();
+        requirements.add(new InlineJavascriptRequirement());
+        tool.setRequirements(requirements);
+        CWLCommandInstance instance = new CWLCommandInstance(CommonUtil.getRandomStr(), owner, tool,
+                new FlowExecConf());
+        instance.setName("scatter_" + CommonUtil.getRandomStr());
+        instance.setRuntime(runtime);
+        instance.setScatter(Arrays.asList("word"));
+        instance.setScatterHolders(new ArrayList<>());
+        CommandUtil.buildScatterCommand(instance);
+        List<CWLScatterHolder> scatterHolders = instance.getScatterHolders();
+        assertEquals(16, scatterHolders.size());
+        for (int i = 1; i <= 16; i++) {
+            CWLScatterHolder scatterHolder = scatterHolders.get(i - 1);
+            assertEquals(i, scatterHolder.getScatterIndex());
+            assertEquals(Arrays.asList("echo", "w" + i + "-x", "shared"), scatterHolder.getCommand());
+        }
+        assertNull(valueFrom.getValue());
+    }
+}
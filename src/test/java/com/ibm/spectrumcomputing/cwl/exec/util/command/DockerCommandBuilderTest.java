@@ -2,9 +2,19 @@ package com.ibm.spectrumcomputing.cwl.exec.util.command;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Test;
 
 import com.ibm.spectrumcomputing.cwl.exec.util.command.DockerCommandBuilder;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.ParameterType;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.FileType;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
 import com.ibm.spectrumcomputing.cwl.model.process.requirement.DockerRequirement;
 
 public class DockerCommandBuilderTest {
@@ -37,4 +47,48 @@ public class DockerCommandBuilderTest {
         imageId = DockerCommandBuilder.findImageId(dockerRequirement);
         assertEquals("myregistry.local:5000/testing/test-image:10.2", imageId);
     }
+
+    @Test
+    public void mappingNestedInputs() {
+        String x = path("/data/run/x.txt");
+        String y = path("/data/run/sub/y.txt");
+        List<CommandInputParameter> inputs = Arrays.asList(createFileInput("x", x), createFileInput("y", y));
+        Map<String, String> volumes = new HashMap<>();
+        Map<String, String> mapping = DockerCommandBuilder.mappingInputs(inputs, path("/var/lib/cwl/stg"), volumes);
+        // the directory of y is covered by the volume of the directory of x
+        assertEquals(1, volumes.size());
+        assertEquals(path("/var/lib/cwl/stg/run"), volumes.get(path("/data/run")));
+        assertEquals(path("/var/lib/cwl/stg/run/x.txt"), mapping.get(x));
+        assertEquals(path("/var/lib/cwl/stg/run/sub/y.txt"), mapping.get(y));
+    }
+
+    @Test
+    public void mappingClashingInputs() {
+        String x = path("/data/a/in/x.txt");
+        String y = path("/data/b/in/y.txt");
+        List<CommandInputParameter> inputs = Arrays.asList(createFileInput("x", x), createFileInput("y", y));
+        Map<String, String> volumes = new HashMap<>();
+        Map<String, String> mapping = DockerCommandBuilder.mappingInputs(inputs, path("/var/lib/cwl/stg"), volumes);
+        // two different directories have the same name
+        assertEquals(2, volumes.size());
+        assertEquals(path("/var/lib/cwl/stg/in"), volumes.get(path("/data/a/in")));
+        assertEquals(path("/var/lib/cwl/stg/in_2"), volumes.get(path("/data/b/in")));
+        assertEquals(path("/var/lib/cwl/stg/in/x.txt"), mapping.get(x));
+        assertEquals(path("/var/lib/cwl/stg/in_2/y.txt"), mapping.get(y));
+    }
+
+    private CommandInputParameter createFileInput(String id, String filePath) {
+        CommandInputParameter input = new CommandInputParameter(id);
+        ParameterType type = new ParameterType();
+        type.setType(new FileType());
+        input.setType(type);
+        CWLFile file = new CWLFile();
+        file.setPath(filePath);
+        input.setValue(file);
+        return input;
+    }
+
+    private String path(String path) {
+        return Paths.get(path).toString();
+    }
 }
@@ -0,0 +1,88 @@
+package com.ibm.spectrumcomputing.cwl.exec.util.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.binding.CommandOutputBinding;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.binding.OutputBindingGlob;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.output.CommandOutputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+
+public class LSFCommandUtilTest extends CWLExecTestBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(LSFCommandUtilTest.class);
+
+    private static final String COMMAND = "rm -f out && mkdir -p out && echo hi > out/a.txt";
+
+    @Test
+    public void stageOutScratchGlobDirectory() throws CWLException, IOException {
+        if (!is_win) {
+            Path workDir = createWorkDir();
+            CommandExecutionResult result = runScratchWrapper(workDir);
+            assertEquals(0, result.getExitCode());
+            assertTrue(workDir.resolve("out/a.txt").toFile().isFile());
+        } else {
+            logger.warn("The LSFCommandUtilTest#stageOutScratchGlobDirectory is unsupported on Windows");
+        }
+    }
+
+    @Test
+    public void failScratchStageOut() throws CWLException, IOException {
+        if (!is_win) {
+            Path workDir = createWorkDir();
+            // a regular file blocks the output directory from being created
+            Files.write(workDir.resolve("out"), "blocker".getBytes());
+            CommandExecutionResult result = runScratchWrapper(workDir);
+            assertNotEquals(0, result.getExitCode());
+        } else {
+            logger.warn("The LSFCommandUtilTest#failScratchStageOut is unsupported on Windows");
+        }
+    }
+
+    private Path createWorkDir() throws IOException {
+        Path workDir = Paths.get(runtime.get(CommonUtil.RUNTIME_TMP_DIR), "scratch-" + UUID.randomUUID());
+        Files.createDirectories(workDir);
+        return workDir;
+    }
+
+    private CommandExecutionResult runScratchWrapper(Path workDir) throws CWLException {
+        OutputBindingGlob glob = new OutputBindingGlob();
+        glob.setPatterns(Arrays.asList("out/*.txt"));
+        CommandOutputBinding outputBinding = new CommandOutputBinding();
+        outputBinding.setGlob(glob);
+        CommandOutputParameter output = new CommandOutputParameter("output");
+        output.setOutputBinding(outputBinding);
+        CommandLineTool tool = new CommandLineTool(new ArrayList<>(), Arrays.asList(output));
+        FlowExecConf flowExecConf = new FlowExecConf();
+        flowExecConf.setScratch(workDir.toString() + File.separator + "scratch");
+        flowExecConf.setScratchOutdir(true);
+        CWLCommandInstance instance = new CWLCommandInstance(UUID.randomUUID().toString(), owner, tool, flowExecConf);
+        instance.setName("stage_out");
+        Map<String, String> instanceRuntime = new HashMap<>(runtime);
+        instanceRuntime.put(CommonUtil.RUNTIME_TMP_DIR, workDir.toString());
+        instance.setRuntime(instanceRuntime);
+        String wrapper = LSFCommandUtil.wrapScratchCommand(instance, COMMAND, 0);
+        return CommandExecutor.run(Arrays.asList("/bin/bash", wrapper));
+    }
+}
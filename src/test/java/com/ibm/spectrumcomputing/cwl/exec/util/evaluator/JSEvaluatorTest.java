@@ -2,15 +2,22 @@ package com.ibm.spectrumcomputing.cwl.exec.util.evaluator;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
 import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
+import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.ExpressionBatch;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.JSEvaluator;
 import com.ibm.spectrumcomputing.cwl.exec.util.evaluator.JSResultWrapper;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.input.CommandInputParameter;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.NullValue;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
 
 public class JSEvaluatorTest extends CWLExecTestBase {
 
@@ -101,4 +108,132 @@ public class JSEvaluatorTest extends CWLExecTestBase {
         assertTrue(r.isBool());
         assertTrue(r.asBool());
     }
+
+    @Test
+    public void heldInputsContext() {
+        CommandInputParameter name = new CommandInputParameter("name");
+        name.setValue("test");
+        CommandInputParameter empty = new CommandInputParameter("empty");
+        empty.setValue(NullValue.NULL);
+        List<CommandInputParameter> inputs = Arrays.asList(name, empty);
+        assertEquals("var inputs={\"name\":\"test\",\"empty\":null};", JSEvaluator.toInputsContext(inputs));
+        JSEvaluator.holdContext();
+        try {
+            String context = JSEvaluator.toInputsContext(inputs);
+            assertSame(context, JSEvaluator.toInputsContext(inputs));
+            // the context is rebuilt after a value was replaced
+            name.setValue("other");
+            assertEquals("var inputs={\"name\":\"other\",\"empty\":null};", JSEvaluator.toInputsContext(inputs));
+        } finally {
+            JSEvaluator.releaseContext();
+        }
+    }
+
+    @Test
+    public void batchedEvaluation() throws CWLException {
+        ExpressionBatch.open();
+        try {
+            JSResultWrapper r = JSEvaluator.evaluate(Arrays.asList("var inputs={\"n\": 1}", "var self=\"a\""),
+                    "$(inputs.n + self)");
+            assertEquals("1a", r.asString());
+            // the self of the previous expression must not leak
+            r = JSEvaluator.evaluate(Arrays.asList("var inputs={\"n\": 2}"), "$(typeof self)");
+            assertEquals("undefined", r.asString());
+            r = JSEvaluator.evaluate(Arrays.asList("var inputs={\"n\": 2}"), "$(inputs.n)");
+            assertTrue(r.isLong());
+            assertEquals(2L, r.asLong());
+            r = JSEvaluator.evaluate("$(1.5)");
+            assertTrue(r.isDouble());
+        } finally {
+            ExpressionBatch.close();
+        }
+    }
+
+    @Test
+    public void isolatedBatchedEvaluation() throws CWLException {
+        List<String> context = Arrays.asList("var lib=function(){return 1;}", "var inputs={\"l\": [1, 2]}");
+        ExpressionBatch.open();
+        try {
+            // the inputs changed by an expression are evaluated again for the next one
+            JSResultWrapper r = JSEvaluator.evaluate(context, "${ inputs.l.push(9); return inputs.l.length; }");
+            assertEquals(3L, r.asLong());
+            r = JSEvaluator.evaluate(context, "${ inputs.l.push(9); return inputs.l.length; }");
+            assertEquals(3L, r.asLong());
+            // a global assigned by an expression does not leak
+            r = JSEvaluator.evaluate(context, "$(counter = 41)");
+            assertEquals(41L, r.asLong());
+            r = JSEvaluator.evaluate(context, "$(typeof counter)");
+            assertEquals("undefined", r.asString());
+            // the expression library is still available
+            r = JSEvaluator.evaluate(context, "$(lib() + inputs.l.length)");
+            assertEquals(3L, r.asLong());
+        } finally {
+            ExpressionBatch.close();
+        }
+    }
+
+    @Test
+    public void interpolatedResult() throws CWLException {
+        List<String> libs = Arrays.asList("var inputs={\"a\": \"$(inputs.b)\", \"b\": 1}");
+        // a slot value that looks like another slot is not replaced again
+        JSResultWrapper r = JSEvaluator.evaluate(libs, "x-$(inputs.a)/$(inputs.b)");
+        assertEquals("x-$(inputs.b)/1", r.asString());
+        r = JSEvaluator.evaluate(libs, "x-$(inputs.a)/$(inputs.b)");
+        assertEquals("x-$(inputs.b)/1", r.asString());
+    }
+
+    @Test
+    public void interpolatedSeparators() throws CWLException {
+        List<String> libs = Arrays.asList("var inputs={\"a\": \"x\", \"b\": 1}");
+        JSResultWrapper r = JSEvaluator.evaluate(libs, "$(inputs.a) $(inputs.b)");
+        assertEquals("x 1", r.asString());
+        r = JSEvaluator.evaluate(libs, "pre $(inputs.a), $(inputs.b) post");
+        assertEquals("pre x, 1 post", r.asString());
+        // the parentheses in the slots and their string literals are balanced
+        r = JSEvaluator.evaluate(libs, "$(inputs.a.concat(')', (1 + 2))),$(\"(\" + inputs.b)");
+        assertEquals("x)3,(1", r.asString());
+        // an unclosed slot is a literal
+        r = JSEvaluator.evaluate(libs, "$(inputs.a) $(inputs.b");
+        assertEquals("x $(inputs.b", r.asString());
+    }
+
+    @Test
+    public void pooledEngine() throws CWLException {
+        JSResultWrapper r = JSEvaluator.evaluate(Arrays.asList("var self=1"), "$(self)");
+        assertEquals(1L, r.asLong());
+        // the engine is reused, but the variables of the previous evaluation are gone
+        r = JSEvaluator.evaluate("$(typeof self)");
+        assertEquals("undefined", r.asString());
+        assertEquals("nashorn", JSEnginePool.selectProvider("no-such-engine").getName());
+    }
+
+    @Test
+    public void genericResult() throws CWLException {
+        // the objects and arrays given by an engine other than Nashorn
+        Map<String, Object> secondaryFile = new LinkedHashMap<>();
+        secondaryFile.put("class", "File");
+        secondaryFile.put("path", "/tmp/a.txt.idx");
+        Map<String, Object> file = new LinkedHashMap<>();
+        file.put("class", "File");
+        file.put("path", "/tmp/a.txt");
+        file.put("size", 3);
+        file.put("secondaryFiles", Arrays.asList(secondaryFile));
+        JSResultWrapper r = new JSResultWrapper(file);
+        assertFalse(r.isNull());
+        assertTrue(r.isObject());
+        assertFalse(r.isArray());
+        assertTrue(r.isCWLFile());
+        CWLFile cwlFile = r.asCWLFile();
+        assertEquals("/tmp/a.txt", cwlFile.getPath());
+        assertEquals(3L, cwlFile.getSize());
+        assertEquals("/tmp/a.txt.idx", cwlFile.getSecondaryFiles().get(0).getPath());
+        r = new JSResultWrapper(Arrays.asList(1, "b"));
+        assertTrue(r.isArray());
+        List<JSResultWrapper> elements = r.elements();
+        assertEquals(2, elements.size());
+        assertEquals(1L, elements.get(0).asLong());
+        assertEquals("b", elements.get(1).asString());
+        assertTrue(new JSResultWrapper(new ArrayList<>()).isNull());
+        assertTrue(new JSResultWrapper(new LinkedHashMap<>()).isNull());
+    }
 }
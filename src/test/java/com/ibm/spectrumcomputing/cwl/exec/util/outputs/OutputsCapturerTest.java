@@ -1,6 +1,7 @@
 package com.ibm.spectrumcomputing.cwl.exec.util.outputs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.HashMap;
@@ -55,6 +56,16 @@ public class OutputsCapturerTest extends CWLExecTestBase {
         @SuppressWarnings("unchecked")
         List<CWLFile> files = (List<CWLFile>) findParameter("output_sraFiles", processObj.getOutputs()).getValue();
         assertEquals(3, files.size());
+        // the captured outputs can be restored from JSON
+        String outputsJson = OutputsJsonConverter.toJson(instance);
+        findParameter("output_path", processObj.getOutputs()).setValue(null);
+        assertTrue(OutputsJsonConverter.restore(instance, outputsJson));
+        assertEquals("test0.test1", findParameter("output_path", processObj.getOutputs()).getValue());
+        assertEquals(1234.56789, findParameter("output_length", processObj.getOutputs()).getValue());
+        @SuppressWarnings("unchecked")
+        List<CWLFile> restoredFiles = (List<CWLFile>) findParameter("output_sraFiles", processObj.getOutputs()).getValue();
+        assertEquals(files.get(0).getPath(), restoredFiles.get(0).getPath());
+        assertEquals(outputsJson, OutputsJsonConverter.toJson(instance));
     }
 
     @Test
@@ -0,0 +1,88 @@
+package com.ibm.spectrumcomputing.cwl.exec.util.profile;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
+import com.ibm.spectrumcomputing.cwl.model.conf.FlowExecConf;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLCommandInstance;
+import com.ibm.spectrumcomputing.cwl.model.instance.CWLInstanceState;
+import com.ibm.spectrumcomputing.cwl.model.process.tool.CommandLineTool;
+import com.ibm.spectrumcomputing.cwl.parser.util.CommonUtil;
+
+public class RunProfilerTest extends CWLExecTestBase {
+
+    @Test
+    public void writeRunProfile() throws Exception {
+        Path outputDir = Paths.get(System.getProperty("java.io.tmpdir"), "test_profile_" + CommonUtil.getRandomStr());
+        CWLCommandInstance instance = createProfiledInstance(outputDir);
+        instance.setHPCJobId(1001L);
+        // the LSF job report, the job was pending 2s, running 5s
+        SimpleDateFormat format = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy", Locale.US);
+        long submitted = (System.currentTimeMillis() / 1000L) * 1000L;
+        Files.write(outputDir.resolve("1001_out"), Arrays.asList(
+                "Started at " + format.format(submitted + 2000L),
+                "Terminated at " + format.format(submitted + 7000L)), StandardCharsets.UTF_8);
+        RunProfiler.record(instance, ProfilePhase.SUBMIT, submitted - 100L, submitted);
+        RunProfiler.recordLSFJob(instance, submitted + 7500L);
+        instance.setState(CWLInstanceState.DONE);
+        instance.setStartTime(submitted - 100L);
+        instance.setEndTime(submitted + 8000L);
+        RunProfiler.write(instance);
+        File profile = outputDir.resolve(RunProfiler.PROFILE_FILE).toFile();
+        assertTrue(profile.exists());
+        String profileJson = new String(Files.readAllBytes(profile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(profileJson.contains("\"pending\" : 2000"));
+        assertTrue(profileJson.contains("\"run\" : 5000"));
+        assertTrue(profileJson.contains("\"notify\" : 500"));
+        String metrics = new String(Files.readAllBytes(outputDir.resolve(RunProfiler.METRICS_FILE)),
+                StandardCharsets.UTF_8);
+        assertTrue(metrics.contains("step=\"profiled\",phase=\"run\"} 5.0"));
+        assertTrue(metrics.contains("cwlexec_workflow_wall_seconds{"));
+        String trace = new String(Files.readAllBytes(outputDir.resolve(RunProfiler.TRACE_FILE)),
+                StandardCharsets.UTF_8);
+        assertTrue(trace.contains("\"traceEvents\""));
+        assertTrue(trace.contains("{\"name\":\"run\",\"cat\":\"cwlexec\",\"ph\":\"X\",\"pid\":1,\"ts\":2100000,"
+                + "\"dur\":5000000,\"tid\":1,\"args\":{\"jobId\":1001}}"));
+    }
+
+    @Test
+    public void clearRunProfile() throws Exception {
+        Path outputDir = Paths.get(System.getProperty("java.io.tmpdir"), "test_profile_" + CommonUtil.getRandomStr());
+        CWLCommandInstance instance = createProfiledInstance(outputDir);
+        long now = System.currentTimeMillis();
+        RunProfiler.record(instance, ProfilePhase.BUILD, now - 100L, now);
+        RunProfiler.recordCriticalPath(instance, new HashMap<>(), Arrays.asList("profiled"));
+        // the flow ended without writing its profile
+        RunProfiler.clear(instance);
+        RunProfiler.write(instance);
+        assertFalse(outputDir.resolve(RunProfiler.PROFILE_FILE).toFile().exists());
+    }
+
+    private CWLCommandInstance createProfiledInstance(Path outputDir) throws Exception {
+        Map<String, String> profileRuntime = new HashMap<>();
+        profileRuntime.put(CommonUtil.RUNTIME_TMP_DIR, outputDir.toString());
+        profileRuntime.put(CommonUtil.RUNTIME_OUTPUT_DIR, outputDir.toString());
+        Files.createDirectories(outputDir);
+        CommandLineTool commandLineTool = new CommandLineTool(new ArrayList<>(), new ArrayList<>());
+        CWLCommandInstance instance = new CWLCommandInstance(CommonUtil.getRandomStr(), owner, commandLineTool,
+                new FlowExecConf());
+        instance.setName("profiled");
+        instance.setRuntime(profileRuntime);
+        return instance;
+    }
+}
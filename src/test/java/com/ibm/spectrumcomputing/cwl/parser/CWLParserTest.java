@@ -283,6 +283,8 @@ public class CWLParserTest extends CWLExecTestBase {
         List<CWLFile> input = (List<CWLFile>) findParameter("input", params).getValue();
         Path path = Paths.get(input.get(0).getPath());
         assertEquals("SRR1031972.bedGraph", path.getFileName().toString());
+        // the streamed file array is stat'ed after the settings were read
+        assertEquals(path.toFile().length(), input.get(0).getSize());
         List<String> key = (List<String>) findParameter("key", params).getValue();
         assertEquals(2, key.size());
     }
@@ -3,12 +3,14 @@ package com.ibm.spectrumcomputing.cwl.parser.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -20,6 +22,9 @@ import com.ibm.spectrumcomputing.cwl.CWLExecTestBase;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutionResult;
 import com.ibm.spectrumcomputing.cwl.exec.util.command.CommandExecutor;
 import com.ibm.spectrumcomputing.cwl.model.exception.CWLException;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLDirectory;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFile;
+import com.ibm.spectrumcomputing.cwl.model.process.parameter.type.file.CWLFileBase;
 
 public class CWLIOUtilTest extends CWLExecTestBase {
 
@@ -140,4 +145,94 @@ public class CWLIOUtilTest extends CWLExecTestBase {
         StringBuilder sb = IOUtil.readLSFOutputFile(outFile);
         assertEquals(1320, sb.length());
     }
+
+    @Test
+    public void toCompactCWLFile() {
+        if (is_win) {
+            logger.warn("The CWLIOUtilTest#toCompactCWLFile is unsupported on Windows");
+            return;
+        }
+        Path path = Paths.get(DEF_ROOT_PATH + "files/hello.tar");
+        CWLFile file = IOUtil.toCWLFile(path, true);
+        CWLFile other = IOUtil.toCWLFile(Paths.get(DEF_ROOT_PATH + "files/source1.c"), true);
+        assertSame(file.getDirname(), other.getDirname());
+        assertEquals("file://" + path.toString(), file.getLocation());
+        assertEquals("hello", file.getNameroot());
+        assertEquals(".tar", file.getNameext());
+        // the derived fields are kept when the path is moved
+        file.setPath("/tmp/moved.tar.gz");
+        assertEquals("file://" + path.toString(), file.getLocation());
+        assertEquals(path.getParent().toString(), file.getDirname());
+        assertEquals(10240, file.getSize());
+        file.setBasename("moved.tar.gz");
+        assertEquals("hello", file.getNameroot());
+        file.setNameroot("moved.tar");
+        assertEquals("moved.tar", file.getNameroot());
+    }
+
+    @Test
+    public void serializeCompactCWLFile() throws IOException {
+        if (is_win) {
+            logger.warn("The CWLIOUtilTest#serializeCompactCWLFile is unsupported on Windows");
+            return;
+        }
+        Path dir = Paths.get(runtime.get(CommonUtil.RUNTIME_TMP_DIR), CommonUtil.getRandomStr());
+        Files.createDirectories(dir.resolve("index"));
+        Files.write(dir.resolve("reads.bam"), "12345".getBytes());
+        Files.write(dir.resolve("reads.bam.bai"), "123".getBytes());
+        // the output of the CWLFile that kept each field as a string
+        String expected = String.format(
+                "{\"location\":\"file://%1$s/reads.bam\",\"path\":\"%1$s/reads.bam\","
+                + "\"basename\":\"reads.bam\",\"dirname\":\"%1$s\",\"nameroot\":\"reads\","
+                + "\"nameext\":\".bam\",\"size\":5,"
+                + "\"secondaryFiles\":[{\"location\":\"file://%1$s/reads.bam.bai\","
+                + "\"path\":\"%1$s/reads.bam.bai\",\"basename\":\"reads.bam.bai\",\"dirname\":\"%1$s\","
+                + "\"nameroot\":\"reads.bam\",\"nameext\":\".bai\",\"size\":3,\"class\":\"File\"},"
+                + "{\"location\":\"file://%1$s/index\",\"path\":\"%1$s/index\",\"basename\":\"index\","
+                + "\"class\":\"Directory\"}],\"format\":\"http://edamontology.org/format_2572\","
+                + "\"class\":\"File\"}", dir);
+        CWLFile file = IOUtil.toCWLFile(dir.resolve("reads.bam"), true);
+        file.setFormat("http://edamontology.org/format_2572");
+        List<CWLFileBase> secondaryFiles = new ArrayList<>();
+        secondaryFiles.add(IOUtil.toCWLFile(dir.resolve("reads.bam.bai"), true));
+        CWLDirectory index = new CWLDirectory();
+        index.setBasename("index");
+        index.setLocation("file://" + dir.resolve("index"));
+        index.setPath(dir.resolve("index").toString());
+        secondaryFiles.add(index);
+        file.setSecondaryFiles(secondaryFiles);
+        assertEquals(expected, CommonUtil.asJsonStr(file));
+        // the fields can be set in any order
+        CWLFile other = new CWLFile();
+        other.setDirname(dir.toString());
+        other.setNameext(".bam");
+        other.setPath(dir.resolve("reads.bam").toString());
+        other.setSize(5);
+        other.setLocation("file://" + dir.resolve("reads.bam"));
+        other.setNameroot("reads");
+        other.setBasename("reads.bam");
+        other.setFormat("http://edamontology.org/format_2572");
+        other.setSecondaryFiles(secondaryFiles);
+        assertEquals(expected, CommonUtil.asJsonStr(other));
+    }
+
+    @Test
+    public void readDeferredSizeOfRemovedFile() throws IOException {
+        if (is_win) {
+            logger.warn("The CWLIOUtilTest#readDeferredSizeOfRemovedFile is unsupported on Windows");
+            return;
+        }
+        Path dir = Paths.get(runtime.get(CommonUtil.RUNTIME_TMP_DIR), CommonUtil.getRandomStr());
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("read.txt"), "12345".getBytes());
+        Files.write(dir.resolve("removed.txt"), "12345".getBytes());
+        CWLFile read = IOUtil.toCWLFile(dir.resolve("read.txt"), true);
+        CWLFile removed = IOUtil.toCWLFile(dir.resolve("removed.txt"), true);
+        assertEquals(5, read.getSize());
+        Files.delete(dir.resolve("read.txt"));
+        Files.delete(dir.resolve("removed.txt"));
+        // the size was read before the file was removed
+        assertEquals(5, read.getSize());
+        assertEquals(0, removed.getSize());
+    }
 }